@@ -0,0 +1,314 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.gpclient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.epics.gpclient.datasource.DataSource;
+import org.epics.gpclient.datasource.ReadSubscription;
+import org.epics.gpclient.datasource.WriteSubscription;
+import org.epics.vtype.VType;
+
+/**
+ * A one-shot operation on many channels at once.
+ * <p>
+ * The channels are subscribed directly to the data source, with a minimal
+ * collector for each, without creating a pv, a director or a rate decoupler.
+ * All the subscriptions are submitted together, so the data source can
+ * process them in a single batch and the protocol can connect them in parallel.
+ * Each channel is unsubscribed as soon as its own result is available.
+ *
+ * @param <T> the result for each channel
+ */
+abstract class BulkOperation<T> {
+
+    private final DataSource dataSource;
+    private final ScheduledExecutorService timeoutExecutor;
+    private final Duration timeout;
+    private final List<String> channelNames;
+    private final Map<String, T> results = new LinkedHashMap<>();
+    private final Map<String, Exception> errors = new LinkedHashMap<>();
+    private final AtomicInteger remaining;
+    private final CompletableFuture<Map<String, T>> future = new CompletableFuture<>();
+    private volatile ScheduledFuture<?> timeoutTask;
+
+    BulkOperation(DataSource dataSource, ScheduledExecutorService timeoutExecutor, Collection<String> channelNames, Duration timeout) {
+        this.dataSource = dataSource;
+        this.timeoutExecutor = timeoutExecutor;
+        this.timeout = timeout;
+        this.channelNames = new ArrayList<>(new LinkedHashSet<>(channelNames));
+        this.remaining = new AtomicInteger(this.channelNames.size());
+    }
+
+    DataSource getDataSource() {
+        return dataSource;
+    }
+
+    List<String> getChannelNames() {
+        return channelNames;
+    }
+
+    /**
+     * Subscribes all the channels and returns the future for the results.
+     *
+     * @return the future results
+     */
+    CompletableFuture<Map<String, T>> start() {
+        if (channelNames.isEmpty()) {
+            future.complete(new LinkedHashMap<>());
+            return future;
+        }
+
+        // If the user cancels, or when the operation is completed,
+        // make sure that no channel is left open
+        future.whenComplete((result, ex) -> {
+            ScheduledFuture<?> task = timeoutTask;
+            if (task != null) {
+                task.cancel(false);
+            }
+            closeAll();
+        });
+
+        if (timeout != null) {
+            timeoutTask = timeoutExecutor.schedule(() -> {
+                expireAll(new TimeoutException("Bulk operation timed out after " + timeout));
+            }, timeout.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        startAll();
+        return future;
+    }
+
+    /**
+     * Subscribes all the channels to the data source.
+     */
+    abstract void startAll();
+
+    /**
+     * Unsubscribes all the channels that are still open.
+     */
+    abstract void closeAll();
+
+    /**
+     * Fails all the channels that have not completed yet.
+     *
+     * @param ex the error for all pending channels
+     */
+    abstract void expireAll(Exception ex);
+
+    /**
+     * Records the outcome for one channel. Must be called exactly once
+     * for each channel.
+     *
+     * @param channelName the channel name
+     * @param result the result if successful
+     * @param error the error if failed
+     */
+    void channelDone(String channelName, T result, Exception error) {
+        synchronized (results) {
+            if (error == null) {
+                results.put(channelName, result);
+            } else {
+                errors.put(channelName, error);
+            }
+        }
+        if (remaining.decrementAndGet() == 0) {
+            complete();
+        }
+    }
+
+    private void complete() {
+        Map<String, T> orderedResults = new LinkedHashMap<>();
+        Map<String, Exception> orderedErrors = new LinkedHashMap<>();
+        synchronized (results) {
+            for (String channelName : channelNames) {
+                if (results.containsKey(channelName)) {
+                    orderedResults.put(channelName, results.get(channelName));
+                } else if (errors.containsKey(channelName)) {
+                    orderedErrors.put(channelName, errors.get(channelName));
+                }
+            }
+        }
+        if (orderedErrors.isEmpty()) {
+            future.complete(orderedResults);
+        } else {
+            future.completeExceptionally(new BulkOperationException(orderedResults, orderedErrors));
+        }
+    }
+
+    /**
+     * Reads the first value of each channel.
+     */
+    static class ReadOnce extends BulkOperation<VType> {
+
+        private final List<ChannelRead> reads = new ArrayList<>();
+
+        ReadOnce(DataSource dataSource, ScheduledExecutorService timeoutExecutor, Collection<String> channelNames, Duration timeout) {
+            super(dataSource, timeoutExecutor, channelNames, timeout);
+            for (String channelName : getChannelNames()) {
+                reads.add(new ChannelRead(channelName));
+            }
+        }
+
+        @Override
+        void startAll() {
+            for (ChannelRead read : reads) {
+                getDataSource().startRead(read.subscription);
+            }
+        }
+
+        @Override
+        void closeAll() {
+            for (ChannelRead read : reads) {
+                read.done(null, new TimeoutException("Bulk read was cancelled"));
+            }
+        }
+
+        @Override
+        void expireAll(Exception ex) {
+            for (ChannelRead read : reads) {
+                read.done(null, ex);
+            }
+        }
+
+        /**
+         * Collector that takes the first value or error and disconnects.
+         */
+        private class ChannelRead extends ReadCollector<VType, VType> {
+
+            private final ReadSubscription subscription;
+            private final AtomicBoolean done = new AtomicBoolean();
+
+            ChannelRead(String channelName) {
+                super(VType.class);
+                this.subscription = new ReadSubscription(channelName, this);
+            }
+
+            void done(VType value, Exception error) {
+                if (done.compareAndSet(false, true)) {
+                    getDataSource().stopRead(subscription);
+                    channelDone(subscription.getChannelName(), value, error);
+                }
+            }
+
+            @Override
+            protected VType getValue() {
+                return null;
+            }
+
+            @Override
+            public void updateValue(VType value) {
+                if (value != null) {
+                    done(value, null);
+                }
+            }
+
+            @Override
+            public void updateValueAndConnection(VType value, boolean newConnection) {
+                updateValue(value);
+            }
+
+            @Override
+            public void notifyError(Exception error) {
+                if (error == null) {
+                    throw new IllegalArgumentException("The error to notify can't be null");
+                }
+                done(null, error);
+            }
+        }
+    }
+
+    /**
+     * Writes a value to each channel. Each put is sent as soon as its channel
+     * is write connected, without waiting for the others.
+     */
+    static class WriteMany extends BulkOperation<Object> {
+
+        private final List<ChannelWrite> writes = new ArrayList<>();
+
+        WriteMany(DataSource dataSource, ScheduledExecutorService timeoutExecutor, Map<String, ?> values, Duration timeout) {
+            super(dataSource, timeoutExecutor, values.keySet(), timeout);
+            for (String channelName : getChannelNames()) {
+                writes.add(new ChannelWrite(channelName, values.get(channelName)));
+            }
+        }
+
+        @Override
+        void startAll() {
+            for (ChannelWrite write : writes) {
+                getDataSource().startWrite(write.subscription);
+            }
+        }
+
+        @Override
+        void closeAll() {
+            for (ChannelWrite write : writes) {
+                write.done(new TimeoutException("Bulk write was cancelled"));
+            }
+        }
+
+        @Override
+        void expireAll(Exception ex) {
+            for (ChannelWrite write : writes) {
+                write.done(ex);
+            }
+        }
+
+        /**
+         * Sends the write as soon as the channel is write connected.
+         */
+        private class ChannelWrite implements Consumer<PVEvent> {
+
+            private final Object value;
+            private final WriteCollector<Object> collector = new WriteCollector<>();
+            private final WriteSubscription subscription;
+            private final AtomicBoolean sent = new AtomicBoolean();
+            private final AtomicBoolean done = new AtomicBoolean();
+
+            ChannelWrite(String channelName, Object value) {
+                this.value = value;
+                this.subscription = new WriteSubscription(channelName, collector);
+                collector.setUpdateListener(this);
+            }
+
+            void done(Exception error) {
+                if (done.compareAndSet(false, true)) {
+                    collector.setUpdateListener(null);
+                    getDataSource().stopWrite(subscription);
+                    channelDone(subscription.getChannelName(), value, error);
+                }
+            }
+
+            @Override
+            public void accept(PVEvent event) {
+                if (event.isType(PVEvent.Type.EXCEPTION)) {
+                    done(event.getException());
+                } else if (event.isType(PVEvent.Type.WRITE_CONNECTION) && collector.getConnection()
+                        && sent.compareAndSet(false, true)) {
+                    collector.prepareWrite(0);
+                    collector.queueValue(value);
+                    collector.sendWriteRequest(0, (PVEvent writeEvent) -> {
+                        if (writeEvent.isType(PVEvent.Type.WRITE_FAILED)) {
+                            done(writeEvent.getWriteError());
+                        } else if (writeEvent.isType(PVEvent.Type.WRITE_SUCCEEDED)) {
+                            done(null);
+                        }
+                    });
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.gpclient;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Exception used to complete a bulk read or write for which some of
+ * the channels failed. It carries the error for each failed channel
+ * and the results for the channels that succeeded.
+ */
+public class BulkOperationException extends RuntimeException {
+
+    private final Map<String, ?> results;
+    private final Map<String, Exception> errors;
+
+    BulkOperationException(Map<String, ?> results, Map<String, Exception> errors) {
+        super(errors.size() + " channel(s) failed: " + errors.keySet());
+        this.results = Collections.unmodifiableMap(results);
+        this.errors = Collections.unmodifiableMap(errors);
+    }
+
+    /**
+     * The results for the channels that succeeded. For a read, these are
+     * the values read; for a write, these are the values written.
+     *
+     * @return the results by channel name; never null
+     */
+    public Map<String, ?> getResults() {
+        return results;
+    }
+
+    /**
+     * The errors for the channels that failed.
+     *
+     * @return the errors by channel name; never null
+     */
+    public Map<String, Exception> getErrors() {
+        return errors;
+    }
+
+}
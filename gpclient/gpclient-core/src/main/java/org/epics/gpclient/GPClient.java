@@ -5,7 +5,10 @@
 package org.epics.gpclient;
 
 import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import org.epics.gpclient.datasource.DataSourceProvider;
@@ -49,6 +52,32 @@ public class GPClient {
         return gpClient.readOnce(expression);
     }
     
+    /**
+     * Reads the value of all the given channels, asking for {@link VType} values.
+     * 
+     * @param channelNames the names of the channels
+     * @param timeout the time after which all the channels still pending fail;
+     * can be null
+     * @return the future values by channel name
+     * @see GPClientInstance#readOnce(java.util.Collection, java.time.Duration) 
+     */
+    public static CompletableFuture<Map<String, VType>> readOnce(Collection<String> channelNames, Duration timeout) {
+        return gpClient.readOnce(channelNames, timeout);
+    }
+    
+    /**
+     * Writes each value to its channel.
+     * 
+     * @param values the values to write by channel name
+     * @param timeout the time after which all the writes still pending fail;
+     * can be null
+     * @return the future values written by channel name
+     * @see GPClientInstance#writeMany(java.util.Map, java.time.Duration) 
+     */
+    public static CompletableFuture<Map<String, Object>> writeMany(Map<String, ?> values, Duration timeout) {
+        return gpClient.writeMany(values, timeout);
+    }
+    
     /**
      * Reads the channel with the given name, asking for {@link VType} values.
      * 
@@ -5,6 +5,9 @@
 package org.epics.gpclient;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
@@ -117,6 +120,45 @@ public class GPClientInstance {
         return future;
     }
     
+    /**
+     * Reads the value of all the given channels, asking for {@link VType} values.
+     * <p>
+     * All the channels are connected at once to the default data source,
+     * without creating a pv for each, and each channel is disconnected as
+     * soon as its value is received. The map of the results preserves the
+     * order of the channel names. If any channel fails or does not
+     * return a value within the timeout, the future completes with a
+     * {@link BulkOperationException} that contains the values that were read
+     * and the error for each failed channel.
+     * 
+     * @param channelNames the names of the channels
+     * @param timeout the time after which all the channels still pending fail;
+     * can be null
+     * @return the future values by channel name
+     */
+    public CompletableFuture<Map<String, VType>> readOnce(Collection<String> channelNames, Duration timeout) {
+        return new BulkOperation.ReadOnce(defaultDataSource, dataProcessingThreadPool, channelNames, timeout).start();
+    }
+    
+    /**
+     * Writes each value to its channel.
+     * <p>
+     * All the channels are connected at once to the default data source,
+     * without creating a pv for each, and each write is sent as soon as its
+     * channel is ready, without waiting for the others. If any write fails or
+     * does not complete within the timeout, the future completes with a
+     * {@link BulkOperationException} that contains the values that were written
+     * and the error for each failed channel.
+     * 
+     * @param values the values to write by channel name
+     * @param timeout the time after which all the writes still pending fail;
+     * can be null
+     * @return the future values written by channel name
+     */
+    public CompletableFuture<Map<String, Object>> writeMany(Map<String, ?> values, Duration timeout) {
+        return new BulkOperation.WriteMany(defaultDataSource, dataProcessingThreadPool, values, timeout).start();
+    }
+    
     /**
      * Reads the channel with the given name, asking for {@link VType} values.
      * 
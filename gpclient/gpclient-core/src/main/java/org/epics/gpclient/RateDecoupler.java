@@ -9,6 +9,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.epics.gpclient.instrumentation.Instrumentation;
 
 /**
  * Represent a strategy to decouple desired rate events from source rate
@@ -29,6 +30,13 @@ abstract class RateDecoupler {
     private boolean paused = false;
     private boolean stopped = false;
 
+    // Instrumentation for the oldest event waiting to be sent
+    // and for the event in flight
+    private Instrumentation.Arrival pendingArrival;
+    private long pendingSince;
+    private Instrumentation.Arrival inFlightArrival;
+    private long inFlightSince;
+
     /**
      * Creates a new rate decoupler that will send the events to the
      * given listener.
@@ -111,6 +119,10 @@ abstract class RateDecoupler {
     final void stop() {
         synchronized(lock) {
             stopped = true;
+            if (pendingArrival != null) {
+                pendingArrival.getMetrics().eventDropped();
+                pendingArrival = null;
+            }
         }
         onStop();
     }
@@ -126,6 +138,9 @@ abstract class RateDecoupler {
     private final Consumer<PVEvent> updateListener = new Consumer<PVEvent>() {
         @Override
         public void accept(PVEvent event) {
+            if (Instrumentation.isEnabled()) {
+                eventCollected();
+            }
             newEvent(event);
             if (exceptionHandler != null && event.getException() != null) {
                 try {
@@ -148,6 +163,28 @@ abstract class RateDecoupler {
         return updateListener;
     }
     
+    /**
+     * Records the time the collector was updated for the message being
+     * processed on this thread, if any.
+     */
+    private void eventCollected() {
+        Instrumentation.Arrival arrival = Instrumentation.currentArrival();
+        if (arrival == null) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        arrival.getMetrics().getCollectorLatency().record(now - arrival.getNanoTime());
+        synchronized(lock) {
+            if (pendingArrival == null) {
+                pendingArrival = arrival;
+                pendingSince = now;
+            } else {
+                arrival.getMetrics().eventCoalesced();
+            }
+        }
+    }
+    
     protected abstract void newEvent(PVEvent event);
     
     /**
@@ -161,6 +198,13 @@ abstract class RateDecoupler {
                 throw new RuntimeException("Previous event still in flight");
             }
             eventProcessing = true;
+            if (pendingArrival != null) {
+                long now = System.nanoTime();
+                pendingArrival.getMetrics().getScanLatency().record(now - pendingSince);
+                inFlightArrival = pendingArrival;
+                inFlightSince = now;
+                pendingArrival = null;
+            }
         }
         listener.accept(event);
     }
@@ -170,11 +214,21 @@ abstract class RateDecoupler {
      * is called, it should not be called again before this method is called.
      */
     public final void readyForNextEvent() {
+        Instrumentation.Arrival deliveredArrival;
+        long deliveredSince;
         synchronized(lock) {
             if (!isEventProcessing()) {
                 log.warning("Event processing is done, but no event was in flight");
             }
             eventProcessing = false;
+            deliveredArrival = inFlightArrival;
+            deliveredSince = inFlightSince;
+            inFlightArrival = null;
+        }
+        if (deliveredArrival != null) {
+            long now = System.nanoTime();
+            deliveredArrival.getMetrics().getDeliveryLatency().record(now - deliveredSince);
+            deliveredArrival.getMetrics().getTotalLatency().record(now - deliveredArrival.getNanoTime());
         }
         onDesiredEventProcessed();
     }
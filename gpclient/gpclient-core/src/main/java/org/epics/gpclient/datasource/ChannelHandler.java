@@ -9,6 +9,7 @@ import java.util.Map;
 import java.util.logging.Logger;
 import org.epics.gpclient.ReadCollector;
 import org.epics.gpclient.WriteCollector;
+import org.epics.gpclient.instrumentation.DataSourceMetrics;
 
 /**
  * Manages the connection of a channel for a data source.
@@ -19,6 +20,8 @@ public abstract class ChannelHandler {
 
     private static final Logger log = Logger.getLogger(ChannelHandler.class.getName());
     private final String channelName;
+    // Set by the data source that created the handler
+    DataSourceMetrics metrics;
     
     /**
      * Creates a new channel handler.
@@ -42,6 +45,16 @@ public abstract class ChannelHandler {
         return Collections.emptyMap();
     }
 
+    /**
+     * Returns the instrumentation metrics of the data source that
+     * created this handler.
+     * 
+     * @return the data source metrics; null if not created by a data source
+     */
+    protected final DataSourceMetrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * Returns the name of the channel.
      * 
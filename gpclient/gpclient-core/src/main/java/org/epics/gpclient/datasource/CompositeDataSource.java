@@ -27,6 +27,10 @@ public class CompositeDataSource extends DataSource {
     // Stores all data sources by name
     private final Map<String, DataSource> dataSources = new ConcurrentHashMap<>();
     private final Map<String, DataSourceProvider> dataSourceProviders = new ConcurrentHashMap<>();
+    
+    // Immutable routing table, rebuilt each time a provider is added
+    // so that channel lookups never lock
+    private volatile Routing routing;
 
     private final String delimiter;
     private final String defaultDataSource;
@@ -46,6 +50,7 @@ public class CompositeDataSource extends DataSource {
     public CompositeDataSource(CompositeDataSourceConfiguration conf) {
         this.delimiter = conf.getDelimiter();
         this.defaultDataSource = conf.getDefaultDataSource();
+        this.routing = new Routing(Collections.<String, Route>emptyMap());
     }
 
     /**
@@ -83,10 +88,17 @@ public class CompositeDataSource extends DataSource {
      *
      * @param dataSourceProvider the data source to add/replace
      */
-    public void putDataSource(DataSourceProvider dataSourceProvider) {
+    public synchronized void putDataSource(DataSourceProvider dataSourceProvider) {
         // XXX: datasources should be closed
-        dataSources.remove(dataSourceProvider.getName());
-        dataSourceProviders.put(dataSourceProvider.getName(), dataSourceProvider);
+        String name = dataSourceProvider.getName();
+        dataSources.remove(name);
+        dataSourceProviders.put(name, dataSourceProvider);
+        
+        // Keep the routes of the other data sources, as they may have
+        // already created their instance
+        Map<String, Route> routes = new HashMap<>(routing.routes);
+        routes.put(name, new Route(name, dataSourceProvider));
+        routing = new Routing(routes);
     }
     
     /**
@@ -111,42 +123,51 @@ public class CompositeDataSource extends DataSource {
         return Collections.unmodifiableMap(dataSourceProviders);
     }
     
-    private  String nameOf(String channelName) {
-        int indexDelimiter = channelName.indexOf(delimiter);
-        if (indexDelimiter == -1) {
-            return channelName;
-        } else {
-            return channelName.substring(indexDelimiter + delimiter.length());
+    /**
+     * Finds the route for the given channel. The channel name is walked
+     * through the prefix trie only once: no substring is created for the
+     * data source name and no map is consulted.
+     * 
+     * @param channelName the full channel name
+     * @return the route; never null
+     */
+    private Route routeOf(String channelName) {
+        Routing currentRouting = routing;
+        Route route = currentRouting.match(channelName);
+        if (route != null) {
+            return route;
         }
-    }
-    
-    private String sourceOf(String channelName) {
+        
+        // Not routed: either default data source or an error
         int indexDelimiter = channelName.indexOf(delimiter);
         if (indexDelimiter == -1) {
             if (defaultDataSource == null)
                 throw new IllegalArgumentException("Channel " + channelName + " uses default data source but one was never set.");
-            if (!dataSourceProviders.containsKey(defaultDataSource)) {
+            route = currentRouting.routes.get(defaultDataSource);
+            if (route == null) {
                 throw new IllegalArgumentException("Channel " + channelName + " uses default data source " + defaultDataSource + " which was not found.");
             }
-            return defaultDataSource;
+            return route;
         } else {
             String source = channelName.substring(0, indexDelimiter);
-            if (dataSourceProviders.containsKey(source))
-                return source;
             throw new IllegalArgumentException("Data source " + source + " for " + channelName + " was not configured.");
         }
     }
     
+    private String nameOf(Route route, String channelName) {
+        if (channelName.startsWith(route.prefix)) {
+            return channelName.substring(route.prefix.length());
+        } else {
+            return channelName;
+        }
+    }
+    
     @Override
     public void startRead(final ReadSubscription readRecipe) {
         try {
-            String name = nameOf(readRecipe.getChannelName());
-            String dataSource = sourceOf(readRecipe.getChannelName());
-
-            if (dataSource == null)
-                throw new IllegalArgumentException("Channel " + name + " uses the default data source but one was never set.");
-
-            retrieveDataSource(dataSource).startRead(new ReadSubscription(name, readRecipe.getCollector()));
+            Route route = routeOf(readRecipe.getChannelName());
+            String name = nameOf(route, readRecipe.getChannelName());
+            route.dataSource().startRead(new ReadSubscription(name, readRecipe.getCollector()));
         } catch (RuntimeException ex) {
             // If data source fail, report the error
             readRecipe.getCollector().notifyError(ex);
@@ -156,47 +177,21 @@ public class CompositeDataSource extends DataSource {
     @Override
     public void stopRead(ReadSubscription readRecipe) {
         try {
-            String name = nameOf(readRecipe.getChannelName());
-            String dataSource = sourceOf(readRecipe.getChannelName());
-
-            if (dataSource == null)
-                throw new IllegalArgumentException("Channel " + name + " uses the default data source but one was never set.");
-
-            retrieveDataSource(dataSource).stopRead(new ReadSubscription(name, readRecipe.getCollector()));
+            Route route = routeOf(readRecipe.getChannelName());
+            String name = nameOf(route, readRecipe.getChannelName());
+            route.dataSource().stopRead(new ReadSubscription(name, readRecipe.getCollector()));
         } catch (RuntimeException ex) {
             // If data source fail, report the error
             readRecipe.getCollector().notifyError(ex);
         }
     }
-    
-    private DataSource retrieveDataSource(String name) {
-        DataSource dataSource = dataSources.get(name);
-        if (dataSource == null) {
-            DataSourceProvider factory = dataSourceProviders.get(name);
-            if (factory == null) {
-                throw new IllegalArgumentException("DataSource '" + name + delimiter + "' was not configured.");
-            } else {
-                dataSource = factory.createInstance();
-                if (dataSource == null) {
-                    throw new IllegalStateException("DataSourceProvider '" + name + delimiter + "' did not create a valid datasource.");
-                }
-                dataSources.put(name, dataSource);
-                log.log(Level.CONFIG, "Created instance for data source {0} ({1})", new Object[]{name, dataSource.getClass().getSimpleName()});
-            }
-        }
-        return dataSource;
-    }
 
     @Override
     public void startWrite(WriteSubscription writeRecipe) {
         try {
-            String name = nameOf(writeRecipe.getChannelName());
-            String dataSource = sourceOf(writeRecipe.getChannelName());
-
-            if (dataSource == null)
-                throw new IllegalArgumentException("Channel " + name + " uses the default data source but one was never set.");
-
-            retrieveDataSource(dataSource).startWrite(new WriteSubscription(name, writeRecipe.getCollector()));
+            Route route = routeOf(writeRecipe.getChannelName());
+            String name = nameOf(route, writeRecipe.getChannelName());
+            route.dataSource().startWrite(new WriteSubscription(name, writeRecipe.getCollector()));
         } catch (RuntimeException ex) {
             // If data source fail, report the error
             writeRecipe.getCollector().notifyError(ex);
@@ -206,13 +201,9 @@ public class CompositeDataSource extends DataSource {
     @Override
     public void stopWrite(WriteSubscription writeRecipe) {
         try {
-            String name = nameOf(writeRecipe.getChannelName());
-            String dataSource = sourceOf(writeRecipe.getChannelName());
-
-            if (dataSource == null)
-                throw new IllegalArgumentException("Channel " + name + " uses the default data source but one was never set.");
-
-            retrieveDataSource(dataSource).stopWrite(new WriteSubscription(name, writeRecipe.getCollector()));
+            Route route = routeOf(writeRecipe.getChannelName());
+            String name = nameOf(route, writeRecipe.getChannelName());
+            route.dataSource().stopWrite(new WriteSubscription(name, writeRecipe.getCollector()));
         } catch (RuntimeException ex) {
             // If data source fail, report the error
             writeRecipe.getCollector().notifyError(ex);
@@ -222,9 +213,8 @@ public class CompositeDataSource extends DataSource {
 
     @Override
     ChannelHandler channel(String channelName) {
-        String name = nameOf(channelName);
-        String dataSource = sourceOf(channelName);
-        return retrieveDataSource(dataSource).channel(name);
+        Route route = routeOf(channelName);
+        return route.dataSource().channel(nameOf(route, channelName));
     }
     
     @Override
@@ -258,4 +248,139 @@ public class CompositeDataSource extends DataSource {
         return channels;
     }
 
+    /**
+     * The destination for all the channels of a data source. The instance
+     * of the data source is created the first time a channel is routed to it.
+     */
+    private class Route {
+        
+        private final String name;
+        private final String prefix;
+        private final DataSourceProvider provider;
+        private volatile DataSource dataSource;
+
+        Route(String name, DataSourceProvider provider) {
+            this.name = name;
+            this.prefix = name + delimiter;
+            this.provider = provider;
+        }
+        
+        DataSource dataSource() {
+            DataSource result = dataSource;
+            if (result == null) {
+                synchronized (this) {
+                    result = dataSource;
+                    if (result == null) {
+                        result = provider.createInstance();
+                        if (result == null) {
+                            throw new IllegalStateException("DataSourceProvider '" + prefix + "' did not create a valid datasource.");
+                        }
+                        dataSource = result;
+                        dataSources.put(name, result);
+                        log.log(Level.CONFIG, "Created instance for data source {0} ({1})", new Object[]{name, result.getClass().getSimpleName()});
+                    }
+                }
+            }
+            return result;
+        }
+    }
+    
+    /**
+     * Immutable snapshot of the routes, with a prefix trie on
+     * the data source prefixes (name followed by the delimiter).
+     */
+    private static class Routing {
+        
+        private final Map<String, Route> routes;
+        private final TrieNode root;
+
+        Routing(Map<String, Route> routes) {
+            this.routes = Collections.unmodifiableMap(new HashMap<>(routes));
+            List<Route> sortedRoutes = new ArrayList<>(routes.values());
+            Collections.sort(sortedRoutes, new Comparator<Route>() {
+                @Override
+                public int compare(Route o1, Route o2) {
+                    return o1.prefix.compareTo(o2.prefix);
+                }
+            });
+            this.root = TrieNode.build(sortedRoutes, 0);
+        }
+        
+        /**
+         * Returns the route whose prefix is the shortest one matching
+         * the start of the channel name, which corresponds to the first
+         * occurrence of the delimiter.
+         * 
+         * @param channelName the channel name
+         * @return the route or null if no prefix matches
+         */
+        Route match(String channelName) {
+            TrieNode node = root;
+            int length = channelName.length();
+            for (int i = 0; i < length; i++) {
+                node = node.child(channelName.charAt(i));
+                if (node == null) {
+                    return null;
+                }
+                if (node.route != null) {
+                    return node.route;
+                }
+            }
+            return null;
+        }
+    }
+    
+    private static class TrieNode {
+        
+        private static final char[] NO_KEYS = new char[0];
+        private static final TrieNode[] NO_CHILDREN = new TrieNode[0];
+        
+        // Sorted, so that children can be found by binary search
+        private final char[] keys;
+        private final TrieNode[] children;
+        private final Route route;
+
+        private TrieNode(char[] keys, TrieNode[] children, Route route) {
+            this.keys = keys;
+            this.children = children;
+            this.route = route;
+        }
+        
+        TrieNode child(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index >= 0 ? children[index] : null;
+        }
+        
+        /**
+         * Builds the node at the given depth for the routes, which must be
+         * sorted by prefix and all share the same first depth characters.
+         */
+        static TrieNode build(List<Route> routes, int depth) {
+            Route terminal = null;
+            StringBuilder keys = new StringBuilder();
+            List<TrieNode> children = new ArrayList<>();
+            int i = 0;
+            while (i < routes.size()) {
+                String prefix = routes.get(i).prefix;
+                if (prefix.length() == depth) {
+                    terminal = routes.get(i);
+                    i++;
+                    continue;
+                }
+                char key = prefix.charAt(depth);
+                int j = i + 1;
+                while (j < routes.size() && routes.get(j).prefix.charAt(depth) == key) {
+                    j++;
+                }
+                keys.append(key);
+                children.add(build(routes.subList(i, j), depth + 1));
+                i = j;
+            }
+            if (children.isEmpty()) {
+                return new TrieNode(NO_KEYS, NO_CHILDREN, terminal);
+            }
+            return new TrieNode(keys.toString().toCharArray(), children.toArray(new TrieNode[children.size()]), terminal);
+        }
+    }
+
 }
@@ -9,6 +9,8 @@ import java.util.concurrent.*;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.epics.gpclient.instrumentation.DataSourceMetrics;
+import org.epics.gpclient.instrumentation.Instrumentation;
 import static org.epics.util.concurrent.Executors.namedPool;
 import org.epics.util.concurrent.ProcessingQueue;
 
@@ -32,25 +34,70 @@ public abstract class DataSource {
 
     private static final Logger log = Logger.getLogger(DataSource.class.getName());
 
-    // Keeps track of the currently created channels
+    // Keeps track of the currently created channels. Lookups are lock-free:
+    // only the creation of a new channel goes through pendingChannels
     private final Map<String, ChannelHandler> usedChannels = new ConcurrentHashMap<String, ChannelHandler>();
+    
+    // Channels being created, by lookup name, so that concurrent requests
+    // for the same channel wait for the same creation
+    private final ConcurrentMap<String, CompletableFuture<ChannelHandler>> pendingChannels = new ConcurrentHashMap<>();
+
+    // Instrumentation shared by all the channels of this data source
+    private final DataSourceMetrics metrics = Instrumentation.metricsFor(getClass().getSimpleName());
 
     /**
      * Returns a channel from the given name, either cached or it
      * will create it.
+     * <p>
+     * If multiple threads ask for the same channel at the same time,
+     * only one creates it while the others wait for the result.
      * 
      * @param channelName name of a channel
      * @return a new or cached handler
      */
     ChannelHandler channel(String channelName) {
-        ChannelHandler channel = usedChannels.get(channelHandlerLookupName(channelName));
-        if (channel == null) {
-            channel = createChannel(channelName);
-            if (channel == null)
-                return null;
-            usedChannels.put(channelHandlerRegisterName(channelName, channel), channel);
+        String lookupName = channelHandlerLookupName(channelName);
+        ChannelHandler channel = usedChannels.get(lookupName);
+        if (channel != null) {
+            return channel;
+        }
+        
+        CompletableFuture<ChannelHandler> creation = new CompletableFuture<>();
+        CompletableFuture<ChannelHandler> pending = pendingChannels.putIfAbsent(lookupName, creation);
+        if (pending != null) {
+            return awaitChannel(channelName, pending);
+        }
+        
+        try {
+            // Check again: the channel may have been registered
+            // between the first lookup and the reservation
+            channel = usedChannels.get(lookupName);
+            if (channel == null) {
+                channel = createChannel(channelName);
+                if (channel != null) {
+                    channel.metrics = metrics;
+                    usedChannels.put(channelHandlerRegisterName(channelName, channel), channel);
+                }
+            }
+            creation.complete(channel);
+            return channel;
+        } catch (RuntimeException ex) {
+            creation.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            pendingChannels.remove(lookupName, creation);
+        }
+    }
+    
+    private static ChannelHandler awaitChannel(String channelName, CompletableFuture<ChannelHandler> pending) {
+        try {
+            return pending.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new RuntimeException("Creation of channel '" + channelName + "' failed", ex.getCause());
         }
-        return channel;
     }
     
     /**
@@ -101,8 +148,8 @@ public abstract class DataSource {
     
     // Keeps track of the recipes that were opened with
     // this data source.
-    private final Set<ReadSubscription> readSubscriptions = Collections.synchronizedSet(new HashSet<>());
-    private final Set<WriteSubscription> writeSubscriptions = Collections.synchronizedSet(new HashSet<>());
+    private final Set<ReadSubscription> readSubscriptions = ConcurrentHashMap.newKeySet();
+    private final Set<WriteSubscription> writeSubscriptions = ConcurrentHashMap.newKeySet();
 
     private final ProcessingQueue<ReadSubscription> startReadQueue = new ProcessingQueue<>(exec, new Consumer<List<ReadSubscription>>() {
         @Override
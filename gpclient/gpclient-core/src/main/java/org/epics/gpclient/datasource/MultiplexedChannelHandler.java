@@ -12,6 +12,7 @@ import java.util.logging.Logger;
 import org.epics.gpclient.ReadCollector;
 import org.epics.gpclient.TypeMismatchException;
 import org.epics.gpclient.WriteCollector;
+import org.epics.gpclient.instrumentation.Instrumentation;
 
 /**
  * Implements a {@link ChannelHandler} on top of a single subscription and
@@ -363,8 +364,13 @@ public abstract class MultiplexedChannelHandler<ConnectionPayload, MessagePayloa
         }
         
         lastMessage = payload;
-        for (MonitorHandler monitor : readers.values()) {
-            monitor.processValue(payload);
+        Instrumentation.Arrival arrival = Instrumentation.messageArrived(getMetrics());
+        try {
+            for (MonitorHandler monitor : readers.values()) {
+                monitor.processValue(payload);
+            }
+        } finally {
+            Instrumentation.messageProcessed(arrival);
         }
     }
 
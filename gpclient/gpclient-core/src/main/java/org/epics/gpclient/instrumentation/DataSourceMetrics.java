@@ -0,0 +1,137 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.gpclient.instrumentation;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The latency histograms and counters for the values coming from
+ * one data source.
+ * <p>
+ * The life of a value is broken down in the following stages:
+ * <ul>
+ * <li>collector: from the arrival of the message in the channel handler
+ * to the update of the collector, which includes the type conversion</li>
+ * <li>scan: from the update of the collector to the moment the rate
+ * decoupler decides to send the event</li>
+ * <li>delivery: from the moment the event was sent to the end of the
+ * notification of the listeners</li>
+ * <li>total: from the arrival of the message to the end of the notification</li>
+ * </ul>
+ * When more events are coalesced into one notification, the scan, delivery
+ * and total latency are measured from the oldest one.
+ */
+public final class DataSourceMetrics implements DataSourceMetricsMXBean {
+
+    private final String name;
+    private final LatencyHistogram collectorLatency = new LatencyHistogram();
+    private final LatencyHistogram scanLatency = new LatencyHistogram();
+    private final LatencyHistogram deliveryLatency = new LatencyHistogram();
+    private final LatencyHistogram totalLatency = new LatencyHistogram();
+    private final AtomicLong messageCount = new AtomicLong();
+    private final AtomicLong coalescedEventCount = new AtomicLong();
+    private final AtomicLong droppedEventCount = new AtomicLong();
+
+    DataSourceMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * The name of the data source.
+     * 
+     * @return the data source name; never null
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Latency between the arrival of a message and the collector update.
+     * 
+     * @return the histogram; never null
+     */
+    public LatencyHistogram getCollectorLatency() {
+        return collectorLatency;
+    }
+
+    /**
+     * Latency between the collector update and the rate decoupler scan.
+     * 
+     * @return the histogram; never null
+     */
+    public LatencyHistogram getScanLatency() {
+        return scanLatency;
+    }
+
+    /**
+     * Latency between the rate decoupler scan and the end of the
+     * listener notification.
+     * 
+     * @return the histogram; never null
+     */
+    public LatencyHistogram getDeliveryLatency() {
+        return deliveryLatency;
+    }
+
+    /**
+     * Latency between the arrival of a message and the end of the
+     * listener notification.
+     * 
+     * @return the histogram; never null
+     */
+    public LatencyHistogram getTotalLatency() {
+        return totalLatency;
+    }
+
+    @Override
+    public long getMessageCount() {
+        return messageCount.get();
+    }
+
+    @Override
+    public long getCoalescedEventCount() {
+        return coalescedEventCount.get();
+    }
+
+    @Override
+    public long getDroppedEventCount() {
+        return droppedEventCount.get();
+    }
+
+    void messageArrived() {
+        messageCount.incrementAndGet();
+    }
+
+    /**
+     * Counts an event that was merged with one already waiting.
+     */
+    public void eventCoalesced() {
+        coalescedEventCount.incrementAndGet();
+    }
+
+    /**
+     * Counts an event that was discarded without notification.
+     */
+    public void eventDropped() {
+        droppedEventCount.incrementAndGet();
+    }
+
+    @Override
+    public void reset() {
+        collectorLatency.reset();
+        scanLatency.reset();
+        deliveryLatency.reset();
+        totalLatency.reset();
+        messageCount.set(0);
+        coalescedEventCount.set(0);
+        droppedEventCount.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return name + " [messages=" + getMessageCount() + ", coalesced=" + getCoalescedEventCount()
+                + ", dropped=" + getDroppedEventCount() + ", total latency: " + totalLatency + "]";
+    }
+}
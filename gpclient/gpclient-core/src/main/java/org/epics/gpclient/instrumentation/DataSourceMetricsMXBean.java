@@ -0,0 +1,40 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.gpclient.instrumentation;
+
+/**
+ * JMX interface for the {@link DataSourceMetrics}. The latency histograms
+ * for each stage are registered as separate beans.
+ */
+public interface DataSourceMetricsMXBean {
+
+    /**
+     * The number of messages that arrived from the data source.
+     * 
+     * @return the number of messages processed by the channel handlers
+     */
+    public long getMessageCount();
+
+    /**
+     * The number of events that were merged into an event already waiting
+     * for the rate decoupler.
+     * 
+     * @return the number of coalesced events
+     */
+    public long getCoalescedEventCount();
+
+    /**
+     * The number of events that were never delivered, because the pv
+     * was closed while they were waiting for the rate decoupler.
+     * 
+     * @return the number of dropped events
+     */
+    public long getDroppedEventCount();
+
+    /**
+     * Clears all the counters and histograms.
+     */
+    public void reset();
+}
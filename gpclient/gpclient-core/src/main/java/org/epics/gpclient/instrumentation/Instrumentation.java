@@ -0,0 +1,200 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.gpclient.instrumentation;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Entry point for the instrumentation of the gpclient pipeline.
+ * <p>
+ * The instrumentation is off by default, and can be turned on either
+ * by calling {@link #setEnabled(boolean) } or by setting the system property
+ * {@code org.epics.gpclient.instrumentation} to true. When off, the cost
+ * is a volatile read for each message and each event. When on, the metrics
+ * for each data source are also registered in the platform MBean server under
+ * {@code org.epics.gpclient:type=DataSource,name=<data source>}, together with
+ * the histograms for each stage.
+ * <p>
+ * The datasource calls {@link #messageArrived(org.epics.gpclient.instrumentation.DataSourceMetrics) }
+ * and {@link #messageProcessed(org.epics.gpclient.instrumentation.Instrumentation.Arrival) }
+ * around the processing of each message: the collectors and the rate decouplers
+ * are updated on the same thread, and they can retrieve the arrival
+ * information through {@link #currentArrival() }.
+ */
+public final class Instrumentation {
+
+    private static final Logger log = Logger.getLogger(Instrumentation.class.getName());
+    private static final Map<String, DataSourceMetrics> metrics = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Arrival> currentArrival = new ThreadLocal<>();
+    private static volatile boolean enabled = Boolean.getBoolean("org.epics.gpclient.instrumentation");
+
+    private Instrumentation() {
+        // Prevent instances
+    }
+
+    /**
+     * The time a message arrived from a data source.
+     */
+    public static final class Arrival {
+
+        private final DataSourceMetrics metrics;
+        private final long nanoTime;
+
+        private Arrival(DataSourceMetrics metrics, long nanoTime) {
+            this.metrics = metrics;
+            this.nanoTime = nanoTime;
+        }
+
+        /**
+         * The metrics of the data source the message came from.
+         * 
+         * @return the data source metrics; never null
+         */
+        public DataSourceMetrics getMetrics() {
+            return metrics;
+        }
+
+        /**
+         * The time of arrival, as given by {@link System#nanoTime() }.
+         * 
+         * @return the arrival time
+         */
+        public long getNanoTime() {
+            return nanoTime;
+        }
+    }
+
+    /**
+     * Whether the instrumentation is currently collecting data.
+     * 
+     * @return true if enabled
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns the instrumentation on or off. Turning it on registers the
+     * metrics in JMX. The data collected is kept when turning it off.
+     * 
+     * @param enabled true to collect data
+     */
+    public static void setEnabled(boolean enabled) {
+        Instrumentation.enabled = enabled;
+        if (enabled) {
+            for (DataSourceMetrics dataSourceMetrics : metrics.values()) {
+                registerMBeans(dataSourceMetrics);
+            }
+        }
+    }
+
+    /**
+     * Returns the metrics for the data source with the given name, creating
+     * them if needed.
+     * 
+     * @param dataSourceName the name of the data source
+     * @return the metrics; never null
+     */
+    public static DataSourceMetrics metricsFor(String dataSourceName) {
+        DataSourceMetrics dataSourceMetrics = metrics.get(dataSourceName);
+        if (dataSourceMetrics == null) {
+            DataSourceMetrics newMetrics = new DataSourceMetrics(dataSourceName);
+            dataSourceMetrics = metrics.putIfAbsent(dataSourceName, newMetrics);
+            if (dataSourceMetrics == null) {
+                dataSourceMetrics = newMetrics;
+                if (enabled) {
+                    registerMBeans(dataSourceMetrics);
+                }
+            }
+        }
+        return dataSourceMetrics;
+    }
+
+    /**
+     * The metrics for all the data sources that were created.
+     * 
+     * @return the metrics by data source name
+     */
+    public static Map<String, DataSourceMetrics> getMetrics() {
+        return Collections.unmodifiableMap(metrics);
+    }
+
+    /**
+     * Clears the data collected for all data sources.
+     */
+    public static void reset() {
+        for (DataSourceMetrics dataSourceMetrics : metrics.values()) {
+            dataSourceMetrics.reset();
+        }
+    }
+
+    /**
+     * Marks the arrival of a message on the current thread. Must be
+     * followed by {@link #messageProcessed(org.epics.gpclient.instrumentation.Instrumentation.Arrival) }
+     * on the same thread.
+     * 
+     * @param dataSourceMetrics the metrics of the data source the message comes from
+     * @return the arrival information; null if the instrumentation is disabled
+     */
+    public static Arrival messageArrived(DataSourceMetrics dataSourceMetrics) {
+        if (!enabled || dataSourceMetrics == null) {
+            return null;
+        }
+        dataSourceMetrics.messageArrived();
+        Arrival arrival = new Arrival(dataSourceMetrics, System.nanoTime());
+        currentArrival.set(arrival);
+        return arrival;
+    }
+
+    /**
+     * Marks the end of the processing of a message on the current thread.
+     * 
+     * @param arrival the arrival returned by messageArrived; can be null
+     */
+    public static void messageProcessed(Arrival arrival) {
+        if (arrival != null) {
+            currentArrival.remove();
+        }
+    }
+
+    /**
+     * The message currently being processed on this thread.
+     * 
+     * @return the arrival information; null if no message is being processed
+     * or if the instrumentation is disabled
+     */
+    public static Arrival currentArrival() {
+        if (!enabled) {
+            return null;
+        }
+        return currentArrival.get();
+    }
+
+    private static void registerMBeans(DataSourceMetrics dataSourceMetrics) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            String prefix = "org.epics.gpclient:type=DataSource,name=" + ObjectName.quote(dataSourceMetrics.getName());
+            ObjectName name = new ObjectName(prefix);
+            if (server.isRegistered(name)) {
+                return;
+            }
+            server.registerMBean(dataSourceMetrics, name);
+            server.registerMBean(dataSourceMetrics.getCollectorLatency(), new ObjectName(prefix + ",stage=collector"));
+            server.registerMBean(dataSourceMetrics.getScanLatency(), new ObjectName(prefix + ",stage=scan"));
+            server.registerMBean(dataSourceMetrics.getDeliveryLatency(), new ObjectName(prefix + ",stage=delivery"));
+            server.registerMBean(dataSourceMetrics.getTotalLatency(), new ObjectName(prefix + ",stage=total"));
+        } catch (JMException | RuntimeException ex) {
+            log.log(Level.WARNING, "Couldn't register gpclient instrumentation for " + dataSourceMetrics.getName() + " in JMX", ex);
+        }
+    }
+}
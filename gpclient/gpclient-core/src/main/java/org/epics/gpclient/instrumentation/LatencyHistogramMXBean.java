@@ -0,0 +1,59 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.gpclient.instrumentation;
+
+/**
+ * JMX interface for a {@link LatencyHistogram}. All latencies are
+ * in nanoseconds.
+ */
+public interface LatencyHistogramMXBean {
+
+    /**
+     * The number of latencies recorded.
+     * 
+     * @return the number of samples
+     */
+    public long getCount();
+
+    /**
+     * The average latency.
+     * 
+     * @return the average in nanoseconds; 0 if no samples
+     */
+    public double getMean();
+
+    /**
+     * The maximum latency recorded.
+     * 
+     * @return the maximum in nanoseconds; 0 if no samples
+     */
+    public long getMax();
+
+    /**
+     * The median latency.
+     * 
+     * @return the 50th percentile in nanoseconds
+     */
+    public long get50thPercentile();
+
+    /**
+     * The 99th percentile of the latency.
+     * 
+     * @return the 99th percentile in nanoseconds
+     */
+    public long get99thPercentile();
+
+    /**
+     * The 99.9th percentile of the latency.
+     * 
+     * @return the 99.9th percentile in nanoseconds
+     */
+    public long get999thPercentile();
+
+    /**
+     * Clears all the samples.
+     */
+    public void reset();
+}
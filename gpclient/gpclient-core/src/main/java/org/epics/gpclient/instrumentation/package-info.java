@@ -0,0 +1,13 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+
+/**
+ * Opt-in instrumentation of the gpclient pipeline: latency histograms
+ * for each stage and counters for the events coalesced or dropped by
+ * the rate decoupling. The same data is available through the API and
+ * through JMX.
+ * 
+ */
+package org.epics.gpclient.instrumentation;
@@ -0,0 +1,176 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.gpclient;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.epics.gpclient.datasource.MockDataSource;
+import org.epics.gpclient.datasource.WriteSubscription;
+import org.epics.util.concurrent.Executors;
+import org.epics.vtype.Alarm;
+import org.epics.vtype.Display;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VType;
+import org.junit.AfterClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+
+public class BulkOperationTest {
+    
+    static ScheduledExecutorService executor = java.util.concurrent.Executors.newSingleThreadScheduledExecutor(Executors.namedPool("test"));
+    
+    @AfterClass
+    public static void closeExecutor() {
+        executor.shutdownNow();
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static ReadCollector<VType, ?> readCollector(MockDataSource dataSource, int index) {
+        return (ReadCollector<VType, ?>) dataSource.getConnectedReadRecipes().get(index).getCollector();
+    }
+
+    @Test
+    public void readOnce() throws Exception {
+        MockDataSource dataSource = new MockDataSource();
+        CompletableFuture<Map<String, VType>> future = new BulkOperation.ReadOnce(dataSource, executor,
+                Arrays.asList("a", "b", "a"), Duration.ofSeconds(10)).start();
+        assertThat(dataSource.getConnectedReadRecipes().size(), equalTo(2));
+        
+        VDouble valueB = VDouble.of(2.0, Alarm.none(), Time.now(), Display.none());
+        readCollector(dataSource, 1).updateValue(valueB);
+        assertThat(future.isDone(), equalTo(false));
+        assertThat(dataSource.getConnectedReadRecipes().size(), equalTo(1));
+        
+        VDouble valueA = VDouble.of(1.0, Alarm.none(), Time.now(), Display.none());
+        readCollector(dataSource, 0).updateValue(valueA);
+        Map<String, VType> result = future.get(1, TimeUnit.SECONDS);
+        assertThat(result.keySet(), contains("a", "b"));
+        assertThat(result.get("a"), sameInstance(valueA));
+        assertThat(result.get("b"), sameInstance(valueB));
+        assertThat(dataSource.getConnectedReadRecipes(), empty());
+    }
+
+    @Test
+    public void readOnceError() throws Exception {
+        MockDataSource dataSource = new MockDataSource();
+        CompletableFuture<Map<String, VType>> future = new BulkOperation.ReadOnce(dataSource, executor,
+                Arrays.asList("a", "b"), Duration.ofSeconds(10)).start();
+        
+        VDouble valueA = VDouble.of(1.0, Alarm.none(), Time.now(), Display.none());
+        readCollector(dataSource, 0).updateValue(valueA);
+        RuntimeException error = new RuntimeException("Channel b not found");
+        readCollector(dataSource, 0).notifyError(error);
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            fail("Expected failure");
+        } catch (ExecutionException ex) {
+            BulkOperationException bulkEx = (BulkOperationException) ex.getCause();
+            assertThat(bulkEx.getResults().keySet(), contains("a"));
+            assertThat(bulkEx.getResults().get("a"), sameInstance((Object) valueA));
+            assertThat(bulkEx.getErrors().keySet(), contains("b"));
+            assertThat(bulkEx.getErrors().get("b"), sameInstance((Exception) error));
+        }
+        assertThat(dataSource.getConnectedReadRecipes(), empty());
+    }
+
+    @Test
+    public void readOnceTimeout() throws Exception {
+        MockDataSource dataSource = new MockDataSource();
+        CompletableFuture<Map<String, VType>> future = new BulkOperation.ReadOnce(dataSource, executor,
+                Arrays.asList("a", "b"), Duration.ofMillis(100)).start();
+        
+        VDouble valueA = VDouble.of(1.0, Alarm.none(), Time.now(), Display.none());
+        readCollector(dataSource, 0).updateValue(valueA);
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            fail("Expected failure");
+        } catch (ExecutionException ex) {
+            BulkOperationException bulkEx = (BulkOperationException) ex.getCause();
+            assertThat(bulkEx.getResults().keySet(), contains("a"));
+            assertThat(bulkEx.getErrors().get("b"), instanceOf(TimeoutException.class));
+        }
+        assertThat(dataSource.getConnectedReadRecipes(), empty());
+    }
+
+    @Test
+    public void readOnceEmpty() throws Exception {
+        MockDataSource dataSource = new MockDataSource();
+        CompletableFuture<Map<String, VType>> future = new BulkOperation.ReadOnce(dataSource, executor,
+                Collections.<String>emptyList(), Duration.ofSeconds(10)).start();
+        assertThat(future.get(1, TimeUnit.SECONDS).isEmpty(), equalTo(true));
+    }
+
+    @Test
+    public void writeMany() throws Exception {
+        MockDataSource dataSource = new MockDataSource();
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("a", 1.0);
+        values.put("b", "value");
+        CompletableFuture<Map<String, Object>> future = new BulkOperation.WriteMany(dataSource, executor,
+                values, Duration.ofSeconds(10)).start();
+        assertThat(dataSource.getConnectedWriteRecipes().size(), equalTo(2));
+        
+        for (WriteSubscription subscription : dataSource.getConnectedWriteRecipes()) {
+            subscription.getCollector().setWriteNotification((Consumer<WriteCollector.WriteRequest<?>>) request -> {
+                if (request.getValue().equals(values.get(subscription.getChannelName()))) {
+                    request.writeSuccessful();
+                } else {
+                    request.writeFailed(new RuntimeException("Wrong value"));
+                }
+            });
+        }
+        dataSource.getConnectedWriteRecipes().get(0).getCollector().updateConnection(true);
+        assertThat(future.isDone(), equalTo(false));
+        assertThat(dataSource.getConnectedWriteRecipes().size(), equalTo(1));
+        dataSource.getConnectedWriteRecipes().get(0).getCollector().updateConnection(true);
+        
+        Map<String, Object> result = future.get(1, TimeUnit.SECONDS);
+        assertThat(result, equalTo(values));
+        assertThat(dataSource.getConnectedWriteRecipes(), empty());
+    }
+
+    @Test
+    public void writeManyFailure() throws Exception {
+        MockDataSource dataSource = new MockDataSource();
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("a", 1.0);
+        values.put("b", 2.0);
+        CompletableFuture<Map<String, Object>> future = new BulkOperation.WriteMany(dataSource, executor,
+                values, Duration.ofSeconds(10)).start();
+        
+        RuntimeException error = new RuntimeException("Read only");
+        for (WriteSubscription subscription : dataSource.getConnectedWriteRecipes()) {
+            subscription.getCollector().setWriteNotification((Consumer<WriteCollector.WriteRequest<?>>) request -> {
+                if (subscription.getChannelName().equals("a")) {
+                    request.writeSuccessful();
+                } else {
+                    request.writeFailed(error);
+                }
+            });
+            subscription.getCollector().updateConnection(true);
+        }
+        
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            fail("Expected failure");
+        } catch (ExecutionException ex) {
+            BulkOperationException bulkEx = (BulkOperationException) ex.getCause();
+            assertThat(bulkEx.getResults().keySet(), contains("a"));
+            assertThat(bulkEx.getErrors().get("b"), sameInstance((Exception) error));
+        }
+        assertThat(dataSource.getConnectedWriteRecipes(), empty());
+    }
+    
+}
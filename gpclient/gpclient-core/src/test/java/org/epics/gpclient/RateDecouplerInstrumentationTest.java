@@ -0,0 +1,82 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.gpclient;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import org.epics.gpclient.instrumentation.DataSourceMetrics;
+import org.epics.gpclient.instrumentation.Instrumentation;
+import org.epics.util.concurrent.Executors;
+import org.junit.AfterClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+
+public class RateDecouplerInstrumentationTest {
+    
+    static ScheduledExecutorService executor = java.util.concurrent.Executors.newScheduledThreadPool(3, Executors.namedPool("test"));
+    
+    @AfterClass
+    public static void closeExecutor() {
+        executor.shutdownNow();
+    }
+
+    private static void sendMessage(RateDecoupler decoupler, DataSourceMetrics metrics) {
+        Instrumentation.Arrival arrival = Instrumentation.messageArrived(metrics);
+        try {
+            decoupler.getUpdateListener().accept(PVEvent.valueEvent());
+        } finally {
+            Instrumentation.messageProcessed(arrival);
+        }
+    }
+
+    @Test
+    public void passiveCoalescing() throws Exception {
+        Instrumentation.setEnabled(true);
+        try {
+            DataSourceMetrics metrics = Instrumentation.metricsFor("RateDecouplerInstrumentationTest");
+            metrics.reset();
+            DesiredRateEventLog log = new DesiredRateEventLog();
+            RateDecoupler decoupler = new PassiveRateDecoupler(executor, Duration.ofMillis(100), log, null);
+            log.setDecoupler(decoupler);
+            decoupler.start();
+            // The first is sent right away, the others wait for the next slot
+            sendMessage(decoupler, metrics);
+            Thread.sleep(20);
+            sendMessage(decoupler, metrics);
+            sendMessage(decoupler, metrics);
+            sendMessage(decoupler, metrics);
+            Thread.sleep(300);
+            decoupler.stop();
+
+            assertThat(log.getEvents().size(), equalTo(2));
+            assertThat(metrics.getMessageCount(), equalTo(4L));
+            assertThat(metrics.getCollectorLatency().getCount(), equalTo(4L));
+            assertThat(metrics.getCoalescedEventCount(), equalTo(2L));
+            assertThat(metrics.getDroppedEventCount(), equalTo(0L));
+            assertThat(metrics.getTotalLatency().getCount(), equalTo(2L));
+            assertThat(metrics.getScanLatency().getMax(), greaterThanOrEqualTo(Duration.ofMillis(50).toNanos()));
+        } finally {
+            Instrumentation.setEnabled(false);
+        }
+    }
+
+    @Test
+    public void disabled() throws Exception {
+        DataSourceMetrics metrics = Instrumentation.metricsFor("RateDecouplerInstrumentationTest.disabled");
+        DesiredRateEventLog log = new DesiredRateEventLog();
+        RateDecoupler decoupler = new PassiveRateDecoupler(executor, Duration.ofMillis(10), log, null);
+        log.setDecoupler(decoupler);
+        decoupler.start();
+        sendMessage(decoupler, metrics);
+        Thread.sleep(100);
+        decoupler.stop();
+
+        assertThat(log.getEvents().size(), equalTo(1));
+        assertThat(metrics.getMessageCount(), equalTo(0L));
+        assertThat(metrics.getTotalLatency().getCount(), equalTo(0L));
+    }
+
+}
@@ -5,9 +5,20 @@
 package org.epics.gpclient.datasource;
 
 import org.epics.gpclient.datasource.CompositeDataSourceConfiguration;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.epics.gpclient.PVEvent;
+import org.epics.gpclient.PVEventRecorder;
+import org.epics.gpclient.ProbeCollector;
 import org.epics.gpclient.WriteCollector;
 import org.junit.After;
 import org.junit.Before;
@@ -21,6 +32,139 @@ import static org.hamcrest.CoreMatchers.*;
  * @author carcassi
  */
 public class CompositeDataSourceTest {
+    
+    private static ReadSubscription subscription(String channelName) {
+        return new ReadSubscription(channelName, ProbeCollector.create().getReadCollector());
+    }
+    
+    private static String errorMessage(String channelName, CompositeDataSource composite) throws InterruptedException {
+        ProbeCollector<?> probe = ProbeCollector.create();
+        PVEventRecorder recorder = probe.getRecorder();
+        composite.startRead(new ReadSubscription(channelName, probe.getReadCollector()));
+        recorder.wait(1000, PVEventRecorder.forEventCount(1));
+        PVEvent event = recorder.getEvents().get(0);
+        assertThat(event.isType(PVEvent.Type.EXCEPTION), equalTo(true));
+        return event.getException().getMessage();
+    }
+    
+    @Test
+    public void routing() {
+        MockDataSource mock1 = new MockDataSource();
+        MockDataSource mock2 = new MockDataSource();
+        CompositeDataSource composite = new CompositeDataSource(new CompositeDataSourceConfiguration().defaultDataSource("mock1"));
+        composite.putDataSource("mock1", mock1);
+        composite.putDataSource("mock2", mock2);
+        
+        composite.startRead(subscription("pv01"));
+        composite.startRead(subscription("mock1://pv02"));
+        composite.startRead(subscription("mock2://pv04"));
+        composite.startRead(subscription("mock2://mock1://pv05"));
+        assertThat(channelNames(mock1.getConnectedReadRecipes()), equalTo(set("pv01", "pv02")));
+        assertThat(channelNames(mock2.getConnectedReadRecipes()), equalTo(set("pv04", "mock1://pv05")));
+    }
+    
+    @Test
+    public void routingSharedPrefix() {
+        MockDataSource ca = new MockDataSource();
+        MockDataSource cal = new MockDataSource();
+        MockDataSource c = new MockDataSource();
+        CompositeDataSource composite = new CompositeDataSource(new CompositeDataSourceConfiguration().delimiter("?"));
+        composite.putDataSource("ca", ca);
+        composite.putDataSource("cal", cal);
+        composite.putDataSource("c", c);
+        
+        composite.startRead(subscription("ca?pv01"));
+        composite.startRead(subscription("cal?pv02"));
+        composite.startRead(subscription("c?pv03"));
+        composite.startRead(subscription("c?a?pv04"));
+        assertThat(channelNames(ca.getConnectedReadRecipes()), equalTo(set("pv01")));
+        assertThat(channelNames(cal.getConnectedReadRecipes()), equalTo(set("pv02")));
+        assertThat(channelNames(c.getConnectedReadRecipes()), equalTo(set("pv03", "a?pv04")));
+    }
+    
+    @Test
+    public void routingErrors() throws InterruptedException {
+        CompositeDataSource composite = new CompositeDataSource();
+        composite.putDataSource("mock1", new MockDataSource());
+        assertThat(errorMessage("mock3://pv01", composite), equalTo("Data source mock3 for mock3://pv01 was not configured."));
+        assertThat(errorMessage("mock://pv01", composite), equalTo("Data source mock for mock://pv01 was not configured."));
+        assertThat(errorMessage("pv01", composite), equalTo("Channel pv01 uses default data source but one was never set."));
+        
+        composite = new CompositeDataSource(new CompositeDataSourceConfiguration().defaultDataSource("wrong"));
+        composite.putDataSource("mock1", new MockDataSource());
+        assertThat(errorMessage("pv01", composite), equalTo("Channel pv01 uses default data source wrong which was not found."));
+    }
+    
+    @Test
+    public void replaceDataSource() {
+        MockDataSource mock1 = new MockDataSource();
+        MockDataSource mock2 = new MockDataSource();
+        CompositeDataSource composite = new CompositeDataSource();
+        composite.putDataSource("mock", mock1);
+        composite.startRead(subscription("mock://pv01"));
+        assertThat(composite.getDataSources().get("mock"), sameInstance((DataSource) mock1));
+        
+        composite.putDataSource("mock", mock2);
+        assertThat(composite.getDataSources().containsKey("mock"), equalTo(false));
+        composite.startRead(subscription("mock://pv02"));
+        assertThat(channelNames(mock1.getConnectedReadRecipes()), equalTo(set("pv01")));
+        assertThat(channelNames(mock2.getConnectedReadRecipes()), equalTo(set("pv02")));
+        assertThat(composite.getDataSources().get("mock"), sameInstance((DataSource) mock2));
+    }
+    
+    @Test
+    public void lazyCreationFromManyThreads() throws Exception {
+        AtomicInteger instances = new AtomicInteger();
+        CompositeDataSource composite = new CompositeDataSource();
+        composite.putDataSource(new DataSourceProvider() {
+            @Override
+            public String getName() {
+                return "mock";
+            }
+
+            @Override
+            public DataSource createInstance() {
+                instances.incrementAndGet();
+                return new MockDataSource();
+            }
+        });
+        assertThat(composite.getDataSources().isEmpty(), equalTo(true));
+        
+        ExecutorService exec = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                String channelName = "mock://pv" + i;
+                futures.add(exec.submit(() -> {
+                    start.await();
+                    composite.startRead(subscription(channelName));
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            exec.shutdownNow();
+        }
+        assertThat(instances.get(), equalTo(1));
+        MockDataSource mock = (MockDataSource) composite.getDataSources().get("mock");
+        assertThat(mock.getConnectedReadRecipes().size(), equalTo(8));
+    }
+    
+    private static Set<String> channelNames(Collection<ReadSubscription> subscriptions) {
+        Set<String> names = new HashSet<String>();
+        for (ReadSubscription subscription : subscriptions) {
+            names.add(subscription.getChannelName());
+        }
+        return names;
+    }
+    
+    private static Set<String> set(String... names) {
+        return new HashSet<String>(java.util.Arrays.asList(names));
+    }
 //
 //    @Before
 //    public void setUp() {
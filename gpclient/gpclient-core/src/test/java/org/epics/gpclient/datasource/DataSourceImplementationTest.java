@@ -4,6 +4,14 @@
  */
 package org.epics.gpclient.datasource;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.epics.gpclient.ProbeCollector;
 import org.epics.gpclient.PVEvent;
 import org.epics.gpclient.PVEventRecorder;
@@ -175,4 +183,57 @@ public class DataSourceImplementationTest {
         assertThat(recorder.getEvents().get(2), equalTo(PVEvent.writeConnectionEvent()));
         assertThat(recorder.getEvents().get(3), equalTo(PVEvent.writeFailedEvent(ex)));
     }
+    @Test
+    public void concurrentChannelCreation() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        DataSource dataSource = new DataSource() {
+            @Override
+            protected ChannelHandler createChannel(String channelName) {
+                created.incrementAndGet();
+                try {
+                    // Keep the creation slow so that the other threads
+                    // ask for the channel while it is pending
+                    Thread.sleep(100);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return new MultiplexedChannelHandler(channelName) {
+                    @Override
+                    protected void connect() {
+                    }
+                    
+                    @Override
+                    protected void disconnect() {
+                    }
+                    
+                    @Override
+                    protected void write(Object newValue) {
+                    }
+                };
+            }
+        };
+        
+        ExecutorService exec = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<ChannelHandler>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(exec.submit(() -> {
+                    start.await();
+                    return dataSource.channel("shared");
+                }));
+            }
+            start.countDown();
+            ChannelHandler channel = futures.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<ChannelHandler> future : futures) {
+                assertThat(future.get(10, TimeUnit.SECONDS), sameInstance(channel));
+            }
+        } finally {
+            exec.shutdownNow();
+            dataSource.close();
+        }
+        assertThat(created.get(), equalTo(1));
+        assertThat(dataSource.getChannels().size(), equalTo(1));
+    }
+    
 }
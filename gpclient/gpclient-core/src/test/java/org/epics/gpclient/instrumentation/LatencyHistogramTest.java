@@ -0,0 +1,51 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.gpclient.instrumentation;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketBounds() {
+        for (long value : new long[] {0, 1, 15, 16, 17, 31, 32, 33, 1000, 123456789, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertThat(LatencyHistogram.bucketUpperBound(index), greaterThanOrEqualTo(value));
+            if (index > 0) {
+                assertThat(LatencyHistogram.bucketUpperBound(index - 1), lessThan(value));
+            }
+        }
+    }
+
+    @Test
+    public void empty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertThat(histogram.getCount(), equalTo(0L));
+        assertThat(histogram.getMean(), equalTo(0.0));
+        assertThat(histogram.get50thPercentile(), equalTo(0L));
+        assertThat(histogram.getMax(), equalTo(0L));
+    }
+
+    @Test
+    public void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertThat(histogram.getCount(), equalTo(1000L));
+        assertThat(histogram.getMean(), closeTo(500500.0, 0.001));
+        assertThat(histogram.getMax(), equalTo(1000000L));
+        assertThat((double) histogram.get50thPercentile(), closeTo(500000, 500000 * 0.07));
+        assertThat((double) histogram.get99thPercentile(), closeTo(990000, 990000 * 0.07));
+        assertThat(histogram.getValueAtPercentile(100), equalTo(1000000L));
+
+        histogram.reset();
+        assertThat(histogram.getCount(), equalTo(0L));
+        assertThat(histogram.getMax(), equalTo(0L));
+    }
+
+}
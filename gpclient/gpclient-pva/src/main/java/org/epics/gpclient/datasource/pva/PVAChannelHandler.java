@@ -53,7 +53,7 @@ import org.epics.util.array.UnsafeUnwrapper;
  * @author msekoranja
  */
 class PVAChannelHandler extends
-		MultiplexedChannelHandler<PVAConnectionPayload, PVStructure> implements
+		MultiplexedChannelHandler<PVAConnectionPayload, PVAMessagePayload> implements
 		ChannelRequester, GetFieldRequester, ChannelPutRequester, MonitorRequester {
 
 	private final ChannelProvider pvaChannelProvider;
@@ -64,6 +64,9 @@ class PVAChannelHandler extends
 
 	private final AtomicBoolean monitorCreated = new AtomicBoolean(false);
 	private final AtomicLong monitorLossCounter = new AtomicLong(0);
+	private final boolean deltaMonitors;
+	// The last delta update, guarded by this
+	private PVAMessagePayload lastDeltaPayload = null;
 	//private volatile Monitor monitor = null;
 	
 	private volatile Field channelType = null;
@@ -90,17 +93,23 @@ class PVAChannelHandler extends
 	public static PVAChannelHandler create(String channelName,
 			ChannelProvider channelProvider, short priority,
 			PVATypeSupport typeSupport) {
+		return create(channelName, channelProvider, priority, typeSupport, false);
+	}
+	
+	public static PVAChannelHandler create(String channelName,
+			ChannelProvider channelProvider, short priority,
+			PVATypeSupport typeSupport, boolean deltaMonitors) {
 		
 		int pos = channelName.indexOf(PVREQUEST_PREFIX); 
 		if (pos == -1)
 		{
-			return new PVAChannelHandler(channelName, null, channelProvider, priority, typeSupport);
+			return new PVAChannelHandler(channelName, null, channelProvider, priority, typeSupport, deltaMonitors);
 		}
 		else
 		{
 			String pvRequestString = channelName.substring(pos+PVREQUEST_PREFIX.length());
 			channelName = channelName.substring(0, pos);
-			return new PVAChannelHandler(channelName, pvRequestString, channelProvider, priority, typeSupport);
+			return new PVAChannelHandler(channelName, pvRequestString, channelProvider, priority, typeSupport, deltaMonitors);
 		}
 		
 	}
@@ -108,7 +117,14 @@ class PVAChannelHandler extends
 	public PVAChannelHandler(String channelName, String pvRequestString,
 			ChannelProvider channelProvider, short priority,
 			PVATypeSupport typeSupport) {
+		this(channelName, pvRequestString, channelProvider, priority, typeSupport, false);
+	}
+
+	public PVAChannelHandler(String channelName, String pvRequestString,
+			ChannelProvider channelProvider, short priority,
+			PVATypeSupport typeSupport, boolean deltaMonitors) {
 		super(channelName);
+		this.deltaMonitors = deltaMonitors;
 		this.pvRequest = (pvRequestString != null) ? createRequest.createRequest(pvRequestString) : null;
 		this.pvaChannelProvider = channelProvider;
 		this.priority = priority;
@@ -469,7 +485,8 @@ class PVAChannelHandler extends
 			{
 				String nv = (String)newValue; 
 				
-				PVStructure lastValue = getLastMessagePayload();
+				PVAMessagePayload lastPayload = getLastMessagePayload();
+				PVStructure lastValue = (lastPayload != null) ? lastPayload.pvStructure : null;
 				if (lastValue == null)
 					throw new IllegalArgumentException("no monitor on '" + getChannelName() +"' created to get list of valid enum choices");
 				
@@ -627,6 +644,10 @@ class PVAChannelHandler extends
 		if (status.isSuccess())
 		{
 			//this.monitor = monitor;
+			// A new monitor may have a different structure
+			synchronized (this) {
+				lastDeltaPayload = null;
+			}
 			monitor.start();
 		}
 	}
@@ -636,17 +657,60 @@ class PVAChannelHandler extends
 	 */
 	@Override
 	public void monitorEvent(Monitor monitor) {
+		if (deltaMonitors)
+		{
+			deltaMonitorEvent(monitor);
+			return;
+		}
+		
 		MonitorElement monitorElement;
 		while ((monitorElement = monitor.poll()) != null)
 		{
 			if (monitorElement.getOverrunBitSet().cardinality() > 0)
 				monitorLossCounter.incrementAndGet();
 			
-			// TODO combine bitSet, etc.... do we need to copy structure?
-			processMessage(monitorElement.getPVStructure());
+			processMessage(new PVAMessagePayload(monitorElement.getPVStructure()));
 			monitor.release(monitorElement);
 		}
 	}
+	
+	/**
+	 * Merges all the queued elements into a single update, so that only
+	 * the latest structure is converted, together with all the fields that
+	 * changed since the last update.
+	 */
+	private void deltaMonitorEvent(Monitor monitor) {
+		MonitorElement latest = null;
+		BitSet changed = null;
+		MonitorElement monitorElement;
+		while ((monitorElement = monitor.poll()) != null)
+		{
+			if (monitorElement.getOverrunBitSet().cardinality() > 0)
+				monitorLossCounter.incrementAndGet();
+			
+			if (changed == null)
+				changed = new BitSet();
+			changed.or(monitorElement.getChangedBitSet());
+			
+			// The structure of each element is complete:
+			// the older ones are superseded
+			if (latest != null)
+				monitor.release(latest);
+			latest = monitorElement;
+		}
+		
+		if (latest == null)
+			return;
+		
+		try {
+			synchronized (this) {
+				lastDeltaPayload = new PVAMessagePayload(latest.getPVStructure(), changed, lastDeltaPayload);
+				processMessage(lastDeltaPayload);
+			}
+		} finally {
+			monitor.release(latest);
+		}
+	}
 
 	/* (non-Javadoc)
 	 * @see org.epics.pvdata.monitor.MonitorRequester#unlisten(org.epics.pvdata.monitor.Monitor)
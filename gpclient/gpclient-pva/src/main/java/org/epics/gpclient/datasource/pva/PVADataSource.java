@@ -20,8 +20,16 @@ import org.epics.pvaccess.client.ChannelProviderRegistryFactory;
 public class PVADataSource extends DataSource {
 
     private static final Logger log = Logger.getLogger(PVADataSource.class.getName());
+
+    /**
+     * The system property that enables delta monitors for the data sources
+     * that are not explicitly configured.
+     */
+    public static final String DELTA_MONITORS_PROPERTY = "org.epics.gpclient.pva.deltaMonitors";
+
     private final short defaultPriority;
     private final ChannelProvider pvaChannelProvider;
+    private final boolean deltaMonitors;
 
     private final PVATypeSupport pvaTypeSupport = new PVATypeSupport(new PVAVTypeAdapterSet());
 
@@ -31,6 +39,7 @@ public class PVADataSource extends DataSource {
 
     public PVADataSource(short defaultPriority) {
         this.defaultPriority = defaultPriority;
+        this.deltaMonitors = Boolean.getBoolean(DELTA_MONITORS_PROPERTY);
 
         try {
             // This takes more than a second: should be moved to a background thread
@@ -47,14 +56,43 @@ public class PVADataSource extends DataSource {
     }
 
     public PVADataSource(ChannelProvider channelProvider, short defaultPriority) {
+        this(channelProvider, defaultPriority, Boolean.getBoolean(DELTA_MONITORS_PROPERTY));
+    }
+
+    /**
+     * Creates a new data source on the given provider.
+     * <p>
+     * With delta monitors, the updates queued on a monitor are merged
+     * before conversion, and the array data of a channel is reused
+     * whenever the value was not changed by the update. This avoids
+     * copying a waveform each time only its alarm or timestamp changes.
+     * On the other hand, intermediate updates that arrive together are
+     * not delivered.
+     *
+     * @param channelProvider the pva provider
+     * @param defaultPriority the channel priority
+     * @param deltaMonitors whether monitor updates are merged and arrays reused
+     */
+    public PVADataSource(ChannelProvider channelProvider, short defaultPriority, boolean deltaMonitors) {
         this.pvaChannelProvider = channelProvider;
         this.defaultPriority = defaultPriority;
+        this.deltaMonitors = deltaMonitors;
     }
 
     public short getDefaultPriority() {
         return defaultPriority;
     }
 
+    /**
+     * Whether the monitor updates are merged and the arrays are reused
+     * when unchanged.
+     *
+     * @return true if delta monitors are enabled
+     */
+    public boolean isDeltaMonitors() {
+        return deltaMonitors;
+    }
+
     @Override
     public void close() {
         if (this.pvaChannelProvider != null) {
@@ -64,7 +102,7 @@ public class PVADataSource extends DataSource {
 
     @Override
     protected ChannelHandler createChannel(String channelName) {
-        return PVAChannelHandler.create(channelName, pvaChannelProvider, defaultPriority, pvaTypeSupport);
+        return PVAChannelHandler.create(channelName, pvaChannelProvider, defaultPriority, pvaTypeSupport, deltaMonitors);
     }
 
 }
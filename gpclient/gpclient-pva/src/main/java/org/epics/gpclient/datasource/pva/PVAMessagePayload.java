@@ -0,0 +1,114 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.gpclient.datasource.pva;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.pv.PVField;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.util.array.ListNumber;
+
+/**
+ * The payload for each monitor update: the structure and, for delta
+ * monitors, which fields changed since the previous update.
+ * <p>
+ * For delta monitors, the array data extracted from the structure is
+ * kept with the payload and carried over to the next one for all the
+ * arrays that did not change, so that the array is copied only when
+ * the server actually sends a new one.
+ */
+class PVAMessagePayload {
+    
+    final PVStructure pvStructure;
+    
+    // Null if the update is not a delta
+    final BitSet changedBitSet;
+    
+    // The array data by field name. Only accessed from processMessage,
+    // which is synchronized on the channel handler
+    private final Map<String, ListNumber> arrays;
+
+    /**
+     * A full update: everything is considered changed.
+     * 
+     * @param pvStructure the structure
+     */
+    PVAMessagePayload(PVStructure pvStructure) {
+        this.pvStructure = pvStructure;
+        this.changedBitSet = null;
+        this.arrays = null;
+    }
+
+    /**
+     * A delta update: the array data of the previous update is reused
+     * for the arrays whose bits are not set in the changed bit set.
+     * 
+     * @param pvStructure the structure
+     * @param changedBitSet the fields changed since the previous update
+     * @param previous the previous update; can be null
+     */
+    PVAMessagePayload(PVStructure pvStructure, BitSet changedBitSet, PVAMessagePayload previous) {
+        this.pvStructure = pvStructure;
+        this.changedBitSet = changedBitSet;
+        this.arrays = new HashMap<>();
+        if (previous != null && previous.arrays != null) {
+            for (Map.Entry<String, ListNumber> entry : previous.arrays.entrySet()) {
+                PVField field = pvStructure.getSubField(entry.getKey());
+                if (field != null && !isChanged(field)) {
+                    arrays.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Whether this is a delta update.
+     * 
+     * @return true if the changed bit set is available
+     */
+    boolean isDelta() {
+        return changedBitSet != null;
+    }
+    
+    /**
+     * Whether the given field has changed. A field has changed if its bit,
+     * or the bit of any of its parent structures, is set.
+     * 
+     * @param field a field of this structure
+     * @return true if changed
+     */
+    boolean isChanged(PVField field) {
+        if (changedBitSet == null) {
+            return true;
+        }
+        for (PVField current = field; current != null; current = current.getParent()) {
+            if (changedBitSet.get(current.getFieldOffset())) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * The array data for the given field, which is taken from the previous
+     * update if the field did not change.
+     * 
+     * @param field a numeric scalar array of this structure
+     * @return the array data; null if the field is not a numeric scalar array
+     */
+    ListNumber arrayDataOf(PVField field) {
+        String key = field.getFullName();
+        ListNumber data = arrays.get(key);
+        if (data == null) {
+            data = PVAToVTypes.arrayDataOf(field);
+            if (data != null) {
+                arrays.put(key, data);
+            }
+        }
+        return data;
+    }
+    
+}
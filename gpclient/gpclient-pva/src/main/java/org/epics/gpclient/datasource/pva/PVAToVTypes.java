@@ -46,6 +46,7 @@ import org.epics.util.array.ArrayUByte;
 import org.epics.util.array.ArrayUInteger;
 import org.epics.util.array.ArrayULong;
 import org.epics.util.array.ArrayUShort;
+import org.epics.util.array.ListNumber;
 import org.epics.util.stats.Range;
 import org.epics.util.text.NumberFormats;
 import org.epics.vtype.Alarm;
@@ -572,6 +573,70 @@ public class PVAToVTypes {
         }
     }
     
+    /**
+     * Copies the data of a numeric scalar array. The copy is needed when the
+     * data is kept beyond the current update, as the monitor may reuse the
+     * same structure for the following updates.
+     * 
+     * @param pvField the array field
+     * @return the copy of the data; null if the field is not a numeric scalar array
+     */
+    public static ListNumber arrayDataOf(PVField pvField) {
+        if (pvField instanceof PVDoubleArray) {
+            PVDoubleArray valueField = (PVDoubleArray) pvField;
+            DoubleArrayData data = new DoubleArrayData();
+            int length = valueField.get(0, valueField.getLength(), data);
+            return ArrayDouble.of(Arrays.copyOfRange(data.data, data.offset, data.offset + length));
+        } else if (pvField instanceof PVFloatArray) {
+            PVFloatArray valueField = (PVFloatArray) pvField;
+            FloatArrayData data = new FloatArrayData();
+            int length = valueField.get(0, valueField.getLength(), data);
+            return ArrayFloat.of(Arrays.copyOfRange(data.data, data.offset, data.offset + length));
+        } else if (pvField instanceof PVULongArray) {
+            PVULongArray valueField = (PVULongArray) pvField;
+            LongArrayData data = new LongArrayData();
+            int length = valueField.get(0, valueField.getLength(), data);
+            return ArrayULong.of(Arrays.copyOfRange(data.data, data.offset, data.offset + length));
+        } else if (pvField instanceof PVLongArray) {
+            PVLongArray valueField = (PVLongArray) pvField;
+            LongArrayData data = new LongArrayData();
+            int length = valueField.get(0, valueField.getLength(), data);
+            return ArrayLong.of(Arrays.copyOfRange(data.data, data.offset, data.offset + length));
+        } else if (pvField instanceof PVUIntArray) {
+            PVUIntArray valueField = (PVUIntArray) pvField;
+            IntArrayData data = new IntArrayData();
+            int length = valueField.get(0, valueField.getLength(), data);
+            return ArrayUInteger.of(Arrays.copyOfRange(data.data, data.offset, data.offset + length));
+        } else if (pvField instanceof PVIntArray) {
+            PVIntArray valueField = (PVIntArray) pvField;
+            IntArrayData data = new IntArrayData();
+            int length = valueField.get(0, valueField.getLength(), data);
+            return ArrayInteger.of(Arrays.copyOfRange(data.data, data.offset, data.offset + length));
+        } else if (pvField instanceof PVUShortArray) {
+            PVUShortArray valueField = (PVUShortArray) pvField;
+            ShortArrayData data = new ShortArrayData();
+            int length = valueField.get(0, valueField.getLength(), data);
+            return ArrayUShort.of(Arrays.copyOfRange(data.data, data.offset, data.offset + length));
+        } else if (pvField instanceof PVShortArray) {
+            PVShortArray valueField = (PVShortArray) pvField;
+            ShortArrayData data = new ShortArrayData();
+            int length = valueField.get(0, valueField.getLength(), data);
+            return ArrayShort.of(Arrays.copyOfRange(data.data, data.offset, data.offset + length));
+        } else if (pvField instanceof PVUByteArray) {
+            PVUByteArray valueField = (PVUByteArray) pvField;
+            ByteArrayData data = new ByteArrayData();
+            int length = valueField.get(0, valueField.getLength(), data);
+            return ArrayUByte.of(Arrays.copyOfRange(data.data, data.offset, data.offset + length));
+        } else if (pvField instanceof PVByteArray) {
+            PVByteArray valueField = (PVByteArray) pvField;
+            ByteArrayData data = new ByteArrayData();
+            int length = valueField.get(0, valueField.getLength(), data);
+            return ArrayByte.of(Arrays.copyOfRange(data.data, data.offset, data.offset + length));
+        } else {
+            return null;
+        }
+    }
+    
     public static VEnum vEnumOf(PVStructure pvField, boolean disconnected) {
         int index;
         List<String> choices;
@@ -20,7 +20,7 @@ import org.epics.pvdata.pv.Type;
  *
  * @author msekoranja
  */
-abstract class PVATypeAdapter implements DataSourceTypeAdapter<PVAConnectionPayload, PVStructure> {
+abstract class PVATypeAdapter implements DataSourceTypeAdapter<PVAConnectionPayload, PVAMessagePayload> {
 
 	// e.g. VDouble.class
     private final Class<?> typeClass;
@@ -166,8 +166,9 @@ abstract class PVATypeAdapter implements DataSourceTypeAdapter<PVAConnectionPayl
 
     @Override
     @SuppressWarnings("unchecked")
-    public void updateCache(@SuppressWarnings("rawtypes") ReadCollector cache, PVAConnectionPayload connection, PVStructure message) {
+    public void updateCache(@SuppressWarnings("rawtypes") ReadCollector cache, PVAConnectionPayload connection, PVAMessagePayload payload) {
 
+    	PVStructure message = payload.pvStructure;
     	PVField valueField = null;
     	String extractFieldName = connection.extractFieldName;
     	if (extractFieldName != null)
@@ -180,10 +181,25 @@ abstract class PVATypeAdapter implements DataSourceTypeAdapter<PVAConnectionPayl
   
     	}
     	
-        Object value = createValue(message, valueField, !connection.connected);
+        Object value = createValue(payload, message, valueField, !connection.connected);
         cache.updateValue(value);
     }
 
+    /**
+     * Given the value create the new value. Adapters that can take advantage
+     * of delta monitors override this method; by default it creates the
+     * value from the structure alone.
+     * 
+     * @param payload the monitor update
+     * @param message the value taken from the monitor
+     * @param valueField the value field data, optional
+     * @param disconnected true if the value should report the channel is currently disconnected
+     * @return the new value
+     */
+    Object createValue(PVAMessagePayload payload, PVStructure message, PVField valueField, boolean disconnected) {
+        return createValue(message, valueField, disconnected);
+    }
+
     /**
      * Given the value create the new value.
      * 
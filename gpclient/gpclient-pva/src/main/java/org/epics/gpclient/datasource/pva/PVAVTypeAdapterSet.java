@@ -15,6 +15,7 @@ import org.epics.pvdata.pv.PVField;
 import org.epics.pvdata.pv.PVStructure;
 import org.epics.pvdata.pv.ScalarType;
 import org.epics.vtype.VDouble;
+import org.epics.util.array.ListNumber;
 import org.epics.vtype.VDoubleArray;
 import static org.epics.gpclient.datasource.pva.PVAToVTypes.*;
 import org.epics.pvdata.factory.StandardFieldFactory;
@@ -27,6 +28,7 @@ import org.epics.vtype.VInt;
 import org.epics.vtype.VIntArray;
 import org.epics.vtype.VLong;
 import org.epics.vtype.VLongArray;
+import org.epics.vtype.VNumberArray;
 import org.epics.vtype.VShort;
 import org.epics.vtype.VShortArray;
 import org.epics.vtype.VString;
@@ -204,7 +206,31 @@ class PVAVTypeAdapterSet implements PVATypeAdapterSet {
     // Numeric arrays
     //--------------
     
-    final static PVATypeAdapter vDoubleArrayAdapter = new PVATypeAdapter(VDoubleArray.class,
+    /**
+     * Adapter for numeric arrays. For delta monitors, the array data is
+     * taken from the previous update if the array did not change.
+     */
+    abstract static class NumberArrayAdapter extends PVATypeAdapter {
+
+        NumberArrayAdapter(Class<?> typeClass, String[] ntIds, Field fieldType) {
+            super(typeClass, ntIds, fieldType);
+        }
+
+        @Override
+        Object createValue(PVAMessagePayload payload, PVStructure message, PVField valueField, boolean disconnected) {
+            if (!payload.isDelta()) {
+                return createValue(message, valueField, disconnected);
+            }
+            PVField arrayField = (valueField != null) ? valueField : message.getSubField("value");
+            ListNumber data = (arrayField != null) ? payload.arrayDataOf(arrayField) : null;
+            if (data == null) {
+                return null;
+            }
+            return VNumberArray.of(data, alarmOf(message, disconnected), timeOf(message), displayOf(message));
+        }
+    }
+    
+    final static PVATypeAdapter vDoubleArrayAdapter = new NumberArrayAdapter(VDoubleArray.class,
             new String[]{"epics:nt/NTScalarArray:1.", "double[]"},
             fieldCreate.createScalarArray(ScalarType.pvDouble)) {
         @Override
@@ -217,7 +243,7 @@ class PVAVTypeAdapterSet implements PVATypeAdapterSet {
         }
     };
 
-    final static PVATypeAdapter vFloatArrayAdapter = new PVATypeAdapter(VFloatArray.class,
+    final static PVATypeAdapter vFloatArrayAdapter = new NumberArrayAdapter(VFloatArray.class,
             new String[]{"epics:nt/NTScalarArray:1.", "float[]"},
             fieldCreate.createScalarArray(ScalarType.pvFloat)) {
         @Override
@@ -230,7 +256,7 @@ class PVAVTypeAdapterSet implements PVATypeAdapterSet {
         }
     };
 
-    final static PVATypeAdapter vULongArrayAdapter = new PVATypeAdapter(VULongArray.class,
+    final static PVATypeAdapter vULongArrayAdapter = new NumberArrayAdapter(VULongArray.class,
             new String[]{"epics:nt/NTScalarArray:1.", "ulong[]"},
             fieldCreate.createScalarArray(ScalarType.pvULong)) {
         @Override
@@ -243,7 +269,7 @@ class PVAVTypeAdapterSet implements PVATypeAdapterSet {
         }
     };
 
-    final static PVATypeAdapter vLongArrayAdapter = new PVATypeAdapter(VLongArray.class,
+    final static PVATypeAdapter vLongArrayAdapter = new NumberArrayAdapter(VLongArray.class,
             new String[]{"epics:nt/NTScalarArray:1.", "long[]"},
             fieldCreate.createScalarArray(ScalarType.pvLong)) {
         @Override
@@ -256,7 +282,7 @@ class PVAVTypeAdapterSet implements PVATypeAdapterSet {
         }
     };
 
-    final static PVATypeAdapter vUIntArrayAdapter = new PVATypeAdapter(VUIntArray.class,
+    final static PVATypeAdapter vUIntArrayAdapter = new NumberArrayAdapter(VUIntArray.class,
             new String[]{"epics:nt/NTScalarArray:1.", "uint[]"},
             fieldCreate.createScalarArray(ScalarType.pvUInt)) {
         @Override
@@ -269,7 +295,7 @@ class PVAVTypeAdapterSet implements PVATypeAdapterSet {
         }
     };
 
-    final static PVATypeAdapter vIntArrayAdapter = new PVATypeAdapter(VIntArray.class,
+    final static PVATypeAdapter vIntArrayAdapter = new NumberArrayAdapter(VIntArray.class,
             new String[]{"epics:nt/NTScalarArray:1.", "int[]"},
             fieldCreate.createScalarArray(ScalarType.pvInt)) {
         @Override
@@ -282,7 +308,7 @@ class PVAVTypeAdapterSet implements PVATypeAdapterSet {
         }
     };
 
-    final static PVATypeAdapter vUShortArrayAdapter = new PVATypeAdapter(VUShortArray.class,
+    final static PVATypeAdapter vUShortArrayAdapter = new NumberArrayAdapter(VUShortArray.class,
             new String[]{"epics:nt/NTScalarArray:1.", "ushort[]"},
             fieldCreate.createScalarArray(ScalarType.pvUShort)) {
         @Override
@@ -295,7 +321,7 @@ class PVAVTypeAdapterSet implements PVATypeAdapterSet {
         }
     };
 
-    final static PVATypeAdapter vShortArrayAdapter = new PVATypeAdapter(VShortArray.class,
+    final static PVATypeAdapter vShortArrayAdapter = new NumberArrayAdapter(VShortArray.class,
             new String[]{"epics:nt/NTScalarArray:1.", "short[]"},
             fieldCreate.createScalarArray(ScalarType.pvShort)) {
         @Override
@@ -308,7 +334,7 @@ class PVAVTypeAdapterSet implements PVATypeAdapterSet {
         }
     };
 
-    final static PVATypeAdapter vUByteArrayAdapter = new PVATypeAdapter(VUByteArray.class,
+    final static PVATypeAdapter vUByteArrayAdapter = new NumberArrayAdapter(VUByteArray.class,
             new String[]{"epics:nt/NTScalarArray:1.", "ubyte[]"},
             fieldCreate.createScalarArray(ScalarType.pvUByte)) {
         @Override
@@ -321,7 +347,7 @@ class PVAVTypeAdapterSet implements PVATypeAdapterSet {
         }
     };
 
-    final static PVATypeAdapter vByteArrayAdapter = new PVATypeAdapter(VByteArray.class,
+    final static PVATypeAdapter vByteArrayAdapter = new NumberArrayAdapter(VByteArray.class,
             new String[]{"epics:nt/NTScalarArray:1.", "byte[]"},
             fieldCreate.createScalarArray(ScalarType.pvByte)) {
         @Override
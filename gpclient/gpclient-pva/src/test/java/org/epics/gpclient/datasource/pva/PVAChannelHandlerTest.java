@@ -0,0 +1,197 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.gpclient.datasource.pva;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.epics.pvdata.factory.StatusFactory;
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.monitor.Monitor;
+import org.epics.pvdata.monitor.MonitorElement;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.Status;
+import org.epics.util.array.ArrayDouble;
+import org.epics.util.array.ListNumber;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+import static org.epics.gpclient.datasource.pva.PVAMessagePayloadTest.*;
+
+/**
+ * Tests the merging of delta monitor updates.
+ */
+public class PVAChannelHandlerTest {
+
+    private static class TestChannelHandler extends PVAChannelHandler {
+
+        TestChannelHandler(boolean deltaMonitors) {
+            super("test", null, null, (short) 0, null, deltaMonitors);
+        }
+
+        PVAMessagePayload getLastPayload() {
+            return getLastMessagePayload();
+        }
+    }
+
+    private static class TestMonitorElement implements MonitorElement {
+
+        private final PVStructure pvStructure;
+        private final BitSet changed;
+        private final BitSet overrun;
+
+        TestMonitorElement(PVStructure pvStructure, BitSet changed, BitSet overrun) {
+            this.pvStructure = pvStructure;
+            this.changed = changed;
+            this.overrun = overrun;
+        }
+
+        @Override
+        public PVStructure getPVStructure() {
+            return pvStructure;
+        }
+
+        @Override
+        public BitSet getChangedBitSet() {
+            return changed;
+        }
+
+        @Override
+        public BitSet getOverrunBitSet() {
+            return overrun;
+        }
+    }
+
+    private static class TestMonitor implements Monitor {
+
+        final ArrayDeque<MonitorElement> queue = new ArrayDeque<>();
+        final List<MonitorElement> released = new ArrayList<>();
+
+        TestMonitor(MonitorElement... elements) {
+            queue.addAll(Arrays.asList(elements));
+        }
+
+        @Override
+        public Status start() {
+            return StatusFactory.getStatusCreate().getStatusOK();
+        }
+
+        @Override
+        public Status stop() {
+            return StatusFactory.getStatusCreate().getStatusOK();
+        }
+
+        @Override
+        public MonitorElement poll() {
+            return queue.poll();
+        }
+
+        @Override
+        public void release(MonitorElement monitorElement) {
+            released.add(monitorElement);
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+
+    private static MonitorElement element(PVStructure pvStructure, BitSet changed, BitSet overrun) {
+        return new TestMonitorElement(pvStructure, changed, overrun);
+    }
+
+    private static TestMonitor monitor(MonitorElement... elements) {
+        return new TestMonitor(elements);
+    }
+
+    @Test
+    public void fullUpdates() {
+        TestChannelHandler handler = new TestChannelHandler(false);
+        PVStructure pvStructure = createStructure();
+        MonitorElement element = element(pvStructure, changed(pvStructure, "alarm"), changed(pvStructure));
+        TestMonitor monitor = monitor(element);
+
+        handler.monitorEvent(monitor);
+        PVAMessagePayload payload = handler.getLastPayload();
+        assertThat(payload.isDelta(), equalTo(false));
+        assertThat(payload.pvStructure, sameInstance(pvStructure));
+        assertThat(monitor.released, equalTo(Arrays.asList(element)));
+    }
+
+    @Test
+    public void mergeDeltaUpdates() {
+        TestChannelHandler handler = new TestChannelHandler(true);
+        PVStructure first = createStructure();
+        MonitorElement element1 = element(first, changed(first, ""), changed(first));
+        TestMonitor monitor = monitor(element1);
+
+        // complete first update
+        handler.monitorEvent(monitor);
+        PVAMessagePayload payload = handler.getLastPayload();
+        assertThat(payload.isDelta(), equalTo(true));
+        assertThat(payload.isChanged(first.getSubField("value")), equalTo(true));
+        ListNumber value = payload.arrayDataOf(first.getSubField("value"));
+        assertThat(monitor.released, equalTo(Arrays.asList(element1)));
+
+        // two queued updates, the second with an overrun: merged into one
+        PVStructure second = createStructure();
+        PVStructure third = createStructure();
+        setValue(third, 7.0);
+        MonitorElement element2 = element(second, changed(second, "alarm.severity"), changed(second));
+        MonitorElement element3 = element(third, changed(third, "timeStamp"), changed(third, "timeStamp"));
+        monitor = monitor(element2, element3);
+
+        handler.monitorEvent(monitor);
+        payload = handler.getLastPayload();
+        assertThat(payload.pvStructure, sameInstance(third));
+        assertThat(payload.isChanged(third.getSubField("alarm.severity")), equalTo(true));
+        assertThat(payload.isChanged(third.getSubField("timeStamp.userTag")), equalTo(true));
+        assertThat(payload.isChanged(third.getSubField("alarm.status")), equalTo(false));
+        assertThat(payload.isChanged(third.getSubField("value")), equalTo(false));
+        // the value did not change: the array of the previous update is kept
+        assertThat(payload.arrayDataOf(third.getSubField("value")), sameInstance(value));
+        assertThat(value, equalTo((ListNumber) ArrayDouble.of(1.0, 2.0, 3.0)));
+        assertThat(monitor.released, equalTo(Arrays.asList(element2, element3)));
+        assertThat(monitor.queue.isEmpty(), equalTo(true));
+
+        // a complete update among the queued ones: everything changed
+        PVStructure fourth = createStructure();
+        PVStructure fifth = createStructure();
+        setValue(fifth, 8.0);
+        MonitorElement element4 = element(fourth, changed(fourth, "alarm"), changed(fourth));
+        MonitorElement element5 = element(fifth, changed(fifth, ""), changed(fifth));
+        monitor = monitor(element4, element5);
+
+        handler.monitorEvent(monitor);
+        payload = handler.getLastPayload();
+        assertThat(payload.pvStructure, sameInstance(fifth));
+        assertThat(payload.isChanged(fifth.getSubField("value")), equalTo(true));
+        assertThat(payload.isChanged(fifth.getSubField("timeStamp.userTag")), equalTo(true));
+        assertThat(payload.arrayDataOf(fifth.getSubField("value")), equalTo((ListNumber) ArrayDouble.of(8.0)));
+        assertThat(monitor.released, equalTo(Arrays.asList(element4, element5)));
+    }
+
+    @Test
+    public void emptyDeltaEvent() {
+        TestChannelHandler handler = new TestChannelHandler(true);
+        handler.monitorEvent(monitor());
+        assertThat(handler.getLastPayload(), nullValue());
+    }
+
+    @Test
+    public void newMonitorResetsDeltas() {
+        TestChannelHandler handler = new TestChannelHandler(true);
+        PVStructure first = createStructure();
+        handler.monitorEvent(monitor(element(first, changed(first, ""), changed(first))));
+        ListNumber value = handler.getLastPayload().arrayDataOf(first.getSubField("value"));
+
+        // reconnect: the new monitor can have a different structure
+        Monitor newMonitor = monitor(element(first, changed(first, "alarm"), changed(first)));
+        handler.monitorConnect(StatusFactory.getStatusCreate().getStatusOK(), newMonitor, first.getStructure());
+        handler.monitorEvent(newMonitor);
+        assertThat(handler.getLastPayload().arrayDataOf(first.getSubField("value")), not(sameInstance(value)));
+    }
+}
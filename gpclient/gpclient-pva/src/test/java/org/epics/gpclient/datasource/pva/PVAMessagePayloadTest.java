@@ -0,0 +1,148 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.gpclient.datasource.pva;
+
+import org.epics.pvdata.factory.FieldFactory;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.factory.StandardFieldFactory;
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.pv.FieldCreate;
+import org.epics.pvdata.pv.PVDoubleArray;
+import org.epics.pvdata.pv.PVIntArray;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.Structure;
+import org.epics.util.array.ArrayDouble;
+import org.epics.util.array.ArrayInteger;
+import org.epics.util.array.ListNumber;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Tests the changed field tracking and array reuse of delta monitor updates.
+ */
+public class PVAMessagePayloadTest {
+
+    static PVStructure createStructure() {
+        FieldCreate fieldCreate = FieldFactory.getFieldCreate();
+        Structure structure = fieldCreate.createFieldBuilder()
+                .addArray("value", ScalarType.pvDouble)
+                .add("alarm", StandardFieldFactory.getStandardField().alarm())
+                .add("timeStamp", StandardFieldFactory.getStandardField().timeStamp())
+                .addArray("other", ScalarType.pvInt)
+                .createStructure();
+        PVStructure pvStructure = PVDataFactory.getPVDataCreate().createPVStructure(structure);
+        setValue(pvStructure, 1.0, 2.0, 3.0);
+        pvStructure.getSubField(PVIntArray.class, "other").put(0, 2, new int[] {1, 2}, 0);
+        return pvStructure;
+    }
+
+    static void setValue(PVStructure pvStructure, double... values) {
+        PVDoubleArray value = pvStructure.getSubField(PVDoubleArray.class, "value");
+        value.setLength(values.length);
+        value.put(0, values.length, values, 0);
+    }
+
+    static BitSet changed(PVStructure pvStructure, String... fieldNames) {
+        BitSet bitSet = new BitSet(pvStructure.getNumberFields());
+        for (String fieldName : fieldNames) {
+            bitSet.set(fieldName.isEmpty() ? 0 : pvStructure.getSubField(fieldName).getFieldOffset());
+        }
+        return bitSet;
+    }
+
+    @Test
+    public void isChangedFullUpdate() {
+        PVStructure pvStructure = createStructure();
+        PVAMessagePayload payload = new PVAMessagePayload(pvStructure);
+        assertThat(payload.isDelta(), equalTo(false));
+        assertThat(payload.isChanged(pvStructure.getSubField("value")), equalTo(true));
+        assertThat(payload.isChanged(pvStructure.getSubField("alarm.severity")), equalTo(true));
+    }
+
+    @Test
+    public void isChanged() {
+        PVStructure pvStructure = createStructure();
+        PVAMessagePayload payload = new PVAMessagePayload(pvStructure, changed(pvStructure, "value", "alarm.severity"), null);
+        assertThat(payload.isDelta(), equalTo(true));
+        assertThat(payload.isChanged(pvStructure.getSubField("value")), equalTo(true));
+        assertThat(payload.isChanged(pvStructure.getSubField("alarm.severity")), equalTo(true));
+        assertThat(payload.isChanged(pvStructure.getSubField("alarm.status")), equalTo(false));
+        assertThat(payload.isChanged(pvStructure.getSubField("alarm")), equalTo(false));
+        assertThat(payload.isChanged(pvStructure.getSubField("timeStamp")), equalTo(false));
+        assertThat(payload.isChanged(pvStructure.getSubField("other")), equalTo(false));
+    }
+
+    @Test
+    public void isChangedParent() {
+        PVStructure pvStructure = createStructure();
+        PVAMessagePayload payload = new PVAMessagePayload(pvStructure, changed(pvStructure, "alarm"), null);
+        assertThat(payload.isChanged(pvStructure.getSubField("alarm.severity")), equalTo(true));
+        assertThat(payload.isChanged(pvStructure.getSubField("alarm.message")), equalTo(true));
+        assertThat(payload.isChanged(pvStructure.getSubField("timeStamp.userTag")), equalTo(false));
+        assertThat(payload.isChanged(pvStructure.getSubField("value")), equalTo(false));
+    }
+
+    @Test
+    public void isChangedCompleteUpdate() {
+        PVStructure pvStructure = createStructure();
+        PVAMessagePayload payload = new PVAMessagePayload(pvStructure, changed(pvStructure, ""), null);
+        assertThat(payload.isChanged(pvStructure), equalTo(true));
+        assertThat(payload.isChanged(pvStructure.getSubField("value")), equalTo(true));
+        assertThat(payload.isChanged(pvStructure.getSubField("timeStamp.userTag")), equalTo(true));
+    }
+
+    @Test
+    public void arrayDataIsCopied() {
+        PVStructure pvStructure = createStructure();
+        PVAMessagePayload payload = new PVAMessagePayload(pvStructure, changed(pvStructure, ""), null);
+        ListNumber data = payload.arrayDataOf(pvStructure.getSubField("value"));
+        assertThat(data, equalTo((ListNumber) ArrayDouble.of(1.0, 2.0, 3.0)));
+
+        // the monitor reuses the structure
+        setValue(pvStructure, 4.0, 5.0);
+        assertThat(data, equalTo((ListNumber) ArrayDouble.of(1.0, 2.0, 3.0)));
+        assertThat(payload.arrayDataOf(pvStructure.getSubField("value")), sameInstance(data));
+    }
+
+    @Test
+    public void arrayReuse() {
+        PVStructure pvStructure = createStructure();
+        PVAMessagePayload first = new PVAMessagePayload(pvStructure, changed(pvStructure, ""), null);
+        ListNumber value = first.arrayDataOf(pvStructure.getSubField("value"));
+        ListNumber other = first.arrayDataOf(pvStructure.getSubField("other"));
+
+        // only the alarm changed: both arrays are reused
+        PVAMessagePayload second = new PVAMessagePayload(pvStructure, changed(pvStructure, "alarm.severity"), first);
+        assertThat(second.arrayDataOf(pvStructure.getSubField("value")), sameInstance(value));
+        assertThat(second.arrayDataOf(pvStructure.getSubField("other")), sameInstance(other));
+
+        // the value changed: only the other array is reused
+        setValue(pvStructure, 4.0, 5.0);
+        PVAMessagePayload third = new PVAMessagePayload(pvStructure, changed(pvStructure, "value"), second);
+        ListNumber newValue = third.arrayDataOf(pvStructure.getSubField("value"));
+        assertThat(newValue, not(sameInstance(value)));
+        assertThat(newValue, equalTo((ListNumber) ArrayDouble.of(4.0, 5.0)));
+        assertThat(third.arrayDataOf(pvStructure.getSubField("other")), sameInstance(other));
+        assertThat(other, equalTo((ListNumber) ArrayInteger.of(1, 2)));
+
+        // complete update: nothing is reused
+        PVAMessagePayload fourth = new PVAMessagePayload(pvStructure, changed(pvStructure, ""), third);
+        assertThat(fourth.arrayDataOf(pvStructure.getSubField("value")), not(sameInstance(newValue)));
+        assertThat(fourth.arrayDataOf(pvStructure.getSubField("other")), not(sameInstance(other)));
+    }
+
+    @Test
+    public void arrayReuseOnlyExtractedArrays() {
+        PVStructure pvStructure = createStructure();
+        PVAMessagePayload first = new PVAMessagePayload(pvStructure, changed(pvStructure, ""), null);
+
+        // the array was not extracted from the first update, so it is extracted again
+        setValue(pvStructure, 4.0);
+        PVAMessagePayload second = new PVAMessagePayload(pvStructure, changed(pvStructure, "alarm"), first);
+        assertThat(second.arrayDataOf(pvStructure.getSubField("value")), equalTo((ListNumber) ArrayDouble.of(4.0)));
+    }
+}
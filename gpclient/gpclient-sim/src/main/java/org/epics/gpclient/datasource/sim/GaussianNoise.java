@@ -52,4 +52,11 @@ public class GaussianNoise extends VDoubleSimFunction {
     double nextDouble() {
         return average + rand.nextGaussian() * stdDev;
     }
+
+    @Override
+    void nextDoubles(double[] values, int nValues) {
+        for (int i = 0; i < nValues; i++) {
+            values[i] = average + rand.nextGaussian() * stdDev;
+        }
+    }
 }
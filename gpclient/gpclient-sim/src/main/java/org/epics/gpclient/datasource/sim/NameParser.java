@@ -4,10 +4,13 @@
  */
 package org.epics.gpclient.datasource.sim;
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -82,6 +85,11 @@ class NameParser {
          throw new IllegalArgumentException("Syntax error: function should be like xxx(num1, num2, ...) or xxx(\"string\") and was " + string);
     }
 
+    /**
+     * Constructors already resolved, keyed by function name and parameter types.
+     */
+    private static final Map<String, Constructor<? extends Simulation<?>>> constructors = new ConcurrentHashMap<>();
+
     /**
      * Given a string representing a function call, finds the appropriate call
      * matching the function name, and the appropriate constructor and instantiates
@@ -92,40 +100,68 @@ class NameParser {
      */
     static Simulation<?> createFunction(String string) {
         List<Object> parameters = parseFunction(string);
+        String name = (String) parameters.get(0);
+        Object[] constructorParams = parameters.subList(1, parameters.size()).toArray();
+        Class<?>[] types = new Class<?>[constructorParams.length];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = constructorParams[i].getClass();
+        }
+
+        try {
+            return findConstructor(name, types).newInstance(constructorParams);
+        } catch (InstantiationException ex) {
+            throw new RuntimeException("Constructor for " + name + " failed", ex);
+        } catch (IllegalAccessException ex) {
+            throw new RuntimeException("Constructor for " + name + " should be at least package private");
+        } catch (IllegalArgumentException ex) {
+            throw new RuntimeException("Wrong parameter type for function " + name);
+        } catch (InvocationTargetException ex) {
+            throw new RuntimeException(ex.getCause().getMessage(), ex);
+        }
+    }
+
+    /**
+     * Finds the constructor for the given function name and parameter types.
+     * The lookup is done by reflection only the first time: the result
+     * is cached for all the following channels.
+     *
+     * @param name the function name
+     * @param types the types of the parameters
+     * @return the constructor
+     */
+    static Constructor<? extends Simulation<?>> findConstructor(String name, Class<?>[] types) {
+        StringBuilder key = new StringBuilder(name);
+        for (Class<?> type : types) {
+            key.append(',').append(type.getName());
+        }
+        Constructor<? extends Simulation<?>> constructor = constructors.get(key.toString());
+        if (constructor != null) {
+            return constructor;
+        }
+
         StringBuilder className = new StringBuilder("org.epics.gpclient.datasource.sim.");
         int firstCharPosition = className.length();
-        className.append((String) parameters.get(0));
+        className.append(name);
         className.setCharAt(firstCharPosition, Character.toUpperCase(className.charAt(firstCharPosition)));
 
         try {
             @SuppressWarnings("unchecked")
             Class<SimFunction<?>> clazz = (Class<SimFunction<?>>) Class.forName(className.toString());
-            Object[] constructorParams = parameters.subList(1, parameters.size()).toArray();
-            Class[] types = new Class[constructorParams.length];
-            for (int i = 0; i < types.length; i++) {
-                types[i] = constructorParams[i].getClass();
-            }
-            return clazz.getConstructor(types).newInstance(constructorParams);
+            constructor = clazz.getConstructor(types);
         } catch (ClassNotFoundException ex) {
-            throw new RuntimeException("Simulation channel " + parameters.get(0) + " is not defined");
+            throw new RuntimeException("Simulation channel " + name + " is not defined");
         } catch (NoClassDefFoundError ex) {
             if (ex.getMessage().contains("wrong name") && ex.getMessage().lastIndexOf("/") != -1) {
                 String suggestedName = ex.getMessage().substring(ex.getMessage().lastIndexOf("/") + 1, ex.getMessage().length() - 1);
-                throw new RuntimeException("Function " + parameters.get(0) + " is not defined (Looking for " + suggestedName + "?)");
+                throw new RuntimeException("Function " + name + " is not defined (Looking for " + suggestedName + "?)");
             }
-            throw new RuntimeException("Function " + parameters.get(0) + " is not defined");
+            throw new RuntimeException("Function " + name + " is not defined");
         } catch (NoSuchMethodException ex) {
-            throw new RuntimeException("Wrong parameter number for function " + parameters.get(0));
+            throw new RuntimeException("Wrong parameter number for function " + name);
         } catch (SecurityException ex) {
-            throw new RuntimeException("Constructor for " + parameters.get(0) + " should be at least package private");
-        } catch (InstantiationException ex) {
-            throw new RuntimeException("Constructor for " + parameters.get(0) + " failed", ex);
-        } catch (IllegalAccessException ex) {
-            throw new RuntimeException("Constructor for " + parameters.get(0) + " should be at least package private");
-        } catch (IllegalArgumentException ex) {
-            throw new RuntimeException("Wrong parameter type for function " + parameters.get(0));
-        } catch (InvocationTargetException ex) {
-            throw new RuntimeException(ex.getCause().getMessage(), ex);
+            throw new RuntimeException("Constructor for " + name + " should be at least package private");
         }
+        constructors.put(key.toString(), constructor);
+        return constructor;
     }
 }
@@ -41,4 +41,13 @@ public class Noise extends VDoubleSimFunction {
     double nextDouble() {
         return display.getDisplayRange().rescale(rand.nextDouble());
     }
+
+    @Override
+    void nextDoubles(double[] values, int nValues) {
+        double min = display.getDisplayRange().getMinimum();
+        double span = display.getDisplayRange().getMaximum() - min;
+        for (int i = 0; i < nValues; i++) {
+            values[i] = min + rand.nextDouble() * span;
+        }
+    }
 }
@@ -7,6 +7,7 @@ package org.epics.gpclient.datasource.sim;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.logging.Logger;
 import org.epics.util.stats.Range;
@@ -74,20 +75,48 @@ abstract class SimFunction<T> extends Simulation<T> {
      */
     @Override
     List<T> createValues(TimeInterval interval) {
-        List<T> values = new ArrayList<T>();
-        Instant newTime;
+        Instant firstTime;
         if (lastSampleTime != null) {
-            newTime = lastSampleTime.plus(timeBetweenSamples);
+            firstTime = lastSampleTime.plus(timeBetweenSamples);
         } else {
-            newTime = interval.getStart();
+            firstTime = interval.getStart();
         }
 
+        // Count the samples first, so that the common case of a scan
+        // with no new samples does not allocate
+        int nSamples = 0;
+        Instant newTime = firstTime;
         while (interval.contains(newTime)) {
+            nSamples++;
+            newTime = newTime.plus(timeBetweenSamples);
+        }
+
+        if (nSamples == 0) {
+            return Collections.emptyList();
+        }
+
+        List<T> values = createValues(firstTime, nSamples);
+        lastSampleTime = newTime.minus(timeBetweenSamples);
+        return values;
+    }
+
+    /**
+     * Computes the given number of samples, the first at the given time
+     * and the others spaced by the time between samples. Subclasses can
+     * override this to generate all the samples in bulk.
+     *
+     * @param firstSampleTime the time of the first sample
+     * @param nSamples the number of samples to generate; always positive
+     * @return the new values
+     */
+    List<T> createValues(Instant firstSampleTime, int nSamples) {
+        List<T> values = new ArrayList<T>(nSamples);
+        Instant newTime = firstSampleTime;
+        for (int i = 0; i < nSamples; i++) {
             lastSampleTime = newTime;
             values.add(nextValue(lastSampleTime));
             newTime = lastSampleTime.plus(timeBetweenSamples);
         }
-
         return values;
     }
 
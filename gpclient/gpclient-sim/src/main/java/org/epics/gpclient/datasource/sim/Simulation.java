@@ -22,23 +22,30 @@ abstract class Simulation<T> {
 
     private static final Logger log = Logger.getLogger(Simulation.class.getName());
 
-//    private final long intervalBetweenExecution;
-//    private final Class<T> classToken;
+    private final Duration scanRate;
     private volatile Instant lastTime = Instant.now();
 
     /**
      * Creates a new simulation.
      *
-     * @param secondsBeetwenSamples seconds between each samples
+     * @param scanRate the period with which the simulation should be scanned
+     * @param classToken simulated class
      */
     Simulation(Duration scanRate, Class<T> classToken) {
-        // XXX: this is dead code at this point. If needed, use it when setting up
-        // the scan job. Ignore otherwise.
         if (scanRate.compareTo(Duration.ofMillis(1)) < 0) {
             throw new IllegalArgumentException("Scans must be at least every ms (was " + scanRate + ")");
         }
-//        this.intervalBetweenExecution = Math.max(scanRate.toNanos() / 1000000, 1);
-//        this.classToken = classToken;
+        this.scanRate = scanRate;
+    }
+
+    /**
+     * The period with which the simulation should be scanned. Simulations
+     * with the same scan rate are processed on the same tick.
+     *
+     * @return the scan period
+     */
+    final Duration getScanRate() {
+        return scanRate;
     }
 
     /**
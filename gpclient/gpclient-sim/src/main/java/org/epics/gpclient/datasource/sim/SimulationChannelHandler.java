@@ -4,11 +4,9 @@
  */
 package org.epics.gpclient.datasource.sim;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.epics.gpclient.datasource.MultiplexedChannelHandler;
@@ -25,50 +23,63 @@ class SimulationChannelHandler<T> extends MultiplexedChannelHandler<Simulation<T
      * 
      * @param channelName the name of the channel
      * @param simulation the source of the simulated data
-     * @param exec the thread pool to use for data generation
+     * @param engine the engine that scans the simulation
      */
-    SimulationChannelHandler(String channelName, Simulation<T> simulation, ScheduledExecutorService exec) {
+    SimulationChannelHandler(String channelName, Simulation<T> simulation, SimulationEngine engine) {
         super(channelName, true);
         this.simulation = simulation;
-        this.exec = exec;
+        this.engine = engine;
     }
 
     private final Simulation<T> simulation;
-    private final ScheduledExecutorService exec;
-    private final Runnable task = new Runnable() {
+    private final SimulationEngine engine;
+    private static final Logger log = Logger.getLogger(SimulationChannelHandler.class.getName());
+    private volatile boolean scanning;
+
+    /**
+     * The period with which this channel needs to be scanned.
+     *
+     * @return the scan period
+     */
+    Duration getScanRate() {
+        return simulation.getScanRate();
+    }
 
-        @Override
-        public void run() {
-            // Protect the timer thread for possible problems.
-            try {
-                // Creates all the new vlues and process them one by one
-                List<T> newValues = simulation.createValuesBefore(Instant.now());
-                for (T newValue : newValues) {
-                    processMessage(newValue);
-                }
-            } catch (Exception ex) {
-                log.log(Level.WARNING, "Data simulation problem", ex);
+    /**
+     * Generates all the values up to the given time. Called by the
+     * engine on the scanning thread.
+     *
+     * @param now the time of the scan
+     */
+    void scan(Instant now) {
+        if (!scanning) {
+            return;
+        }
+
+        // Protect the timer thread for possible problems.
+        try {
+            // Creates all the new vlues and process them one by one
+            List<T> newValues = simulation.createValuesBefore(now);
+            for (T newValue : newValues) {
+                processMessage(newValue);
             }
+        } catch (Exception ex) {
+            log.log(Level.WARNING, "Data simulation problem", ex);
         }
-    };
-    private static final Logger log = Logger.getLogger(SimulationChannelHandler.class.getName());
-    private ScheduledFuture<?> taskFuture;
+    }
 
     @Override
     public void connect() {
         simulation.reset();
-//        simulation.lastTime = Instant.now();
-//        if (simulation instanceof SimFunction) {
-//            simulation.lastTime = simulation.lastTime.minus(((SimFunction<?>) simulation).getTimeBetweenSamples());
-//        }
-        taskFuture = exec.scheduleWithFixedDelay(task, 0, 10, TimeUnit.MILLISECONDS);
+        scanning = true;
+        engine.register(this);
         processConnection(simulation);
     }
 
     @Override
     public void disconnect() {
-        taskFuture.cancel(false);
-        taskFuture = null;
+        scanning = false;
+        engine.unregister(this);
         processConnection(null);
     }
 
@@ -79,6 +90,6 @@ class SimulationChannelHandler<T> extends MultiplexedChannelHandler<Simulation<T
 
     @Override
     public boolean isConnected(Simulation<T> sim) {
-        return taskFuture != null;
+        return scanning;
     }
 }
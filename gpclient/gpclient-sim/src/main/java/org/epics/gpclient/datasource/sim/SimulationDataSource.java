@@ -36,6 +36,11 @@ public final class SimulationDataSource extends DataSource {
      */
     private final ScheduledExecutorService exec = Executors.newSingleThreadScheduledExecutor(namedPool("PVMgr Simulator "));
 
+    /**
+     * Engine that scans all the simulated functions on shared ticks.
+     */
+    private final SimulationEngine engine = new SimulationEngine(exec);
+
     @Override
     @SuppressWarnings("unchecked")
     protected ChannelHandler createChannel(String channelName) {
@@ -50,7 +55,7 @@ public final class SimulationDataSource extends DataSource {
         }
         
         SimFunction<?> simFunction = (SimFunction<?>) NameParser.createFunction(channelName);
-        return new SimulationChannelHandler(channelName, simFunction, exec);
+        return new SimulationChannelHandler(channelName, simFunction, engine);
     }
 
     @Override
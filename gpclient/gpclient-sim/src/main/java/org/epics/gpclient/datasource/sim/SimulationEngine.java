@@ -0,0 +1,110 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.gpclient.datasource.sim;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scans all the simulated channels. Channels with the same scan rate
+ * are grouped together and processed on a single shared tick, so that the
+ * number of scheduled tasks depends on the number of distinct scan rates
+ * and not on the number of channels.
+ * <p>
+ * All the scans are executed on the given executor: if that is single
+ * threaded, each simulation is always computed on the same thread.
+ */
+class SimulationEngine {
+
+    private final ScheduledExecutorService exec;
+
+    // Guarded by this
+    private final Map<Duration, ScanGroup> scanGroups = new HashMap<>();
+
+    /**
+     * Creates a new engine that will scan on the given executor.
+     *
+     * @param exec the thread pool to use for data generation
+     */
+    SimulationEngine(ScheduledExecutorService exec) {
+        this.exec = exec;
+    }
+
+    /**
+     * Starts scanning the given channel. The first scan is executed
+     * right away, the others on the tick of the scan group.
+     *
+     * @param handler the channel to scan
+     */
+    synchronized void register(final SimulationChannelHandler<?> handler) {
+        Duration scanRate = handler.getScanRate();
+        ScanGroup scanGroup = scanGroups.get(scanRate);
+        if (scanGroup == null) {
+            scanGroup = new ScanGroup();
+            scanGroup.future = exec.scheduleWithFixedDelay(scanGroup, scanRate.toNanos(), scanRate.toNanos(), TimeUnit.NANOSECONDS);
+            scanGroups.put(scanRate, scanGroup);
+        }
+        scanGroup.handlers.add(handler);
+        exec.execute(new Runnable() {
+            @Override
+            public void run() {
+                handler.scan(Instant.now());
+            }
+        });
+    }
+
+    /**
+     * Stops scanning the given channel. If it was the last channel
+     * of its scan group, the tick is removed.
+     *
+     * @param handler the channel to stop scanning
+     */
+    synchronized void unregister(SimulationChannelHandler<?> handler) {
+        Duration scanRate = handler.getScanRate();
+        ScanGroup scanGroup = scanGroups.get(scanRate);
+        if (scanGroup == null) {
+            return;
+        }
+        scanGroup.handlers.remove(handler);
+        if (scanGroup.handlers.isEmpty()) {
+            scanGroup.future.cancel(false);
+            scanGroups.remove(scanRate);
+        }
+    }
+
+    /**
+     * The number of ticks currently scheduled.
+     *
+     * @return the number of scan groups
+     */
+    synchronized int getScanGroupCount() {
+        return scanGroups.size();
+    }
+
+    /**
+     * All the channels scanned at the same rate.
+     */
+    private static class ScanGroup implements Runnable {
+
+        private final Set<SimulationChannelHandler<?>> handlers = ConcurrentHashMap.newKeySet();
+        private ScheduledFuture<?> future;
+
+        @Override
+        public void run() {
+            // Same time reference for all the channels in the tick
+            Instant now = Instant.now();
+            for (SimulationChannelHandler<?> handler : handlers) {
+                handler.scan(now);
+            }
+        }
+    }
+}
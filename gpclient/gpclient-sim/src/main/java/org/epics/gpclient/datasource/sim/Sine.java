@@ -59,4 +59,15 @@ public class Sine extends VDoubleSimFunction {
 
         return value;
     }
+
+    @Override
+    void nextDoubles(double[] values, int nValues) {
+        double min = display.getDisplayRange().getMinimum();
+        double span = display.getDisplayRange().getMaximum() - min;
+        double step = 2 * Math.PI / samplesPerCycle;
+        for (int i = 0; i < nValues; i++) {
+            values[i] = min + (Math.sin((currentValue + i) * step) / 2 + 0.5) * span;
+        }
+        currentValue += nValues;
+    }
 }
@@ -18,6 +18,8 @@ public class SineWaveform extends VDoubleArraySimFunction {
     private final double omega;
     private final double k;
     private int nSamples;
+    private final double[] sinKi;
+    private final double[] cosKi;
 
     /**
      * Creates sine wave of 100 samples, with period of 1 second, wavelength of
@@ -56,13 +58,24 @@ public class SineWaveform extends VDoubleArraySimFunction {
         if (this.nSamples <= 0) {
             throw new IllegalArgumentException("Number of sample must be a positive integer.");
         }
+        // The spatial part of the wave does not change: precompute it
+        // so that each new waveform only needs a multiply-add per sample
+        this.sinKi = new double[this.nSamples];
+        this.cosKi = new double[this.nSamples];
+        for (int i = 0; i < this.nSamples; i++) {
+            sinKi[i] = Math.sin(k * i);
+            cosKi[i] = Math.cos(k * i);
+        }
     }
 
     @Override
     ListDouble nextListDouble(double time) {
+        // sin(wt + ki) = sin(wt) cos(ki) + cos(wt) sin(ki)
+        double sinWt = Math.sin(omega * time);
+        double cosWt = Math.cos(omega * time);
         double[] newArray = new double[nSamples];
         for (int i = 0; i < newArray.length; i++) {
-            newArray[i] = Math.sin(omega * time + k * i);
+            newArray[i] = sinWt * cosKi[i] + cosWt * sinKi[i];
         }
         return ArrayDouble.of(newArray);
     }
@@ -4,7 +4,10 @@
  */
 package org.epics.gpclient.datasource.sim;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import org.epics.vtype.Display;
 import org.epics.vtype.Time;
 import org.epics.vtype.VDouble;
@@ -21,6 +24,11 @@ abstract class VDoubleSimFunction extends SimFunction<VDouble> {
      */
     protected final Display display;
 
+    /**
+     * Scratch buffer reused across scans for the bulk generation.
+     */
+    private double[] buffer = new double[0];
+
     /**
      * Creates a new simulation function.
      *
@@ -39,11 +47,43 @@ abstract class VDoubleSimFunction extends SimFunction<VDouble> {
         return VDouble.of(value, display.newAlarmFor(value), Time.of(instant), display);
     }
 
+    @Override
+    final List<VDouble> createValues(Instant firstSampleTime, int nSamples) {
+        if (buffer.length < nSamples) {
+            buffer = new double[nSamples];
+        }
+        nextDoubles(buffer, nSamples);
+
+        List<VDouble> values = new ArrayList<>(nSamples);
+        Duration timeBetweenSamples = getTimeBetweenSamples();
+        Instant newTime = firstSampleTime;
+        for (int i = 0; i < nSamples; i++) {
+            double value = buffer[i];
+            values.add(VDouble.of(value, display.newAlarmFor(value), Time.of(newTime), display));
+            newTime = newTime.plus(timeBetweenSamples);
+        }
+        return values;
+    }
+
     /**
      * Returns the next value in the sequence.
      * 
      * @return the new value
      */
     abstract double nextDouble();
+
+    /**
+     * Fills the buffer with the next values in the sequence. By default
+     * calls nextDouble() for each element; functions that can compute
+     * the values more efficiently in bulk should override it.
+     *
+     * @param values the buffer to fill
+     * @param nValues the number of values to generate
+     */
+    void nextDoubles(double[] values, int nValues) {
+        for (int i = 0; i < nValues; i++) {
+            values[i] = nextDouble();
+        }
+    }
     
 }
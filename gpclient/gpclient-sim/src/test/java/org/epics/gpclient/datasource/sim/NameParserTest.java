@@ -120,4 +120,13 @@ public class NameParserTest {
         assertThat(noise3.getTimeBetweenSamples(), equalTo(Duration.ofMillis(500)));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void constructorCache() {
+        Sine sine1 = (Sine) NameParser.createFunction("sine(0.0, 10.0, 4.0, 1.0)");
+        Sine sine2 = (Sine) NameParser.createFunction("sine(0.0, 10.0, 4.0, 1.0)");
+        assertThat(sine1, not(sameInstance(sine2)));
+        assertThat(NameParser.findConstructor("sine", new Class<?>[] {Double.class, Double.class, Double.class, Double.class}),
+                sameInstance(NameParser.findConstructor("sine", new Class<?>[] {Double.class, Double.class, Double.class, Double.class})));
+    }
+
+}
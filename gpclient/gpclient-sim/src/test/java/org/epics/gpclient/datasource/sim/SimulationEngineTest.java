@@ -0,0 +1,40 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.gpclient.datasource.sim;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+
+public class SimulationEngineTest {
+
+    @Test
+    public void scanGroups() {
+        ScheduledExecutorService exec = Executors.newSingleThreadScheduledExecutor();
+        try {
+            SimulationEngine engine = new SimulationEngine(exec);
+            SimulationChannelHandler<?> ramp1 = new SimulationChannelHandler<>("ramp1", new Ramp(-5.0, 5.0, 0.1), engine);
+            SimulationChannelHandler<?> ramp2 = new SimulationChannelHandler<>("ramp2", new Ramp(-5.0, 5.0, 0.1), engine);
+            SimulationChannelHandler<?> sine = new SimulationChannelHandler<>("sine", new Sine(-5.0, 5.0, 1.0), engine);
+
+            engine.register(ramp1);
+            engine.register(ramp2);
+            assertThat(engine.getScanGroupCount(), equalTo(1));
+            engine.register(sine);
+            assertThat(engine.getScanGroupCount(), equalTo(2));
+            engine.unregister(ramp1);
+            assertThat(engine.getScanGroupCount(), equalTo(2));
+            engine.unregister(ramp2);
+            assertThat(engine.getScanGroupCount(), equalTo(1));
+            engine.unregister(sine);
+            assertThat(engine.getScanGroupCount(), equalTo(0));
+        } finally {
+            exec.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,28 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.gpclient.datasource.sim;
+
+import org.epics.util.array.ListDouble;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+
+public class SineWaveformTest {
+
+    @Test
+    public void values() {
+        SineWaveform waveform = new SineWaveform(2.0, 50.0, 200.0, 0.1);
+        double omega = 2 * Math.PI / 2.0;
+        double k = 2 * Math.PI / 50.0;
+        for (double t : new double[] {0.0, 0.3, 1.7, 123.4}) {
+            ListDouble values = waveform.nextListDouble(t);
+            assertThat(values.size(), equalTo(200));
+            for (int i = 0; i < values.size(); i++) {
+                assertThat(values.getDouble(i), closeTo(Math.sin(omega * t + k * i), 0.000001));
+            }
+        }
+    }
+
+}
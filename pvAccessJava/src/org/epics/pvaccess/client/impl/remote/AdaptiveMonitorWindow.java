@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.client.impl.remote;
+
+/**
+ * Flow control window of an adaptive pipeline monitor.
+ * <p>
+ * The window is both the size of the client monitor queue and the number of updates
+ * the server may send ahead of the acknowledgements. It is doubled, up to the maximum,
+ * when the server used up all its credits or the queue overran while the consumer was
+ * keeping up. It is halved, down to the minimum, after a period without such stalls,
+ * but not below what the measured drain rate and round-trip time need.
+ * <p>
+ * Times are in nanoseconds. This class is not thread-safe, the monitor calls it under its lock.
+ * @version $Id$
+ */
+public class AdaptiveMonitorWindow {
+
+	/**
+	 * Minimal time between two decreases of the window (1s).
+	 */
+	public static final long SHRINK_PERIOD = 1000000000L;
+
+	/**
+	 * Minimal period of drain rate samples (100ms).
+	 */
+	private static final long RATE_SAMPLE_PERIOD = 100000000L;
+
+	/**
+	 * Round-trip time is the minimum of this many samples.
+	 */
+	private static final int RTT_SAMPLES = 16;
+
+	private final int minWindow;
+	private final int maxWindow;
+	private int window;
+
+	// credits the server has not used yet
+	private int outstanding;
+	// credits to add (or to withhold, if negative) with the next acknowledgement
+	private int pendingCredits = 0;
+	// the window was too small since the last resize
+	private boolean stalled = false;
+
+	// time of the acknowledgement sent when the server was out of credits, -1 if none
+	private long ackTime = -1;
+	private long roundTripTime = -1;
+	private int roundTripSamples = 0;
+
+	private int released = 0;
+	private long rateTime;
+	private double drainRate = 0;
+
+	private long changeTime;
+
+	/**
+	 * Create a window, starting with its minimal size.
+	 * @param minWindow minimal window, at least 2.
+	 * @param maxWindow maximal window.
+	 * @param now current time.
+	 */
+	public AdaptiveMonitorWindow(int minWindow, int maxWindow, long now)
+	{
+		if (minWindow < 2)
+			throw new IllegalArgumentException("minWindow < 2");
+		if (maxWindow < minWindow)
+			throw new IllegalArgumentException("maxWindow < minWindow");
+
+		this.minWindow = minWindow;
+		this.maxWindow = maxWindow;
+		this.window = minWindow;
+		reset(now);
+	}
+
+	/**
+	 * (Re)start of the subscription, the server is given the whole window.
+	 * @param now current time.
+	 */
+	public void reset(long now)
+	{
+		outstanding = window;
+		pendingCredits = 0;
+		stalled = false;
+		ackTime = -1;
+		released = 0;
+		rateTime = now;
+		changeTime = now;
+	}
+
+	/**
+	 * An update was received from the server.
+	 * @param now current time.
+	 */
+	public void eventReceived(long now)
+	{
+		if (ackTime >= 0)
+		{
+			long sample = now - ackTime;
+			if (roundTripTime < 0 || sample < roundTripTime || ++roundTripSamples >= RTT_SAMPLES)
+			{
+				roundTripTime = sample;
+				roundTripSamples = 0;
+			}
+			ackTime = -1;
+		}
+
+		if (outstanding > 0)
+			outstanding--;
+		if (outstanding == 0)
+			stalled = true;
+	}
+
+	/**
+	 * The local queue overran.
+	 */
+	public void overrun()
+	{
+		stalled = true;
+	}
+
+	/**
+	 * The consumer released an element.
+	 */
+	public void elementReleased()
+	{
+		released++;
+	}
+
+	/**
+	 * Credits to report in an acknowledgement.
+	 * @param releasedCount the number of elements released since the last acknowledgement.
+	 * @param now current time.
+	 * @return the number of credits given to the server.
+	 */
+	public int credits(int releasedCount, long now)
+	{
+		int credits = releasedCount + pendingCredits;
+		if (credits < 0)
+		{
+			pendingCredits = credits;
+			credits = 0;
+		}
+		else
+			pendingCredits = 0;
+
+		if (outstanding == 0 && credits > 0)
+			ackTime = now;
+		outstanding += credits;
+		return credits;
+	}
+
+	/**
+	 * Check if there are credits to be given to the server as soon as possible.
+	 * @return <code>true</code> if the window was increased and not yet reported.
+	 */
+	public boolean hasPendingCredits()
+	{
+		return pendingCredits > 0;
+	}
+
+	/**
+	 * Adapt the window, to be called when the consumer has released all the elements.
+	 * @param now current time.
+	 * @return <code>true</code> if the window has changed.
+	 */
+	public boolean resize(long now)
+	{
+		long elapsed = now - rateTime;
+		if (elapsed >= RATE_SAMPLE_PERIOD)
+		{
+			double rate = released * 1e9 / elapsed;
+			drainRate = (drainRate == 0) ? rate : 0.75 * drainRate + 0.25 * rate;
+			released = 0;
+			rateTime = now;
+		}
+
+		int newWindow = window;
+		if (stalled)
+		{
+			stalled = false;
+			newWindow = Math.min(maxWindow, window * 2);
+		}
+		else if (now - changeTime >= SHRINK_PERIOD)
+		{
+			int required = getRequiredWindow();
+			if (required <= window / 2)
+				newWindow = Math.max(minWindow, Math.max(required, window / 2));
+		}
+
+		if (newWindow == window)
+			return false;
+
+		pendingCredits += newWindow - window;
+		window = newWindow;
+		changeTime = now;
+		return true;
+	}
+
+	/**
+	 * Window needed to keep the server sending at the measured drain rate:
+	 * twice the rate times the round-trip time, plus the elements held by the client.
+	 * @return required window.
+	 */
+	public int getRequiredWindow()
+	{
+		if (roundTripTime < 0)
+			return 2;
+		return (int)Math.ceil(drainRate * roundTripTime / 1e9) * 2 + 2;
+	}
+
+	/**
+	 * Get current window.
+	 * @return current window.
+	 */
+	public int getWindow() {
+		return window;
+	}
+
+	/**
+	 * Get minimal window.
+	 * @return minimal window.
+	 */
+	public int getMinWindow() {
+		return minWindow;
+	}
+
+	/**
+	 * Get maximal window.
+	 * @return maximal window.
+	 */
+	public int getMaxWindow() {
+		return maxWindow;
+	}
+
+	/**
+	 * Get measured round-trip time.
+	 * @return round-trip time, -1 if not known.
+	 */
+	public long getRoundTripTime() {
+		return roundTripTime;
+	}
+
+	/**
+	 * Get measured drain rate.
+	 * @return released elements per second.
+	 */
+	public double getDrainRate() {
+		return drainRate;
+	}
+}
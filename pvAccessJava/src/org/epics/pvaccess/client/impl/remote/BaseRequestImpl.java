@@ -19,10 +19,11 @@ import java.util.concurrent.locks.ReentrantLock;
 
 import org.epics.pvaccess.PVFactory;
 import org.epics.pvaccess.client.Channel;
+import org.epics.pvaccess.impl.remote.PrioritizedTransportSender;
 import org.epics.pvaccess.impl.remote.QoS;
+import org.epics.pvaccess.impl.remote.SendLane;
 import org.epics.pvaccess.impl.remote.Transport;
 import org.epics.pvaccess.impl.remote.TransportSendControl;
-import org.epics.pvaccess.impl.remote.TransportSender;
 import org.epics.pvaccess.impl.remote.request.DataResponse;
 import org.epics.pvaccess.impl.remote.request.SubscriptionRequest;
 import org.epics.pvdata.misc.BitSet;
@@ -40,7 +41,7 @@ import org.epics.pvdata.pv.StatusCreate;
  * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
  * @version $Id$
  */
-public abstract class BaseRequestImpl implements DataResponse, SubscriptionRequest, TransportSender {
+public abstract class BaseRequestImpl implements DataResponse, SubscriptionRequest, PrioritizedTransportSender {
 
     protected static final StatusCreate statusCreate = PVFactory.getStatusCreate();
     protected static final Status okStatus = statusCreate.getStatusOK();
@@ -324,6 +325,26 @@ public abstract class BaseRequestImpl implements DataResponse, SubscriptionReque
 		lock.lock();
 	}
 	
+	/**
+	 * Get the send lane of the data messages of this request.
+	 * Init, cancel and destroy messages are always sent in the control lane.
+	 * @return the lane.
+	 */
+	protected SendLane getDataSendLane() {
+		return SendLane.CONTROL;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.PrioritizedTransportSender#getSendLane()
+	 */
+	@Override
+	public SendLane getSendLane() {
+		final int qos = getPendingRequest();
+		if (qos < 0 || QoS.INIT.isSet(qos))
+			return SendLane.CONTROL;
+		return getDataSendLane();
+	}
+
 	/* (non-Javadoc)
 	 * @see org.epics.pvaccess.impl.remote.TransportSender#send(java.nio.ByteBuffer, org.epics.pvaccess.impl.remote.TransportSendControl)
 	 */
@@ -15,8 +15,9 @@
 package org.epics.pvaccess.client.impl.remote;
 
 import java.net.InetSocketAddress;
-import java.util.Arrays;
 
+import org.epics.pvaccess.client.impl.remote.BeaconTracker.Anomaly;
+import org.epics.pvaccess.client.impl.remote.BeaconTracker.ServerState;
 import org.epics.pvaccess.impl.remote.Transport;
 import org.epics.pvdata.pv.PVField;
 
@@ -44,14 +45,9 @@ public class BeaconHandlerImpl implements BeaconHandler {
 	private final InetSocketAddress responseFrom;
 
 	/**
-	 * Server GUID.
+	 * Server beacon state.
 	 */
-	private byte[] serverGUID = null;
-
-	/**
-	 * Server change count.
-	 */
-	private int serverChangeCount;
+	private final ServerState serverState;
 
 	/**
 	 * Constructor.
@@ -64,6 +60,7 @@ public class BeaconHandlerImpl implements BeaconHandler {
 		this.context = context;
 		this.protocol = protocol;
 		this.responseFrom = responseFrom;
+		this.serverState = context.getBeaconTracker().createServerState();
 	}
 	
 	/**
@@ -74,52 +71,19 @@ public class BeaconHandlerImpl implements BeaconHandler {
 							 long timestamp, byte[] guid, int sequentalID,
 							 int changeCount, PVField data)
 	{
-		boolean networkChanged = updateBeacon(remoteTransportRevision, timestamp, guid, sequentalID, changeCount);
-		if (networkChanged)
+		Anomaly anomaly = context.getBeaconTracker().beaconNotify(serverState, responseFrom,
+				guid, sequentalID, changeCount, timestamp);
+		if (anomaly == Anomaly.RESTARTED)
 			changedTransport();
 	}
 
 	/**
-	 * Update beacon.
+	 * Get server GUID, as reported by the last beacon.
+	 * @return server GUID, <code>null</code> if no beacon was received yet.
 	 */
-	private synchronized boolean updateBeacon(byte remoteTransportRevision, long timestamp,
-											  byte[] guid, int sequentalID, int changeCount) {
-		
-		// first beacon notification check
-		if (serverGUID == null)
-		{
-			serverGUID = guid;
-			serverChangeCount = changeCount;
-			
-			// new server up...
-			context.newServerDetected();
-
-			return false;
-		}
-
-		final boolean networkChange = Arrays.equals(serverGUID, guid);
-		if (networkChange)
-		{
-			// update startup time and change count 
-			serverGUID = guid;
-			serverChangeCount = changeCount;
-
-			context.newServerDetected();
-			
-			return true;
-		}
-		else if (serverChangeCount != changeCount)
-		{
-			//  change count 
-			serverChangeCount = changeCount;
-
-			// TODO be more specific (possible optimizations)
-			context.newServerDetected();
-			
-			return true;
-		}
-		
-		return false;
+	public byte[] getServerGUID()
+	{
+		return serverState.getServerGUID();
 	}
 
 	/**
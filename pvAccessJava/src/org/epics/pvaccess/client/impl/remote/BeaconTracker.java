@@ -0,0 +1,364 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.client.impl.remote;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.epics.pvdata.misc.Timer;
+import org.epics.pvdata.misc.Timer.TimerCallback;
+import org.epics.pvdata.misc.Timer.TimerNode;
+import org.epics.pvdata.misc.TimerFactory;
+
+/**
+ * Beacon anomaly tracker.
+ * Keeps a per-server beacon state machine, classifies beacon anomalies and
+ * triggers (jittered, exponentially backed-off) searches. A restarted server only
+ * triggers search of the channels it was hosting, a new server triggers search of all channels.
+ * @version $Id$
+ */
+public class BeaconTracker {
+
+	/**
+	 * Beacon anomaly.
+	 */
+	public enum Anomaly {
+		/**
+		 * Regular beacon.
+		 */
+		NONE,
+
+		/**
+		 * First beacon of a server.
+		 */
+		NEW_SERVER,
+
+		/**
+		 * Server GUID has changed, i.e. server was restarted.
+		 */
+		RESTARTED,
+
+		/**
+		 * Server beacons re-appeared after a long silence (e.g. network outage).
+		 */
+		RECOVERED,
+
+		/**
+		 * Server reported a change (e.g. its channel set has changed).
+		 */
+		CHANGED
+	}
+
+	/**
+	 * Searches triggered by the tracker.
+	 */
+	public interface Listener {
+
+		/**
+		 * Search for all unresolved channels.
+		 */
+		void searchAll();
+
+		/**
+		 * Search for the channels that were hosted by given server.
+		 * @param serverAddress server address.
+		 */
+		void searchServerChannels(InetSocketAddress serverAddress);
+	}
+
+	/**
+	 * Base delay (in ms) of the anomaly triggered search.
+	 */
+	public static final long BASE_DELAY_MS = 50;
+
+	/**
+	 * Maximal exponent of the search back-off, i.e. maximal delay is <code>BASE_DELAY_MS * 2^MAX_BACKOFF_EXPONENT</code>.
+	 */
+	public static final int MAX_BACKOFF_EXPONENT = 8;
+
+	/**
+	 * Period (in ms) without an anomaly after which the back-off is reset.
+	 */
+	public static final long BACKOFF_RESET_MS = 60000;
+
+	/**
+	 * Number of beacon periods of silence after which the server is considered as lost.
+	 */
+	public static final float SILENCE_BEACON_PERIODS = 2.5f;
+
+	/**
+	 * Beacon state of one server.
+	 */
+	public static class ServerState {
+
+		/**
+		 * Silence period (in ms) after which the server is considered as lost.
+		 */
+		private final long silencePeriod;
+
+		/**
+		 * Server GUID, <code>null</code> if no beacon was received yet.
+		 */
+		private byte[] serverGUID = null;
+
+		/**
+		 * Server change count.
+		 */
+		private int serverChangeCount;
+
+		/**
+		 * Time (in ms) of the last beacon.
+		 */
+		private long lastBeaconTime;
+
+		/**
+		 * Last beacon sequential ID.
+		 */
+		private int lastSequentialID;
+
+		/**
+		 * Number of anomalies in the current back-off sequence.
+		 */
+		private int anomalyCount = 0;
+
+		/**
+		 * Time (in ms) of the last anomaly.
+		 */
+		private long lastAnomalyTime = 0;
+
+		/**
+		 * Timer node of the pending (targeted) search, created by the tracker.
+		 */
+		TimerNode searchNode = null;
+
+		/**
+		 * Constructor.
+		 * @param beaconPeriod beacon period (in seconds).
+		 */
+		public ServerState(float beaconPeriod)
+		{
+			this.silencePeriod = (long)(beaconPeriod * SILENCE_BEACON_PERIODS * 1000);
+		}
+
+		/**
+		 * Update state with a received beacon.
+		 * @param guid server GUID.
+		 * @param sequentialID beacon sequential ID.
+		 * @param changeCount server change count.
+		 * @param timestamp time (in ms) of beacon reception.
+		 * @return detected anomaly.
+		 */
+		public synchronized Anomaly update(byte[] guid, int sequentialID, int changeCount, long timestamp)
+		{
+			final long lastTime = lastBeaconTime;
+			lastBeaconTime = timestamp;
+			lastSequentialID = sequentialID;
+
+			// first beacon notification check
+			if (serverGUID == null)
+			{
+				serverGUID = guid;
+				serverChangeCount = changeCount;
+				return anomaly(Anomaly.NEW_SERVER, timestamp);
+			}
+
+			if (!Arrays.equals(serverGUID, guid))
+			{
+				serverGUID = guid;
+				serverChangeCount = changeCount;
+				return anomaly(Anomaly.RESTARTED, timestamp);
+			}
+
+			if (serverChangeCount != changeCount)
+			{
+				serverChangeCount = changeCount;
+				return anomaly(Anomaly.CHANGED, timestamp);
+			}
+
+			if (silencePeriod > 0 && timestamp - lastTime > silencePeriod)
+				return anomaly(Anomaly.RECOVERED, timestamp);
+
+			return Anomaly.NONE;
+		}
+
+		private Anomaly anomaly(Anomaly anomaly, long timestamp)
+		{
+			if (timestamp - lastAnomalyTime > BACKOFF_RESET_MS)
+				anomalyCount = 0;
+			else
+				anomalyCount++;
+			lastAnomalyTime = timestamp;
+			return anomaly;
+		}
+
+		/**
+		 * Get the upper bound of the search delay, based on the recent anomalies.
+		 * @return maximal search delay (in ms).
+		 */
+		public synchronized long getBackoffWindow()
+		{
+			return BASE_DELAY_MS << Math.min(anomalyCount, MAX_BACKOFF_EXPONENT);
+		}
+
+		/**
+		 * Get number of anomalies in the current back-off sequence.
+		 * @return number of anomalies (first anomaly counts as 0).
+		 */
+		public synchronized int getAnomalyCount()
+		{
+			return anomalyCount;
+		}
+
+		/**
+		 * Get server GUID.
+		 * @return server GUID, <code>null</code> if no beacon was received yet.
+		 */
+		public synchronized byte[] getServerGUID()
+		{
+			return serverGUID;
+		}
+
+		/**
+		 * Get last beacon sequential ID.
+		 * @return last beacon sequential ID.
+		 */
+		public synchronized int getLastSequentialID()
+		{
+			return lastSequentialID;
+		}
+	}
+
+	/**
+	 * Listener.
+	 */
+	private final Listener listener;
+
+	/**
+	 * Timer used to delay the searches.
+	 */
+	private final Timer timer;
+
+	/**
+	 * Jitter generator.
+	 */
+	private final Random random = new Random();
+
+	/**
+	 * Beacon period (in seconds).
+	 */
+	private final float beaconPeriod;
+
+	/**
+	 * Timer node of the pending search of all channels.
+	 */
+	private final TimerNode searchAllNode;
+
+	/**
+	 * Constructor.
+	 * @param listener listener triggering the searches.
+	 * @param timer timer used to delay the searches.
+	 * @param beaconPeriod beacon period (in seconds).
+	 */
+	public BeaconTracker(final Listener listener, Timer timer, float beaconPeriod)
+	{
+		this.listener = listener;
+		this.timer = timer;
+		this.beaconPeriod = beaconPeriod;
+
+		searchAllNode = TimerFactory.createNode(new TimerCallback() {
+			@Override
+			public void callback() {
+				listener.searchAll();
+			}
+
+			@Override
+			public void timerStopped() {
+				// noop
+			}
+		});
+	}
+
+	/**
+	 * Create new server state.
+	 * @return new server state.
+	 */
+	public ServerState createServerState()
+	{
+		return new ServerState(beaconPeriod);
+	}
+
+	/**
+	 * Process beacon.
+	 * @param state server state.
+	 * @param serverAddress server address.
+	 * @param guid server GUID.
+	 * @param sequentialID beacon sequential ID.
+	 * @param changeCount server change count.
+	 * @param timestamp time (in ms) of beacon reception.
+	 * @return detected anomaly.
+	 */
+	public Anomaly beaconNotify(ServerState state, final InetSocketAddress serverAddress,
+								byte[] guid, int sequentialID, int changeCount, long timestamp)
+	{
+		final Anomaly anomaly = state.update(guid, sequentialID, changeCount, timestamp);
+		switch (anomaly)
+		{
+			case NEW_SERVER:
+			case CHANGED:
+				// new channels might be available
+				schedule(searchAllNode, state.getBackoffWindow());
+				break;
+
+			case RESTARTED:
+			case RECOVERED:
+				synchronized (state) {
+					if (state.searchNode == null)
+						state.searchNode = TimerFactory.createNode(new TimerCallback() {
+							@Override
+							public void callback() {
+								listener.searchServerChannels(serverAddress);
+							}
+
+							@Override
+							public void timerStopped() {
+								// noop
+							}
+						});
+				}
+				schedule(state.searchNode, state.getBackoffWindow());
+				break;
+
+			default:
+				break;
+		}
+		return anomaly;
+	}
+
+	/**
+	 * Schedule search with random delay within given window, coalesced with already pending search.
+	 * @param node search timer node.
+	 * @param window delay window (in ms).
+	 */
+	private synchronized void schedule(TimerNode node, long window)
+	{
+		if (node.isScheduled())
+			return;
+
+		final long delay = (long)(random.nextDouble() * window);
+		timer.scheduleAfterDelay(node, delay / 1000.0);
+	}
+
+}
@@ -22,6 +22,7 @@ import java.nio.ByteBuffer;
 import org.epics.pvaccess.client.ChannelArray;
 import org.epics.pvaccess.client.ChannelArrayRequester;
 import org.epics.pvaccess.impl.remote.QoS;
+import org.epics.pvaccess.impl.remote.SendLane;
 import org.epics.pvaccess.impl.remote.SerializationHelper;
 import org.epics.pvaccess.impl.remote.Transport;
 import org.epics.pvaccess.impl.remote.TransportSendControl;
@@ -88,6 +89,14 @@ public class ChannelArrayRequestImpl extends BaseRequestImpl implements ChannelA
 		}
 	}
 	
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.impl.remote.BaseRequestImpl#getDataSendLane()
+	 */
+	@Override
+	protected SendLane getDataSendLane() {
+		return SendLane.BULK;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.epics.pvaccess.impl.remote.TransportSender#send(java.nio.ByteBuffer, org.epics.pvaccess.impl.remote.TransportSendControl)
 	 */
@@ -22,6 +22,7 @@ import java.nio.ByteBuffer;
 import org.epics.pvaccess.client.ChannelGet;
 import org.epics.pvaccess.client.ChannelGetRequester;
 import org.epics.pvaccess.impl.remote.QoS;
+import org.epics.pvaccess.impl.remote.SendLane;
 import org.epics.pvaccess.impl.remote.SerializationHelper;
 import org.epics.pvaccess.impl.remote.Transport;
 import org.epics.pvaccess.impl.remote.TransportSendControl;
@@ -81,6 +82,14 @@ public class ChannelGetRequestImpl extends BaseRequestImpl implements ChannelGet
 		}
 	}
 
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.impl.remote.BaseRequestImpl#getDataSendLane()
+	 */
+	@Override
+	protected SendLane getDataSendLane() {
+		return SendLane.BULK;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.epics.pvaccess.impl.remote.TransportSender#send(java.nio.ByteBuffer, org.epics.pvaccess.impl.remote.TransportSendControl)
 	 */
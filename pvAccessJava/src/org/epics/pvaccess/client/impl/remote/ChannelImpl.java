@@ -23,6 +23,7 @@ import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
 
 import org.epics.pvaccess.PVAConstants;
 import org.epics.pvaccess.PVAException;
@@ -44,7 +45,10 @@ import org.epics.pvaccess.client.ChannelRPC;
 import org.epics.pvaccess.client.ChannelRPCRequester;
 import org.epics.pvaccess.client.ChannelRequester;
 import org.epics.pvaccess.client.GetFieldRequester;
+import org.epics.pvaccess.client.impl.remote.search.ChannelLocationCache;
 import org.epics.pvaccess.client.impl.remote.search.SearchInstance;
+import org.epics.pvaccess.client.impl.remote.tcp.AsyncTCPConnector.ConnectCallback;
+import org.epics.pvaccess.impl.remote.ConnectionException;
 import org.epics.pvaccess.impl.remote.Transport;
 import org.epics.pvaccess.impl.remote.TransportClient;
 import org.epics.pvaccess.impl.remote.TransportSendControl;
@@ -228,8 +232,8 @@ public class ChannelImpl implements Channel, SearchInstance, TransportClient, Tr
 			transport = null;
 		}
 		
-		// ... and search again, with penalty
-		initiateSearch(true);
+		// ... and search again, with penalty (unless connecting to the cached location failed)
+		initiateSearch(!cachedLocationFailed());
 	}
 
 	/**
@@ -253,6 +257,8 @@ public class ChannelImpl implements Channel, SearchInstance, TransportClient, Tr
 			
 			addressIndex = 0;	// reset
 
+			updateCachedLocation();
+
 			// TODO think what to call first
 			resubscribeSubscriptions();
 			setConnectionState(ConnectionState.CONNECTED);
@@ -328,6 +334,14 @@ public class ChannelImpl implements Channel, SearchInstance, TransportClient, Tr
 		
 		// unregister
 		context.unregisterChannel(this);
+		
+		if (arrayChannel != null)
+		{
+			// might have already been destroyed by the context
+			if (arrayChannel.getConnectionState() != ConnectionState.DESTROYED)
+				arrayChannel.destroyChannel(true);
+			arrayChannel = null;
+		}
 
 		/*
 		synchronized (accessRightsListeners)
@@ -391,7 +405,11 @@ public class ChannelImpl implements Channel, SearchInstance, TransportClient, Tr
 		allowCreation = true;
 		
 		if (addresses == null)
+		{
+			if (!penalize && connectCachedLocation())
+				return;
 			context.getChannelSearchManager().register(this, penalize);
+		}
 		else
 		{
 			context.getTimer().scheduleAfterDelay(timerNode,
@@ -399,6 +417,74 @@ public class ChannelImpl implements Channel, SearchInstance, TransportClient, Tr
 		}
 	}
 
+	/**
+	 * Cached location has already been tried flag.
+	 */
+	private boolean cachedLocationTried = false;
+
+	/**
+	 * Connecting to the cached location flag.
+	 */
+	private boolean cachedLocationPending = false;
+
+	/**
+	 * Connect directly to the cached location of the channel (if any), bypassing the search.
+	 * Tried only once per channel, the location is not trusted if beacons report a different server GUID.
+	 * @return <code>true</code> if connecting to the cached location.
+	 */
+	private boolean connectCachedLocation()
+	{
+		final ChannelLocationCache cache = context.getChannelLocationCache();
+		if (cache == null || cachedLocationTried)
+			return false;
+		cachedLocationTried = true;
+
+		final ChannelLocationCache.Entry entry = cache.get(name);
+		if (entry == null)
+			return false;
+		
+		final GUID guid = new GUID(entry.getGUID());
+		final GUID beaconGUID = context.getServerGUID(entry.getServerAddress());
+		if (beaconGUID != null && !beaconGUID.equals(guid))
+		{
+			cache.remove(name);
+			return false;
+		}
+		
+		cachedLocationPending = true;
+		searchResponse(guid, entry.getMinorRevision(), entry.getServerAddress());
+		return true;
+	}
+
+	/**
+	 * Check (and clear) whether connecting to the cached location has failed.
+	 * Invalid location is removed from the cache.
+	 * @return <code>true</code> if connecting to the cached location has failed.
+	 */
+	private boolean cachedLocationFailed()
+	{
+		if (!cachedLocationPending)
+			return false;
+		cachedLocationPending = false;
+		
+		final ChannelLocationCache cache = context.getChannelLocationCache();
+		if (cache != null)
+			cache.remove(name);
+		return true;
+	}
+
+	/**
+	 * Update cached location of the channel with the current server.
+	 */
+	private void updateCachedLocation()
+	{
+		cachedLocationPending = false;
+
+		final ChannelLocationCache cache = context.getChannelLocationCache();
+		if (cache != null && addresses == null && transport != null && serverGUID != null)
+			cache.put(name, transport.getRemoteAddress(), serverGUID.getBytes(), transport.getRevision());
+	}
+
 	private int addressIndex = 0;
 	private final TimerNode timerNode = TimerFactory.createNode(this);
 	private final static int STATIC_SEARCH_BASE_DELAY_SEC = 5;
@@ -450,20 +536,83 @@ public class ChannelImpl implements Channel, SearchInstance, TransportClient, Tr
 			}
 		}
 		
-		transport = context.getTransport(this, serverAddress, minorRevision, priority);
-		if (transport == null)
+		// already connecting, the outcome will be handled by connectCompleted/connectFailed
+		if (connectPending)
+			return;
+		connectPending = true;
+		
+		// do not wait for the connection here, this would hold up the processing of other search responses
+		final GUID responseGUID = guid;
+		final InetSocketAddress address = serverAddress;
+		context.connect(this, serverAddress, minorRevision, priority, new ConnectCallback() {
+			
+			@Override
+			public void transportConnected(Transport transport) {
+				connectCompleted(responseGUID, transport);
+			}
+			
+			@Override
+			public void transportConnectFailed(ConnectionException cex) {
+				context.getLogger().log(Level.SEVERE, "Failed to create transport for: " + address, cex);
+				connectFailed();
+			}
+		});
+	}
+
+	/**
+	 * Address of the server that was last hosting the channel.
+	 */
+	private volatile InetSocketAddress lastServerAddress = null;
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.impl.remote.search.SearchInstance#getLastServerAddress()
+	 */
+	@Override
+	public InetSocketAddress getLastServerAddress() {
+		return lastServerAddress;
+	}
+
+	/**
+	 * Connect in progress flag.
+	 */
+	private boolean connectPending = false;
+
+	/**
+	 * Called when the transport to the server found by search is connected.
+	 * @param guid GUID of the server.
+	 * @param transport the transport, acquired for this channel.
+	 */
+	private synchronized void connectCompleted(GUID guid, Transport transport)
+	{
+		connectPending = false;
+		
+		if (connectionState == ConnectionState.DESTROYED)
 		{
-			createChannelFailed();
+			transport.release(this);
 			return;
 		}
-
-		// remember GUID
+		
+		// remember GUID and server
 		serverGUID = guid;
+		lastServerAddress = transport.getRemoteAddress();
 		
 		// create channel
 		createChannel(transport);
 	}
 
+	/**
+	 * Called when the transport to the server found by search failed to connect.
+	 */
+	private synchronized void connectFailed()
+	{
+		connectPending = false;
+		
+		if (connectionState == ConnectionState.DESTROYED)
+			return;
+		
+		createChannelFailed();
+	}
+
 	/**
 	 * @see org.epics.pvaccess.impl.remote.TransportClient#transportClosed()
 	 */
@@ -955,7 +1104,80 @@ public class ChannelImpl implements Channel, SearchInstance, TransportClient, Tr
 	public ChannelArray createChannelArray(
 			ChannelArrayRequester channelArrayRequester,
 			PVStructure pvRequest) {
-		return ChannelArrayRequestImpl.create(this, channelArrayRequester, pvRequest);
+		return ChannelArrayRequestImpl.create(getArrayChannel(), channelArrayRequester, pvRequest);
+	}
+
+	/**
+	 * Channel to the same record over a separate TCP connection, used by the array requests
+	 * if the context is configured to do so.
+	 */
+	private ChannelImpl arrayChannel = null;
+
+	/**
+	 * Requester of <code>arrayChannel</code>, its state is not reported to the user.
+	 */
+	private final ChannelRequester arrayChannelRequester = new ChannelRequester() {
+		
+		@Override
+		public String getRequesterName() {
+			return requester.getRequesterName();
+		}
+		
+		@Override
+		public void message(String message, MessageType messageType) {
+			requester.message(message, messageType);
+		}
+		
+		@Override
+		public void channelCreated(Status status, Channel channel) {
+			// noop
+		}
+		
+		@Override
+		public void channelStateChange(Channel channel, ConnectionState connectionState) {
+			// noop
+		}
+	};
+
+	/**
+	 * Get the channel to be used by the array requests.
+	 * @return this channel, or the channel over a separate TCP connection.
+	 */
+	private ChannelImpl getArrayChannel()
+	{
+		if (!context.isSeparateArrayConnection())
+			return this;
+		
+		synchronized (this) {
+			if (arrayChannel != null)
+				return arrayChannel;
+		}
+
+		// transports are shared by (address, priority), a different priority gives a separate connection
+		final short arrayPriority = (priority == ChannelProvider.PRIORITY_MIN) ?
+				(short)(ChannelProvider.PRIORITY_MIN + 1) : ChannelProvider.PRIORITY_MIN;
+		ChannelImpl channel;
+		try {
+			// NOTE: created w/o holding the lock, creation and destruction lock the channel name first
+			channel = (ChannelImpl)context.createChannelInternal(name, arrayChannelRequester, arrayPriority, addresses);
+		} catch (Throwable th) {
+			context.getLogger().log(Level.FINE, "Failed to create array channel for '" + name + "', using the channel.", th);
+			return this;
+		}
+
+		synchronized (this) {
+			if (arrayChannel == null && connectionState != ConnectionState.DESTROYED)
+			{
+				arrayChannel = channel;
+				return channel;
+			}
+		}
+		
+		// concurrently created or destroyed
+		channel.destroy();
+		synchronized (this) {
+			return (arrayChannel != null) ? arrayChannel : this;
+		}
 	}
     
 	/* (non-Javadoc)
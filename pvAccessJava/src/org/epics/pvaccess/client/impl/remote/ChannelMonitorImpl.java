@@ -18,7 +18,9 @@ import java.nio.ByteBuffer;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.epics.pvaccess.PVFactory;
+import org.epics.pvaccess.impl.remote.EncodedMonitorRequester;
 import org.epics.pvaccess.impl.remote.QoS;
+import org.epics.pvaccess.impl.remote.SendLane;
 import org.epics.pvaccess.impl.remote.SerializationHelper;
 import org.epics.pvaccess.impl.remote.Transport;
 import org.epics.pvaccess.impl.remote.TransportSendControl;
@@ -29,11 +31,11 @@ import org.epics.pvdata.misc.BitSetUtil;
 import org.epics.pvdata.misc.BitSetUtilFactory;
 import org.epics.pvdata.monitor.Monitor;
 import org.epics.pvdata.monitor.MonitorElement;
+import org.epics.pvdata.monitor.MonitorElementPool;
 import org.epics.pvdata.monitor.MonitorQueue;
 import org.epics.pvdata.monitor.MonitorQueueFactory;
 import org.epics.pvdata.monitor.MonitorRequester;
 import org.epics.pvdata.pv.Convert;
-import org.epics.pvdata.pv.PVDataCreate;
 import org.epics.pvdata.pv.PVField;
 import org.epics.pvdata.pv.PVString;
 import org.epics.pvdata.pv.PVStructure;
@@ -48,11 +50,6 @@ import org.epics.pvdata.pv.Structure;
  */
 public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 
-	/**
-	 * PVField factory.
-	 */
-	private static final PVDataCreate pvDataCreate = PVFactory.getPVDataCreate();
-
 	/**
 	 * Response callback listener.
 	 */
@@ -68,6 +65,7 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 		void init(Structure structure);
 		void response(Transport transport, ByteBuffer payloadBuffer);
 		void unlisten();
+		int getQueueSize();
 	}
 	
 	private final MonitorStrategy monitorStrategy;
@@ -94,6 +92,10 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 		boolean pl = false;
 		int aa = 1;
 		
+		// adaptive pipelining, by default for the monitors w/o queue options
+		boolean adaptive = context.isAdaptiveMonitor();
+		int maxQs = context.getMonitorMaxQueueSize();
+		
 		PVField pvField = pvRequest.getSubField("record._options");
 		if (pvField!=null) {
 		    PVStructure pvOptions = (PVStructure)pvField;
@@ -103,6 +105,8 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 	            try {
 	                qs = Integer.parseInt(value);
 	                if (qs < 2) qs = 2;
+	                adaptive = false;
+	                maxQs = qs;
 	            } catch (NumberFormatException e) {
 	                callback.monitorConnect(
 	                        PVFactory.getStatusCreate().createStatus(StatusType.ERROR, "queueSize is not a valid integer", e),
@@ -116,10 +120,12 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 		    pvString = pvOptions.getStringField("pipeline");
 		    if (pvString!=null) {
 		        String value = pvString.get();
-                pl = Boolean.parseBoolean(value);
+		        // "auto" for adaptive pipelining, queueSize is then the maximal queue size 
+		        adaptive = "auto".equalsIgnoreCase(value);
+                pl = adaptive || Boolean.parseBoolean(value);
                 
                 // pipeline options
-                if (pl)
+                if (pl && !adaptive)
                 {
                 	// defaults to queueSize/2;
                 	aa = qs / 2;
@@ -150,11 +156,20 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 		    }
 		}
 		
+		AdaptiveMonitorWindow window = null;
+		if (adaptive)
+		{
+			window = new AdaptiveMonitorWindow(Math.min(context.getMonitorMinQueueSize(), maxQs), maxQs, System.nanoTime());
+			qs = window.getWindow();
+			pl = true;
+			aa = Math.max(1, qs / 2);
+		}
+		
         queueSize = qs;
         pipeline = pl;
         ackAny = aa;
         
-        monitorStrategy = new MonitorStrategyQueue(queueSize, pipeline, ackAny);
+        monitorStrategy = new MonitorStrategyQueue(queueSize, pipeline, ackAny, window);
 	}
 
 
@@ -184,11 +199,12 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 	}
 
 	private static final BitSetUtil bitSetUtil = BitSetUtilFactory.getCompressBitSet();
+    private static final MonitorElementPool monitorElementPool = MonitorElementPool.getDefault();
     private static final Convert convert = ConvertFactory.getConvert();
 
     // TODO fix sync
     private final class MonitorStrategyQueue implements MonitorStrategy, TransportSender {
-		private final int queueSize;
+		private int queueSize;
 
 		private MonitorElement monitorElement = null;
 		private BitSet bitSet1 = null;
@@ -196,6 +212,7 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 	    private boolean overrunInProgress = false;
 
 	    private Structure lastStructure = null;
+	    private MonitorElement[] monitorElements = null;
 	    private MonitorQueue monitorQueue = null;
 	    
 	    private final Object monitorSync = new Object();
@@ -206,13 +223,20 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 	    private boolean reportQueueStateInProgress = false;
 	    
 	    private final boolean pipeline;
-	    private final int ackAny;
+	    private int ackAny;
+	    
+	    // null if not adaptive
+	    private final AdaptiveMonitorWindow window;
 	    
 	    private boolean unlisten;
 	    
+	    // updates are passed to EncodedMonitorRequester as received
+	    private boolean encoded = false;
+	    
 		public MonitorStrategyQueue(
 				int queueSize,
-				boolean pipeline, int ackAny)
+				boolean pipeline, int ackAny,
+				AdaptiveMonitorWindow window)
 		{
 			if (queueSize <= 1)
 				throw new IllegalArgumentException("queueSize <= 1");
@@ -220,7 +244,7 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 			this.queueSize = queueSize;
 			this.pipeline = pipeline;
 			this.ackAny = ackAny;
-			
+			this.window = window;
 		}
 		
 		@Override
@@ -231,15 +255,17 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 				releasedCount = 0;
 				reportQueueStateInProgress = false;
 				unlisten = false;
+				encoded = (callback instanceof EncodedMonitorRequester) && !SerializationHelper.containsUnion(structure);
+				
+				if (window != null)
+					window.reset(System.nanoTime());
 				
 				// reuse on reconnect
 				if (lastStructure == null || !lastStructure.equals(structure))
 				{
-		    		MonitorElement[] monitorElements = new MonitorElement[queueSize];
-		            for(int i=0; i<queueSize; i++) {
-		                PVStructure pvNew = pvDataCreate.createPVStructure(structure);
-		                monitorElements[i] = MonitorQueueFactory.createMonitorElement(pvNew);
-		            }
+					// type changed, the old elements can be used by other monitors
+					releaseToPool();
+		    		monitorElements = monitorElementPool.take(structure, queueSize);
 		            monitorQueue = MonitorQueueFactory.create(monitorElements);
 		            lastStructure = structure;
 				}
@@ -255,7 +281,7 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 			{
 				// awkward way of checking "is empty", -1 since one free monitorElement is take in advance
 				//notify = monitorQueue.empty();
-				notify = (monitorQueue.getNumberFree() == (monitorQueue.capacity()-1));
+				notify = monitorQueue == null || (monitorQueue.getNumberFree() == (monitorQueue.capacity()-1));
 				unlisten = !notify;
 			}
 			
@@ -267,9 +293,17 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 		public void response(Transport transport, ByteBuffer payloadBuffer)
 		{
 			boolean notify = false;
+			boolean passEncoded;
 			
 			synchronized (monitorSync)
 			{
+				// not started, or destroyed
+				if (monitorElement == null)
+					return;
+				
+				// never in overrun mode if encoded
+				passEncoded = encoded;
+
 	            // if in overrun mode, check if some is free
 	            if (overrunInProgress)
 	            {
@@ -292,12 +326,23 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 	            }
 			}
 			
+			if (passEncoded)
+			{
+				encodedResponse(transport);
+				return;
+			}
+			
 			if (notify)
 				callback.monitorEvent(this);
 
 	        synchronized (monitorSync)
 			{
+				if (monitorElement == null)
+					return;
 
+				if (window != null)
+					window.eventReceived(System.nanoTime());
+				
 	            // setup current fields
 				final PVStructure pvStructure = monitorElement.getPVStructure();
 	            final BitSet changedBitSet = monitorElement.getChangedBitSet();
@@ -314,13 +359,10 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 					pvStructure.deserialize(payloadBuffer, transport, bitSet1);
 					bitSet2.deserialize(payloadBuffer, transport);
 
-					// OR local overrun
+					// OR local overrun and remote change, in one pass
 					// TODO this does not work perfectly if bitSet is compressed !!!
 					// uncompressed bitSets should be used !!!
-					overrunBitSet.or_and(changedBitSet, bitSet1);
-
-					// OR remote change
-					changedBitSet.or(bitSet1);
+					changedBitSet.orAndInto(bitSet1, overrunBitSet);
 
 					// OR remote overrun
 					overrunBitSet.or(bitSet2);
@@ -337,6 +379,8 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 				MonitorElement newElement = monitorQueue.getFree();
 	            if (newElement == null) {
 	                overrunInProgress = true;
+					if (window != null)
+						window.overrun();
 	                return;
 	            }
 	            
@@ -358,13 +402,53 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
         	callback.monitorEvent(this);
 		}
 
+		/**
+		 * Pass the update (changedBitSet, data and overrunBitSet) to the requester without deserializing it,
+		 * the update is not queued, i.e. it is released immediately.
+		 */
+		private void encodedResponse(Transport transport)
+		{
+			final ByteBuffer update = transport.readRemainingPayload();
+			if (window != null)
+			{
+				synchronized (monitorSync) {
+					window.eventReceived(System.nanoTime());
+				}
+			}
+			
+			((EncodedMonitorRequester)callback).monitorEncoded(ChannelMonitorImpl.this, update);
+
+			if (pipeline)
+			{
+		        synchronized(monitorSync) {
+		        	if (window != null)
+		        		window.elementReleased();
+		        	
+		        	releasedCount++;
+		        	if (!reportQueueStateInProgress &&
+		        		(releasedCount > ackAny || (window != null && window.hasPendingCredits())))
+		        	{
+		        		reportQueueStateInProgress = true;
+		        		try
+		        		{
+		        			channel.checkAndGetTransport().enqueueSendRequest(this);
+		        		}
+		        		finally 
+		        		{
+		        			reportQueueStateInProgress = false;
+		        		}
+		        	}
+		        }
+			}
+		}
+
 		@Override
 		public MonitorElement poll()
 		{
 			boolean notifyUnlisten = false;
 			
             synchronized(monitorSync) {
-            	if (needToReleaseFirst)
+            	if (needToReleaseFirst || monitorQueue == null)
             		return null;
             	final MonitorElement retVal = monitorQueue.getUsed();
             	if (retVal != null)
@@ -424,16 +508,32 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 			if (monitorElement.getPVStructure().getStructure() != lastStructure)
 				return;
 			
+			int resizedTo = 0;
 	        synchronized(monitorSync) {
+	        	if (monitorQueue == null)
+	        		return;
 	            monitorQueue.releaseUsed(monitorElement);
 	            needToReleaseFirst = false;
+	            
+	            // the queue can be resized only when the consumer has released all the elements
+	            if (window != null)
+	            {
+	            	window.elementReleased();
+	            	if (!overrunInProgress && monitorQueue.getNumberFree() == monitorQueue.capacity() - 1 &&
+	            		window.resize(System.nanoTime()))
+	            	{
+	            		resizeQueue(window.getWindow());
+	            		resizedTo = queueSize;
+	            	}
+	            }
 	        
 		        if (pipeline)
 		        {
 		        	boolean sendAck = false;
 
 		        	releasedCount++;
-		        	if (!reportQueueStateInProgress && releasedCount > ackAny)
+		        	if (!reportQueueStateInProgress &&
+		        		(releasedCount > ackAny || (window != null && window.hasPendingCredits())))
 		        	{
 		        		sendAck = true;
 		        		reportQueueStateInProgress = true;
@@ -453,6 +553,41 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 		        }
 		        
 	        }
+	        
+	        if (resizedTo > 0)
+	        	context.getLogger().fine("Monitor queue of channel '" + channel.getChannelName() + "' resized to " + resizedTo + ".");
+		}
+
+		/**
+		 * Replaces the queue, all the elements must be free.
+		 * @param size new queue size.
+		 */
+		private void resizeQueue(int size)
+		{
+			MonitorElement[] newElements = monitorElementPool.take(lastStructure, size);
+			MonitorQueue newQueue = MonitorQueueFactory.create(newElements);
+			MonitorElement newElement = null;
+			if (monitorElement != null)
+			{
+				// the current element holds the last value, the updates are applied to it
+				newElement = newQueue.getFree();
+				convert.copy(monitorElement.getPVStructure(), newElement.getPVStructure());
+			}
+			
+			releaseToPool();
+			monitorElements = newElements;
+			monitorQueue = newQueue;
+			monitorElement = newElement;
+			queueSize = size;
+			ackAny = Math.max(1, size / 2);
+		}
+		
+		@Override
+		public int getQueueSize()
+		{
+			synchronized (monitorSync) {
+				return queueSize;
+			}
 		}
 
 		@Override
@@ -473,7 +608,7 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 			buffer.put((byte)QoS.GET_PUT.getMaskValue());
 			
 			synchronized (monitorSync) {
-				buffer.putInt(releasedCount);
+				buffer.putInt(window != null ? window.credits(releasedCount, System.nanoTime()) : releasedCount);
 				releasedCount = 0;
 				reportQueueStateInProgress = false;
 			}
@@ -500,11 +635,61 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 
 		@Override
 		public void destroy() {
-			// noop
+			synchronized (monitorSync) {
+				releaseToPool();
+				monitorQueue = null;
+				monitorElement = null;
+				lastStructure = null;
+			}
+		}
+		
+		/**
+		 * Gives the elements of the queue back to the pool, if the user has released all of them.
+		 * Elements the user still holds are left to the garbage collector.
+		 */
+		private void releaseToPool()
+		{
+			if (monitorElements == null)
+				return;
+			// one free element is the current one, taken in advance
+			int free = monitorQueue.getNumberFree() + (monitorElement != null ? 1 : 0);
+			if (free == monitorQueue.capacity())
+				monitorElementPool.give(monitorElements);
+			monitorElements = null;
 		}
 		
 	}
 
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.impl.remote.BaseRequestImpl#destroy(boolean)
+	 */
+	@Override
+	protected void destroy(boolean createRequestFailed) {
+		super.destroy(createRequestFailed);
+		// null if the request options were not valid
+		if (monitorStrategy != null)
+			monitorStrategy.destroy();
+	}
+
+	/**
+	 * Get the queue size, for adaptive monitors this is the current pipeline window.
+	 * @return queue size.
+	 */
+	public int getQueueSize() {
+		// null if the request options were not valid
+		if (monitorStrategy == null)
+			return queueSize;
+		return monitorStrategy.getQueueSize();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.impl.remote.BaseRequestImpl#getDataSendLane()
+	 */
+	@Override
+	protected SendLane getDataSendLane() {
+		return SendLane.MONITOR;
+	}
+
     /* (non-Javadoc)
 	 * @see org.epics.pvaccess.impl.remote.TransportSender#send(java.nio.ByteBuffer, org.epics.pvaccess.impl.remote.TransportSendControl)
 	 */
@@ -531,7 +716,7 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 			if (pipeline)
 			{
 				control.ensureBuffer(4);
-				buffer.putInt(queueSize);
+				buffer.putInt(getQueueSize());
 			}
 		}
 
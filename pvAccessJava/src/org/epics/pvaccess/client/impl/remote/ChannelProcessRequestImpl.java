@@ -22,6 +22,7 @@ import java.nio.ByteBuffer;
 import org.epics.pvaccess.client.ChannelProcess;
 import org.epics.pvaccess.client.ChannelProcessRequester;
 import org.epics.pvaccess.impl.remote.QoS;
+import org.epics.pvaccess.impl.remote.SendLane;
 import org.epics.pvaccess.impl.remote.SerializationHelper;
 import org.epics.pvaccess.impl.remote.Transport;
 import org.epics.pvaccess.impl.remote.TransportSendControl;
@@ -76,6 +77,14 @@ public class ChannelProcessRequestImpl extends BaseRequestImpl implements Channe
 		
 	}
 
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.impl.remote.BaseRequestImpl#getDataSendLane()
+	 */
+	@Override
+	protected SendLane getDataSendLane() {
+		return SendLane.PUT;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.epics.pvaccess.impl.remote.TransportSender#send(java.nio.ByteBuffer, org.epics.pvaccess.impl.remote.TransportSendControl)
 	 */
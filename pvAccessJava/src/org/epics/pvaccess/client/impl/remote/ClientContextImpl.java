@@ -14,6 +14,7 @@
 
 package org.epics.pvaccess.client.impl.remote;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.net.InetAddress;
@@ -43,12 +44,15 @@ import org.epics.pvaccess.client.ChannelFindRequester;
 import org.epics.pvaccess.client.ChannelListRequester;
 import org.epics.pvaccess.client.ChannelProvider;
 import org.epics.pvaccess.client.ChannelRequester;
+import org.epics.pvaccess.client.impl.remote.search.ChannelLocationCache;
 import org.epics.pvaccess.client.impl.remote.search.ChannelSearchManager;
+import org.epics.pvaccess.client.impl.remote.search.NameServerChannelSearchManager;
 import org.epics.pvaccess.client.impl.remote.search.SearchInstance;
 import org.epics.pvaccess.client.impl.remote.search.SimpleChannelSearchManagerImpl;
 import org.epics.pvaccess.client.impl.remote.tcp.BlockingClientTCPTransport;
-import org.epics.pvaccess.client.impl.remote.tcp.BlockingTCPConnector;
-import org.epics.pvaccess.client.impl.remote.tcp.BlockingTCPConnector.TransportFactory;
+import org.epics.pvaccess.client.impl.remote.tcp.AsyncTCPConnector;
+import org.epics.pvaccess.client.impl.remote.tcp.AsyncTCPConnector.ConnectCallback;
+import org.epics.pvaccess.client.impl.remote.tcp.AsyncTCPConnector.TransportFactory;
 import org.epics.pvaccess.impl.remote.ConnectionException;
 import org.epics.pvaccess.impl.remote.Context;
 import org.epics.pvaccess.impl.remote.ProtocolType;
@@ -58,6 +62,7 @@ import org.epics.pvaccess.impl.remote.TransportRegistry;
 import org.epics.pvaccess.impl.remote.io.impl.PollerImpl;
 import org.epics.pvaccess.impl.remote.request.ResponseHandler;
 import org.epics.pvaccess.impl.remote.request.ResponseRequest;
+import org.epics.pvaccess.impl.remote.tcp.BlockingTCPTransport;
 import org.epics.pvaccess.impl.remote.udp.BlockingUDPConnector;
 import org.epics.pvaccess.impl.remote.udp.BlockingUDPTransport;
 import org.epics.pvaccess.impl.remote.utils.GUID;
@@ -173,6 +178,48 @@ public class ClientContextImpl implements Context {
 	 */
 	protected int receiveBufferSize = PVAConstants.MAX_TCP_RECV;
 
+	/**
+	 * Use a separate TCP connection for array requests, so that large array
+	 * transfers do not delay the other requests to the same server.
+	 */
+	protected boolean separateArrayConnection = false;
+
+	/**
+	 * Number of threads handling the received UDP datagrams (e.g. search responses, beacons),
+	 * 0 to handle them in the UDP receive threads.
+	 */
+	protected int udpReceiveThreads = 0;
+
+	/**
+	 * Use adaptive pipelining for monitors that do not set their queue options.
+	 */
+	protected boolean adaptiveMonitor = false;
+
+	/**
+	 * Minimal queue size (i.e. window) of adaptive monitors.
+	 */
+	protected int monitorMinQueueSize = 4;
+
+	/**
+	 * Maximal queue size (i.e. window) of adaptive monitors.
+	 */
+	protected int monitorMaxQueueSize = 64;
+
+	/**
+	 * Channel location cache file, empty to disable the cache.
+	 */
+	protected String channelCacheFile = "";
+
+	/**
+	 * Maximal number of entries of the channel location cache.
+	 */
+	protected int channelCacheSize = 100000;
+
+	/**
+	 * List of name servers used to resolve channel names (instead of UDP search), empty to use UDP search.
+	 */
+	protected String nameServers = "";
+
 	/**
 	 * Timer.
 	 */
@@ -198,7 +245,7 @@ public class ClientContextImpl implements Context {
 	/**
 	 * PVA connector (creates PVA virtual circuit).
 	 */
-	protected BlockingTCPConnector connector = null;
+	protected AsyncTCPConnector connector = null;
 
 	/**
 	 * PVA transport (virtual circuit) registry. This registry contains all active
@@ -246,6 +293,16 @@ public class ClientContextImpl implements Context {
 	 */
 	private ChannelSearchManager channelSearchManager;
 
+	/**
+	 * Beacon anomaly tracker.
+	 */
+	private BeaconTracker beaconTracker;
+
+	/**
+	 * Channel location cache, <code>null</code> if disabled.
+	 */
+	private ChannelLocationCache channelLocationCache = null;
+
 	/**
 	 * Beacon handler map.
 	 */
@@ -334,6 +391,14 @@ public class ClientContextImpl implements Context {
 		beaconPeriod = config.getPropertyAsFloat("EPICS_PVA_BEACON_PERIOD", beaconPeriod);
 		broadcastPort = config.getPropertyAsInteger("EPICS_PVA_BROADCAST_PORT", broadcastPort);
 		receiveBufferSize = config.getPropertyAsInteger("EPICS_PVA_MAX_ARRAY_BYTES", receiveBufferSize);
+		separateArrayConnection = config.getPropertyAsBoolean("EPICS_PVA_SEPARATE_ARRAY_CONNECTION", separateArrayConnection);
+		udpReceiveThreads = config.getPropertyAsInteger("EPICS_PVA_UDP_RECEIVE_THREADS", udpReceiveThreads);
+		adaptiveMonitor = config.getPropertyAsBoolean("EPICS_PVA_MONITOR_ADAPTIVE", adaptiveMonitor);
+		monitorMinQueueSize = Math.max(2, config.getPropertyAsInteger("EPICS_PVA_MONITOR_MIN_QUEUE", monitorMinQueueSize));
+		monitorMaxQueueSize = Math.max(monitorMinQueueSize, config.getPropertyAsInteger("EPICS_PVA_MONITOR_MAX_QUEUE", monitorMaxQueueSize));
+		channelCacheFile = config.getPropertyAsString("EPICS_PVA_CHANNEL_CACHE_FILE", channelCacheFile);
+		channelCacheSize = Math.max(1, config.getPropertyAsInteger("EPICS_PVA_CHANNEL_CACHE_SIZE", channelCacheSize));
+		nameServers = config.getPropertyAsString("EPICS_PVA_NAME_SERVERS", nameServers);
 	}
 
 	/**
@@ -387,7 +452,7 @@ public class ClientContextImpl implements Context {
 		TransportFactory transportFactory = new TransportFactory() {
 
 			@Override
-			public Transport create(Context context, SocketChannel channel, ResponseHandler responseHandler,
+			public BlockingTCPTransport create(Context context, SocketChannel channel, ResponseHandler responseHandler,
 					int receiveBufferSize, TransportClient client, short transportRevision, float heartbeatInterval,
 					short priority) {
 				try {
@@ -399,15 +464,44 @@ public class ClientContextImpl implements Context {
 			}
 		};
 
-		connector = new BlockingTCPConnector(this, transportFactory, receiveBufferSize, connectionTimeout);
+		try {
+			connector = new AsyncTCPConnector(this, transportFactory, receiveBufferSize, connectionTimeout);
+		} catch (IOException e) {
+			throw new PVAException("Failed to create TCP connector.", e);
+		}
 		transportRegistry = new TransportRegistry();
 		namedLocker = new NamedLockPattern();
 
 		// setup UDP transport
 		initializeUDPTransport();
 
+		// setup channel location cache
+		if (channelCacheFile != null && channelCacheFile.length() > 0) {
+			channelLocationCache = new ChannelLocationCache(new File(channelCacheFile), channelCacheSize, timer, logger);
+			channelLocationCache.load();
+		}
+
 		// setup search manager
-		channelSearchManager = new SimpleChannelSearchManagerImpl(this);
+		InetSocketAddress[] nameServerAddresses = (nameServers != null && nameServers.length() > 0) ?
+				NameServerChannelSearchManager.getNameServerAddresses(nameServers) : null;
+		if (nameServerAddresses != null && nameServerAddresses.length > 0)
+			channelSearchManager = new NameServerChannelSearchManager(this, nameServerAddresses);
+		else
+			channelSearchManager = new SimpleChannelSearchManagerImpl(this);
+
+		// setup beacon anomaly tracker
+		beaconTracker = new BeaconTracker(new BeaconTracker.Listener() {
+
+			@Override
+			public void searchAll() {
+				newServerDetected();
+			}
+
+			@Override
+			public void searchServerChannels(InetSocketAddress serverAddress) {
+				serverRestarted(serverAddress);
+			}
+		}, timer, beaconPeriod);
 	}
 
 	/**
@@ -474,8 +568,8 @@ public class ClientContextImpl implements Context {
 				logger.config("Failed to detect a loopback network interface, local multicast disabled.");
 			}
 
-			broadcastTransport.start();
-			searchTransport.start();
+			broadcastTransport.start(udpReceiveThreads);
+			searchTransport.start(udpReceiveThreads);
 
 		} catch (ConnectionException ce) {
 			logger.log(Level.SEVERE, "Failed to initialize UDP transport.", ce);
@@ -508,6 +602,10 @@ public class ClientContextImpl implements Context {
 		if (channelSearchManager != null)
 			channelSearchManager.cancel();
 
+		// stop connecting
+		if (connector != null)
+			connector.destroy();
+
 		// stop timer
 		if (timer != null)
 			timer.stop();
@@ -538,6 +636,10 @@ public class ClientContextImpl implements Context {
 			}
 		}
 
+		// save channel locations
+		if (channelLocationCache != null)
+			channelLocationCache.flush();
+
 	}
 
 	/**
@@ -683,6 +785,13 @@ public class ClientContextImpl implements Context {
 		out.println("BEACON_PERIOD : " + beaconPeriod);
 		out.println("BROADCAST_PORT : " + broadcastPort);
 		out.println("RCV_BUFFER_SIZE : " + receiveBufferSize);
+		out.println("SEPARATE_ARRAY_CONNECTION : " + separateArrayConnection);
+		out.println("UDP_RECEIVE_THREADS : " + udpReceiveThreads);
+		out.println("MONITOR_ADAPTIVE : " + adaptiveMonitor);
+		out.println("MONITOR_QUEUE : " + monitorMinQueueSize + " - " + monitorMaxQueueSize);
+		out.println("CHANNEL_CACHE_FILE : " + channelCacheFile);
+		out.println("CHANNEL_CACHE_SIZE : " + channelCacheSize);
+		out.println("NAME_SERVERS : " + nameServers);
 		// out.println("EVENT_DISPATCHER: " + eventDispatcher);
 		out.print("STATE : ");
 		switch (state) {
@@ -777,6 +886,51 @@ public class ClientContextImpl implements Context {
 		return receiveBufferSize;
 	}
 
+	/**
+	 * Get separate array connection flag.
+	 * 
+	 * @return <code>true</code> if array requests use a separate TCP connection.
+	 */
+	public boolean isSeparateArrayConnection() {
+		return separateArrayConnection;
+	}
+
+	/**
+	 * Get number of threads handling the received UDP datagrams.
+	 * 
+	 * @return number of UDP handler threads, 0 if handled by the receive threads.
+	 */
+	public int getUDPReceiveThreads() {
+		return udpReceiveThreads;
+	}
+
+	/**
+	 * Get adaptive monitor flag.
+	 * 
+	 * @return <code>true</code> if monitors without queue options use adaptive pipelining.
+	 */
+	public boolean isAdaptiveMonitor() {
+		return adaptiveMonitor;
+	}
+
+	/**
+	 * Get minimal queue size of adaptive monitors.
+	 * 
+	 * @return minimal queue size.
+	 */
+	public int getMonitorMinQueueSize() {
+		return monitorMinQueueSize;
+	}
+
+	/**
+	 * Get maximal queue size of adaptive monitors.
+	 * 
+	 * @return maximal queue size.
+	 */
+	public int getMonitorMaxQueueSize() {
+		return monitorMaxQueueSize;
+	}
+
 	/**
 	 * Get broadcast port.
 	 * 
@@ -907,6 +1061,57 @@ public class ClientContextImpl implements Context {
 			channelSearchManager.newServerDetected();
 	}
 
+	/**
+	 * Called when a restart of a server (or recovery of its connectivity) is detected.
+	 * 
+	 * @param serverAddress
+	 *            server address.
+	 */
+	public void serverRestarted(InetSocketAddress serverAddress) {
+		if (channelSearchManager != null)
+			channelSearchManager.serverRestarted(serverAddress);
+	}
+
+	/**
+	 * Get channel location cache.
+	 * 
+	 * @return channel location cache, <code>null</code> if disabled.
+	 */
+	public ChannelLocationCache getChannelLocationCache() {
+		return channelLocationCache;
+	}
+
+	/**
+	 * Get server GUID, as reported by the server beacons.
+	 * 
+	 * @param serverAddress
+	 *            server address.
+	 * @return server GUID, <code>null</code> if unknown.
+	 */
+	public GUID getServerGUID(InetSocketAddress serverAddress) {
+		synchronized (beaconHandlers) {
+			Map<InetSocketAddress, BeaconHandlerImpl> protocolBeaconHandlersMap = beaconHandlers.get(ProtocolType.tcp.name());
+			if (protocolBeaconHandlersMap == null)
+				return null;
+
+			BeaconHandlerImpl handler = protocolBeaconHandlersMap.get(serverAddress);
+			if (handler == null)
+				return null;
+
+			byte[] guid = handler.getServerGUID();
+			return (guid != null) ? new GUID(guid) : null;
+		}
+	}
+
+	/**
+	 * Get beacon anomaly tracker.
+	 * 
+	 * @return beacon anomaly tracker.
+	 */
+	public BeaconTracker getBeaconTracker() {
+		return beaconTracker;
+	}
+
 	/**
 	 * Get, or create if necessary, transport of given server address. Note that
 	 * this method might block (creating TCP connection, verifying it).
@@ -928,15 +1133,36 @@ public class ClientContextImpl implements Context {
 		return null;
 	}
 
+	/**
+	 * Get, or create if necessary, transport of given server address, without blocking.
+	 * The callback is notified once the transport is connected and verified, or failed to be.
+	 * 
+	 * @param serverAddress
+	 *            required transport address
+	 * @param priority
+	 *            process priority.
+	 * @param callback
+	 *            connect callback.
+	 */
+	void connect(TransportClient client, InetSocketAddress serverAddress, byte minorRevision,
+			short priority, ConnectCallback callback) {
+		connector.connect(client, clientResponseHandler, serverAddress, minorRevision, priority, callback);
+	}
+
 	/**
 	 * Generate Client channel ID (CID).
 	 * 
 	 * @return Client channel ID (CID).
 	 */
 	private int generateCID() {
-		// reserve CID
-		channelsByCID.put(lastCID, null);
-		return lastCID;
+		synchronized (channelsByCID) {
+			// search first free (theoretically possible loop of death)
+			while (channelsByCID.containsKey(++lastCID))
+				;
+			// reserve CID
+			channelsByCID.put(lastCID, null);
+			return lastCID;
+		}
 	}
 
 	/**
@@ -1018,7 +1244,7 @@ public class ClientContextImpl implements Context {
 			Map<InetSocketAddress, BeaconHandlerImpl> protocolBeaconHandlersMap = beaconHandlers.get(protocol);
 			if (protocolBeaconHandlersMap == null) {
 				protocolBeaconHandlersMap = new HashMap<InetSocketAddress, BeaconHandlerImpl>();
-				beaconHandlers.get(protocolBeaconHandlersMap);
+				beaconHandlers.put(protocol, protocolBeaconHandlersMap);
 			}
 
 			BeaconHandlerImpl handler = protocolBeaconHandlersMap.get(responseFrom);
@@ -1084,6 +1310,11 @@ public class ClientContextImpl implements Context {
 				return channelName;
 			}
 
+			@Override
+			public InetSocketAddress getLastServerAddress() {
+				return null;
+			}
+
 			@Override
 			public void searchResponse(GUID guid, byte minorRevision, InetSocketAddress serverAddress) {
 				freeCID(channelID);
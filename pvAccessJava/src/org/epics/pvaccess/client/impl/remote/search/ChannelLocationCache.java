@@ -0,0 +1,392 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.client.impl.remote.search;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.epics.pvaccess.util.HexDump;
+import org.epics.pvdata.misc.Timer;
+import org.epics.pvdata.misc.Timer.TimerCallback;
+import org.epics.pvdata.misc.Timer.TimerNode;
+import org.epics.pvdata.misc.TimerFactory;
+
+/**
+ * Persistent channel location (channel name to server) cache.
+ * Used to connect directly to the last known server of a channel, bypassing the search.
+ * The cache is bounded (least recently used entries are dropped) and saved asynchronously.
+ * Each line of the cache file holds one entry:
+ * <code>name &lt;TAB&gt; host:port &lt;TAB&gt; GUID (hex) &lt;TAB&gt; minor revision</code>.
+ * @version $Id$
+ */
+public class ChannelLocationCache implements TimerCallback {
+
+	/**
+	 * Cached channel location.
+	 */
+	public static class Entry {
+		private final InetSocketAddress serverAddress;
+		private final byte[] guid;
+		private final byte minorRevision;
+
+		public Entry(InetSocketAddress serverAddress, byte[] guid, byte minorRevision) {
+			this.serverAddress = serverAddress;
+			this.guid = guid;
+			this.minorRevision = minorRevision;
+		}
+
+		/**
+		 * Get server address.
+		 * @return server address.
+		 */
+		public InetSocketAddress getServerAddress() {
+			return serverAddress;
+		}
+
+		/**
+		 * Get server GUID.
+		 * @return server GUID.
+		 */
+		public byte[] getGUID() {
+			return guid;
+		}
+
+		/**
+		 * Get server minor PVA revision.
+		 * @return server minor PVA revision.
+		 */
+		public byte getMinorRevision() {
+			return minorRevision;
+		}
+	}
+
+	/**
+	 * Delay (in seconds) between a change and its save.
+	 */
+	public static final double SAVE_DELAY_SEC = 5.0;
+
+	private static final Charset CHARSET = Charset.forName("UTF-8");
+	private static final String SEPARATOR = "\t";
+
+	/**
+	 * Cache file.
+	 */
+	private final File file;
+
+	/**
+	 * Maximal number of entries.
+	 */
+	private final int maxEntries;
+
+	/**
+	 * Timer used to schedule saves, <code>null</code> to save only on <code>flush()</code>.
+	 */
+	private final Timer timer;
+
+	/**
+	 * Logger.
+	 */
+	private final Logger logger;
+
+	/**
+	 * Entries, in LRU order.
+	 */
+	private final LinkedHashMap<String, Entry> entries;
+
+	/**
+	 * Modified since last save flag.
+	 */
+	private boolean dirty = false;
+
+	/**
+	 * Save timer node.
+	 */
+	private final TimerNode saveNode = TimerFactory.createNode(this);
+
+	/**
+	 * Save lock, serializes writes of the cache file.
+	 */
+	private final Object saveLock = new Object();
+
+	/**
+	 * Constructor.
+	 * @param file cache file.
+	 * @param maxEntries maximal number of entries.
+	 * @param timer timer used to schedule saves, <code>null</code> to save only on <code>flush()</code>.
+	 * @param logger logger.
+	 */
+	public ChannelLocationCache(File file, final int maxEntries, Timer timer, Logger logger)
+	{
+		this.file = file;
+		this.maxEntries = maxEntries;
+		this.timer = timer;
+		this.logger = logger;
+
+		entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = -2735263396296413567L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Load the cache file, if it exists.
+	 * Malformed entries are ignored.
+	 */
+	public void load()
+	{
+		if (!file.exists())
+			return;
+
+		try
+		{
+			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), CHARSET));
+			try
+			{
+				int count = 0;
+				String line;
+				while ((line = reader.readLine()) != null)
+				{
+					String[] tokens = line.split(SEPARATOR);
+					if (tokens.length != 4)
+						continue;
+
+					try
+					{
+						int pos = tokens[1].lastIndexOf(':');
+						if (pos <= 0)
+							continue;
+						InetSocketAddress address = new InetSocketAddress(tokens[1].substring(0, pos),
+								Integer.parseInt(tokens[1].substring(pos + 1)));
+						if (address.isUnresolved())
+							continue;
+						Entry entry = new Entry(address, fromHex(tokens[2]), Byte.parseByte(tokens[3]));
+						synchronized (this) {
+							entries.put(tokens[0], entry);
+						}
+						count++;
+					} catch (IllegalArgumentException iae) {
+						// malformed entry, skip
+					}
+				}
+				logger.log(Level.FINE, "Loaded " + count + " channel location(s) from '" + file + "'.");
+			}
+			finally
+			{
+				reader.close();
+			}
+		}
+		catch (IOException ioex)
+		{
+			logger.log(Level.WARNING, "Failed to load channel location cache '" + file + "'.", ioex);
+		}
+	}
+
+	/**
+	 * Get cached location of a channel.
+	 * @param channelName channel name.
+	 * @return cached location, <code>null</code> if not cached.
+	 */
+	public synchronized Entry get(String channelName)
+	{
+		return entries.get(channelName);
+	}
+
+	/**
+	 * Put (or update) location of a channel.
+	 * @param channelName channel name.
+	 * @param serverAddress server address.
+	 * @param guid server GUID.
+	 * @param minorRevision server minor PVA revision.
+	 */
+	public void put(String channelName, InetSocketAddress serverAddress, byte[] guid, byte minorRevision)
+	{
+		synchronized (this) {
+			Entry entry = entries.get(channelName);
+			if (entry != null && entry.serverAddress.equals(serverAddress) &&
+				Arrays.equals(entry.guid, guid) && entry.minorRevision == minorRevision)
+				return;
+
+			entries.put(channelName, new Entry(serverAddress, guid, minorRevision));
+			dirty = true;
+		}
+		scheduleSave();
+	}
+
+	/**
+	 * Remove (invalidate) location of a channel.
+	 * @param channelName channel name.
+	 */
+	public void remove(String channelName)
+	{
+		synchronized (this) {
+			if (entries.remove(channelName) == null)
+				return;
+			dirty = true;
+		}
+		scheduleSave();
+	}
+
+	/**
+	 * Get number of cached entries.
+	 * @return number of cached entries.
+	 */
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * Get maximal number of entries.
+	 * @return maximal number of entries.
+	 */
+	public int getMaxEntries()
+	{
+		return maxEntries;
+	}
+
+	private synchronized void scheduleSave()
+	{
+		if (timer != null && !saveNode.isScheduled())
+			timer.scheduleAfterDelay(saveNode, SAVE_DELAY_SEC);
+	}
+
+	/**
+	 * Save the cache (if modified).
+	 * The file is written to a temporary file first and then moved in place.
+	 * Saves are serialized, the entries are copied under the save lock so that
+	 * the last save always writes the latest entries.
+	 */
+	public void flush()
+	{
+		synchronized (saveLock) {
+			List<String> lines = toLines();
+			if (lines != null)
+				save(lines);
+		}
+	}
+
+	/**
+	 * Format the entries (if modified) and clear the modified flag.
+	 * @return formatted entries, <code>null</code> if not modified.
+	 */
+	private synchronized List<String> toLines()
+	{
+		if (!dirty)
+			return null;
+		dirty = false;
+
+		List<String> lines = new ArrayList<String>(entries.size());
+		StringBuilder sb = new StringBuilder(128);
+		for (Map.Entry<String, Entry> e : entries.entrySet())
+		{
+			Entry entry = e.getValue();
+			sb.setLength(0);
+			sb.append(e.getKey()).append(SEPARATOR)
+			  .append(entry.serverAddress.getAddress().getHostAddress()).append(':').append(entry.serverAddress.getPort()).append(SEPARATOR)
+			  .append(toHex(entry.guid)).append(SEPARATOR)
+			  .append(entry.minorRevision);
+			lines.add(sb.toString());
+		}
+		return lines;
+	}
+
+	/**
+	 * Write the formatted entries to the cache file.
+	 * @param lines formatted entries.
+	 */
+	private void save(List<String> lines)
+	{
+		File tmpFile = new File(file.getPath() + ".tmp");
+		try
+		{
+			BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmpFile), CHARSET));
+			try
+			{
+				for (String line : lines)
+				{
+					writer.write(line);
+					writer.newLine();
+				}
+			}
+			finally
+			{
+				writer.close();
+			}
+
+			Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (IOException ioex)
+		{
+			logger.log(Level.WARNING, "Failed to save channel location cache '" + file + "'.", ioex);
+			tmpFile.delete();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.misc.Timer.TimerCallback#callback()
+	 */
+	@Override
+	public void callback() {
+		flush();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.misc.Timer.TimerCallback#timerStopped()
+	 */
+	@Override
+	public void timerStopped() {
+		// noop
+	}
+
+	private static String toHex(byte[] data)
+	{
+		StringBuilder sb = new StringBuilder(data.length * 2);
+		for (byte b : data)
+			sb.append(HexDump.toHex(b));
+		return sb.toString();
+	}
+
+	private static byte[] fromHex(String hex)
+	{
+		if ((hex.length() % 2) != 0)
+			throw new IllegalArgumentException("invalid hex string");
+
+		byte[] data = new byte[hex.length() / 2];
+		for (int i = 0; i < data.length; i++)
+			data[i] = (byte)Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+		return data;
+	}
+}
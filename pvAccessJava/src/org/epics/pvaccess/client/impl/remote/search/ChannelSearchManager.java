@@ -64,6 +64,13 @@ public interface ChannelSearchManager {
 	 * Boost searching of all channels.
 	 */
 	public void newServerDetected();
+
+	/**
+	 * Server restart (or recovery) detected.
+	 * Boost searching of the channels that were hosted by the server.
+	 * @param serverAddress	server address.
+	 */
+	public void serverRestarted(InetSocketAddress serverAddress);
 	
 	/**
 	 * Cancel.
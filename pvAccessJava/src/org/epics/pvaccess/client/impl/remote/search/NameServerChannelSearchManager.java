@@ -0,0 +1,765 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.client.impl.remote.search;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import org.epics.pvaccess.PVAConstants;
+import org.epics.pvaccess.client.Channel;
+import org.epics.pvaccess.client.Channel.ConnectionState;
+import org.epics.pvaccess.client.ChannelProvider;
+import org.epics.pvaccess.client.ChannelRPC;
+import org.epics.pvaccess.client.ChannelRPCRequester;
+import org.epics.pvaccess.client.ChannelRequester;
+import org.epics.pvaccess.client.impl.remote.ClientContextImpl;
+import org.epics.pvaccess.impl.remote.utils.GUID;
+import org.epics.pvaccess.server.impl.remote.rpc.NameServerService;
+import org.epics.pvaccess.util.InetAddressUtil;
+import org.epics.pvdata.copy.CreateRequest;
+import org.epics.pvdata.misc.Timer.TimerCallback;
+import org.epics.pvdata.misc.Timer.TimerNode;
+import org.epics.pvdata.misc.TimerFactory;
+import org.epics.pvdata.pv.MessageType;
+import org.epics.pvdata.pv.PVStringArray;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.Status;
+import org.epics.pvdata.pv.StringArrayData;
+
+/**
+ * Channel search manager resolving channel names using a name server (see <code>NameServerService</code>)
+ * over a TCP connection, instead of broadcasting UDP search requests.
+ * Names are resolved in batches, unresolved names are resolved when the name server
+ * pushes (replies to a pending watch request) a registration of the name.
+ * Lookup of a penalized channel (e.g. its server could not be connected) is delayed with an exponential back-off.
+ * @version $Id$
+ */
+public class NameServerChannelSearchManager implements ChannelSearchManager, ChannelRequester, TimerCallback {
+
+	/**
+	 * Maximal number of names resolved by one lookup request.
+	 */
+	public static final int MAX_LOOKUP_BATCH = 1000;
+
+	/**
+	 * Delay (in seconds) before retrying a failed request.
+	 */
+	private static final double RETRY_DELAY_SEC = 1.0;
+
+	/**
+	 * Delay (in seconds) of the first penalized lookup, doubled with every subsequent penalty.
+	 */
+	public static final double PENALTY_BASE_DELAY_SEC = 1.0;
+
+	/**
+	 * Maximal delay (in seconds) of a penalized lookup.
+	 */
+	public static final double PENALTY_MAX_DELAY_SEC = 30.0;
+
+	/**
+	 * Period (in ms) without a penalty after which the back-off is reset.
+	 */
+	public static final long PENALTY_RESET_MS = 60000;
+
+	private static final PVStructure pvRequest = CreateRequest.create().createRequest("");
+
+	/**
+	 * Context.
+	 */
+	private final ClientContextImpl context;
+
+	/**
+	 * Name server addresses.
+	 */
+	private final InetSocketAddress[] nameServers;
+
+	/**
+	 * Canceled flag.
+	 */
+	private volatile boolean canceled = false;
+
+	/**
+	 * Set of registered (unresolved) channels.
+	 */
+	private final Map<Integer, SearchInstance> channels =
+			Collections.synchronizedMap(new HashMap<Integer, SearchInstance>());
+
+	/**
+	 * Channels (CIDs) waiting to be looked up, in registration order.
+	 */
+	private final LinkedHashSet<Integer> pendingLookup = new LinkedHashSet<Integer>();
+
+	/**
+	 * Channels (CIDs) being looked up.
+	 */
+	private final List<Integer> lookupBatch = new ArrayList<Integer>();
+
+	/**
+	 * Penalties of the channels (CIDs), guarded by itself.
+	 */
+	private final Map<Integer, Penalty> penalties = new HashMap<Integer, Penalty>();
+
+	/**
+	 * Name server channel, lazily created.
+	 */
+	private Channel nameServerChannel = null;
+
+	private final LookupRequester lookupRequester = new LookupRequester();
+	private final WatchRequester watchRequester = new WatchRequester();
+
+	/**
+	 * Retry timer node.
+	 */
+	private final TimerNode retryNode = TimerFactory.createNode(this);
+
+	/**
+	 * Constructor.
+	 * @param context context.
+	 * @param nameServers name server addresses, the next one is tried on failure.
+	 */
+	public NameServerChannelSearchManager(ClientContextImpl context, InetSocketAddress[] nameServers)
+	{
+		if (nameServers == null || nameServers.length == 0)
+			throw new IllegalArgumentException("no name server address");
+
+		this.context = context;
+		this.nameServers = nameServers;
+	}
+
+	/**
+	 * Parse name server address list.
+	 * @param list space-separated list of addresses.
+	 * @return name server addresses.
+	 */
+	public static InetSocketAddress[] getNameServerAddresses(String list)
+	{
+		return InetAddressUtil.getSocketAddressList(list, PVAConstants.PVA_SERVER_PORT);
+	}
+
+	/**
+	 * Create name server channel, if not already created.
+	 */
+	private void ensureNameServerChannel()
+	{
+		synchronized (lookupBatch) {
+			if (nameServerChannel != null || canceled)
+				return;
+
+			try {
+				nameServerChannel = context.createChannelInternal(NameServerService.SERVICE_NAME, this,
+						ChannelProvider.PRIORITY_DEFAULT, nameServers);
+			} catch (Throwable th) {
+				context.getLogger().log(Level.SEVERE, "Failed to create name server channel.", th);
+				return;
+			}
+		}
+
+		lookupRequester.channelRPC = nameServerChannel.createChannelRPC(lookupRequester, pvRequest);
+		watchRequester.channelRPC = nameServerChannel.createChannelRPC(watchRequester, pvRequest);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.impl.remote.search.ChannelSearchManager#registeredCount()
+	 */
+	@Override
+	public int registeredCount() {
+		return channels.size();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.impl.remote.search.ChannelSearchManager#register(org.epics.pvaccess.client.impl.remote.search.SearchInstance)
+	 */
+	@Override
+	public void register(SearchInstance channel) {
+		register(channel, false);
+	}
+
+	/**
+	 * Register channel, lookup is issued immediately unless penalized.
+	 * Lookup of a penalized channel is delayed, the delay doubles with every subsequent penalty
+	 * (up to <code>PENALTY_MAX_DELAY_SEC</code>). Registration pushed by the name server resolves the channel anyway.
+	 * @param channel channel to register.
+	 * @param penalize register with penalty (delay the lookup).
+	 */
+	@Override
+	public void register(SearchInstance channel, boolean penalize) {
+		if (canceled)
+			return;
+
+		final Integer cid = channel.getChannelID();
+		channels.put(cid, channel);
+		ensureNameServerChannel();
+
+		if (penalize)
+		{
+			penalize(cid);
+			return;
+		}
+
+		synchronized (lookupBatch) {
+			pendingLookup.add(cid);
+		}
+		lookup();
+	}
+
+	/**
+	 * Schedule a delayed lookup of a penalized channel.
+	 * @param cid channel ID.
+	 */
+	private void penalize(Integer cid)
+	{
+		final long now = System.currentTimeMillis();
+		final Penalty penalty;
+		final double delay;
+		synchronized (penalties) {
+			Penalty p = penalties.get(cid);
+			if (p == null)
+			{
+				p = new Penalty(cid);
+				penalties.put(cid, p);
+			}
+			else if (now - p.lastPenaltyTime > PENALTY_RESET_MS)
+				p.count = 0;
+
+			delay = Math.min(PENALTY_BASE_DELAY_SEC * (1L << Math.min(p.count, 16)), PENALTY_MAX_DELAY_SEC);
+			p.count++;
+			p.lastPenaltyTime = now;
+			penalty = p;
+		}
+
+		penalty.timerNode.cancel();
+		context.getTimer().scheduleAfterDelay(penalty.timerNode, delay);
+	}
+
+	/**
+	 * Get the number of channels waiting to be looked up.
+	 * @return number of channels waiting to be looked up.
+	 */
+	public int getPendingLookupCount()
+	{
+		synchronized (lookupBatch) {
+			return pendingLookup.size();
+		}
+	}
+
+	/**
+	 * Get the number of subsequent penalties of a channel.
+	 * @param cid channel ID.
+	 * @return number of penalties, 0 if not penalized.
+	 */
+	public int getPenaltyCount(int cid)
+	{
+		synchronized (penalties) {
+			Penalty penalty = penalties.get(cid);
+			return (penalty != null) ? penalty.count : 0;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.impl.remote.search.ChannelSearchManager#unregister(org.epics.pvaccess.client.impl.remote.search.SearchInstance)
+	 */
+	@Override
+	public void unregister(SearchInstance channel) {
+		channels.remove(channel.getChannelID());
+		synchronized (lookupBatch) {
+			pendingLookup.remove(channel.getChannelID());
+		}
+
+		final Penalty penalty;
+		synchronized (penalties) {
+			penalty = penalties.remove(channel.getChannelID());
+		}
+		if (penalty != null)
+			penalty.timerNode.cancel();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.impl.remote.search.ChannelSearchManager#searchResponse(org.epics.pvaccess.impl.remote.utils.GUID, int, int, byte, java.net.InetSocketAddress)
+	 */
+	@Override
+	public void searchResponse(GUID guid, int cid, int seqNo, byte minorRevision, InetSocketAddress serverAddress) {
+		SearchInstance si = channels.remove(cid);
+		if (si == null) {
+			// minor hack to enable duplicate reports
+			si = context.getChannel(cid);
+			if (si != null)
+				si.searchResponse(guid, minorRevision, serverAddress);
+			return;
+		}
+
+		si.searchResponse(guid, minorRevision, serverAddress);
+	}
+
+	/**
+	 * New server detected, nothing to do since the name server pushes the registrations.
+	 */
+	@Override
+	public void newServerDetected() {
+		// noop
+	}
+
+	/**
+	 * Server restart detected, lookup the channels it was hosting.
+	 * @param serverAddress server address.
+	 */
+	@Override
+	public void serverRestarted(InetSocketAddress serverAddress) {
+		boolean any = false;
+		synchronized (channels) {
+			synchronized (lookupBatch) {
+				for (SearchInstance si : channels.values())
+					if (serverAddress.equals(si.getLastServerAddress()))
+						any |= pendingLookup.add(si.getChannelID());
+			}
+		}
+
+		if (any)
+			lookup();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.impl.remote.search.ChannelSearchManager#cancel()
+	 */
+	@Override
+	public void cancel() {
+		Channel channel;
+		synchronized (lookupBatch) {
+			if (canceled)
+				return;
+			canceled = true;
+			channel = nameServerChannel;
+		}
+
+		retryNode.cancel();
+
+		synchronized (penalties) {
+			for (Penalty penalty : penalties.values())
+				penalty.timerNode.cancel();
+			penalties.clear();
+		}
+
+		if (channel != null)
+			channel.destroy();
+	}
+
+	/**
+	 * Issue lookup of pending names, if no other lookup is in progress.
+	 */
+	private void lookup()
+	{
+		final ChannelRPC channelRPC;
+		final String[] names;
+		synchronized (lookupBatch) {
+			channelRPC = lookupRequester.connected ? lookupRequester.channelRPC : null;
+			if (canceled || channelRPC == null || !lookupBatch.isEmpty() || pendingLookup.isEmpty())
+				return;
+
+			List<String> nameList = new ArrayList<String>(Math.min(pendingLookup.size(), MAX_LOOKUP_BATCH));
+			Iterator<Integer> iter = pendingLookup.iterator();
+			while (iter.hasNext())
+			{
+				Integer cid = iter.next();
+				iter.remove();
+
+				// already resolved or unregistered
+				SearchInstance si = channels.get(cid);
+				if (si == null)
+					continue;
+
+				lookupBatch.add(cid);
+				nameList.add(si.getChannelName());
+				if (lookupBatch.size() == MAX_LOOKUP_BATCH)
+					break;
+			}
+
+			if (nameList.isEmpty())
+				return;
+			names = nameList.toArray(new String[nameList.size()]);
+		}
+
+		PVStructure args = NameServerService.createRequest(NameServerService.OP_LOOKUP);
+		args.getSubField(PVStringArray.class, "names").put(0, names.length, names, 0);
+		channelRPC.request(args);
+	}
+
+	/**
+	 * Requeue the names being looked up (e.g. on failure).
+	 */
+	private void requeueLookupBatch()
+	{
+		synchronized (lookupBatch) {
+			pendingLookup.addAll(lookupBatch);
+			lookupBatch.clear();
+		}
+	}
+
+	/**
+	 * Lookup all the registered channels (e.g. after reconnect or a name server reset).
+	 */
+	private void lookupAll()
+	{
+		synchronized (channels) {
+			synchronized (lookupBatch) {
+				pendingLookup.addAll(channels.keySet());
+			}
+		}
+		lookup();
+	}
+
+	/**
+	 * Resolve registered channels with given names.
+	 * @param response name server response.
+	 * @param batch CIDs to be resolved (looked up), or <code>null</code> to resolve all registered channels.
+	 */
+	private void resolve(PVStructure response, List<Integer> batch)
+	{
+		final String[] names = getStrings(response, "names");
+		final String[] servers = getStrings(response, "servers");
+		final String[] guids = getStrings(response, "guids");
+		if (names.length == 0 || names.length != servers.length || names.length != guids.length)
+			return;
+
+		// name -> index, last entry wins
+		Map<String, Integer> locations = new HashMap<String, Integer>(names.length);
+		for (int i = 0; i < names.length; i++)
+			locations.put(names[i], i);
+
+		List<SearchInstance> candidates;
+		if (batch != null)
+		{
+			candidates = new ArrayList<SearchInstance>(batch.size());
+			for (Integer cid : batch)
+			{
+				SearchInstance si = channels.get(cid);
+				if (si != null)
+					candidates.add(si);
+			}
+		}
+		else
+		{
+			synchronized (channels) {
+				candidates = new ArrayList<SearchInstance>(channels.values());
+			}
+		}
+
+		for (SearchInstance si : candidates)
+		{
+			Integer ix = locations.get(si.getChannelName());
+			if (ix == null || servers[ix].length() == 0)
+				continue;
+
+			InetSocketAddress[] addresses = InetAddressUtil.getSocketAddressList(servers[ix], PVAConstants.PVA_SERVER_PORT);
+			if (addresses == null || addresses.length == 0)
+				continue;
+
+			searchResponse(new GUID(fromHex(guids[ix])), si.getChannelID(), 0,
+					PVAConstants.PVA_PROTOCOL_REVISION, addresses[0]);
+		}
+	}
+
+	private static String[] getStrings(PVStructure response, String fieldName)
+	{
+		PVStringArray field = response.getSubField(PVStringArray.class, fieldName);
+		if (field == null)
+			return new String[0];
+
+		StringArrayData data = new StringArrayData();
+		int count = field.get(0, field.getLength(), data);
+		String[] values = new String[count];
+		System.arraycopy(data.data, data.offset, values, 0, count);
+		return values;
+	}
+
+	private static byte[] fromHex(String hex)
+	{
+		byte[] data = new byte[hex.length() / 2];
+		try {
+			for (int i = 0; i < data.length; i++)
+				data[i] = (byte)Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+		} catch (NumberFormatException nfe) {
+			// invalid GUID, use what has been parsed
+		}
+		return data;
+	}
+
+	/**
+	 * Schedule retry of the failed requests.
+	 */
+	private synchronized void scheduleRetry()
+	{
+		if (!canceled && !retryNode.isScheduled())
+			context.getTimer().scheduleAfterDelay(retryNode, RETRY_DELAY_SEC);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.misc.Timer.TimerCallback#callback()
+	 */
+	@Override
+	public void callback() {
+		lookup();
+		watchRequester.watch();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.misc.Timer.TimerCallback#timerStopped()
+	 */
+	@Override
+	public void timerStopped() {
+		// noop
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.pv.Requester#getRequesterName()
+	 */
+	@Override
+	public String getRequesterName() {
+		return getClass().getName();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.pv.Requester#message(java.lang.String, org.epics.pvdata.pv.MessageType)
+	 */
+	@Override
+	public void message(String message, MessageType messageType) {
+		context.getLogger().log(Level.FINE, "[" + messageType + "] name server: " + message);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.ChannelRequester#channelCreated(org.epics.pvdata.pv.Status, org.epics.pvaccess.client.Channel)
+	 */
+	@Override
+	public void channelCreated(Status status, Channel channel) {
+		if (!status.isSuccess())
+			context.getLogger().log(Level.SEVERE, "Failed to create name server channel: " + status.getMessage());
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.ChannelRequester#channelStateChange(org.epics.pvaccess.client.Channel, org.epics.pvaccess.client.Channel.ConnectionState)
+	 */
+	@Override
+	public void channelStateChange(Channel channel, ConnectionState connectionState) {
+		if (connectionState != ConnectionState.CONNECTED)
+		{
+			// pending requests are silently dropped on disconnect
+			synchronized (lookupBatch) {
+				lookupRequester.connected = false;
+				watchRequester.connected = false;
+				watchRequester.pending = false;
+			}
+			requeueLookupBatch();
+		}
+	}
+
+	/**
+	 * Penalty of a channel, i.e. its delayed lookup.
+	 */
+	private class Penalty implements TimerCallback {
+
+		final Integer cid;
+		final TimerNode timerNode = TimerFactory.createNode(this);
+
+		/**
+		 * Number of subsequent penalties, guarded by <code>penalties</code>.
+		 */
+		int count = 0;
+
+		/**
+		 * Time (in ms) of the last penalty, guarded by <code>penalties</code>.
+		 */
+		long lastPenaltyTime = 0;
+
+		Penalty(Integer cid) {
+			this.cid = cid;
+		}
+
+		@Override
+		public void callback() {
+			if (!channels.containsKey(cid))
+				return;
+
+			synchronized (lookupBatch) {
+				pendingLookup.add(cid);
+			}
+			lookup();
+		}
+
+		@Override
+		public void timerStopped() {
+			// noop
+		}
+	}
+
+	/**
+	 * Lookup request requester.
+	 */
+	private class LookupRequester implements ChannelRPCRequester {
+
+		volatile ChannelRPC channelRPC;
+
+		/**
+		 * Connected flag, guarded by <code>lookupBatch</code>.
+		 */
+		boolean connected = false;
+
+		@Override
+		public String getRequesterName() {
+			return NameServerChannelSearchManager.this.getRequesterName();
+		}
+
+		@Override
+		public void message(String message, MessageType messageType) {
+			NameServerChannelSearchManager.this.message(message, messageType);
+		}
+
+		@Override
+		public void channelRPCConnect(Status status, ChannelRPC channelRPC) {
+			if (!status.isSuccess())
+			{
+				context.getLogger().log(Level.WARNING, "Failed to connect to name server: " + status.getMessage());
+				return;
+			}
+
+			synchronized (lookupBatch) {
+				this.channelRPC = channelRPC;
+				connected = true;
+			}
+
+			// (re)connected, the watch request (reset) takes care of the missed changes
+			lookup();
+		}
+
+		@Override
+		public void requestDone(Status status, ChannelRPC channelRPC, PVStructure pvResponse) {
+			if (!status.isSuccess() || pvResponse == null)
+			{
+				context.getLogger().log(Level.FINE, "Name server lookup failed: " + status.getMessage());
+				requeueLookupBatch();
+				scheduleRetry();
+				return;
+			}
+
+			List<Integer> batch;
+			synchronized (lookupBatch) {
+				batch = new ArrayList<Integer>(lookupBatch);
+				lookupBatch.clear();
+			}
+
+			// not found names stay registered, waiting for a registration push
+			resolve(pvResponse, batch);
+
+			lookup();
+		}
+	}
+
+	/**
+	 * Watch request requester.
+	 */
+	private class WatchRequester implements ChannelRPCRequester {
+
+		volatile ChannelRPC channelRPC;
+
+		/**
+		 * Connected flag, guarded by <code>lookupBatch</code>.
+		 */
+		boolean connected = false;
+
+		/**
+		 * Watch request pending flag, guarded by <code>lookupBatch</code>.
+		 */
+		boolean pending = false;
+
+		/**
+		 * Last known name server instance ID.
+		 */
+		volatile long epoch = 0;
+
+		/**
+		 * Last known name server version, -1 if unknown.
+		 */
+		volatile long version = -1;
+
+		@Override
+		public String getRequesterName() {
+			return NameServerChannelSearchManager.this.getRequesterName();
+		}
+
+		@Override
+		public void message(String message, MessageType messageType) {
+			NameServerChannelSearchManager.this.message(message, messageType);
+		}
+
+		void watch()
+		{
+			final ChannelRPC rpc;
+			synchronized (lookupBatch) {
+				if (canceled || !connected || pending)
+					return;
+				pending = true;
+				rpc = channelRPC;
+			}
+
+			PVStructure args = NameServerService.createRequest(NameServerService.OP_WATCH);
+			args.getLongField("epoch").put(epoch);
+			args.getLongField("version").put(version);
+			rpc.request(args);
+		}
+
+		@Override
+		public void channelRPCConnect(Status status, ChannelRPC channelRPC) {
+			if (!status.isSuccess())
+				return;
+
+			synchronized (lookupBatch) {
+				this.channelRPC = channelRPC;
+				connected = true;
+			}
+			watch();
+		}
+
+		@Override
+		public void requestDone(Status status, ChannelRPC channelRPC, PVStructure pvResponse) {
+			synchronized (lookupBatch) {
+				pending = false;
+			}
+
+			if (!status.isSuccess() || pvResponse == null)
+			{
+				scheduleRetry();
+				return;
+			}
+
+			final boolean reset = pvResponse.getBooleanField("reset").get();
+			epoch = pvResponse.getLongField("epoch").get();
+			version = pvResponse.getLongField("version").get();
+
+			if (reset)
+			{
+				// first watch, name server restarted (or failed over) or changes lost, lookup everything
+				lookupAll();
+			}
+			else
+				resolve(pvResponse, null);
+
+			watch();
+		}
+	}
+}
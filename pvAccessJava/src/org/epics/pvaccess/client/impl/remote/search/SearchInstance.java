@@ -25,6 +25,12 @@ public interface SearchInstance {
 	
 	AtomicInteger getUserValue();
 
+	/**
+	 * Get address of the server that was last hosting the channel.
+	 * @return server address, <code>null</code> if never connected.
+	 */
+	InetSocketAddress getLastServerAddress();
+
 	/**
 	 * Search response from server (channel found).
 	 * @param guid server GUID
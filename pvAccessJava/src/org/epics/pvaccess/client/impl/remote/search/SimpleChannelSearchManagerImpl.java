@@ -243,6 +243,21 @@ public class SimpleChannelSearchManagerImpl implements ChannelSearchManager, Tim
 		@Override
 		public void flushSerializeBuffer() {
 		}
+
+		@Override
+		public void sendPayload(byte command, ByteBuffer payload) {
+			throw new UnsupportedOperationException("sendPayload not supported");
+		}
+
+		@Override
+		public void sendEncoded(ByteBuffer[] messages) {
+			throw new UnsupportedOperationException("sendEncoded not supported");
+		}
+
+		@Override
+		public void endMessage(ByteBuffer payload) {
+			throw new UnsupportedOperationException("endMessage not supported");
+		}
 		
 		@Override
 		public void cachedSerialize(Field field, ByteBuffer buffer) {
@@ -398,6 +413,40 @@ public class SimpleChannelSearchManagerImpl implements ChannelSearchManager, Tim
 		callback();
 	}
 
+	/**
+	 * Server restart (or recovery) detected.
+	 * Boost searching of the channels that were hosted by the server.
+	 * @param serverAddress	server address.
+	 */
+	public void serverRestarted(InetSocketAddress serverAddress)
+	{
+		if (canceled)
+			return;
+
+		ArrayList<SearchInstance> hosted = new ArrayList<SearchInstance>();
+		synchronized (channels) {
+			for (SearchInstance si : channels.values())
+				if (serverAddress.equals(si.getLastServerAddress()))
+				{
+					si.getUserValue().set(BOOST_VALUE);
+					hosted.add(si);
+				}
+		}
+		
+		if (hosted.isEmpty())
+			return;
+		
+		try
+		{
+			send(hosted.toArray(new SearchInstance[hosted.size()]));
+		}
+		catch (Throwable th)
+		{
+			// should never happen, be we are careful and verbose
+			th.printStackTrace();
+		}
+	}
+
 	private final static int DEFAULT_COUNT_VALUE = 1;
 	private final static int BOOST_VALUE = 1;
 	// must be power of two (so that search is done)
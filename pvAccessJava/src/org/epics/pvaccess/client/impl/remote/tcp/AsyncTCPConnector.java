@@ -0,0 +1,675 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.client.impl.remote.tcp;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.epics.pvaccess.impl.remote.ConnectionException;
+import org.epics.pvaccess.impl.remote.Connector;
+import org.epics.pvaccess.impl.remote.Context;
+import org.epics.pvaccess.impl.remote.ProtocolType;
+import org.epics.pvaccess.impl.remote.Transport;
+import org.epics.pvaccess.impl.remote.TransportClient;
+import org.epics.pvaccess.impl.remote.request.ResponseHandler;
+import org.epics.pvaccess.impl.remote.tcp.BlockingTCPTransport;
+import org.epics.pvaccess.impl.remote.tcp.BlockingTCPTransport.VerificationListener;
+import org.epics.pvdata.misc.Timer.TimerCallback;
+import org.epics.pvdata.misc.Timer.TimerNode;
+import org.epics.pvdata.misc.TimerFactory;
+
+/**
+ * Channel Access TCP connector that does not block the caller.
+ * <p>
+ * Sockets are connected in non-blocking mode on a selector (<code>OP_CONNECT</code>) of the connector thread,
+ * failed attempts are retried using the context timer, and the transport verification is waited for
+ * by a listener instead of a blocked thread. All the clients connecting to the same server (and priority)
+ * while a connection is in progress share it, and are notified when it completes.
+ * Once connected, the socket is put back into blocking mode and used by a <code>BlockingTCPTransport</code>.
+ * @version $Id$
+ */
+public class AsyncTCPConnector implements Connector, Runnable {
+
+	public interface TransportFactory {
+		public BlockingTCPTransport create(Context context, SocketChannel channel,
+				ResponseHandler responseHandler, int receiveBufferSize,
+				TransportClient client, short transportRevision,
+				float heartbeatInterval, short priority);
+	}
+
+	/**
+	 * Connect completion callback.
+	 */
+	public interface ConnectCallback {
+		/**
+		 * Connected, the transport is verified and acquired for the client.
+		 * @param transport the transport.
+		 */
+		void transportConnected(Transport transport);
+
+		/**
+		 * Failed to connect.
+		 * @param cex the reason.
+		 */
+		void transportConnectFailed(ConnectionException cex);
+	}
+
+	/**
+	 * Context instance.
+	 */
+	private final Context context;
+
+	/**
+	 * Blocking connect timeout (used only by <code>connect</code> w/o callback).
+	 */
+	private static final int LOCK_TIMEOUT = 20 * 1000;	// 20s
+
+	/**
+	 * Verification timeout.
+	 */
+	private static final double VERIFICATION_TIMEOUT = 5.0;	// 5s
+
+	/**
+	 * Number of connect attempts.
+	 */
+	private static final int CONNECT_TRIES = 3;
+
+	/**
+	 * Delay between the connect attempts.
+	 */
+	private static final double RETRY_DELAY = 0.1;	// 100ms
+
+	/**
+	 * Receive buffer size.
+	 */
+	private final int receiveBufferSize;
+
+	/**
+	 * Heartbeat interval.
+	 */
+	private final float heartbeatInterval;
+
+	/**
+	 * Transport factory.
+	 */
+	private final TransportFactory transportFactory;
+
+	/**
+	 * Connects in progress, by server address and priority.
+	 */
+	private final Map<InetSocketAddress, Map<Short, PendingConnect>> pendingConnects =
+		new HashMap<InetSocketAddress, Map<Short, PendingConnect>>();
+
+	/**
+	 * Sockets to be registered with the selector.
+	 */
+	private final ConcurrentLinkedQueue<PendingConnect> registrations = new ConcurrentLinkedQueue<PendingConnect>();
+
+	private final Selector selector;
+
+	private volatile boolean destroyed = false;
+
+	public AsyncTCPConnector(Context context, TransportFactory transportFactory, int receiveBufferSize, float heartbeatInterval) throws IOException {
+		this.context = context;
+		this.transportFactory = transportFactory;
+		this.receiveBufferSize = receiveBufferSize;
+		this.heartbeatInterval = heartbeatInterval;
+
+		selector = Selector.open();
+		Thread thread = new Thread(this, "pvAccess-client TCP connector");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Connect, waiting for the connection to complete.
+	 * @see org.epics.pvaccess.impl.remote.Connector#connect(org.epics.pvaccess.impl.remote.TransportClient, org.epics.pvaccess.impl.remote.request.ResponseHandler, java.net.InetSocketAddress, byte, short)
+	 */
+	public Transport connect(final TransportClient client, ResponseHandler responseHandler,
+							 InetSocketAddress address, byte transportRevision, short priority)
+		throws ConnectionException
+	{
+		final CountDownLatch done = new CountDownLatch(1);
+		final Transport[] transport = new Transport[1];
+		final ConnectionException[] exception = new ConnectionException[1];
+		final boolean[] abandoned = new boolean[1];
+
+		connect(client, responseHandler, address, transportRevision, priority, new ConnectCallback() {
+
+			@Override
+			public void transportConnected(Transport connectedTransport) {
+				synchronized (abandoned) {
+					if (abandoned[0])
+						connectedTransport.release(client);
+					else
+						transport[0] = connectedTransport;
+				}
+				done.countDown();
+			}
+
+			@Override
+			public void transportConnectFailed(ConnectionException cex) {
+				exception[0] = cex;
+				done.countDown();
+			}
+		});
+
+		boolean interrupted = false;
+		try {
+			done.await(LOCK_TIMEOUT, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			interrupted = true;
+		}
+
+		final Transport connectedTransport;
+		synchronized (abandoned) {
+			if (transport[0] != null && !interrupted)
+				return transport[0];
+			abandoned[0] = true;
+			connectedTransport = transport[0];
+		}
+		if (interrupted)
+		{
+			if (connectedTransport != null)
+				connectedTransport.release(client);
+			throw new ConnectionException("Interrupted while waiting for connection to '" + address + "'.", address, ProtocolType.tcp.name(), null);
+		}
+		if (exception[0] != null)
+			throw exception[0];
+		throw new ConnectionException("Timeout waiting for connection to '" + address + "'.", address, ProtocolType.tcp.name(), null);
+	}
+
+	/**
+	 * Connect, without blocking.
+	 * The callback is called by a connector, timer or transport thread, or immediately if the transport is already connected.
+	 * @param client	client requesting connection (transport).
+	 * @param responseHandler	reponse handler.
+	 * @param address			address of the server.
+	 * @param transportRevision	transport revision to be used.
+	 * @param priority process priority.
+	 * @param callback the callback to be notified once connected, or failed to connect.
+	 */
+	public void connect(TransportClient client, ResponseHandler responseHandler,
+						InetSocketAddress address, byte transportRevision, short priority,
+						ConnectCallback callback)
+	{
+		// join a connection in progress, its transport is not verified yet
+		if (joinPending(client, address, priority, callback))
+			return;
+
+		Transport transport = context.getTransportRegistry().get(ProtocolType.tcp.name(), address, priority);
+		if (transport != null)
+		{
+			context.getLogger().finer("Reusing existant connection to PVA server: " + address);
+			if (transport.acquire(client))
+			{
+				callback.transportConnected(transport);
+				return;
+			}
+		}
+
+		PendingConnect pendingConnect;
+		synchronized (pendingConnects)
+		{
+			if (destroyed)
+			{
+				pendingConnect = null;
+			}
+			else
+			{
+				Map<Short, PendingConnect> priorities = pendingConnects.get(address);
+				if (priorities == null)
+				{
+					priorities = new HashMap<Short, PendingConnect>();
+					pendingConnects.put(address, priorities);
+				}
+
+				pendingConnect = priorities.get(priority);
+				if (pendingConnect != null)
+				{
+					pendingConnect.addClient(client, callback);
+					return;
+				}
+
+				pendingConnect = new PendingConnect(responseHandler, address, transportRevision, priority);
+				pendingConnect.addClient(client, callback);
+				priorities.put(priority, pendingConnect);
+			}
+		}
+
+		if (pendingConnect == null)
+			callback.transportConnectFailed(new ConnectionException("Connector destroyed.", address, ProtocolType.tcp.name(), null));
+		else
+			startConnect(pendingConnect);
+	}
+
+	private boolean joinPending(TransportClient client, InetSocketAddress address, short priority, ConnectCallback callback)
+	{
+		synchronized (pendingConnects)
+		{
+			Map<Short, PendingConnect> priorities = pendingConnects.get(address);
+			if (priorities == null)
+				return false;
+			PendingConnect pendingConnect = priorities.get(priority);
+			if (pendingConnect == null)
+				return false;
+			pendingConnect.addClient(client, callback);
+			return true;
+		}
+	}
+
+	/**
+	 * Remove a connection from the ones in progress, no client can join it after that.
+	 * @param pendingConnect the connection.
+	 */
+	private void removePending(PendingConnect pendingConnect)
+	{
+		synchronized (pendingConnects)
+		{
+			Map<Short, PendingConnect> priorities = pendingConnects.get(pendingConnect.address);
+			if (priorities != null && priorities.get(pendingConnect.priority) == pendingConnect)
+			{
+				priorities.remove(pendingConnect.priority);
+				if (priorities.isEmpty())
+					pendingConnects.remove(pendingConnect.address);
+			}
+		}
+	}
+
+	/**
+	 * Start a connect attempt.
+	 * @param pendingConnect the connection.
+	 */
+	private void startConnect(PendingConnect pendingConnect)
+	{
+		if (destroyed)
+		{
+			pendingConnect.fail(null);
+			return;
+		}
+
+		final InetSocketAddress address = pendingConnect.address;
+		pendingConnect.tries++;
+		context.getLogger().finest("Openning socket to PVA server " + address + ", attempt " + pendingConnect.tries + ".");
+
+		SocketChannel socket = null;
+		try
+		{
+			socket = SocketChannel.open();
+			socket.configureBlocking(false);
+			pendingConnect.socket = socket;
+			if (socket.connect(address))
+			{
+				connected(pendingConnect);
+			}
+			else
+			{
+				registrations.add(pendingConnect);
+				selector.wakeup();
+			}
+		}
+		catch (IOException ioe)
+		{
+			connectFailed(pendingConnect, ioe);
+		}
+	}
+
+	/**
+	 * Called on a failed connect attempt, retries or fails the connection.
+	 * @param pendingConnect the connection.
+	 * @param th the reason.
+	 */
+	private void connectFailed(PendingConnect pendingConnect, Throwable th)
+	{
+		pendingConnect.closeSocket();
+
+		if (pendingConnect.tries < CONNECT_TRIES && !destroyed)
+			pendingConnect.retry();
+		else
+			pendingConnect.fail(th);
+	}
+
+	/**
+	 * Called once the socket is connected (and no longer registered with the selector).
+	 * @param pendingConnect the connection.
+	 */
+	private void connected(PendingConnect pendingConnect)
+	{
+		final SocketChannel socket = pendingConnect.socket;
+		try
+		{
+			// use blocking channel
+			socket.configureBlocking(true);
+
+			// enable TCP_NODELAY (disable Nagle's algorithm)
+			socket.socket().setTcpNoDelay(true);
+
+			// enable TCP_KEEPALIVE
+			socket.socket().setKeepAlive(true);
+
+			// do NOT tune socket buffer sizes, this will disable auto-tuning
+		}
+		catch (IOException ioe)
+		{
+			connectFailed(pendingConnect, ioe);
+			return;
+		}
+
+		pendingConnect.verify();
+	}
+
+	/**
+	 * Selector loop, completes the connect attempts.
+	 */
+	public void run()
+	{
+		final List<PendingConnect> connectables = new ArrayList<PendingConnect>();
+		try
+		{
+			while (!destroyed)
+			{
+				PendingConnect pendingConnect;
+				while ((pendingConnect = registrations.poll()) != null)
+				{
+					try {
+						pendingConnect.socket.register(selector, SelectionKey.OP_CONNECT, pendingConnect);
+					} catch (IOException ioe) {
+						connectFailed(pendingConnect, ioe);
+					}
+				}
+
+				selector.select();
+
+				while (!selector.selectedKeys().isEmpty())
+				{
+					Iterator<SelectionKey> selectedKeysIterator = selector.selectedKeys().iterator();
+					while (selectedKeysIterator.hasNext())
+					{
+						SelectionKey key = selectedKeysIterator.next();
+						selectedKeysIterator.remove();
+						key.cancel();
+						connectables.add((PendingConnect)key.attachment());
+					}
+
+					// deregister the canceled keys, sockets can be put back in blocking mode only then
+					selector.selectNow();
+				}
+
+				for (PendingConnect connectable : connectables)
+				{
+					try
+					{
+						connectable.socket.finishConnect();
+					}
+					catch (IOException ioe)
+					{
+						connectFailed(connectable, ioe);
+						continue;
+					}
+					connected(connectable);
+				}
+				connectables.clear();
+			}
+		}
+		catch (Throwable th)
+		{
+			context.getLogger().log(Level.SEVERE, "Unexpected exception caught in TCP connector thread.", th);
+		}
+		finally
+		{
+			destroyed = true;
+			try {
+				selector.close();
+			} catch (IOException e) {
+				// noop
+			}
+
+			failAll();
+		}
+	}
+
+	/**
+	 * Fail all the connections in progress.
+	 */
+	private void failAll()
+	{
+		List<PendingConnect> pending = new ArrayList<PendingConnect>();
+		synchronized (pendingConnects)
+		{
+			for (Map<Short, PendingConnect> priorities : pendingConnects.values())
+				pending.addAll(priorities.values());
+		}
+
+		for (PendingConnect pendingConnect : pending)
+			pendingConnect.fail(null);
+	}
+
+	/**
+	 * Destroy the connector, failing the connections in progress.
+	 */
+	public void destroy()
+	{
+		destroyed = true;
+		selector.wakeup();
+	}
+
+	/**
+	 * A connection in progress, shared by all the clients connecting to the same server and priority.
+	 * It owns the transport until it is verified.
+	 */
+	private class PendingConnect implements TransportClient, VerificationListener, TimerCallback {
+		final ResponseHandler responseHandler;
+		final InetSocketAddress address;
+		final byte transportRevision;
+		final short priority;
+
+		final List<TransportClient> clients = new ArrayList<TransportClient>();
+		final List<ConnectCallback> callbacks = new ArrayList<ConnectCallback>();
+
+		final TimerNode timerNode = TimerFactory.createNode(this);
+
+		int tries = 0;
+		volatile SocketChannel socket = null;
+		volatile BlockingTCPTransport transport = null;
+		boolean completed = false;
+
+		PendingConnect(ResponseHandler responseHandler, InetSocketAddress address, byte transportRevision, short priority)
+		{
+			this.responseHandler = responseHandler;
+			this.address = address;
+			this.transportRevision = transportRevision;
+			this.priority = priority;
+		}
+
+		void addClient(TransportClient client, ConnectCallback callback)
+		{
+			synchronized (this) {
+				clients.add(client);
+				callbacks.add(callback);
+			}
+		}
+
+		void closeSocket()
+		{
+			try
+			{
+				if (socket != null)
+					socket.close();
+			}
+			catch (Throwable t) { /* noop */ }
+			socket = null;
+		}
+
+		void retry()
+		{
+			context.getTimer().scheduleAfterDelay(timerNode, RETRY_DELAY);
+		}
+
+		void verify()
+		{
+			context.getLogger().finer("Connected to PVA server: " + address + ", verifying.");
+
+			BlockingTCPTransport transport;
+			try
+			{
+				transport = transportFactory.create(context, socket, responseHandler, receiveBufferSize, this, transportRevision, heartbeatInterval, priority);
+			}
+			catch (Throwable th)
+			{
+				closeSocket();
+				fail(th);
+				return;
+			}
+			this.transport = transport;
+
+			context.getTimer().scheduleAfterDelay(timerNode, VERIFICATION_TIMEOUT);
+			transport.setVerificationListener(this);
+		}
+
+		/**
+		 * Mark as completed.
+		 * @return <code>false</code> if already completed.
+		 */
+		private boolean complete()
+		{
+			removePending(this);
+			synchronized (this) {
+				if (completed)
+					return false;
+				completed = true;
+				return true;
+			}
+		}
+
+		void fail(Throwable th)
+		{
+			if (!complete())
+				return;
+
+			timerNode.cancel();
+
+			// close the transport w/o notifying the clients, they are notified below
+			BlockingTCPTransport transport = this.transport;
+			if (transport != null)
+				transport.release(this);
+
+			ConnectionException cex = new ConnectionException("Failed to connect to '" + address + "'.", address, ProtocolType.tcp.name(), th);
+			for (ConnectCallback callback : callbacks)
+				notifyFailed(callback, cex);
+		}
+
+		private void notifyFailed(ConnectCallback callback, ConnectionException cex)
+		{
+			try {
+				callback.transportConnectFailed(cex);
+			} catch (Throwable th) {
+				context.getLogger().log(Level.SEVERE, "Unexpected exception caught while notifying connect failure.", th);
+			}
+		}
+
+		/* (non-Javadoc)
+		 * @see org.epics.pvaccess.impl.remote.tcp.BlockingTCPTransport.VerificationListener#transportVerified(org.epics.pvaccess.impl.remote.Transport, boolean)
+		 */
+		@Override
+		public void transportVerified(Transport verifiedTransport, boolean verified) {
+			if (!verified)
+			{
+				context.getLogger().finer("Connection to PVA server " + address + " failed to be validated, closing it.");
+				fail(new ConnectionException("Failed to verify connection to '" + address + "'.", address, ProtocolType.tcp.name(), null));
+				return;
+			}
+
+			if (!complete())
+				return;
+
+			timerNode.cancel();
+			context.getLogger().finer("Connected to PVA server: " + address);
+
+			for (int i = 0; i < clients.size(); i++)
+			{
+				if (!verifiedTransport.acquire(clients.get(i)))
+				{
+					notifyFailed(callbacks.get(i), new ConnectionException("Transport to '" + address + "' closed.", address, ProtocolType.tcp.name(), null));
+					continue;
+				}
+
+				try {
+					callbacks.get(i).transportConnected(verifiedTransport);
+				} catch (Throwable th) {
+					context.getLogger().log(Level.SEVERE, "Unexpected exception caught while notifying connect completion.", th);
+				}
+			}
+
+			// the clients own the transport now
+			verifiedTransport.release(this);
+		}
+
+		/* (non-Javadoc)
+		 * @see org.epics.pvdata.misc.Timer.TimerCallback#callback()
+		 */
+		@Override
+		public void callback() {
+			if (transport == null)
+				startConnect(this);
+			else
+				fail(new ConnectionException("Timeout waiting for verification of connection to '" + address + "'.", address, ProtocolType.tcp.name(), null));
+		}
+
+		/* (non-Javadoc)
+		 * @see org.epics.pvdata.misc.Timer.TimerCallback#timerStopped()
+		 */
+		@Override
+		public void timerStopped() {
+			fail(null);
+		}
+
+		/* (non-Javadoc)
+		 * @see org.epics.pvaccess.impl.remote.TransportClient#transportClosed()
+		 */
+		@Override
+		public void transportClosed() {
+			fail(null);
+		}
+
+		@Override
+		public void transportUnresponsive() {
+			// noop
+		}
+
+		@Override
+		public void transportResponsive(Transport transport) {
+			// noop
+		}
+
+		@Override
+		public void transportChanged() {
+			// noop
+		}
+	}
+
+}
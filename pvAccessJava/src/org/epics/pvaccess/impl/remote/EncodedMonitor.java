@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.impl.remote;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.epics.pvdata.monitor.Monitor;
+
+/**
+ * Encoded (pass-through) monitor support API (optional).
+ * This is used by pvAccess server to send already serialized monitor updates, e.g. forwarded by a gateway.
+ */
+public interface EncodedMonitor extends Monitor {
+
+	/**
+	 * Poll for the next encoded update, i.e. changed bit set, data and overrun bit set as serialized by pvAccess.
+	 * If <code>null</code> is returned, <code>poll()</code> is used.
+	 * @param byteOrder byte order of the transport, the update must be serialized in this order.
+	 * @return encoded update (from position to limit), <code>null</code> if there is none; the buffer must not be modified.
+	 */
+	ByteBuffer pollEncoded(ByteOrder byteOrder);
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.impl.remote;
+
+import java.nio.ByteBuffer;
+
+import org.epics.pvdata.monitor.Monitor;
+import org.epics.pvdata.monitor.MonitorRequester;
+
+/**
+ * Encoded (pass-through) monitor requester API (optional).
+ * This is used by pvAccess client to deliver monitor updates without deserializing them, e.g. to a gateway.
+ * Only updates of the structures that do not contain unions are delivered encoded
+ * (see <code>SerializationHelper.containsUnion</code>), the others are delivered via <code>monitorEvent</code>.
+ */
+public interface EncodedMonitorRequester extends MonitorRequester {
+
+	/**
+	 * Encoded monitor update, delivered instead of <code>monitorEvent</code>.
+	 * The update is not queued by the monitor, i.e. it is considered released when this method returns.
+	 * @param monitor monitor.
+	 * @param update changed bit set, data and overrun bit set as received (from position to limit),
+	 * 		  in byte order of the buffer; the buffer is owned by the requester.
+	 */
+	void monitorEncoded(Monitor monitor, ByteBuffer update);
+
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.impl.remote;
+
+/**
+ * Transport sender that tells the lane of the send queue it is to be put in.
+ * Senders not implementing this interface are sent in the <code>SendLane.CONTROL</code> lane.
+ * @version $Id$
+ */
+public interface PrioritizedTransportSender extends TransportSender {
+
+	/**
+	 * Get the lane for the message(s) pending to be sent, called when the sender is enqueued.
+	 * @return the lane.
+	 */
+	SendLane getSendLane();
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.impl.remote;
+
+/**
+ * Lanes of the transport send queue, in the order of priority.
+ * @version $Id$
+ */
+public enum SendLane {
+	
+	/**
+	 * Protocol control, channel and request creation and destruction.
+	 * Always sent before the other lanes.
+	 */
+	CONTROL,
+	
+	/**
+	 * Puts, processing and RPC.
+	 */
+	PUT,
+	
+	/**
+	 * Monitors.
+	 */
+	MONITOR,
+	
+	/**
+	 * Gets and array transfers.
+	 */
+	BULK;
+	
+}
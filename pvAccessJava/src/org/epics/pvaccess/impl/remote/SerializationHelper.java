@@ -13,6 +13,7 @@ import org.epics.pvdata.pv.PVField;
 import org.epics.pvdata.pv.PVStructure;
 import org.epics.pvdata.pv.SerializableControl;
 import org.epics.pvdata.pv.Structure;
+import org.epics.pvdata.pv.StructureArray;
 
 public class SerializationHelper {
 
@@ -208,4 +209,30 @@ public class SerializationHelper {
         }
 	}
 	
+	/**
+	 * Check if the data of the field contains union fields.
+	 * Serialized data of unions carries (cached, i.e. connection specific) introspection data,
+	 * such data cannot be passed from one connection to another without deserialization.
+	 * @param field field to check.
+	 * @return <code>true</code> if the field is or contains a union (array).
+	 */
+	public static boolean containsUnion(Field field)
+	{
+		switch (field.getType())
+		{
+			case union:
+			case unionArray:
+				return true;
+			case structureArray:
+				return containsUnion(((StructureArray)field).getStructure());
+			case structure:
+				for (Field subField : ((Structure)field).getFields())
+					if (containsUnion(subField))
+						return true;
+				return false;
+			default:
+				return false;
+		}
+	}
+	
 }
@@ -15,6 +15,7 @@
 package org.epics.pvaccess.impl.remote;
 
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.Channel;
 
@@ -122,6 +123,13 @@ public interface Transport extends DeserializableControl, Channel {
 	 */
 	void enqueueSendRequest(TransportSender sender);
 
+	/**
+	 * Read (copy) the rest of the payload of the message being handled, including all its following segments,
+	 * e.g. to forward the data without deserializing it. To be called only by the handler of the message.
+	 * @return buffer (from position to limit) containing the rest of the payload, in the byte order of the message.
+	 */
+	ByteBuffer readRemainingPayload();
+
 	/**
 	 * Waits (if needed) until transport is verified, i.e. verified() method is being called.
 	 * @param timeoutMs timeout to wait for verification, infinite if 0.
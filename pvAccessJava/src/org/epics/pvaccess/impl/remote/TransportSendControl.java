@@ -15,6 +15,7 @@
 package org.epics.pvaccess.impl.remote;
 
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 
 import org.epics.pvdata.pv.SerializableControl;
 
@@ -34,4 +35,39 @@ public interface TransportSendControl extends SerializableControl {
 	
 	void setRecipient(InetSocketAddress sendTo);
 	
+	/**
+	 * Send an already serialized message payload, the message header is generated by the transport.
+	 * Payload must be serialized in the byte order of the send buffer passed to <code>TransportSender.send</code>.
+	 * Large payloads are written directly to the socket (no copy to the send buffer).
+	 * A message started by the sender is ended first.
+	 * @param command message command.
+	 * @param payload payload (from position to limit); the buffer is not modified and can be shared,
+	 * 		  e.g. a cached reply sent over many transports.
+	 */
+	void sendPayload(byte command, ByteBuffer payload);
+
+	/**
+	 * Send already encoded messages (header and payload) as-is, e.g. a recorded stream or a gateway pass-through.
+	 * Messages must have byte order and client/server flags of this transport, 
+	 * must not span over buffers and segmented messages must be complete.
+	 * Padding of the last message in a buffer is added by the transport.
+	 * Large buffers are written directly to the socket (no copy to the send buffer).
+	 * A message started by the sender is ended first.
+	 * Datagram transports do not align messages, do not allow segmented messages
+	 * and require all the messages to fit into the datagram.
+	 * @param messages buffers of encoded messages (from position to limit); buffers are not modified and can be shared.
+	 * @throws IllegalArgumentException if messages are not valid.
+	 */
+	void sendEncoded(ByteBuffer[] messages);
+
+	/**
+	 * End the started message by appending an already serialized part of the payload,
+	 * e.g. a gateway writes its own request header followed by the forwarded data.
+	 * Payload must be serialized in the byte order of the send buffer passed to <code>TransportSender.send</code>.
+	 * Large payloads are written directly to the socket (no copy to the send buffer).
+	 * @param payload payload (from position to limit); the buffer is not modified and can be shared.
+	 * @throws IllegalStateException if no message was started.
+	 */
+	void endMessage(ByteBuffer payload);
+	
 }
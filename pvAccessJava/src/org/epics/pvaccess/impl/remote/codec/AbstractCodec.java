@@ -6,14 +6,16 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.ClosedByInterruptException;
 import java.nio.channels.ReadableByteChannel;
-import java.nio.channels.WritableByteChannel;
+import java.nio.channels.GatheringByteChannel;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.epics.pvaccess.PVAConstants;
+import org.epics.pvaccess.impl.remote.PrioritizedTransportSender;
+import org.epics.pvaccess.impl.remote.SendLane;
 import org.epics.pvaccess.impl.remote.TransportSendControl;
 import org.epics.pvaccess.impl.remote.TransportSender;
-import org.epics.pvaccess.util.Mailbox;
+import org.epics.pvaccess.util.WeightedMailbox;
 
 // NOTE: non-blocking
 // NOTE: not good to have readPollOne() and writePollOne() in parallel
@@ -26,7 +28,7 @@ import org.epics.pvaccess.util.Mailbox;
 // processRead -> ensureData -> pollOne -> processWrite -> enusreBuffer -> flush -> buffer full -> poolOne... same story as above
 
 public abstract class AbstractCodec
-	implements ReadableByteChannel, WritableByteChannel, TransportSendControl {
+	implements ReadableByteChannel, GatheringByteChannel, TransportSendControl {
 
 	protected final Logger logger;
 	
@@ -469,6 +471,36 @@ public abstract class AbstractCodec
 	}
 
 
+	/**
+	 * Read (copy) the rest of the payload of the message being processed, including all its following segments.
+	 * @return buffer (from position to limit) containing the rest of the payload, in the byte order of the message.
+	 */
+	public final ByteBuffer readRemainingPayload() {
+		ByteBuffer payload = ByteBuffer.allocate(Math.max(storedPosition + storedPayloadSize - socketBuffer.position(), 0) + 16);
+		while (true)
+		{
+			// limit bounds the (already read) part of the current segment
+			if (payload.remaining() < socketBuffer.remaining())
+			{
+				ByteBuffer newPayload = ByteBuffer.allocate(Math.max(2*payload.capacity(), payload.position() + socketBuffer.remaining()));
+				payload.flip();
+				newPayload.put(payload);
+				payload = newPayload;
+			}
+			payload.put(socketBuffer);
+
+			// end of the last segment
+			if (socketBuffer.position() >= storedPosition + storedPayloadSize && (flags & 0x10) == 0)
+				break;
+
+			// read the rest of the segment or the next segment
+			ensureData(1);
+		}
+		payload.flip();
+		payload.order(socketBuffer.order());
+		return payload;
+	}
+
 	public static final int alignedValue(int value, int alignment)
 	{
 		final int k = (alignment - 1);
@@ -536,7 +568,14 @@ public abstract class AbstractCodec
 	 */
 	protected long totalBytesSent = 0;
 
-	protected final Mailbox<TransportSender> sendQueue = new Mailbox<TransportSender>();
+	/**
+	 * Weights of the send queue lanes (<code>SendLane</code> order), 0 for strict priority.
+	 * Control messages always go first, the others share the connection 8:4:1,
+	 * so that puts are not stuck behind a bulk transfer.
+	 */
+	private static final int[] SEND_LANE_WEIGHTS = { 0, 8, 4, 1 };
+
+	protected final WeightedMailbox<TransportSender> sendQueue = new WeightedMailbox<TransportSender>(SEND_LANE_WEIGHTS);
 	protected final boolean blockingProcessQueue;
 
 	private Thread senderThread = null;
@@ -728,6 +767,190 @@ public abstract class AbstractCodec
 			startMessage(lastSegmentedMessageCommand, 0);
 	}
 
+	/**
+	 * Pre-serialized data up to this size is copied to the send buffer (if there is enough of space),
+	 * larger data is written directly (a separate write is not worth for small data).
+	 */
+	static public final int MAX_COPY_PRESERIALIZED_SIZE = MAX_ENSURE_SIZE;
+
+	/**
+	 * End the message started by the sender, if any.
+	 */
+	private final void endSenderMessage() {
+		// processSender() marks current position, nothing was started if nothing was written
+		if (lastMessageStartPosition >= 0 && sendBuffer.position() > lastMessageStartPosition)
+			endMessage(false);
+		else
+			lastMessageStartPosition = -1;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.TransportSendControl#sendPayload(byte, java.nio.ByteBuffer)
+	 */
+	@Override
+	public final void sendPayload(byte command, ByteBuffer payload) {
+		endSenderMessage();
+
+		startMessage(command, Math.min(payload.remaining(), MAX_COPY_PRESERIALIZED_SIZE));
+		endMessage(payload);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.TransportSendControl#endMessage(java.nio.ByteBuffer)
+	 */
+	@Override
+	public final void endMessage(ByteBuffer payload) {
+		if (lastMessageStartPosition < 0)
+			throw new IllegalStateException("no message started");
+
+		final int size = payload.remaining();
+		if (size <= MAX_COPY_PRESERIALIZED_SIZE)
+		{
+			ensureBuffer(size);
+			sendBuffer.put(payload.duplicate());
+			endMessage(false);
+			return;
+		}
+
+		// last (or the only) segment of the message, payload is not copied
+		final int payloadSize = sendBuffer.position() - lastMessageStartPosition -
+								PVAConstants.PVA_MESSAGE_HEADER_SIZE + size;
+		sendBuffer.putInt(lastMessageStartPosition + (Short.SIZE/Byte.SIZE + 2), payloadSize);
+		if (lastSegmentedMessageType != 0)
+		{
+			final int flagsPosition = lastMessageStartPosition + Short.SIZE/Byte.SIZE;
+			// set last segment bit (by clearing first segment bit)
+			sendBuffer.put(flagsPosition, (byte)(lastSegmentedMessageType & 0xEF));
+			lastSegmentedMessageType = 0;
+		}
+		nextMessagePayloadOffset = 0;
+
+		final int payloadEnd = lastMessageStartPosition + PVAConstants.PVA_MESSAGE_HEADER_SIZE + payloadSize;
+		final int padding = alignedValue(payloadEnd, PVAConstants.PVA_ALIGNMENT) - payloadEnd;
+		sendGathered(new ByteBuffer[] {
+				null,
+				payload.duplicate(),
+				ByteBuffer.wrap(PADDING_BYTES, 0, padding) });
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.TransportSendControl#sendEncoded(java.nio.ByteBuffer[])
+	 */
+	@Override
+	public final void sendEncoded(ByteBuffer[] messages) {
+		// validate first, nothing is sent if messages are not valid
+		final int[] paddings = new int[messages.length];
+		int totalSize = 0;
+		boolean segmented = false;
+		for (int i = 0; i < messages.length; i++)
+		{
+			segmented = validateEncoded(messages[i], segmented, byteOrderFlag | clientServerFlag, PVAConstants.PVA_ALIGNMENT, true);
+			final int size = messages[i].remaining();
+			paddings[i] = alignedValue(size, PVAConstants.PVA_ALIGNMENT) - size;
+			totalSize += size + paddings[i];
+		}
+		if (segmented)
+			throw new IllegalArgumentException("incomplete segmented message");
+
+		endSenderMessage();
+
+		if (totalSize <= MAX_COPY_PRESERIALIZED_SIZE)
+		{
+			ensureBuffer(totalSize);
+			for (int i = 0; i < messages.length; i++)
+			{
+				sendBuffer.put(messages[i].duplicate());
+				sendBuffer.put(PADDING_BYTES, 0, paddings[i]);
+			}
+			return;
+		}
+
+		final ByteBuffer[] buffers = new ByteBuffer[1 + 2*messages.length];
+		for (int i = 0; i < messages.length; i++)
+		{
+			buffers[1 + 2*i] = messages[i].duplicate();
+			buffers[2 + 2*i] = ByteBuffer.wrap(PADDING_BYTES, 0, paddings[i]);
+		}
+		sendGathered(buffers);
+	}
+
+	/**
+	 * Validate encoded messages.
+	 * @param buffer buffer of encoded messages (not modified).
+	 * @param segmented segmented message in progress flag.
+	 * @param flags expected byte order and client/server flags.
+	 * @param alignment alignment of the messages, <code>1</code> if not aligned.
+	 * @param allowSegmented segmented messages allowed flag.
+	 * @return segmented message in progress flag.
+	 * @throws IllegalArgumentException if messages are not valid.
+	 */
+	public static final boolean validateEncoded(ByteBuffer buffer, boolean segmented, int flags, int alignment, boolean allowSegmented) {
+		final int limit = buffer.limit();
+		final boolean reverseBytes = (buffer.order() == ByteOrder.BIG_ENDIAN) != ((flags & 0x80) != 0);
+		int pos = buffer.position();
+		while (pos < limit)
+		{
+			if (limit - pos < PVAConstants.PVA_MESSAGE_HEADER_SIZE)
+				throw new IllegalArgumentException("incomplete message header at position " + pos);
+			if (buffer.get(pos) != PVAConstants.PVA_MAGIC)
+				throw new IllegalArgumentException("invalid magic code at position " + pos);
+
+			final int messageFlags = buffer.get(pos + 2);
+			if ((messageFlags & 0xC0) != flags)
+				throw new IllegalArgumentException("byte order or client/server flag mismatch at position " + pos);
+
+			int end = pos + PVAConstants.PVA_MESSAGE_HEADER_SIZE;
+			if ((messageFlags & 0x01) == 0)
+			{
+				final boolean notFirstSegment = (messageFlags & 0x20) != 0;
+				final boolean notLastSegment = (messageFlags & 0x10) != 0;
+				if (!allowSegmented && (notFirstSegment || notLastSegment))
+					throw new IllegalArgumentException("segmented message not allowed at position " + pos);
+				if (notFirstSegment != segmented)
+					throw new IllegalArgumentException("invalid segmented message sequence at position " + pos);
+				segmented = notLastSegment;
+
+				int size = buffer.getInt(pos + 4);
+				if (reverseBytes)
+					size = Integer.reverseBytes(size);
+				if (size < 0 || size > limit - end)
+					throw new IllegalArgumentException("incomplete message payload at position " + pos);
+				end += size;
+			}
+
+			// next message must start aligned, missing padding of the last message is added
+			pos = alignedValue(end, alignment);
+			if (pos > limit && end != limit)
+				throw new IllegalArgumentException("incomplete message padding at position " + end);
+		}
+		return segmented;
+	}
+
+	/**
+	 * Send the content of the send buffer (at index 0) followed by given buffers.
+	 * @param buffers buffers to send, first element is reserved for the send buffer.
+	 */
+	private final void sendGathered(ByteBuffer[] buffers) {
+		sendBuffer.flip();
+		buffers[0] = sendBuffer;
+
+		try {
+			send(buffers);
+		} catch (IOException e) {
+			try {
+				if (isOpen())
+					close();
+			} catch (IOException iex) {
+				// noop, best-effort close
+			}
+			throw new ConnectionClosedException("Failed to send buffer.", e);
+		}
+
+		sendBuffer.clear();
+
+		lastMessageStartPosition = -1;
+	}
+
 	public enum WriteMode { PROCESS_SEND_QUEUE, WAIT_FOR_READY_SIGNAL };
 	protected WriteMode writeMode = WriteMode.PROCESS_SEND_QUEUE;
 	protected boolean writeOpReady = false;
@@ -815,6 +1038,92 @@ public abstract class AbstractCodec
         }
 	}
 	
+	/**
+	 * Send buffers through the transport using gathering writes.
+	 * NOTE: TCP sent buffer/sending has to be synchronized (not done by this method).
+	 * @param buffers	buffers to be sent
+	 * @throws IOException IO exception rethrown. 
+	 */
+	protected void send(ByteBuffer[] buffers) throws IOException
+	{
+		// see send(ByteBuffer) for the limit
+		final int maxBytesToSend = Math.min(socketSendBufferSize, remoteTransportSocketReceiveBufferSize) / 2;
+
+		int first = 0;
+		int tries = 0;
+		while (first < buffers.length)
+		{
+			final ByteBuffer head = buffers[first];
+			if (!head.hasRemaining())
+			{
+				first++;
+				continue;
+			}
+
+			// gather as many buffers as allowed to be sent at once (at least one, limited if needed)
+			int last = first;
+			long bytesToSend = head.remaining();
+			while (last + 1 < buffers.length && bytesToSend + buffers[last + 1].remaining() <= maxBytesToSend)
+				bytesToSend += buffers[++last].remaining();
+
+			final int headLimit = head.limit();
+			if (bytesToSend > maxBytesToSend)
+				head.limit(head.position() + maxBytesToSend);
+
+			final long bytesSent;
+			try {
+				bytesSent = this.write(buffers, first, last - first + 1);
+			} finally {
+				head.limit(headLimit);
+			}
+
+			if (bytesSent < 0)
+			{
+				// connection lost
+				close();
+				throw new ConnectionClosedException("bytesSent < 0");
+			}
+			else if (bytesSent == 0)
+			{
+				sendBufferFull(tries++);
+				continue;
+			}
+			totalBytesSent += bytesSent;
+			tries = 0;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.nio.channels.GatheringByteChannel#write(java.nio.ByteBuffer[], int, int)
+	 */
+	@Override
+	public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+		// default implementation, overridden by channels supporting gathering writes
+		long bytesSent = 0;
+		for (int i = offset; i < offset + length; i++)
+		{
+			final ByteBuffer src = srcs[i];
+			if (!src.hasRemaining())
+				continue;
+
+			final int sent = this.write(src);
+			if (sent < 0)
+				return (bytesSent > 0) ? bytesSent : -1;
+			bytesSent += sent;
+			if (src.hasRemaining())
+				break;
+		}
+		return bytesSent;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.nio.channels.GatheringByteChannel#write(java.nio.ByteBuffer[])
+	 */
+	@Override
+	public final long write(ByteBuffer[] srcs) throws IOException {
+		return write(srcs, 0, srcs.length);
+	}
+
 	/*
 	// sendBufferFull for non-blocking
 				writeOpReady = false;
@@ -877,7 +1186,9 @@ public abstract class AbstractCodec
 	}
 
 	public final void enqueueSendRequest(TransportSender sender) {
-		sendQueue.put(sender);
+		final SendLane lane = (sender instanceof PrioritizedTransportSender) ?
+				((PrioritizedTransportSender)sender).getSendLane() : SendLane.CONTROL;
+		sendQueue.put(sender, lane.ordinal());
 		scheduleSend();
 	}
 	
@@ -39,6 +39,11 @@ public abstract class BlockingSocketAbstractCodec extends BlockingAbstractCodec
 	public int write(ByteBuffer src) throws IOException {
 		return channel.write(src);
 	}
+
+	@Override
+	public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+		return channel.write(srcs, offset, length);
+	}
 	
 	@Override
 	protected void internalDestroy() {
@@ -53,6 +53,11 @@ public abstract class NonBlockingSocketAbstractCodec extends NonBlockingAbstract
 		return channel.write(src);
 	}
 
+	@Override
+	public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+		return channel.write(srcs, offset, length);
+	}
+
 	@Override
 	protected void internalDestroy() {
 		if (channel.isOpen())
@@ -290,8 +290,40 @@ public abstract class BlockingTCPTransport extends BlockingSocketAbstractCodec i
 	protected boolean verified = false;
 	private Object verifiedMonitor = new Object();
 	
+	/**
+	 * Verification listener, notified once the transport is verified (or fails to be).
+	 */
+	public interface VerificationListener {
+		/**
+		 * Called once the verification completes, from the receive thread of the transport.
+		 * Must not block.
+		 * @param transport the transport.
+		 * @param verified <code>true</code> if the transport was verified.
+		 */
+		void transportVerified(Transport transport, boolean verified);
+	}
+	
+	private VerificationListener verificationListener = null;
+	
+	/**
+	 * Set a listener to be notified once the transport is verified, without waiting for it (as <code>verify</code> does).
+	 * If the verification has already completed, the listener is notified immediately.
+	 * @param listener the listener.
+	 */
+	public void setVerificationListener(VerificationListener listener) {
+		synchronized (verifiedMonitor) {
+			if (!verifiedCalled)
+			{
+				verificationListener = listener;
+				return;
+			}
+		}
+		listener.transportVerified(this, verified);
+	}
+	
 	@Override
 	public void verified(Status status) {
+		VerificationListener listener;
 		synchronized (verifiedMonitor) {
 			
 			if (!status.isOK())
@@ -306,7 +338,13 @@ public abstract class BlockingTCPTransport extends BlockingSocketAbstractCodec i
 			verifiedCalled = true;
 			verified = status.isSuccess();
 			verifiedMonitor.notifyAll();
+			
+			listener = verificationListener;
+			verificationListener = null;
 		}
+		
+		if (listener != null)
+			listener.transportVerified(this, status.isSuccess());
 	}
 	
 	/* (non-Javadoc)
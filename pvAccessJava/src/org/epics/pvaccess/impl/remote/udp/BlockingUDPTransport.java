@@ -40,6 +40,7 @@ import org.epics.pvaccess.impl.remote.Transport;
 import org.epics.pvaccess.impl.remote.TransportClient;
 import org.epics.pvaccess.impl.remote.TransportSendControl;
 import org.epics.pvaccess.impl.remote.TransportSender;
+import org.epics.pvaccess.impl.remote.codec.AbstractCodec;
 import org.epics.pvaccess.impl.remote.request.ResponseHandler;
 import org.epics.pvaccess.plugins.SecurityPlugin.SecuritySession;
 import org.epics.pvaccess.server.ServerContext;
@@ -113,15 +114,25 @@ public class BlockingUDPTransport implements Transport, TransportSendControl {
 	protected volatile boolean closed = false;
 
 	/**
-     * Last message start position.
+     * Last message start position, <code>-1</code> if no message is started.
      */
-    private int lastMessageStartPosition = 0;
+    private int lastMessageStartPosition = -1;
 
     /**
      * Client/server flag (including big endian flag).
      */
     private final int clientServerWithBigEndianFlag;
     
+    /**
+     * Dispatcher to the handler threads, <code>null</code> if datagrams are handled by the receive thread.
+     */
+    private volatile UDPReceiveDispatcher dispatcher = null;
+    
+    /**
+     * Buffer being handled by a handler thread.
+     */
+    private final ThreadLocal<ByteBuffer> handledBuffer = new ThreadLocal<ByteBuffer>();
+    
 	public BlockingUDPTransport(Context context, ResponseHandler responseHandler, DatagramChannel channel,
 							  InetSocketAddress bindAddress, InetSocketAddress[] sendAddresses, 
 							  short remoteTransportRevision) {
@@ -150,6 +161,28 @@ public class BlockingUDPTransport implements Transport, TransportSendControl {
 	 * Start processing requests.
 	 */
 	public void start() {
+		start(0);
+	}
+	
+	/**
+	 * Start processing requests.
+	 * @param handlerThreads number of threads handling the received datagrams,
+	 * 			0 to handle them in the receive thread.
+	 */
+	public void start(int handlerThreads) {
+		if (handlerThreads > 0)
+		{
+			dispatcher = new UDPReceiveDispatcher("UDP-handler " + socketAddress, handlerThreads,
+					UDPReceiveDispatcher.DEFAULT_BUFFER_COUNT,
+					new UDPReceiveDispatcher.DatagramHandler() {
+						@Override
+						public void handleDatagram(InetSocketAddress fromAddress, ByteBuffer buffer) {
+							handledBuffer.set(buffer);
+							processBuffer(fromAddress, buffer);
+						}
+					}, context.getLogger());
+		}
+		
 		new Thread(new Runnable() {
 
 			@Override
@@ -175,6 +208,9 @@ public class BlockingUDPTransport implements Transport, TransportSendControl {
 			return;
 		closed = true;
 
+		if (dispatcher != null)
+			dispatcher.shutdown();
+		
 		if (bindAddress != null)
 			context.getLogger().finer("UDP connection to " + bindAddress + " closed.");
 		//context.getReactor().unregisterAndClose(channel);
@@ -259,8 +295,15 @@ public class BlockingUDPTransport implements Transport, TransportSendControl {
 				// prepare buffer for reading
 				receiveBuffer.flip();
 
-				// process
-				processBuffer(fromAddress, receiveBuffer);
+				// process, or hand over to the handler threads
+				final UDPReceiveDispatcher dispatcher = this.dispatcher;
+				if (dispatcher != null)
+				{
+					if (!dispatcher.dispatch(fromAddress, receiveBuffer))
+						break;
+				}
+				else
+					processBuffer(fromAddress, receiveBuffer);
  			}
 			
 		} catch (AsynchronousCloseException ace) {
@@ -280,6 +323,8 @@ public class BlockingUDPTransport implements Transport, TransportSendControl {
 		} catch (IOException ioex) {
 			// TODO what to do here
 			ioex.printStackTrace();
+		} catch (InterruptedException ie) {
+			// noop, closed
 		}
 	}
 
@@ -610,6 +655,7 @@ public class BlockingUDPTransport implements Transport, TransportSendControl {
 		synchronized (this) {
 			sendTo = null;
 	    	sendBuffer.clear();
+	    	lastMessageStartPosition = -1;
 			sender.lock();
 			try
 			{
@@ -685,9 +731,66 @@ public class BlockingUDPTransport implements Transport, TransportSendControl {
 	public final void endMessage() {
 		//we always (for now) send by packet, so no need for this here...
 		//alignBuffer(PVAConstants.PVA_ALIGNMENT);
+		if (lastMessageStartPosition < 0)
+			return;
 		sendBuffer.putInt(lastMessageStartPosition + (Short.SIZE/Byte.SIZE + 2), sendBuffer.position() - lastMessageStartPosition - PVAConstants.PVA_MESSAGE_HEADER_SIZE); 
 	}
 
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.TransportSendControl#sendPayload(byte, java.nio.ByteBuffer)
+	 */
+	@Override
+	public void sendPayload(byte command, ByteBuffer payload) {
+		// datagram is sent as a whole, copy
+		startMessage(command, payload.remaining());
+		sendBuffer.put(payload.duplicate());
+		endMessage();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.TransportSendControl#sendEncoded(java.nio.ByteBuffer[])
+	 */
+	@Override
+	public void sendEncoded(ByteBuffer[] messages) {
+		// validate first, nothing is copied if messages are not valid
+		// (messages within a datagram are not aligned and not segmented)
+		int totalSize = 0;
+		for (ByteBuffer message : messages)
+		{
+			AbstractCodec.validateEncoded(message, false, clientServerWithBigEndianFlag, 1, false);
+			totalSize += message.remaining();
+		}
+		if (totalSize > sendBuffer.remaining())
+			throw new IllegalArgumentException("messages (" + totalSize + " bytes) do not fit into the datagram (" + sendBuffer.remaining() + " bytes)");
+
+		// a message started by the sender is ended first
+		endMessage();
+		lastMessageStartPosition = -1;
+
+		// datagram is sent as a whole, copy
+		for (ByteBuffer message : messages)
+			sendBuffer.put(message.duplicate());
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.TransportSendControl#endMessage(java.nio.ByteBuffer)
+	 */
+	@Override
+	public void endMessage(ByteBuffer payload) {
+		// datagram is sent as a whole, copy
+		sendBuffer.put(payload.duplicate());
+		endMessage();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.Transport#readRemainingPayload()
+	 */
+	@Override
+	public ByteBuffer readRemainingPayload() {
+		// message boundaries are not tracked by the datagram handler
+		throw new UnsupportedOperationException("not supported by UDP transport");
+	}
+
 	/* (non-Javadoc)
 	 * @see org.epics.pvaccess.impl.remote.TransportSendControl#setRecipient(java.net.InetSocketAddress)
 	 */
@@ -701,7 +804,7 @@ public class BlockingUDPTransport implements Transport, TransportSendControl {
 	 */
 	@Override
 	public void ensureData(int size) {
-		if (receiveBuffer.remaining() < size)
+		if (getHandledBuffer().remaining() < size)
 			throw new BufferUnderflowException();
 	}
 
@@ -731,10 +834,22 @@ public class BlockingUDPTransport implements Transport, TransportSendControl {
 	 */
 	@Override
 	public void alignData(int alignment) {
+		final ByteBuffer buffer = getHandledBuffer();
 		final int k = (alignment - 1);
-		final int pos = receiveBuffer.position();
+		final int pos = buffer.position();
 		int newpos = (pos + k) & (~k);
-		receiveBuffer.position(newpos);
+		buffer.position(newpos);
+	}
+
+	/**
+	 * Get the buffer being handled by the calling thread.
+	 * @return the buffer being handled.
+	 */
+	private ByteBuffer getHandledBuffer() {
+		if (dispatcher == null)
+			return receiveBuffer;
+		final ByteBuffer buffer = handledBuffer.get();
+		return (buffer != null) ? buffer : receiveBuffer;
 	}
 
 	/* (non-Javadoc)
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.impl.remote.udp;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hands received datagrams over to a pool of handler threads.
+ * <p>
+ * The receiving thread only copies each datagram into a pooled buffer and queues it,
+ * so that it can go back to the socket immediately. Datagrams from the same source
+ * (address and port) are always handled by the same thread, in the order received.
+ * Handler threads process all the datagrams queued to them per wakeup.
+ * When all the pooled buffers are in use, the receiving thread waits for one to be released.
+ * @version $Id$
+ */
+public class UDPReceiveDispatcher {
+
+	/**
+	 * Datagram handler.
+	 */
+	public interface DatagramHandler {
+		/**
+		 * Handle a datagram, called by one of the handler threads.
+		 * @param fromAddress source address.
+		 * @param buffer datagram data, to be read only during this call.
+		 */
+		void handleDatagram(InetSocketAddress fromAddress, ByteBuffer buffer);
+	}
+
+	/**
+	 * Default number of pooled buffers.
+	 */
+	public static final int DEFAULT_BUFFER_COUNT = 1024;
+
+	/**
+	 * Size of a pooled buffer, larger datagrams get a buffer of their own.
+	 */
+	private static final int POOLED_BUFFER_SIZE = 2048;
+
+	private static final class Datagram {
+		InetSocketAddress fromAddress;
+		final ByteBuffer buffer;
+		final boolean pooled;
+
+		Datagram(int size, boolean pooled) {
+			this.buffer = ByteBuffer.allocate(size);
+			this.pooled = pooled;
+		}
+	}
+
+	private final DatagramHandler handler;
+	private final Logger logger;
+	private final int bufferCount;
+
+	// buffers are allocated on demand, up to bufferCount
+	private final ArrayBlockingQueue<Datagram> freeDatagrams;
+	private final AtomicInteger allocated = new AtomicInteger(0);
+
+	private final Worker[] workers;
+	private volatile boolean shutdown = false;
+
+	/**
+	 * Create and start the handler threads.
+	 * @param name name of the threads.
+	 * @param threads number of handler threads.
+	 * @param bufferCount number of pooled buffers.
+	 * @param handler datagram handler.
+	 * @param logger logger used to report handler failures.
+	 */
+	public UDPReceiveDispatcher(String name, int threads, int bufferCount, DatagramHandler handler, Logger logger)
+	{
+		if (threads <= 0)
+			throw new IllegalArgumentException("threads <= 0");
+		if (bufferCount <= 0)
+			throw new IllegalArgumentException("bufferCount <= 0");
+
+		this.handler = handler;
+		this.logger = logger;
+		this.bufferCount = bufferCount;
+		this.freeDatagrams = new ArrayBlockingQueue<Datagram>(bufferCount);
+
+		workers = new Worker[threads];
+		for (int i = 0; i < threads; i++)
+		{
+			workers[i] = new Worker();
+			Thread thread = new Thread(workers[i], name + " #" + i);
+			thread.setDaemon(true);
+			workers[i].thread = thread;
+			thread.start();
+		}
+	}
+
+	/**
+	 * Queue a datagram, called by the receiving thread.
+	 * @param fromAddress source address.
+	 * @param data datagram data, from its position to its limit; the data is copied.
+	 * @return <code>false</code> if the dispatcher was shut down.
+	 * @throws InterruptedException if interrupted while waiting for a free buffer.
+	 */
+	public boolean dispatch(InetSocketAddress fromAddress, ByteBuffer data) throws InterruptedException
+	{
+		Datagram datagram;
+		if (data.remaining() > POOLED_BUFFER_SIZE)
+			datagram = new Datagram(data.remaining(), false);
+		else
+		{
+			datagram = freeDatagrams.poll();
+			if (datagram == null)
+			{
+				if (allocated.incrementAndGet() <= bufferCount)
+					datagram = new Datagram(POOLED_BUFFER_SIZE, true);
+				else
+				{
+					allocated.decrementAndGet();
+					while (datagram == null)
+					{
+						if (shutdown)
+							return false;
+						datagram = freeDatagrams.poll(100, TimeUnit.MILLISECONDS);
+					}
+				}
+			}
+		}
+
+		if (shutdown)
+			return false;
+
+		datagram.fromAddress = fromAddress;
+		datagram.buffer.clear();
+		datagram.buffer.put(data);
+		datagram.buffer.flip();
+
+		workers[(fromAddress.hashCode() & 0x7FFFFFFF) % workers.length].queue.add(datagram);
+		return true;
+	}
+
+	/**
+	 * Stop the handler threads, queued datagrams are discarded.
+	 */
+	public void shutdown()
+	{
+		shutdown = true;
+		for (Worker worker : workers)
+			worker.thread.interrupt();
+	}
+
+	private void release(Datagram datagram)
+	{
+		datagram.fromAddress = null;
+		if (datagram.pooled)
+			freeDatagrams.offer(datagram);
+	}
+
+	private class Worker implements Runnable {
+		final LinkedBlockingQueue<Datagram> queue = new LinkedBlockingQueue<Datagram>();
+		Thread thread;
+
+		@Override
+		public void run() {
+			final ArrayList<Datagram> batch = new ArrayList<Datagram>();
+			while (!shutdown)
+			{
+				try {
+					batch.add(queue.take());
+				} catch (InterruptedException e) {
+					continue;
+				}
+				queue.drainTo(batch);
+
+				for (Datagram datagram : batch)
+				{
+					try {
+						handler.handleDatagram(datagram.fromAddress, datagram.buffer);
+					} catch (Throwable th) {
+						logger.log(Level.FINE, "Uncaught exception caught.", th);
+					} finally {
+						release(datagram);
+					}
+				}
+				batch.clear();
+			}
+		}
+	}
+}
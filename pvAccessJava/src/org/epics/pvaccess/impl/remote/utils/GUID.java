@@ -25,6 +25,10 @@ public class GUID {
 		this.guid = guid;
 	}
 
+	public byte[] getBytes() {
+		return guid;
+	}
+
 	@Override
 	public int hashCode() {
 		return Arrays.hashCode(guid);
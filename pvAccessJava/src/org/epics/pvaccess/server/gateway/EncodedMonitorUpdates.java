@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.server.gateway;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.pv.DeserializableControl;
+import org.epics.pvdata.pv.Field;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.SerializableControl;
+
+/**
+ * Encoded monitor update utilities.
+ * An encoded update is a changed bit set, data and overrun bit set as serialized by pvAccess,
+ * data must not contain unions (their introspection data is cached per connection).
+ * @version $Id$
+ */
+public final class EncodedMonitorUpdates {
+
+	/**
+	 * Size of the serialization chunk buffer.
+	 */
+	private static final int CHUNK_SIZE = 16*1024;
+
+	private EncodedMonitorUpdates() {
+		// utility class
+	}
+
+	/**
+	 * Serialization control of the whole (encoded) update kept in memory.
+	 */
+	private static final class BufferControl implements SerializableControl, DeserializableControl {
+
+		/**
+		 * Serialized data, <code>null</code> if used for deserialization.
+		 */
+		private ByteBuffer out;
+
+		/**
+		 * Data being deserialized, <code>null</code> if used for serialization.
+		 */
+		private ByteBuffer in;
+
+		/**
+		 * Chunk buffer serialization is done to.
+		 */
+		private ByteBuffer chunk;
+
+		@Override
+		public void ensureBuffer(int size) {
+			if (chunk.remaining() < size)
+				flushSerializeBuffer();
+		}
+
+		@Override
+		public void flushSerializeBuffer() {
+			chunk.flip();
+			if (out.remaining() < chunk.remaining())
+			{
+				ByteBuffer newOut = ByteBuffer.allocate(Math.max(2*out.capacity(), out.position() + chunk.remaining()));
+				out.flip();
+				newOut.put(out);
+				out = newOut;
+			}
+			out.put(chunk);
+			chunk.clear();
+		}
+
+		@Override
+		public void alignBuffer(int alignment) {
+			// no alignment
+		}
+
+		@Override
+		public void cachedSerialize(Field field, ByteBuffer buffer) {
+			throw new UnsupportedOperationException("introspection data cannot be encoded");
+		}
+
+		@Override
+		public void ensureData(int size) {
+			// the whole update is in the buffer
+			if (in.remaining() < size)
+				throw new BufferUnderflowException();
+		}
+
+		@Override
+		public void alignData(int alignment) {
+			// no alignment
+		}
+
+		@Override
+		public Field cachedDeserialize(ByteBuffer buffer) {
+			throw new UnsupportedOperationException("introspection data cannot be decoded");
+		}
+	}
+
+	/**
+	 * Check if the update contains the complete structure, i.e. the first bit of the changed bit set is set.
+	 * @param update encoded update (not modified).
+	 * @return <code>true</code> if the update contains the complete structure.
+	 */
+	public static boolean isComplete(ByteBuffer update)
+	{
+		final ByteBuffer buffer = update.duplicate().order(update.order());
+		final BufferControl control = new BufferControl();
+		control.in = buffer;
+		final BitSet changedBitSet = new BitSet();
+		changedBitSet.deserialize(buffer, control);
+		return changedBitSet.get(0);
+	}
+
+	/**
+	 * Decode (apply) the update.
+	 * @param update encoded update (not modified).
+	 * @param pvStructure structure the changed fields are decoded to.
+	 * @param changedBitSet changed bit set to be set.
+	 * @param overrunBitSet overrun bit set to be set.
+	 */
+	public static void decode(ByteBuffer update, PVStructure pvStructure, BitSet changedBitSet, BitSet overrunBitSet)
+	{
+		final ByteBuffer buffer = update.duplicate().order(update.order());
+		final BufferControl control = new BufferControl();
+		control.in = buffer;
+		changedBitSet.deserialize(buffer, control);
+		pvStructure.deserialize(buffer, control, changedBitSet);
+		overrunBitSet.deserialize(buffer, control);
+	}
+
+	/**
+	 * Encode the update.
+	 * @param pvStructure structure.
+	 * @param changedBitSet changed fields to encode.
+	 * @param overrunBitSet overrun bit set.
+	 * @param byteOrder byte order of the encoded update.
+	 * @return encoded update.
+	 */
+	public static ByteBuffer encode(PVStructure pvStructure, BitSet changedBitSet, BitSet overrunBitSet, ByteOrder byteOrder)
+	{
+		final BufferControl control = new BufferControl();
+		control.out = ByteBuffer.allocate(CHUNK_SIZE);
+		control.chunk = ByteBuffer.allocate(CHUNK_SIZE).order(byteOrder);
+
+		final ByteBuffer buffer = control.chunk;
+		changedBitSet.serialize(buffer, control);
+		pvStructure.serialize(buffer, control, changedBitSet);
+		overrunBitSet.serialize(buffer, control);
+		control.flushSerializeBuffer();
+
+		final ByteBuffer update = control.out;
+		update.flip();
+		return update.order(byteOrder);
+	}
+
+	/**
+	 * Convert the update to another byte order.
+	 * @param update encoded update (not modified).
+	 * @param pvStructure structure used for conversion.
+	 * @param byteOrder byte order of the converted update.
+	 * @return converted update, <code>update</code> itself if it is already in given byte order.
+	 */
+	public static ByteBuffer convert(ByteBuffer update, PVStructure pvStructure, ByteOrder byteOrder)
+	{
+		if (update.order() == byteOrder)
+			return update;
+
+		final BitSet changedBitSet = new BitSet(pvStructure.getNumberFields());
+		final BitSet overrunBitSet = new BitSet(pvStructure.getNumberFields());
+		decode(update, pvStructure, changedBitSet, overrunBitSet);
+		return encode(pvStructure, changedBitSet, overrunBitSet, byteOrder);
+	}
+}
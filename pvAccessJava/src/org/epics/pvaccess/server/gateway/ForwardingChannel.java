@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.server.gateway;
+
+import org.epics.pvaccess.client.AccessRights;
+import org.epics.pvaccess.client.Channel;
+import org.epics.pvaccess.client.ChannelArray;
+import org.epics.pvaccess.client.ChannelArrayRequester;
+import org.epics.pvaccess.client.ChannelGet;
+import org.epics.pvaccess.client.ChannelGetRequester;
+import org.epics.pvaccess.client.ChannelProcess;
+import org.epics.pvaccess.client.ChannelProcessRequester;
+import org.epics.pvaccess.client.ChannelProvider;
+import org.epics.pvaccess.client.ChannelPut;
+import org.epics.pvaccess.client.ChannelPutGet;
+import org.epics.pvaccess.client.ChannelPutGetRequester;
+import org.epics.pvaccess.client.ChannelPutRequester;
+import org.epics.pvaccess.client.ChannelRPC;
+import org.epics.pvaccess.client.ChannelRPCRequester;
+import org.epics.pvaccess.client.ChannelRequester;
+import org.epics.pvaccess.client.GetFieldRequester;
+import org.epics.pvdata.monitor.Monitor;
+import org.epics.pvdata.monitor.MonitorRequester;
+import org.epics.pvdata.pv.MessageType;
+import org.epics.pvdata.pv.PVField;
+import org.epics.pvdata.pv.PVStructure;
+
+/**
+ * Downstream channel of the forwarding channel provider.
+ * Requests are created on the (shared) upstream channel, monitors share the upstream monitors.
+ * @version $Id$
+ */
+class ForwardingChannel implements Channel {
+
+	private final ForwardingChannelProvider provider;
+	private final ForwardingChannelProvider.UpstreamChannel upstream;
+	private final ChannelRequester channelRequester;
+	private volatile boolean destroyed = false;
+
+	/**
+	 * Constructor.
+	 * @param provider provider.
+	 * @param upstream upstream channel.
+	 * @param channelRequester downstream requester.
+	 */
+	ForwardingChannel(ForwardingChannelProvider provider, ForwardingChannelProvider.UpstreamChannel upstream, ChannelRequester channelRequester)
+	{
+		this.provider = provider;
+		this.upstream = upstream;
+		this.channelRequester = channelRequester;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.pv.Requester#getRequesterName()
+	 */
+	@Override
+	public String getRequesterName() {
+		return channelRequester.getRequesterName();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.pv.Requester#message(java.lang.String, org.epics.pvdata.pv.MessageType)
+	 */
+	@Override
+	public void message(String message, MessageType messageType) {
+		channelRequester.message(message, messageType);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.Channel#getProvider()
+	 */
+	@Override
+	public ChannelProvider getProvider() {
+		return provider;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.Channel#getRemoteAddress()
+	 */
+	@Override
+	public String getRemoteAddress() {
+		return upstream.getChannel().getRemoteAddress();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.Channel#getConnectionState()
+	 */
+	@Override
+	public ConnectionState getConnectionState() {
+		return destroyed ? ConnectionState.DESTROYED : upstream.getChannel().getConnectionState();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.Channel#destroy()
+	 */
+	@Override
+	public void destroy() {
+		if (destroyed)
+			return;
+		destroyed = true;
+
+		// upstream channel is kept by the provider
+		upstream.removeChannel(this);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.Channel#getChannelName()
+	 */
+	@Override
+	public String getChannelName() {
+		return upstream.getChannel().getChannelName();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.Channel#getChannelRequester()
+	 */
+	@Override
+	public ChannelRequester getChannelRequester() {
+		return channelRequester;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.Channel#isConnected()
+	 */
+	@Override
+	public boolean isConnected() {
+		return getConnectionState() == ConnectionState.CONNECTED;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.Channel#getField(org.epics.pvaccess.client.GetFieldRequester, java.lang.String)
+	 */
+	@Override
+	public void getField(GetFieldRequester requester, String subField) {
+		upstream.getChannel().getField(requester, subField);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.Channel#getAccessRights(org.epics.pvdata.pv.PVField)
+	 */
+	@Override
+	public AccessRights getAccessRights(PVField pvField) {
+		return upstream.getChannel().getAccessRights(pvField);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.Channel#createChannelProcess(org.epics.pvaccess.client.ChannelProcessRequester, org.epics.pvdata.pv.PVStructure)
+	 */
+	@Override
+	public ChannelProcess createChannelProcess(ChannelProcessRequester channelProcessRequester, PVStructure pvRequest) {
+		return upstream.getChannel().createChannelProcess(channelProcessRequester, pvRequest);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.Channel#createChannelGet(org.epics.pvaccess.client.ChannelGetRequester, org.epics.pvdata.pv.PVStructure)
+	 */
+	@Override
+	public ChannelGet createChannelGet(ChannelGetRequester channelGetRequester, PVStructure pvRequest) {
+		return upstream.getChannel().createChannelGet(channelGetRequester, pvRequest);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.Channel#createChannelPut(org.epics.pvaccess.client.ChannelPutRequester, org.epics.pvdata.pv.PVStructure)
+	 */
+	@Override
+	public ChannelPut createChannelPut(ChannelPutRequester channelPutRequester, PVStructure pvRequest) {
+		return upstream.getChannel().createChannelPut(channelPutRequester, pvRequest);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.Channel#createChannelPutGet(org.epics.pvaccess.client.ChannelPutGetRequester, org.epics.pvdata.pv.PVStructure)
+	 */
+	@Override
+	public ChannelPutGet createChannelPutGet(ChannelPutGetRequester channelPutGetRequester, PVStructure pvRequest) {
+		return upstream.getChannel().createChannelPutGet(channelPutGetRequester, pvRequest);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.Channel#createChannelRPC(org.epics.pvaccess.client.ChannelRPCRequester, org.epics.pvdata.pv.PVStructure)
+	 */
+	@Override
+	public ChannelRPC createChannelRPC(ChannelRPCRequester channelRPCRequester, PVStructure pvRequest) {
+		return upstream.getChannel().createChannelRPC(channelRPCRequester, pvRequest);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.Channel#createMonitor(org.epics.pvdata.monitor.MonitorRequester, org.epics.pvdata.pv.PVStructure)
+	 */
+	@Override
+	public Monitor createMonitor(MonitorRequester monitorRequester, PVStructure pvRequest) {
+		return upstream.createMonitor(monitorRequester, pvRequest);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.Channel#createChannelArray(org.epics.pvaccess.client.ChannelArrayRequester, org.epics.pvdata.pv.PVStructure)
+	 */
+	@Override
+	public ChannelArray createChannelArray(ChannelArrayRequester channelArrayRequester, PVStructure pvRequest) {
+		return upstream.getChannel().createChannelArray(channelArrayRequester, pvRequest);
+	}
+}
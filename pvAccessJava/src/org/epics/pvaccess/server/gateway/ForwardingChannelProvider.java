@@ -0,0 +1,371 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.server.gateway;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.epics.pvaccess.client.Channel;
+import org.epics.pvaccess.client.Channel.ConnectionState;
+import org.epics.pvaccess.client.ChannelFind;
+import org.epics.pvaccess.client.ChannelFindRequester;
+import org.epics.pvaccess.client.ChannelListRequester;
+import org.epics.pvaccess.client.ChannelProvider;
+import org.epics.pvaccess.client.ChannelRequester;
+import org.epics.pvdata.factory.StatusFactory;
+import org.epics.pvdata.monitor.Monitor;
+import org.epics.pvdata.monitor.MonitorRequester;
+import org.epics.pvdata.pv.MessageType;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.Status;
+import org.epics.pvdata.pv.Status.StatusType;
+import org.epics.pvdata.pv.StatusCreate;
+
+/**
+ * Forwarding (gateway) channel provider, to be installed into a <code>ServerContextImpl</code>.
+ * Channels are forwarded to an upstream (client) channel provider; one upstream channel is shared
+ * by all the downstream clients and one upstream monitor by all the downstream monitors with the same pvRequest.
+ * Monitor updates are passed through encoded, i.e. without deserializing and serializing the data
+ * for every downstream client. Upstream channels are kept until the provider is destroyed.
+ * @version $Id$
+ */
+public class ForwardingChannelProvider implements ChannelProvider {
+
+	public static final String PROVIDER_NAME = "forwarding";
+
+	private static final StatusCreate statusCreate = StatusFactory.getStatusCreate();
+	private static final Status okStatus = statusCreate.getStatusOK();
+	private static final Status channelNotCreatedStatus =
+		statusCreate.createStatus(StatusType.ERROR, "failed to create upstream channel", null);
+
+	/**
+	 * Upstream channel, shared by the downstream channels.
+	 */
+	class UpstreamChannel implements ChannelRequester {
+
+		private volatile Channel channel;
+		private final List<ChannelRequester> pendingRequesters = new ArrayList<ChannelRequester>();
+		private final Set<ForwardingChannel> channels = new HashSet<ForwardingChannel>();
+		private final Map<String, SharedMonitor> monitors = new HashMap<String, SharedMonitor>();
+
+		Channel getChannel()
+		{
+			return channel;
+		}
+
+		/**
+		 * Create downstream channel, creation is completed when the upstream channel connects.
+		 * @param channelRequester downstream requester.
+		 * @return downstream channel.
+		 */
+		ForwardingChannel createChannel(ChannelRequester channelRequester)
+		{
+			final ForwardingChannel forwardingChannel = new ForwardingChannel(ForwardingChannelProvider.this, this, channelRequester);
+			synchronized (this) {
+				channels.add(forwardingChannel);
+				if (!channel.isConnected())
+				{
+					pendingRequesters.add(channelRequester);
+					return forwardingChannel;
+				}
+			}
+			channelRequester.channelCreated(okStatus, forwardingChannel);
+			return forwardingChannel;
+		}
+
+		void removeChannel(ForwardingChannel forwardingChannel)
+		{
+			synchronized (this) {
+				channels.remove(forwardingChannel);
+				pendingRequesters.remove(forwardingChannel.getChannelRequester());
+			}
+		}
+
+		/**
+		 * Create downstream monitor, attached to the shared upstream monitor.
+		 * @param monitorRequester downstream requester.
+		 * @param pvRequest pvRequest.
+		 * @return downstream monitor.
+		 */
+		Monitor createMonitor(MonitorRequester monitorRequester, PVStructure pvRequest)
+		{
+			final String key = pvRequest.toString();
+			while (true)
+			{
+				final SharedMonitor sharedMonitor;
+				synchronized (monitors) {
+					SharedMonitor existing = monitors.get(key);
+					if (existing == null)
+					{
+						existing = new SharedMonitor(this, key, pvRequest);
+						monitors.put(key, existing);
+					}
+					sharedMonitor = existing;
+				}
+
+				final ForwardingMonitor forwardingMonitor = new ForwardingMonitor(sharedMonitor, channel, monitorRequester, pvRequest);
+				if (sharedMonitor.attach(forwardingMonitor))
+					return forwardingMonitor;
+
+				// the last downstream monitor detached in the meantime, retry with a new shared monitor
+				removeMonitor(key, sharedMonitor);
+			}
+		}
+
+		void removeMonitor(String key, SharedMonitor sharedMonitor)
+		{
+			synchronized (monitors) {
+				if (monitors.get(key) == sharedMonitor)
+					monitors.remove(key);
+			}
+		}
+
+		int getMonitorCount()
+		{
+			synchronized (monitors) {
+				return monitors.size();
+			}
+		}
+
+		/* (non-Javadoc)
+		 * @see org.epics.pvaccess.client.ChannelRequester#channelCreated(org.epics.pvdata.pv.Status, org.epics.pvaccess.client.Channel)
+		 */
+		@Override
+		public void channelCreated(Status status, Channel channel) {
+			if (!status.isSuccess())
+				message("Failed to create upstream channel: " + status.getMessage(), MessageType.error);
+		}
+
+		/* (non-Javadoc)
+		 * @see org.epics.pvaccess.client.ChannelRequester#channelStateChange(org.epics.pvaccess.client.Channel, org.epics.pvaccess.client.Channel.ConnectionState)
+		 */
+		@Override
+		public void channelStateChange(Channel c, ConnectionState connectionState) {
+			final List<ChannelRequester> created;
+			final List<ForwardingChannel> notified;
+			synchronized (this) {
+				if (connectionState == ConnectionState.CONNECTED)
+				{
+					created = new ArrayList<ChannelRequester>(pendingRequesters);
+					pendingRequesters.clear();
+				}
+				else
+					created = null;
+				notified = new ArrayList<ForwardingChannel>(channels);
+			}
+
+			for (ForwardingChannel forwardingChannel : notified)
+			{
+				final ChannelRequester channelRequester = forwardingChannel.getChannelRequester();
+				if (created != null && created.contains(channelRequester))
+					channelRequester.channelCreated(okStatus, forwardingChannel);
+				else
+					channelRequester.channelStateChange(forwardingChannel, connectionState);
+			}
+		}
+
+		/* (non-Javadoc)
+		 * @see org.epics.pvdata.pv.Requester#getRequesterName()
+		 */
+		@Override
+		public String getRequesterName() {
+			return ForwardingChannelProvider.this.getClass().getName();
+		}
+
+		/* (non-Javadoc)
+		 * @see org.epics.pvdata.pv.Requester#message(java.lang.String, org.epics.pvdata.pv.MessageType)
+		 */
+		@Override
+		public void message(String message, MessageType messageType) {
+			final List<ForwardingChannel> notified;
+			synchronized (this) {
+				notified = new ArrayList<ForwardingChannel>(channels);
+			}
+
+			for (ForwardingChannel forwardingChannel : notified)
+				forwardingChannel.message(message, messageType);
+		}
+	}
+
+	/**
+	 * Upstream (client) channel provider.
+	 */
+	private final ChannelProvider upstreamProvider;
+
+	/**
+	 * Upstream server address(es), <code>null</code> to search for the channels.
+	 */
+	private final String upstreamAddress;
+
+	private final Map<String, UpstreamChannel> upstreamChannels = new HashMap<String, UpstreamChannel>();
+
+	private boolean destroyed = false;
+
+	/**
+	 * Constructor.
+	 * @param upstreamProvider upstream (client) channel provider.
+	 * @param upstreamAddress upstream server address(es), <code>null</code> to search for the channels.
+	 */
+	public ForwardingChannelProvider(ChannelProvider upstreamProvider, String upstreamAddress)
+	{
+		this.upstreamProvider = upstreamProvider;
+		this.upstreamAddress = upstreamAddress;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.ChannelProvider#getProviderName()
+	 */
+	@Override
+	public String getProviderName() {
+		return PROVIDER_NAME;
+	}
+
+	private final ChannelFind channelFind =
+		new ChannelFind() {
+
+			@Override
+			public ChannelProvider getChannelProvider() {
+				return ForwardingChannelProvider.this;
+			}
+
+			@Override
+			public void cancel() {
+				// noop
+			}
+		};
+
+	/**
+	 * Get (or create) upstream channel.
+	 * @param channelName channel name.
+	 * @return upstream channel, <code>null</code> if destroyed.
+	 */
+	private UpstreamChannel getUpstreamChannel(String channelName)
+	{
+		// created under lock, the others need the channel (upstream callbacks do not need this lock)
+		synchronized (upstreamChannels) {
+			if (destroyed)
+				return null;
+
+			UpstreamChannel upstreamChannel = upstreamChannels.get(channelName);
+			if (upstreamChannel != null)
+				return upstreamChannel;
+
+			upstreamChannel = new UpstreamChannel();
+			final Channel channel = (upstreamAddress == null) ?
+					upstreamProvider.createChannel(channelName, upstreamChannel, ChannelProvider.PRIORITY_DEFAULT) :
+					upstreamProvider.createChannel(channelName, upstreamChannel, ChannelProvider.PRIORITY_DEFAULT, upstreamAddress);
+			if (channel == null)
+				return null;
+
+			upstreamChannel.channel = channel;
+			upstreamChannels.put(channelName, upstreamChannel);
+			return upstreamChannel;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.ChannelProvider#channelFind(java.lang.String, org.epics.pvaccess.client.ChannelFindRequester)
+	 */
+	@Override
+	public ChannelFind channelFind(String channelName,
+			ChannelFindRequester channelFindRequester) {
+		// not found until connected upstream, clients repeat the search
+		final UpstreamChannel upstreamChannel = getUpstreamChannel(channelName);
+		final boolean found = (upstreamChannel != null && upstreamChannel.getChannel().isConnected());
+		channelFindRequester.channelFindResult(okStatus, channelFind, found);
+		return channelFind;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.ChannelProvider#channelList(org.epics.pvaccess.client.ChannelListRequester)
+	 */
+	@Override
+	public ChannelFind channelList(ChannelListRequester channelListRequester) {
+		final Set<String> channelNames = new HashSet<String>();
+		synchronized (upstreamChannels) {
+			for (Map.Entry<String, UpstreamChannel> entry : upstreamChannels.entrySet())
+			{
+				if (entry.getValue().getChannel().isConnected())
+					channelNames.add(entry.getKey());
+			}
+		}
+		channelListRequester.channelListResult(okStatus, channelFind, channelNames, true);
+		return channelFind;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.ChannelProvider#createChannel(java.lang.String, org.epics.pvaccess.client.ChannelRequester, short)
+	 */
+	@Override
+	public Channel createChannel(String channelName,
+			ChannelRequester channelRequester, short priority) {
+		final UpstreamChannel upstreamChannel = getUpstreamChannel(channelName);
+		if (upstreamChannel == null)
+		{
+			channelRequester.channelCreated(channelNotCreatedStatus, null);
+			return null;
+		}
+
+		return upstreamChannel.createChannel(channelRequester);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.ChannelProvider#createChannel(java.lang.String, org.epics.pvaccess.client.ChannelRequester, short, java.lang.String)
+	 */
+	@Override
+	public Channel createChannel(String channelName,
+			ChannelRequester channelRequester, short priority, String address) {
+		// this will never get called by the pvAccess server
+		throw new RuntimeException("not supported");
+	}
+
+	/**
+	 * Get the number of the shared upstream monitors (for diagnostics).
+	 * @param channelName channel name.
+	 * @return number of the shared upstream monitors.
+	 */
+	public int getSharedMonitorCount(String channelName)
+	{
+		final UpstreamChannel upstreamChannel;
+		synchronized (upstreamChannels) {
+			upstreamChannel = upstreamChannels.get(channelName);
+		}
+		return (upstreamChannel != null) ? upstreamChannel.getMonitorCount() : 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.ChannelProvider#destroy()
+	 */
+	@Override
+	public void destroy() {
+		final List<UpstreamChannel> destroyedChannels;
+		synchronized (upstreamChannels) {
+			if (destroyed)
+				return;
+			destroyed = true;
+			destroyedChannels = new ArrayList<UpstreamChannel>(upstreamChannels.values());
+			upstreamChannels.clear();
+		}
+
+		for (UpstreamChannel upstreamChannel : destroyedChannels)
+		{
+			upstreamChannel.getChannel().destroy();
+		}
+	}
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.server.gateway;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+
+import org.epics.pvaccess.PVFactory;
+import org.epics.pvaccess.client.Channel;
+import org.epics.pvaccess.impl.remote.EncodedMonitor;
+import org.epics.pvdata.factory.StatusFactory;
+import org.epics.pvdata.monitor.Monitor;
+import org.epics.pvdata.monitor.MonitorElement;
+import org.epics.pvdata.monitor.MonitorRequester;
+import org.epics.pvdata.pv.MessageType;
+import org.epics.pvdata.pv.PVDataCreate;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.Status;
+import org.epics.pvdata.pv.Structure;
+
+/**
+ * Downstream monitor of a forwarding channel.
+ * Queues the encoded updates of the shared upstream monitor, or delegates to its own upstream monitor
+ * if the updates cannot be passed through.
+ * @version $Id$
+ */
+class ForwardingMonitor implements EncodedMonitor {
+
+	/**
+	 * Maximal number of queued updates, on overrun the queue is replaced by the complete value.
+	 */
+	static final int QUEUE_SIZE = 16;
+
+	private static final Status okStatus = StatusFactory.getStatusCreate().getStatusOK();
+	private static final PVDataCreate pvDataCreate = PVFactory.getPVDataCreate();
+
+	private final SharedMonitor sharedMonitor;
+	private final Channel channel;
+	private final MonitorRequester monitorRequester;
+	private final PVStructure pvRequest;
+
+	private final ArrayDeque<ByteBuffer> queue = new ArrayDeque<ByteBuffer>(QUEUE_SIZE);
+
+	/**
+	 * Own upstream monitor, <code>null</code> if updates are passed through.
+	 */
+	private volatile Monitor delegate = null;
+	private volatile Structure structure = null;
+	private volatile boolean destroyed = false;
+
+	/**
+	 * Started flag, guarded by the shared monitor.
+	 */
+	boolean started = false;
+
+	/**
+	 * Structure used to convert the byte order, accessed only by the sender.
+	 */
+	private PVStructure pvStructure = null;
+
+	/**
+	 * Constructor.
+	 * @param sharedMonitor shared upstream monitor.
+	 * @param channel upstream channel.
+	 * @param monitorRequester downstream requester.
+	 * @param pvRequest pvRequest.
+	 */
+	ForwardingMonitor(SharedMonitor sharedMonitor, Channel channel, MonitorRequester monitorRequester, PVStructure pvRequest)
+	{
+		this.sharedMonitor = sharedMonitor;
+		this.channel = channel;
+		this.monitorRequester = monitorRequester;
+		this.pvRequest = pvRequest;
+	}
+
+	/**
+	 * Shared upstream monitor connected.
+	 * @param status connection status.
+	 * @param structure monitored structure.
+	 * @param passThrough updates are passed through flag.
+	 */
+	void connected(Status status, Structure structure, boolean passThrough)
+	{
+		if (destroyed)
+			return;
+
+		if (!status.isSuccess())
+			monitorRequester.monitorConnect(status, this, null);
+		else if (passThrough)
+		{
+			this.structure = structure;
+			monitorRequester.monitorConnect(status, this, structure);
+		}
+		else
+		{
+			// own upstream monitor, requester is connected directly to it
+			sharedMonitor.detach(this);
+			delegate = channel.createMonitor(monitorRequester, pvRequest);
+		}
+	}
+
+	/**
+	 * Queue an update (called by the shared monitor).
+	 * @param update encoded update.
+	 * @return <code>false</code> on overrun.
+	 */
+	boolean offer(ByteBuffer update)
+	{
+		synchronized (queue) {
+			if (queue.size() >= QUEUE_SIZE)
+				return false;
+			queue.add(update);
+		}
+		monitorRequester.monitorEvent(this);
+		return true;
+	}
+
+	/**
+	 * Replace the queued updates with the complete value (called by the shared monitor).
+	 * @param complete encoded complete value.
+	 */
+	void resync(ByteBuffer complete)
+	{
+		synchronized (queue) {
+			queue.clear();
+			queue.add(complete);
+		}
+		monitorRequester.monitorEvent(this);
+	}
+
+	/**
+	 * Clear the queued updates (called by the shared monitor).
+	 */
+	void clear()
+	{
+		synchronized (queue) {
+			queue.clear();
+		}
+	}
+
+	/**
+	 * Forward unlisten notification.
+	 */
+	void unlisten()
+	{
+		monitorRequester.unlisten(this);
+	}
+
+	/**
+	 * Forward message.
+	 * @param message message.
+	 * @param messageType message type.
+	 */
+	void message(String message, MessageType messageType)
+	{
+		monitorRequester.message(message, messageType);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.EncodedMonitor#pollEncoded(java.nio.ByteOrder)
+	 */
+	@Override
+	public ByteBuffer pollEncoded(ByteOrder byteOrder) {
+		final ByteBuffer update;
+		synchronized (queue) {
+			update = queue.poll();
+		}
+
+		// fallback for the clients with a different byte order
+		if (update == null || update.order() == byteOrder)
+			return update;
+		if (pvStructure == null)
+			pvStructure = pvDataCreate.createPVStructure(structure);
+		return EncodedMonitorUpdates.convert(update, pvStructure, byteOrder);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.monitor.Monitor#poll()
+	 */
+	@Override
+	public MonitorElement poll() {
+		final Monitor monitor = delegate;
+		return (monitor != null) ? monitor.poll() : null;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.monitor.Monitor#release(org.epics.pvdata.monitor.MonitorElement)
+	 */
+	@Override
+	public void release(MonitorElement monitorElement) {
+		final Monitor monitor = delegate;
+		if (monitor != null)
+			monitor.release(monitorElement);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.monitor.Monitor#start()
+	 */
+	@Override
+	public Status start() {
+		final Monitor monitor = delegate;
+		if (monitor != null)
+			return monitor.start();
+
+		sharedMonitor.start(this);
+		return okStatus;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.monitor.Monitor#stop()
+	 */
+	@Override
+	public Status stop() {
+		final Monitor monitor = delegate;
+		if (monitor != null)
+			return monitor.stop();
+
+		sharedMonitor.stop(this);
+		return okStatus;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.misc.Destroyable#destroy()
+	 */
+	@Override
+	public void destroy() {
+		if (destroyed)
+			return;
+		destroyed = true;
+
+		final Monitor monitor = delegate;
+		if (monitor != null)
+			monitor.destroy();
+		else
+			sharedMonitor.detach(this);
+	}
+}
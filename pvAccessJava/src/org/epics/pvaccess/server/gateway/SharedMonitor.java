@@ -0,0 +1,379 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.server.gateway;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.epics.pvaccess.PVFactory;
+import org.epics.pvaccess.client.Channel;
+import org.epics.pvaccess.impl.remote.EncodedMonitorRequester;
+import org.epics.pvaccess.impl.remote.SerializationHelper;
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.monitor.Monitor;
+import org.epics.pvdata.pv.MessageType;
+import org.epics.pvdata.pv.PVDataCreate;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.Status;
+import org.epics.pvdata.pv.Structure;
+
+/**
+ * Upstream monitor shared by all the downstream monitors of a channel with the same pvRequest.
+ * Updates are received encoded and fanned out to the started downstream monitors as they are,
+ * only the complete value for the late (or overrun) downstream monitors is decoded.
+ * Structures containing unions cannot be passed through, the downstream monitors then use their own upstream monitor.
+ * @version $Id$
+ */
+class SharedMonitor implements EncodedMonitorRequester {
+
+	/**
+	 * Maximal number of updates kept before they are applied to the complete value.
+	 */
+	static final int MAX_HISTORY = 32;
+
+	private static final PVDataCreate pvDataCreate = PVFactory.getPVDataCreate();
+
+	private final ForwardingChannelProvider.UpstreamChannel owner;
+	private final String key;
+	private final Channel channel;
+	private final PVStructure pvRequest;
+
+	private final List<ForwardingMonitor> monitors = new ArrayList<ForwardingMonitor>();
+
+	private boolean created = false;
+	private Monitor monitor = null;
+
+	/**
+	 * Set when the last downstream monitor detaches, no monitor can be attached any more.
+	 */
+	private boolean destroyed = false;
+
+	/**
+	 * Connection status, <code>null</code> if not connected yet.
+	 */
+	private Status status = null;
+	private Structure structure = null;
+	private boolean passThrough = true;
+	private int startedCount = 0;
+
+	/**
+	 * Complete value, valid if <code>snapshotValid</code>, the updates in <code>history</code> are not applied yet.
+	 */
+	private PVStructure snapshot = null;
+	private boolean snapshotValid = false;
+	private BitSet changedBitSet;
+	private BitSet overrunBitSet;
+	private final List<ByteBuffer> history = new ArrayList<ByteBuffer>();
+
+	/**
+	 * Encoded complete value, <code>null</code> if not encoded yet.
+	 */
+	private ByteBuffer completeUpdate = null;
+	private ByteOrder byteOrder = ByteOrder.BIG_ENDIAN;
+
+	/**
+	 * Constructor.
+	 * @param owner upstream channel.
+	 * @param key key of the monitor (pvRequest string).
+	 * @param pvRequest pvRequest.
+	 */
+	SharedMonitor(ForwardingChannelProvider.UpstreamChannel owner, String key, PVStructure pvRequest)
+	{
+		this.owner = owner;
+		this.key = key;
+		this.channel = owner.getChannel();
+		this.pvRequest = pvRequest;
+	}
+
+	/**
+	 * Attach a downstream monitor, upstream monitor is created by the first one.
+	 * @param forwardingMonitor downstream monitor.
+	 * @return <code>false</code> if the shared monitor is already destroyed, a new one has to be used.
+	 */
+	boolean attach(ForwardingMonitor forwardingMonitor)
+	{
+		final boolean create;
+		final Status connectStatus;
+		final Structure connectStructure;
+		final boolean connectPassThrough;
+		synchronized (this) {
+			if (destroyed)
+				return false;
+			monitors.add(forwardingMonitor);
+			create = !created;
+			created = true;
+			connectStatus = status;
+			connectStructure = structure;
+			connectPassThrough = passThrough;
+		}
+
+		if (create)
+			channel.createMonitor(this, pvRequest);
+		else if (connectStatus != null)
+			forwardingMonitor.connected(connectStatus, connectStructure, connectPassThrough);
+		return true;
+	}
+
+	/**
+	 * Detach a downstream monitor, upstream monitor is destroyed with the last one.
+	 * @param forwardingMonitor downstream monitor.
+	 */
+	void detach(ForwardingMonitor forwardingMonitor)
+	{
+		stop(forwardingMonitor);
+
+		final Monitor destroyMonitor;
+		synchronized (this) {
+			if (!monitors.remove(forwardingMonitor) || !monitors.isEmpty() || !passThrough)
+				return;
+			destroyed = true;
+			destroyMonitor = monitor;
+			monitor = null;
+		}
+
+		owner.removeMonitor(key, this);
+		if (destroyMonitor != null)
+			destroyMonitor.destroy();
+	}
+
+	/**
+	 * Start a downstream monitor, upstream monitor is started by the first one.
+	 * @param forwardingMonitor downstream monitor.
+	 */
+	void start(ForwardingMonitor forwardingMonitor)
+	{
+		final Monitor startMonitor;
+		synchronized (this) {
+			if (forwardingMonitor.started)
+				return;
+			forwardingMonitor.started = true;
+
+			if (startedCount++ == 0)
+				startMonitor = monitor;
+			else
+			{
+				// late subscriber gets the current value (if any), upstream sends it only once
+				final ByteBuffer complete = getCompleteUpdate();
+				if (complete != null)
+					forwardingMonitor.resync(complete);
+				return;
+			}
+		}
+
+		if (startMonitor != null)
+			startMonitor.start();
+	}
+
+	/**
+	 * Stop a downstream monitor, upstream monitor is stopped by the last one.
+	 * @param forwardingMonitor downstream monitor.
+	 */
+	void stop(ForwardingMonitor forwardingMonitor)
+	{
+		final Monitor stopMonitor;
+		synchronized (this) {
+			if (!forwardingMonitor.started)
+				return;
+			forwardingMonitor.started = false;
+			forwardingMonitor.clear();
+
+			if (--startedCount > 0)
+				return;
+
+			// upstream sends complete value on the next start
+			clearHistory();
+			stopMonitor = monitor;
+		}
+
+		if (stopMonitor != null)
+			stopMonitor.stop();
+	}
+
+	/**
+	 * Get the number of the attached downstream monitors.
+	 * @return number of the attached downstream monitors.
+	 */
+	synchronized int getMonitorCount()
+	{
+		return monitors.size();
+	}
+
+	private void clearHistory()
+	{
+		history.clear();
+		snapshotValid = false;
+		completeUpdate = null;
+	}
+
+	/**
+	 * Apply the updates to the complete value.
+	 */
+	private void fold()
+	{
+		if (history.isEmpty())
+			return;
+
+		if (snapshot == null)
+		{
+			snapshot = pvDataCreate.createPVStructure(structure);
+			changedBitSet = new BitSet(snapshot.getNumberFields());
+			overrunBitSet = new BitSet(snapshot.getNumberFields());
+		}
+
+		// the first update after start (or reconnect) is complete
+		for (ByteBuffer update : history)
+			EncodedMonitorUpdates.decode(update, snapshot, changedBitSet, overrunBitSet);
+		history.clear();
+		snapshotValid = true;
+	}
+
+	/**
+	 * Get the encoded complete value.
+	 * @return encoded complete value, <code>null</code> if there was no update yet.
+	 */
+	private ByteBuffer getCompleteUpdate()
+	{
+		if (completeUpdate == null)
+		{
+			fold();
+			if (!snapshotValid)
+				return null;
+
+			changedBitSet.clear();
+			changedBitSet.set(0);
+			overrunBitSet.clear();
+			completeUpdate = EncodedMonitorUpdates.encode(snapshot, changedBitSet, overrunBitSet, byteOrder);
+		}
+		return completeUpdate;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.EncodedMonitorRequester#monitorEncoded(org.epics.pvdata.monitor.Monitor, java.nio.ByteBuffer)
+	 */
+	@Override
+	public void monitorEncoded(Monitor monitor, ByteBuffer update) {
+		// fan-out under lock, so that the late subscribers get the updates in order
+		synchronized (this) {
+			if (startedCount == 0)
+				return;
+
+			if (EncodedMonitorUpdates.isComplete(update))
+				clearHistory();
+			history.add(update);
+			completeUpdate = null;
+			byteOrder = update.order();
+
+			if (history.size() > MAX_HISTORY)
+				fold();
+
+			for (ForwardingMonitor forwardingMonitor : monitors)
+				if (forwardingMonitor.started && !forwardingMonitor.offer(update))
+				{
+					// overrun, resync the slow subscriber
+					final ByteBuffer complete = getCompleteUpdate();
+					if (complete != null)
+						forwardingMonitor.resync(complete);
+				}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.monitor.MonitorRequester#monitorConnect(org.epics.pvdata.pv.Status, org.epics.pvdata.monitor.Monitor, org.epics.pvdata.pv.Structure)
+	 */
+	@Override
+	public void monitorConnect(Status status, Monitor monitor, Structure structure) {
+		final List<ForwardingMonitor> connected;
+		synchronized (this) {
+			// all the downstream monitors detached before the upstream one was created
+			if (destroyed)
+				connected = null;
+			else
+			{
+				this.monitor = monitor;
+				clearHistory();
+
+				// reconnect, started state is restored by the upstream monitor
+				if (status.isSuccess() && this.structure != null && this.structure.equals(structure))
+					return;
+
+				this.status = status;
+				this.structure = structure;
+				snapshot = null;
+				passThrough = !status.isSuccess() || !SerializationHelper.containsUnion(structure);
+				connected = new ArrayList<ForwardingMonitor>(monitors);
+			}
+		}
+
+		if (connected == null)
+		{
+			if (monitor != null)
+				monitor.destroy();
+			return;
+		}
+
+		for (ForwardingMonitor forwardingMonitor : connected)
+			forwardingMonitor.connected(status, structure, passThrough);
+
+		// not used, the downstream monitors use their own upstream monitors
+		if (!passThrough && monitor != null)
+			monitor.destroy();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.monitor.MonitorRequester#monitorEvent(org.epics.pvdata.monitor.Monitor)
+	 */
+	@Override
+	public void monitorEvent(Monitor monitor) {
+		// noop, updates are delivered encoded
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.monitor.MonitorRequester#unlisten(org.epics.pvdata.monitor.Monitor)
+	 */
+	@Override
+	public void unlisten(Monitor monitor) {
+		final List<ForwardingMonitor> unlistened;
+		synchronized (this) {
+			unlistened = new ArrayList<ForwardingMonitor>(monitors);
+		}
+
+		for (ForwardingMonitor forwardingMonitor : unlistened)
+			forwardingMonitor.unlisten();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.pv.Requester#getRequesterName()
+	 */
+	@Override
+	public String getRequesterName() {
+		return getClass().getName() + "[" + channel.getChannelName() + "]";
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.pv.Requester#message(java.lang.String, org.epics.pvdata.pv.MessageType)
+	 */
+	@Override
+	public void message(String message, MessageType messageType) {
+		final List<ForwardingMonitor> notified;
+		synchronized (this) {
+			notified = new ArrayList<ForwardingMonitor>(monitors);
+		}
+
+		for (ForwardingMonitor forwardingMonitor : notified)
+			forwardingMonitor.message(message, messageType);
+	}
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.server.impl.remote;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import org.epics.pvaccess.ClientFactory;
+import org.epics.pvaccess.client.Channel;
+import org.epics.pvaccess.client.Channel.ConnectionState;
+import org.epics.pvaccess.client.ChannelFind;
+import org.epics.pvaccess.client.ChannelListRequester;
+import org.epics.pvaccess.client.ChannelProvider;
+import org.epics.pvaccess.client.ChannelProviderRegistryFactory;
+import org.epics.pvaccess.client.ChannelRPC;
+import org.epics.pvaccess.client.ChannelRPCRequester;
+import org.epics.pvaccess.client.ChannelRequester;
+import org.epics.pvaccess.server.impl.remote.rpc.NameServerService;
+import org.epics.pvaccess.util.HexDump;
+import org.epics.pvdata.copy.CreateRequest;
+import org.epics.pvdata.misc.Timer.TimerCallback;
+import org.epics.pvdata.misc.Timer.TimerNode;
+import org.epics.pvdata.misc.TimerFactory;
+import org.epics.pvdata.pv.MessageType;
+import org.epics.pvdata.pv.PVStringArray;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.Status;
+
+/**
+ * Registers the (static) channel names of the server with the name server(s) (see <code>NameServerService</code>).
+ * Channel lists of the providers are periodically checked and registered. The registration is a lease,
+ * i.e. it is renewed every period (even if the list has not changed) and expires at the name server
+ * if the server stops renewing it (e.g. it crashed).
+ * @version $Id$
+ */
+public class NameServerRegistrar implements ChannelRequester, ChannelRPCRequester, TimerCallback {
+
+	/**
+	 * Time (in seconds) to wait for the unregistration on destroy.
+	 */
+	private static final long UNREGISTER_TIMEOUT_SEC = 1;
+
+	/**
+	 * Number of periods the registration is valid for, i.e. registration expires after this many missed renewals.
+	 */
+	public static final int LEASE_PERIODS = 4;
+
+	private static final PVStructure pvRequest = CreateRequest.create().createRequest("");
+
+	/**
+	 * Context.
+	 */
+	private final ServerContextImpl context;
+
+	/**
+	 * Name server addresses.
+	 */
+	private final String nameServers;
+
+	/**
+	 * Registered server address, <code>host:port</code>.
+	 */
+	private final String serverAddress;
+
+	/**
+	 * Server GUID, hex encoded.
+	 */
+	private final String guid;
+
+	/**
+	 * Check period (in seconds).
+	 */
+	private final double period;
+
+	private final TimerNode timerNode = TimerFactory.createNode(this);
+
+	private Channel channel = null;
+	private volatile ChannelRPC channelRPC = null;
+
+	/**
+	 * Last collected channel names, <code>null</code> if not collected yet.
+	 */
+	private Set<String> names = null;
+
+	/**
+	 * Registration (renewal) needs to be sent.
+	 */
+	private boolean dirty = true;
+
+	/**
+	 * Registration request pending.
+	 */
+	private boolean pending = false;
+
+	/**
+	 * Destroyed flag.
+	 */
+	private boolean destroyed = false;
+
+	/**
+	 * Unregistration completion.
+	 */
+	private final CountDownLatch unregistered = new CountDownLatch(1);
+
+	/**
+	 * Constructor.
+	 * @param context server context.
+	 * @param nameServers name server addresses.
+	 * @param serverAddress address of this server (as seen by clients).
+	 * @param period period (in seconds) of the channel list check.
+	 */
+	public NameServerRegistrar(ServerContextImpl context, String nameServers, InetSocketAddress serverAddress, double period)
+	{
+		this.context = context;
+		this.nameServers = nameServers;
+		this.serverAddress = serverAddress.getAddress().getHostAddress() + ":" + serverAddress.getPort();
+		this.period = period;
+
+		StringBuilder sb = new StringBuilder(24);
+		for (byte b : context.getGUID())
+			sb.append(HexDump.toHex(b));
+		this.guid = sb.toString();
+	}
+
+	/**
+	 * Start registering.
+	 */
+	public void start()
+	{
+		ClientFactory.start();
+		ChannelProvider provider = ChannelProviderRegistryFactory.getChannelProviderRegistry()
+				.getProvider(ClientFactory.PROVIDER_NAME);
+
+		Channel ch = provider.createChannel(NameServerService.SERVICE_NAME, this, ChannelProvider.PRIORITY_DEFAULT, nameServers);
+		if (ch == null)
+			return;
+
+		synchronized (this) {
+			channel = ch;
+		}
+		ch.createChannelRPC(this, pvRequest);
+
+		context.getTimer().schedulePeriodic(timerNode, 0, period);
+	}
+
+	/**
+	 * Unregister (best effort) and stop registering.
+	 */
+	public void destroy()
+	{
+		final ChannelRPC rpc;
+		final Channel ch;
+		synchronized (this) {
+			if (destroyed)
+				return;
+			destroyed = true;
+			rpc = channelRPC;
+			ch = channel;
+		}
+
+		timerNode.cancel();
+
+		if (rpc != null)
+		{
+			PVStructure args = NameServerService.createRequest(NameServerService.OP_UNREGISTER);
+			args.getStringField("server").put(serverAddress);
+			rpc.request(args);
+			try {
+				unregistered.await(UNREGISTER_TIMEOUT_SEC, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				// noop
+			}
+		}
+
+		if (ch != null)
+			ch.destroy();
+	}
+
+	/**
+	 * Get registered server address.
+	 * @return registered server address, <code>host:port</code>.
+	 */
+	public String getServerAddress()
+	{
+		return serverAddress;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.misc.Timer.TimerCallback#callback()
+	 */
+	@Override
+	public void callback() {
+		// collect channel names of all the providers
+		final List<ChannelProvider> providers = context.getChannelProviders();
+		final Set<String> collected = new TreeSet<String>();
+		final AtomicInteger remaining = new AtomicInteger(providers.size());
+		ChannelListRequester listRequester = new ChannelListRequester() {
+
+			@Override
+			public void channelListResult(Status status, ChannelFind channelFind, Set<String> channelNames, boolean hasDynamic) {
+				synchronized (collected) {
+					if (status.isSuccess() && channelNames != null)
+						collected.addAll(channelNames);
+				}
+				if (remaining.decrementAndGet() == 0)
+					namesCollected(collected);
+			}
+		};
+
+		for (ChannelProvider provider : providers)
+		{
+			try {
+				provider.channelList(listRequester);
+			} catch (Throwable th) {
+				context.getLogger().log(Level.FINE, "Failed to get channel list of provider '" + provider.getProviderName() + "'.", th);
+				if (remaining.decrementAndGet() == 0)
+					namesCollected(collected);
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.misc.Timer.TimerCallback#timerStopped()
+	 */
+	@Override
+	public void timerStopped() {
+		// noop
+	}
+
+	private void namesCollected(Set<String> collected)
+	{
+		synchronized (this) {
+			synchronized (collected) {
+				names = new TreeSet<String>(collected);
+			}
+			// always sent, also renews the lease
+			dirty = true;
+		}
+		register();
+	}
+
+	/**
+	 * Send registration, if needed.
+	 */
+	private void register()
+	{
+		final ChannelRPC rpc;
+		final String[] registeredNames;
+		synchronized (this) {
+			if (destroyed || pending || !dirty || names == null || channelRPC == null)
+				return;
+			pending = true;
+			dirty = false;
+			rpc = channelRPC;
+			registeredNames = names.toArray(new String[names.size()]);
+		}
+
+		PVStructure args = NameServerService.createRequest(NameServerService.OP_REGISTER);
+		args.getStringField("server").put(serverAddress);
+		args.getStringField("guid").put(guid);
+		args.getDoubleField("lease").put(LEASE_PERIODS * period);
+		args.getSubField(PVStringArray.class, "names").put(0, registeredNames.length, registeredNames, 0);
+		rpc.request(args);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.ChannelRPCRequester#channelRPCConnect(org.epics.pvdata.pv.Status, org.epics.pvaccess.client.ChannelRPC)
+	 */
+	@Override
+	public void channelRPCConnect(Status status, ChannelRPC channelRPC) {
+		if (!status.isSuccess())
+		{
+			context.getLogger().log(Level.WARNING, "Failed to connect to name server: " + status.getMessage());
+			return;
+		}
+
+		// (re)connected, register again
+		synchronized (this) {
+			this.channelRPC = channelRPC;
+			dirty = true;
+		}
+		register();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.ChannelRPCRequester#requestDone(org.epics.pvdata.pv.Status, org.epics.pvaccess.client.ChannelRPC, org.epics.pvdata.pv.PVStructure)
+	 */
+	@Override
+	public void requestDone(Status status, ChannelRPC channelRPC, PVStructure pvResponse) {
+		synchronized (this) {
+			pending = false;
+			if (destroyed)
+			{
+				unregistered.countDown();
+				return;
+			}
+
+			if (!status.isSuccess())
+			{
+				context.getLogger().log(Level.WARNING, "Failed to register channels with name server: " + status.getMessage());
+				// retry on next check
+				dirty = true;
+				return;
+			}
+		}
+
+		// names might have changed in the meantime
+		register();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.ChannelRequester#channelCreated(org.epics.pvdata.pv.Status, org.epics.pvaccess.client.Channel)
+	 */
+	@Override
+	public void channelCreated(Status status, Channel channel) {
+		if (!status.isSuccess())
+			context.getLogger().log(Level.SEVERE, "Failed to create name server channel: " + status.getMessage());
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.ChannelRequester#channelStateChange(org.epics.pvaccess.client.Channel, org.epics.pvaccess.client.Channel.ConnectionState)
+	 */
+	@Override
+	public void channelStateChange(Channel channel, ConnectionState connectionState) {
+		if (connectionState != ConnectionState.CONNECTED)
+		{
+			// pending request is silently dropped on disconnect
+			synchronized (this) {
+				pending = false;
+				dirty = true;
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.pv.Requester#getRequesterName()
+	 */
+	@Override
+	public String getRequesterName() {
+		return getClass().getName();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.pv.Requester#message(java.lang.String, org.epics.pvdata.pv.MessageType)
+	 */
+	@Override
+	public void message(String message, MessageType messageType) {
+		context.getLogger().log(Level.FINE, "[" + messageType + "] name server: " + message);
+	}
+}
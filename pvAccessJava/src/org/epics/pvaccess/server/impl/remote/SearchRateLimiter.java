@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2006 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.server.impl.remote;
+
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Per source address token bucket for incoming search requests.
+ * <p>
+ * Each searched channel name costs one token, the buckets refill at a given rate up to a
+ * burst size. Search requests from a source with not enough tokens are suppressed, and counted.
+ * @version $Id$
+ */
+public class SearchRateLimiter {
+
+	/**
+	 * Maximal number of tracked source addresses.
+	 */
+	private static final int MAX_SOURCES = 4096;
+	
+	private static final class Bucket {
+		double tokens;
+		long lastRefill;
+		
+		Bucket(double tokens, long now) {
+			this.tokens = tokens;
+			this.lastRefill = now;
+		}
+		
+		void refill(long now, double rate, double burst) {
+			tokens = Math.min(burst, tokens + (now - lastRefill) * rate / 1e9);
+			lastRefill = now;
+		}
+	}
+	
+	private final double rate;
+	private final double burst;
+	private final Map<InetAddress, Bucket> buckets = new HashMap<InetAddress, Bucket>();
+	
+	private long suppressedSearches = 0;
+	private long suppressedNames = 0;
+	
+	/**
+	 * Create a limiter.
+	 * @param rate channel names per second allowed per source, 0 (or negative) to disable limiting.
+	 * @param burst maximal number of channel names allowed at once.
+	 */
+	public SearchRateLimiter(double rate, double burst)
+	{
+		this.rate = rate;
+		this.burst = Math.max(1, burst);
+	}
+	
+	/**
+	 * Check if a search request is to be processed.
+	 * @param source address of the source.
+	 * @param names number of channel names searched.
+	 * @param now current time (in nanoseconds).
+	 * @return <code>true</code> if the search request is to be processed, <code>false</code> if suppressed. 
+	 */
+	public synchronized boolean acquire(InetAddress source, int names, long now)
+	{
+		if (rate <= 0)
+			return true;
+		
+		Bucket bucket = buckets.get(source);
+		if (bucket == null)
+		{
+			if (buckets.size() >= MAX_SOURCES)
+				prune(now);
+			bucket = new Bucket(burst, now);
+			buckets.put(source, bucket);
+		}
+		else
+			bucket.refill(now, rate, burst);
+		
+		// a request larger than the burst goes through with a full bucket,
+		// the tokens go negative and the source has to wait longer
+		final double cost = Math.max(1, names);
+		if (bucket.tokens >= Math.min(cost, burst))
+		{
+			bucket.tokens -= cost;
+			return true;
+		}
+		
+		suppressedSearches++;
+		suppressedNames += names;
+		return false;
+	}
+
+	/**
+	 * Remove the sources with full buckets, i.e. the ones that did not search recently.
+	 */
+	private void prune(long now)
+	{
+		Iterator<Bucket> iterator = buckets.values().iterator();
+		while (iterator.hasNext())
+		{
+			Bucket bucket = iterator.next();
+			bucket.refill(now, rate, burst);
+			if (bucket.tokens >= burst)
+				iterator.remove();
+		}
+		
+		// all active, start over
+		if (buckets.size() >= MAX_SOURCES)
+			buckets.clear();
+	}
+	
+	/**
+	 * Get number of suppressed search requests.
+	 * @return number of suppressed search requests.
+	 */
+	public synchronized long getSuppressedSearches() {
+		return suppressedSearches;
+	}
+
+	/**
+	 * Get number of channel names in the suppressed search requests.
+	 * @return number of suppressed channel names.
+	 */
+	public synchronized long getSuppressedNames() {
+		return suppressedNames;
+	}
+
+	/**
+	 * Get number of tracked source addresses.
+	 * @return number of tracked source addresses.
+	 */
+	public synchronized int getSourceCount() {
+		return buckets.size();
+	}
+}
@@ -19,6 +19,7 @@ import java.io.PrintStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.NetworkInterface;
+import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -164,6 +165,38 @@ public class ServerContextImpl implements ServerContext, Context {
 	 */
 	protected int receiveBufferSize = PVAConstants.MAX_TCP_RECV;
 
+	/**
+	 * Number of threads handling the received UDP datagrams (e.g. search requests),
+	 * 0 to handle them in the UDP receive thread.
+	 */
+	protected int udpReceiveThreads = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * Channel names per second a client (source address) may search for, 0 for no limit (default).
+	 * Unicast searches forwarded to the local multicast group count against the forwarding host.
+	 */
+	protected float searchRate = 0.0f;
+
+	/**
+	 * Channel names a client (address) may search for at once.
+	 */
+	protected float searchBurst = 10000.0f;
+
+	/**
+	 * Search request rate limiter.
+	 */
+	private final SearchRateLimiter searchRateLimiter;
+
+	/**
+	 * List of name servers to register the channels with, empty to disable registration.
+	 */
+	protected String nameServers = "";
+
+	/**
+	 * Name server registrar, <code>null</code> if disabled.
+	 */
+	private NameServerRegistrar nameServerRegistrar = null;
+
 	/**
 	 * Timer.
 	 */
@@ -250,6 +283,7 @@ public class ServerContextImpl implements ServerContext, Context {
 		initializeLogger();
 		initializeSecutiryPlugins();
 		
+		this.searchRateLimiter = new SearchRateLimiter(searchRate, searchBurst);
 		this.serverResponseHandler = new ServerResponseHandler(this);
 	}
 
@@ -352,6 +386,15 @@ public class ServerContextImpl implements ServerContext, Context {
 		receiveBufferSize = config.getPropertyAsInteger("EPICS_PVA_MAX_ARRAY_BYTES", receiveBufferSize);
 		receiveBufferSize = config.getPropertyAsInteger("EPICS_PVAS_MAX_ARRAY_BYTES", receiveBufferSize);
 		
+		udpReceiveThreads = config.getPropertyAsInteger("EPICS_PVA_UDP_RECEIVE_THREADS", udpReceiveThreads);
+		udpReceiveThreads = config.getPropertyAsInteger("EPICS_PVAS_UDP_RECEIVE_THREADS", udpReceiveThreads);
+		
+		searchRate = config.getPropertyAsFloat("EPICS_PVAS_SEARCH_RATE", searchRate);
+		searchBurst = config.getPropertyAsFloat("EPICS_PVAS_SEARCH_BURST", searchBurst);
+		
+		nameServers = config.getPropertyAsString("EPICS_PVA_NAME_SERVERS", nameServers);
+		nameServers = config.getPropertyAsString("EPICS_PVAS_NAME_SERVERS", nameServers);
+		
 		channelProviderNames = config.getPropertyAsString("EPICS_PVA_PROVIDER_NAMES", channelProviderNames);
 		channelProviderNames = config.getPropertyAsString("EPICS_PVAS_PROVIDER_NAMES", channelProviderNames);
 		
@@ -497,6 +540,24 @@ public class ServerContextImpl implements ServerContext, Context {
 		initializeUDPTransport();
 
 		beaconEmitter = new BeaconEmitter(ProtocolType.tcp.name(), broadcastTransport, this);
+
+		// register channels with the name servers
+		if (nameServers != null && nameServers.length() > 0)
+		{
+			InetAddress address = getServerInetAddress();
+			if (address == null || address.isAnyLocalAddress())
+			{
+				try {
+					address = InetAddress.getLocalHost();
+				} catch (UnknownHostException uhe) {
+					address = InetAddress.getLoopbackAddress();
+				}
+			}
+
+			nameServerRegistrar = new NameServerRegistrar(this, nameServers,
+					new InetSocketAddress(address, serverPort), beaconPeriod);
+			nameServerRegistrar.start();
+		}
 	}
 
 	/**
@@ -587,7 +648,7 @@ public class ServerContextImpl implements ServerContext, Context {
 				logger.config("Failed to detect a loopback network interface, local multicast disabled.");
 			}
 
-			broadcastTransport.start();
+			broadcastTransport.start(udpReceiveThreads);
 		}
 		catch (ConnectionException ce)
 		{
@@ -687,6 +748,10 @@ public class ServerContextImpl implements ServerContext, Context {
 	 */
 	private void internalDestroy() throws PVAException {
 
+		// unregister channels from the name servers
+		if (nameServerRegistrar != null)
+			nameServerRegistrar.destroy();
+
 		// stop responding to search requests
 		if (broadcastTransport != null) 
 		{
@@ -787,6 +852,12 @@ public class ServerContextImpl implements ServerContext, Context {
 		out.println("BROADCAST_PORT : " + broadcastPort);
 		out.println("SERVER_PORT : " + serverPort);
 		out.println("RCV_BUFFER_SIZE : " + receiveBufferSize);
+		out.println("UDP_RECEIVE_THREADS : " + udpReceiveThreads);
+		out.println("SEARCH_RATE : " + searchRate);
+		out.println("SEARCH_BURST : " + searchBurst);
+		out.println("SUPPRESSED_SEARCHES : " + searchRateLimiter.getSuppressedSearches() +
+				" (" + searchRateLimiter.getSuppressedNames() + " channel names)");
+		out.println("NAME_SERVERS : " + nameServers);
 		out.println("IGNORE_ADDR_LIST: " + ignoreAddressList);
 		out.println("STATE : " + state.name());
 	}
@@ -863,6 +934,22 @@ public class ServerContextImpl implements ServerContext, Context {
 		return receiveBufferSize;
 	}
 
+	/**
+	 * Get number of threads handling the received UDP datagrams.
+	 * @return number of UDP handler threads, 0 if handled by the receive thread.
+	 */
+	public int getUDPReceiveThreads() {
+		return udpReceiveThreads;
+	}
+
+	/**
+	 * Get search request rate limiter, also keeping the counters of suppressed searches.
+	 * @return search request rate limiter.
+	 */
+	public SearchRateLimiter getSearchRateLimiter() {
+		return searchRateLimiter;
+	}
+
 	/**
 	 * Get server port.
 	 * @return server port.
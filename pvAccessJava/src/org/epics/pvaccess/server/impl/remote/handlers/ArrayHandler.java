@@ -20,11 +20,12 @@ import java.nio.ByteBuffer;
 import org.epics.pvaccess.client.ChannelArray;
 import org.epics.pvaccess.client.ChannelArrayRequester;
 import org.epics.pvaccess.client.impl.remote.BaseRequestImpl;
+import org.epics.pvaccess.impl.remote.PrioritizedTransportSender;
 import org.epics.pvaccess.impl.remote.QoS;
+import org.epics.pvaccess.impl.remote.SendLane;
 import org.epics.pvaccess.impl.remote.SerializationHelper;
 import org.epics.pvaccess.impl.remote.Transport;
 import org.epics.pvaccess.impl.remote.TransportSendControl;
-import org.epics.pvaccess.impl.remote.TransportSender;
 import org.epics.pvaccess.impl.remote.server.ChannelHostingTransport;
 import org.epics.pvaccess.server.impl.remote.ServerChannelImpl;
 import org.epics.pvaccess.server.impl.remote.ServerContextImpl;
@@ -53,7 +54,7 @@ public class ArrayHandler extends AbstractServerResponseHandler {
 		super(context, "Array request");
 	}
 
-	private static class ChannelArrayRequesterImpl extends BaseChannelRequester implements ChannelArrayRequester, TransportSender {
+	private static class ChannelArrayRequesterImpl extends BaseChannelRequester implements ChannelArrayRequester, PrioritizedTransportSender {
 		
 		private volatile ChannelArray channelArray;
 		
@@ -189,6 +190,14 @@ public class ArrayHandler extends AbstractServerResponseHandler {
 			// TODO
 		}
 
+		/* (non-Javadoc)
+		 * @see org.epics.pvaccess.impl.remote.PrioritizedTransportSender#getSendLane()
+		 */
+		@Override
+		public SendLane getSendLane() {
+			return getSendLane(SendLane.BULK);
+		}
+
 		/* (non-Javadoc)
 		 * @see org.epics.pvaccess.impl.remote.TransportSender#send(java.nio.ByteBuffer, org.epics.pvaccess.impl.remote.TransportSendControl)
 		 */
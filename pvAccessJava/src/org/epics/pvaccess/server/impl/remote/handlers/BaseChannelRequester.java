@@ -17,6 +17,8 @@ package org.epics.pvaccess.server.impl.remote.handlers;
 import java.nio.ByteBuffer;
 
 import org.epics.pvaccess.PVFactory;
+import org.epics.pvaccess.impl.remote.QoS;
+import org.epics.pvaccess.impl.remote.SendLane;
 import org.epics.pvaccess.impl.remote.Transport;
 import org.epics.pvaccess.impl.remote.TransportSendControl;
 import org.epics.pvaccess.impl.remote.TransportSender;
@@ -85,6 +87,16 @@ abstract class BaseChannelRequester implements Requester, Destroyable {
 		}
 	}
 	
+	/**
+	 * Get the send lane of the pending request.
+	 * @param dataLane the lane of the data messages.
+	 * @return the control lane for an init response, <code>dataLane</code> otherwise.
+	 */
+	protected SendLane getSendLane(SendLane dataLane) {
+		final int request = getPendingRequest();
+		return (request >= 0 && QoS.INIT.isSet(request)) ? SendLane.CONTROL : dataLane;
+	}
+	
 	@Override
 	public String getRequesterName() {
 		return transport + "/" + ioid;
@@ -19,11 +19,12 @@ import java.nio.ByteBuffer;
 
 import org.epics.pvaccess.client.ChannelGet;
 import org.epics.pvaccess.client.ChannelGetRequester;
+import org.epics.pvaccess.impl.remote.PrioritizedTransportSender;
 import org.epics.pvaccess.impl.remote.QoS;
+import org.epics.pvaccess.impl.remote.SendLane;
 import org.epics.pvaccess.impl.remote.SerializationHelper;
 import org.epics.pvaccess.impl.remote.Transport;
 import org.epics.pvaccess.impl.remote.TransportSendControl;
-import org.epics.pvaccess.impl.remote.TransportSender;
 import org.epics.pvaccess.impl.remote.server.ChannelHostingTransport;
 import org.epics.pvaccess.server.impl.remote.ServerChannelImpl;
 import org.epics.pvaccess.server.impl.remote.ServerContextImpl;
@@ -44,7 +45,7 @@ public class GetHandler extends AbstractServerResponseHandler {
 		super(context, "Get request");
 	}
 
-	private static class ChannelGetRequesterImpl extends BaseChannelRequester implements ChannelGetRequester, TransportSender {
+	private static class ChannelGetRequesterImpl extends BaseChannelRequester implements ChannelGetRequester, PrioritizedTransportSender {
 		
 		private volatile ChannelGet channelGet;
 		private volatile BitSet bitSet;
@@ -133,6 +134,14 @@ public class GetHandler extends AbstractServerResponseHandler {
 			// noop
 		}
 
+		/* (non-Javadoc)
+		 * @see org.epics.pvaccess.impl.remote.PrioritizedTransportSender#getSendLane()
+		 */
+		@Override
+		public SendLane getSendLane() {
+			return getSendLane(SendLane.BULK);
+		}
+
 		/* (non-Javadoc)
 		 * @see org.epics.pvaccess.impl.remote.TransportSender#send(java.nio.ByteBuffer, org.epics.pvaccess.impl.remote.TransportSendControl)
 		 */
@@ -17,12 +17,14 @@ package org.epics.pvaccess.server.impl.remote.handlers;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 
+import org.epics.pvaccess.impl.remote.EncodedMonitor;
 import org.epics.pvaccess.impl.remote.PipelineMonitor;
+import org.epics.pvaccess.impl.remote.PrioritizedTransportSender;
 import org.epics.pvaccess.impl.remote.QoS;
+import org.epics.pvaccess.impl.remote.SendLane;
 import org.epics.pvaccess.impl.remote.SerializationHelper;
 import org.epics.pvaccess.impl.remote.Transport;
 import org.epics.pvaccess.impl.remote.TransportSendControl;
-import org.epics.pvaccess.impl.remote.TransportSender;
 import org.epics.pvaccess.impl.remote.server.ChannelHostingTransport;
 import org.epics.pvaccess.server.impl.remote.ServerChannelImpl;
 import org.epics.pvaccess.server.impl.remote.ServerContextImpl;
@@ -46,7 +48,7 @@ public class MonitorHandler extends AbstractServerResponseHandler {
 		super(context, "Monitor request");
 	}
 
-	private static class MonitorRequesterImpl extends BaseChannelRequester implements MonitorRequester, TransportSender {
+	private static class MonitorRequesterImpl extends BaseChannelRequester implements MonitorRequester, PrioritizedTransportSender {
 		
 		private volatile Monitor channelMonitor;
 		private Status status;
@@ -148,6 +150,14 @@ public class MonitorHandler extends AbstractServerResponseHandler {
 			// noop
 		}
 
+		/* (non-Javadoc)
+		 * @see org.epics.pvaccess.impl.remote.PrioritizedTransportSender#getSendLane()
+		 */
+		@Override
+		public SendLane getSendLane() {
+			return getSendLane(SendLane.MONITOR);
+		}
+
 		/* (non-Javadoc)
 		 * @see org.epics.pvaccess.impl.remote.TransportSender#send(java.nio.ByteBuffer, org.epics.pvaccess.impl.remote.TransportSendControl)
 		 */
@@ -180,6 +190,19 @@ public class MonitorHandler extends AbstractServerResponseHandler {
 			else
 			{
 				final Monitor monitor = this.monitor;
+				
+				// already serialized update (e.g. forwarded by a gateway), the data is not copied
+				final ByteBuffer update = (monitor instanceof EncodedMonitor) ?
+						((EncodedMonitor)monitor).pollEncoded(buffer.order()) : null;
+				if (update != null)
+				{
+					control.startMessage((byte)13, Integer.SIZE/Byte.SIZE + 1);
+					buffer.putInt(ioid);
+					buffer.put((byte)request);
+					control.endMessage(update);
+					return;
+				}
+				
 				final MonitorElement element = monitor.poll();
 				if (element != null)
 				{
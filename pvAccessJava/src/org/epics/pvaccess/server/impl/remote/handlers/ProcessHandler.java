@@ -19,11 +19,12 @@ import java.nio.ByteBuffer;
 
 import org.epics.pvaccess.client.ChannelProcess;
 import org.epics.pvaccess.client.ChannelProcessRequester;
+import org.epics.pvaccess.impl.remote.PrioritizedTransportSender;
 import org.epics.pvaccess.impl.remote.QoS;
+import org.epics.pvaccess.impl.remote.SendLane;
 import org.epics.pvaccess.impl.remote.SerializationHelper;
 import org.epics.pvaccess.impl.remote.Transport;
 import org.epics.pvaccess.impl.remote.TransportSendControl;
-import org.epics.pvaccess.impl.remote.TransportSender;
 import org.epics.pvaccess.impl.remote.server.ChannelHostingTransport;
 import org.epics.pvaccess.server.impl.remote.ServerChannelImpl;
 import org.epics.pvaccess.server.impl.remote.ServerContextImpl;
@@ -41,7 +42,7 @@ public class ProcessHandler extends AbstractServerResponseHandler {
 		super(context, "Process request");
 	}
 
-	private static class ChannelProcessRequesterImpl extends BaseChannelRequester implements ChannelProcessRequester, TransportSender {
+	private static class ChannelProcessRequesterImpl extends BaseChannelRequester implements ChannelProcessRequester, PrioritizedTransportSender {
 		
 		private volatile ChannelProcess channelProcess;
 		private volatile Status status;
@@ -120,6 +121,14 @@ public class ProcessHandler extends AbstractServerResponseHandler {
 			// noop
 		}
 
+		/* (non-Javadoc)
+		 * @see org.epics.pvaccess.impl.remote.PrioritizedTransportSender#getSendLane()
+		 */
+		@Override
+		public SendLane getSendLane() {
+			return getSendLane(SendLane.PUT);
+		}
+
 		/* (non-Javadoc)
 		 * @see org.epics.pvaccess.impl.remote.TransportSender#send(java.nio.ByteBuffer, org.epics.pvaccess.impl.remote.TransportSendControl)
 		 */
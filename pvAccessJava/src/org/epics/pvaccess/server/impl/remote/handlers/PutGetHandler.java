@@ -20,11 +20,12 @@ import java.nio.ByteBuffer;
 import org.epics.pvaccess.client.ChannelPutGet;
 import org.epics.pvaccess.client.ChannelPutGetRequester;
 import org.epics.pvaccess.client.impl.remote.BaseRequestImpl;
+import org.epics.pvaccess.impl.remote.PrioritizedTransportSender;
 import org.epics.pvaccess.impl.remote.QoS;
+import org.epics.pvaccess.impl.remote.SendLane;
 import org.epics.pvaccess.impl.remote.SerializationHelper;
 import org.epics.pvaccess.impl.remote.Transport;
 import org.epics.pvaccess.impl.remote.TransportSendControl;
-import org.epics.pvaccess.impl.remote.TransportSender;
 import org.epics.pvaccess.impl.remote.server.ChannelHostingTransport;
 import org.epics.pvaccess.server.impl.remote.ServerChannelImpl;
 import org.epics.pvaccess.server.impl.remote.ServerContextImpl;
@@ -45,7 +46,7 @@ public class PutGetHandler extends AbstractServerResponseHandler {
 	}
 
     
-	private static class ChannelPutGetRequesterImpl extends BaseChannelRequester implements ChannelPutGetRequester, TransportSender {
+	private static class ChannelPutGetRequesterImpl extends BaseChannelRequester implements ChannelPutGetRequester, PrioritizedTransportSender {
 		
 		private volatile ChannelPutGet channelPutGet;
 		private volatile Status status;
@@ -184,6 +185,14 @@ public class PutGetHandler extends AbstractServerResponseHandler {
 			// TODO
 		}
 
+		/* (non-Javadoc)
+		 * @see org.epics.pvaccess.impl.remote.PrioritizedTransportSender#getSendLane()
+		 */
+		@Override
+		public SendLane getSendLane() {
+			return getSendLane(SendLane.PUT);
+		}
+
 		/* (non-Javadoc)
 		 * @see org.epics.pvaccess.impl.remote.TransportSender#send(java.nio.ByteBuffer, org.epics.pvaccess.impl.remote.TransportSendControl)
 		 */
@@ -19,7 +19,10 @@ import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -35,7 +38,6 @@ import org.epics.pvaccess.impl.remote.TransportSender;
 import org.epics.pvaccess.impl.remote.udp.BlockingUDPTransport;
 import org.epics.pvaccess.server.impl.remote.ServerContextImpl;
 import org.epics.pvaccess.util.InetAddressUtil;
-import org.epics.pvdata.factory.StatusFactory;
 import org.epics.pvdata.misc.SerializeHelper;
 import org.epics.pvdata.misc.Timer.TimerCallback;
 import org.epics.pvdata.misc.Timer.TimerNode;
@@ -53,6 +55,22 @@ public class SearchHandler extends AbstractServerResponseHandler {
 	private final Random random = new Random();
 	private static final int MAX_SERVER_SEARCH_RESPONSE_DELAY_MS = 100;
 	
+	/**
+	 * Time to gather the positive responses to the same search request into one message (in seconds).
+	 */
+	private static final double RESPONSE_AGGREGATION_DELAY = 0.005;
+	
+	/**
+	 * Maximal number of channels in one search response message.
+	 */
+	private static final int MAX_RESPONSE_CHANNELS = 256;
+	
+	/**
+	 * Responses being gathered, by recipient and search sequence ID.
+	 */
+	private final Map<PendingResponse, PendingResponse> pendingResponses = new HashMap<PendingResponse, PendingResponse>();
+	private final PendingResponse pendingResponseKey = new PendingResponse(null, 0, false);
+	
 	public SearchHandler(ServerContextImpl context) {
 		super(context, "Search request");
 	}
@@ -69,6 +87,9 @@ public class SearchHandler extends AbstractServerResponseHandler {
 
 		transport.ensureData(4+1+3+16+2);
 
+		// the sender of the datagram, not the (unverified) reply address from the payload
+		final InetAddress sourceAddress = responseFrom.getAddress();
+
 		final int startPosition = payloadBuffer.position();
 
 		final int searchSequenceId = payloadBuffer.getInt();
@@ -140,7 +161,10 @@ public class SearchHandler extends AbstractServerResponseHandler {
 		transport.ensureData(2);
 		final int count = payloadBuffer.getShort() & 0xFFFF;
 		
-		// TODO DoS attack
+		// rate limit per client, a server search costs as much as one channel
+		if (!context.getSearchRateLimiter().acquire(sourceAddress, count, System.nanoTime()))
+			return;
+		
 		final boolean responseRequired = QoS.REPLY_REQUIRED.isSet(qosCode);
 		
 		// TODO bloom filter or similar server selection (by GUID)
@@ -167,23 +191,180 @@ public class SearchHandler extends AbstractServerResponseHandler {
 			// server search response
 			if (allowed)
 			{
-				double delay = random.nextInt(MAX_SERVER_SEARCH_RESPONSE_DELAY_MS) / 1000.0;
-				final InetSocketAddress rf = responseFrom;
-				TimerNode timerNode = TimerFactory.createNode(new TimerCallback() {
-					
-					@Override
-					public void timerStopped() {
-						// noop
-					}
-					
-					@Override
-					public void callback() {
-						objectPool.get().set(context.getLogger(), searchSequenceId, rf).channelFindResult(StatusFactory.getStatusCreate().getStatusOK(), null, false);
-					}
-				});
-				// delay response to avoid "UDP search storms"
-				context.getTimer().scheduleAfterDelay(timerNode, delay);
+				// delay response to avoid "UDP search storms",
+				// the same request received more times (e.g. on more interfaces) gets one response
+				double delay;
+				synchronized (random) {
+					delay = random.nextInt(MAX_SERVER_SEARCH_RESPONSE_DELAY_MS) / 1000.0;
+				}
+				addResponse(responseFrom, searchSequenceId, true, 0, delay);
+			}
+		}
+	}
+	
+	/**
+	 * Add a response to the one being gathered for the recipient and search sequence ID.
+	 * @param sendTo recipient.
+	 * @param searchSequenceId search sequence ID.
+	 * @param serverSearch server search response (no channels).
+	 * @param cid found channel ID.
+	 * @param delay delay of the response (in seconds), if a new one. 
+	 */
+	private void addResponse(InetSocketAddress sendTo, int searchSequenceId, boolean serverSearch, int cid, double delay)
+	{
+		PendingResponse fullResponse = null;
+		synchronized (pendingResponses) {
+			pendingResponseKey.set(sendTo, searchSequenceId, serverSearch);
+			PendingResponse response = pendingResponses.get(pendingResponseKey);
+			if (response == null)
+			{
+				response = new PendingResponse(sendTo, searchSequenceId, serverSearch);
+				pendingResponses.put(response, response);
+				context.getTimer().scheduleAfterDelay(response.timerNode, delay);
+			}
+			
+			if (!serverSearch)
+			{
+				response.add(cid);
+				if (response.count == MAX_RESPONSE_CHANNELS)
+				{
+					pendingResponses.remove(response);
+					fullResponse = response;
+				}
+			}
+		}
+		
+		if (fullResponse != null)
+		{
+			fullResponse.timerNode.cancel();
+			context.getBroadcastTransport().enqueueSendRequest(fullResponse);
+		}
+	}
+	
+	/**
+	 * Serialize search response, up to the list of channels.
+	 */
+	private void serializeResponseHeader(ByteBuffer buffer, TransportSendControl control, int searchSequenceId, boolean found)
+	{
+		buffer.put(context.getGUID());
+
+		buffer.putInt(searchSequenceId);
+		
+		// NOTE: is it possible (very likely) that address is any local address ::ffff:0.0.0.0
+		InetAddressUtil.encodeAsIPv6Address(buffer, context.getServerInetAddress());
+		buffer.putShort((short)context.getServerPort());
+		
+		SerializeHelper.serializeString(SUPPORTED_PROTOCOL, buffer, control);
+
+		control.ensureBuffer(1);
+		buffer.put(found ? (byte)1 : (byte)0);
+	}
+
+	/**
+	 * Search response being gathered.
+	 */
+	private class PendingResponse implements TransportSender, TimerCallback {
+		
+		private InetSocketAddress sendTo;
+		private int searchSequenceId;
+		private boolean serverSearch;
+		
+		private int[] cids;
+		private int count = 0;
+		
+		private final TimerNode timerNode;
+
+		public PendingResponse(InetSocketAddress sendTo, int searchSequenceId, boolean serverSearch) {
+			set(sendTo, searchSequenceId, serverSearch);
+			cids = serverSearch ? null : new int[8];
+			timerNode = TimerFactory.createNode(this);
+		}
+		
+		void set(InetSocketAddress sendTo, int searchSequenceId, boolean serverSearch) {
+			this.sendTo = sendTo;
+			this.searchSequenceId = searchSequenceId;
+			this.serverSearch = serverSearch;
+		}
+		
+		void add(int cid) {
+			if (count == cids.length)
+				cids = Arrays.copyOf(cids, Math.min(2 * count, MAX_RESPONSE_CHANNELS));
+			cids[count++] = cid;
+		}
+		
+		@Override
+		public int hashCode() {
+			return sendTo.hashCode() * 31 + searchSequenceId + (serverSearch ? 1 : 0);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof PendingResponse))
+				return false;
+			PendingResponse other = (PendingResponse)obj;
+			return searchSequenceId == other.searchSequenceId &&
+				   serverSearch == other.serverSearch &&
+				   sendTo.equals(other.sendTo);
+		}
+
+		/* (non-Javadoc)
+		 * @see org.epics.pvdata.misc.Timer.TimerCallback#callback()
+		 */
+		@Override
+		public void callback() {
+			synchronized (pendingResponses) {
+				// already sent if full
+				if (pendingResponses.get(this) != this)
+					return;
+				pendingResponses.remove(this);
 			}
+			context.getBroadcastTransport().enqueueSendRequest(this);
+		}
+
+		/* (non-Javadoc)
+		 * @see org.epics.pvdata.misc.Timer.TimerCallback#timerStopped()
+		 */
+		@Override
+		public void timerStopped() {
+			// noop
+		}
+
+		/* (non-Javadoc)
+		 * @see org.epics.pvaccess.impl.remote.TransportSender#lock()
+		 */
+		@Override
+		public void lock() {
+			// noop
+		}
+
+		/* (non-Javadoc)
+		 * @see org.epics.pvaccess.impl.remote.TransportSender#unlock()
+		 */
+		@Override
+		public void unlock() {
+			// noop
+		}
+
+		/* (non-Javadoc)
+		 * @see org.epics.pvaccess.impl.remote.TransportSender#send(java.nio.ByteBuffer, org.epics.pvaccess.impl.remote.TransportSendControl)
+		 */
+		@Override
+		public void send(ByteBuffer buffer, TransportSendControl control) {
+
+			control.startMessage((byte)4, 12+4+16+2);
+
+			// a server search response reports no channels
+			serializeResponseHeader(buffer, control, searchSequenceId, !serverSearch);
+			
+			control.ensureBuffer(2);
+			buffer.putShort((short)count);
+			for (int i = 0; i < count; i++)
+			{
+				control.ensureBuffer(4);
+				buffer.putInt(cids[i]);
+			}
+			
+			control.setRecipient(sendTo);
 		}
 	}
 
@@ -191,7 +372,6 @@ public class SearchHandler extends AbstractServerResponseHandler {
 		
 		private Logger logger;
 		
-		private boolean serverSearch;
 		private int searchSequenceId;
 		private String channelName;
 		private int cid;
@@ -221,7 +401,7 @@ public class SearchHandler extends AbstractServerResponseHandler {
 		public ChannelFindRequesterImpl set(Logger logger, int searchSequenceId, String channelName, int cid, InetSocketAddress sendTo, boolean responseRequired, int expectedResponseCount)
 		{
 			synchronized (this) {
-				this.serverSearch = false;
+				this.logger = logger;
 				this.searchSequenceId = searchSequenceId;
 				this.channelName = channelName;
 				this.cid = cid;
@@ -232,22 +412,6 @@ public class SearchHandler extends AbstractServerResponseHandler {
 			return this;
 		}
 		
-		// server search
-		public ChannelFindRequesterImpl set(Logger logger, int searchSequenceId, InetSocketAddress sendTo)
-		{
-			synchronized (this) {
-				this.logger = logger;
-				this.serverSearch = true;
-				this.searchSequenceId = searchSequenceId;
-				this.channelName = null;
-				this.cid = 0;
-				this.sendTo = sendTo;
-				this.responseRequired = true;
-				this.expectedResponseCount = 1;
-			}
-			return this;
-		}
-
 		@Override
 		public void channelFindResult(Status status, ChannelFind channelFind, boolean wasFound) {
 			// TODO status
@@ -267,15 +431,27 @@ public class SearchHandler extends AbstractServerResponseHandler {
 			        return;
 			    }
 				
-			    if (wasFound || (responseRequired && (responseCount == expectedResponseCount)))
+			    if (wasFound)
 			    {
 			    	// register mapping
-			        if (wasFound && expectedResponseCount > 1)
+			        if (expectedResponseCount > 1)
 			            context.getChannelNameToProviderMap().put(channelName, channelFind.getChannelProvider());
 
-					this.wasFound = wasFound;
+					this.wasFound = true;
+					
+					// gathered with the other positive responses to the same search request
+					addResponse(sendTo, searchSequenceId, false, cid, RESPONSE_AGGREGATION_DELAY);
+			    }
+			    else if (responseRequired && responseCount == expectedResponseCount && !this.wasFound)
+			    {
 					context.getBroadcastTransport().enqueueSendRequest(this);
+					// returned to the pool when sent
+					return;
 				}
+
+			    // return this object to the pool
+			    if (responseCount == expectedResponseCount)
+			    	objectPool.put(this);
 			}
 		}
 
@@ -305,33 +481,12 @@ public class SearchHandler extends AbstractServerResponseHandler {
 
 			synchronized (this)
 			{
-				buffer.put(context.getGUID());
-
-				buffer.putInt(searchSequenceId);
+				// only not found responses, the positive ones are gathered
+				serializeResponseHeader(buffer, control, searchSequenceId, false);
 				
-				// NOTE: is it possible (very likely) that address is any local address ::ffff:0.0.0.0
-				InetAddressUtil.encodeAsIPv6Address(buffer, context.getServerInetAddress());
-				buffer.putShort((short)context.getServerPort());
-				
-				SerializeHelper.serializeString(SUPPORTED_PROTOCOL, buffer, control);
-
-				control.ensureBuffer(1);
-				buffer.put(wasFound ? (byte)1 : (byte)0);
-				
-				/*
-				if (count > PVAConstants.MAX_SEARCH_BATCH_COUNT)
-					throw new IllegalArgumentException("too many search responses in a batch message");
-				*/
-				if (!serverSearch)
-				{
-					// TODO for now we do not gather search responses
-					buffer.putShort((short)1);
-					buffer.putInt(cid);
-				}
-				else
-				{
-					buffer.putShort((short)0);
-				}
+				control.ensureBuffer(2+4);
+				buffer.putShort((short)1);
+				buffer.putInt(cid);
 				
 				control.setRecipient(sendTo);
 			}
@@ -0,0 +1,619 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.server.impl.remote.rpc;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.epics.pvaccess.PVFactory;
+import org.epics.pvaccess.server.rpc.RPCResponseCallback;
+import org.epics.pvaccess.server.rpc.RPCServiceAsync;
+import org.epics.pvdata.misc.ThreadPriority;
+import org.epics.pvdata.misc.Timer;
+import org.epics.pvdata.misc.Timer.TimerCallback;
+import org.epics.pvdata.misc.Timer.TimerNode;
+import org.epics.pvdata.misc.TimerFactory;
+import org.epics.pvdata.pv.FieldCreate;
+import org.epics.pvdata.pv.PVDataCreate;
+import org.epics.pvdata.pv.PVDouble;
+import org.epics.pvdata.pv.PVLong;
+import org.epics.pvdata.pv.PVString;
+import org.epics.pvdata.pv.PVStringArray;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.Status;
+import org.epics.pvdata.pv.Status.StatusType;
+import org.epics.pvdata.pv.StatusCreate;
+import org.epics.pvdata.pv.StringArrayData;
+import org.epics.pvdata.pv.Structure;
+
+/**
+ * Name server (channel directory) RPC service.
+ * Servers register the names of the channels they host, clients resolve
+ * (batches of) names and watch for the registration changes instead of broadcasting searches.
+ * <p>
+ * Operations (<code>string op</code> argument):
+ * <ul>
+ * <li><code>register</code> - replace the set of channel <code>names</code> hosted by <code>server</code> (with <code>guid</code>);
+ * the registration is a lease valid for <code>lease</code> seconds, servers need to re-register periodically,</li>
+ * <li><code>unregister</code> - remove all channels of <code>server</code>,</li>
+ * <li><code>lookup</code> - resolve channel <code>names</code>, only resolved names are returned,</li>
+ * <li><code>watch</code> - wait for the changes newer than <code>version</code> of the name server instance <code>epoch</code>;
+ * removed names are reported with an empty server. If the changes are not available anymore, or the epoch does not match
+ * (e.g. the name server was restarted), <code>reset</code> is set and the client should lookup all the names again.</li>
+ * </ul>
+ * @version $Id$
+ */
+public class NameServerService implements RPCServiceAsync, TimerCallback {
+
+	/**
+	 * Name of the service (channel).
+	 */
+	public static final String SERVICE_NAME = "pvaNameServer";
+
+	public static final String OP_REGISTER = "register";
+	public static final String OP_UNREGISTER = "unregister";
+	public static final String OP_LOOKUP = "lookup";
+	public static final String OP_WATCH = "watch";
+
+	/**
+	 * Maximal time (in seconds) a watch request waits for changes.
+	 */
+	public static final double WATCH_TIMEOUT_SEC = 30.0;
+
+	/**
+	 * Maximal number of remembered changes.
+	 */
+	public static final int MAX_CHANGES = 10000;
+
+	/**
+	 * Registration lease (in seconds) used when not specified by the server.
+	 */
+	public static final double DEFAULT_LEASE_SEC = 60.0;
+
+	private static final PVDataCreate pvDataCreate = PVFactory.getPVDataCreate();
+	private static final FieldCreate fieldCreate = PVFactory.getFieldCreate();
+	private static final StatusCreate statusCreate = PVFactory.getStatusCreate();
+	private static final Status okStatus = statusCreate.getStatusOK();
+
+	/**
+	 * Request (arguments) structure, fields not used by an operation are ignored.
+	 */
+	public static final Structure REQUEST_STRUCTURE =
+		fieldCreate
+			.createFieldBuilder()
+				.add("op", ScalarType.pvString)
+				.add("server", ScalarType.pvString)
+				.add("guid", ScalarType.pvString)
+				.addArray("names", ScalarType.pvString)
+				.add("epoch", ScalarType.pvLong)
+				.add("version", ScalarType.pvLong)
+				.add("lease", ScalarType.pvDouble)
+				.createStructure();
+
+	/**
+	 * Response structure, <code>names</code>, <code>servers</code> and <code>guids</code> are parallel arrays.
+	 */
+	public static final Structure RESPONSE_STRUCTURE =
+		fieldCreate
+			.createFieldBuilder()
+				.add("epoch", ScalarType.pvLong)
+				.add("version", ScalarType.pvLong)
+				.add("reset", ScalarType.pvBoolean)
+				.addArray("names", ScalarType.pvString)
+				.addArray("servers", ScalarType.pvString)
+				.addArray("guids", ScalarType.pvString)
+				.createStructure();
+
+	/**
+	 * Create request (arguments) structure.
+	 * @param op operation.
+	 * @return request structure.
+	 */
+	public static PVStructure createRequest(String op)
+	{
+		PVStructure request = pvDataCreate.createPVStructure(REQUEST_STRUCTURE);
+		request.getStringField("op").put(op);
+		return request;
+	}
+
+	/**
+	 * Registered server.
+	 */
+	private static class ServerEntry {
+		final String address;
+		String guid;
+		final Set<String> names = new HashSet<String>();
+
+		/**
+		 * Time (in ms) when the registration expires.
+		 */
+		long expirationTime;
+
+		ServerEntry(String address, String guid) {
+			this.address = address;
+			this.guid = guid;
+		}
+	}
+
+	/**
+	 * Registration change.
+	 */
+	private static class Change {
+		final long version;
+		final String name;
+		final String server;
+		final String guid;
+
+		Change(long version, String name, ServerEntry server) {
+			this.version = version;
+			this.name = name;
+			this.server = (server != null) ? server.address : "";
+			this.guid = (server != null) ? server.guid : "";
+		}
+	}
+
+	/**
+	 * Pending watch request.
+	 */
+	private static class Watch {
+		final long epoch;
+		final long version;
+		final long deadline;
+		final RPCResponseCallback callback;
+
+		Watch(long epoch, long version, long deadline, RPCResponseCallback callback) {
+			this.epoch = epoch;
+			this.version = version;
+			this.deadline = deadline;
+			this.callback = callback;
+		}
+	}
+
+	private final Map<String, ServerEntry> servers = new HashMap<String, ServerEntry>();
+	private final Map<String, ServerEntry> names = new HashMap<String, ServerEntry>();
+	private final ArrayDeque<Change> changes = new ArrayDeque<Change>();
+	private final List<Watch> watches = new ArrayList<Watch>();
+	private long version = 0;
+
+	/**
+	 * Name server instance ID, versions of different instances are not comparable.
+	 */
+	private final long epoch = new Random().nextLong();
+
+	private final Timer timer;
+	private final TimerNode timerNode;
+
+	/**
+	 * Constructor.
+	 */
+	public NameServerService()
+	{
+		timer = TimerFactory.create("pvAccess name-server timer", ThreadPriority.lower);
+		timerNode = TimerFactory.createNode(this);
+		timer.schedulePeriodic(timerNode, 1.0, 1.0);
+	}
+
+	/**
+	 * Destroy the service, i.e. stop expiring watch requests and registrations.
+	 */
+	public void destroy()
+	{
+		timerNode.cancel();
+		timer.stop();
+	}
+
+	/**
+	 * Get number of registered channels.
+	 * @return number of registered channels.
+	 */
+	public synchronized int getChannelCount()
+	{
+		return names.size();
+	}
+
+	/**
+	 * Get name server instance ID.
+	 * @return name server instance ID.
+	 */
+	public long getEpoch()
+	{
+		return epoch;
+	}
+
+	/**
+	 * Get current directory version.
+	 * @return current directory version.
+	 */
+	public synchronized long getVersion()
+	{
+		return version;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.server.rpc.RPCServiceAsync#request(org.epics.pvdata.pv.PVStructure, org.epics.pvaccess.server.rpc.RPCResponseCallback)
+	 */
+	@Override
+	public void request(PVStructure args, RPCResponseCallback callback)
+	{
+		PVString opField = args.getStringField("op");
+		if (opField == null)
+		{
+			callback.requestDone(statusCreate.createStatus(StatusType.ERROR, "unspecified 'string op' field", null), null);
+			return;
+		}
+
+		final String op = opField.get();
+		if (OP_LOOKUP.equals(op))
+			lookup(args, callback);
+		else if (OP_WATCH.equals(op))
+			watch(args, callback);
+		else if (OP_REGISTER.equals(op))
+			register(args, callback);
+		else if (OP_UNREGISTER.equals(op))
+			unregister(args, callback);
+		else
+			callback.requestDone(statusCreate.createStatus(StatusType.ERROR, "unsupported operation '" + op + "'.", null), null);
+	}
+
+	private static String[] getNames(PVStructure args)
+	{
+		PVStringArray namesField = args.getSubField(PVStringArray.class, "names");
+		if (namesField == null)
+			return null;
+
+		StringArrayData data = new StringArrayData();
+		namesField.get(0, namesField.getLength(), data);
+		if (data.offset == 0 && data.data.length == namesField.getLength())
+			return data.data;
+
+		String[] names = new String[namesField.getLength()];
+		System.arraycopy(data.data, data.offset, names, 0, names.length);
+		return names;
+	}
+
+	private static String getString(PVStructure args, String fieldName)
+	{
+		PVString field = args.getStringField(fieldName);
+		return (field != null) ? field.get() : null;
+	}
+
+	private void register(PVStructure args, RPCResponseCallback callback)
+	{
+		final String server = getString(args, "server");
+		final String[] registeredNames = getNames(args);
+		if (server == null || server.length() == 0 || registeredNames == null)
+		{
+			callback.requestDone(statusCreate.createStatus(StatusType.ERROR, "'string server' and 'string[] names' fields required", null), null);
+			return;
+		}
+
+		final String guid = getString(args, "guid");
+		PVDouble leaseField = args.getDoubleField("lease");
+		final double lease = (leaseField != null && leaseField.get() > 0) ? leaseField.get() : DEFAULT_LEASE_SEC;
+
+		List<WatchResponse> notify;
+		PVStructure response;
+		synchronized (this)
+		{
+			ServerEntry entry = servers.get(server);
+			if (entry == null)
+			{
+				entry = new ServerEntry(server, (guid != null) ? guid : "");
+				servers.put(server, entry);
+			}
+			else if (guid != null && !guid.equals(entry.guid))
+			{
+				// restarted server, report all its names again
+				entry.guid = guid;
+				for (String name : entry.names)
+					addChange(name, entry);
+			}
+			entry.expirationTime = System.currentTimeMillis() + (long)(lease * 1000);
+
+			Set<String> newNames = new HashSet<String>(registeredNames.length);
+			for (String name : registeredNames)
+				newNames.add(name);
+
+			// removed names
+			for (Iterator<String> iter = entry.names.iterator(); iter.hasNext(); )
+			{
+				String name = iter.next();
+				if (!newNames.contains(name))
+				{
+					iter.remove();
+					if (names.get(name) == entry)
+					{
+						names.remove(name);
+						addChange(name, null);
+					}
+				}
+			}
+
+			// added names, the last registration of a name wins
+			for (String name : newNames)
+			{
+				if (entry.names.add(name) || names.get(name) != entry)
+				{
+					ServerEntry previous = names.put(name, entry);
+					if (previous != null && previous != entry)
+						previous.names.remove(name);
+					addChange(name, entry);
+				}
+			}
+
+			response = createResponse(version, false, null);
+			notify = takeWatches(false, 0);
+		}
+
+		callback.requestDone(okStatus, response);
+		respond(notify);
+	}
+
+	private void unregister(PVStructure args, RPCResponseCallback callback)
+	{
+		final String server = getString(args, "server");
+		if (server == null || server.length() == 0)
+		{
+			callback.requestDone(statusCreate.createStatus(StatusType.ERROR, "'string server' field required", null), null);
+			return;
+		}
+
+		List<WatchResponse> notify;
+		PVStructure response;
+		synchronized (this)
+		{
+			ServerEntry entry = servers.remove(server);
+			if (entry != null)
+				removeNames(entry);
+
+			response = createResponse(version, false, null);
+			notify = takeWatches(false, 0);
+		}
+
+		callback.requestDone(okStatus, response);
+		respond(notify);
+	}
+
+	private void lookup(PVStructure args, RPCResponseCallback callback)
+	{
+		final String[] lookupNames = getNames(args);
+		if (lookupNames == null)
+		{
+			callback.requestDone(statusCreate.createStatus(StatusType.ERROR, "'string[] names' field required", null), null);
+			return;
+		}
+
+		PVStructure response;
+		synchronized (this)
+		{
+			List<Change> found = new ArrayList<Change>(lookupNames.length);
+			for (String name : lookupNames)
+			{
+				ServerEntry entry = names.get(name);
+				if (entry != null)
+					found.add(new Change(version, name, entry));
+			}
+			response = createResponse(version, false, found);
+		}
+
+		callback.requestDone(okStatus, response);
+	}
+
+	private void watch(PVStructure args, RPCResponseCallback callback)
+	{
+		PVLong epochField = args.getLongField("epoch");
+		final long clientEpoch = (epochField != null) ? epochField.get() : 0;
+		PVLong versionField = args.getLongField("version");
+		final long clientVersion = (versionField != null) ? versionField.get() : -1;
+
+		PVStructure response;
+		synchronized (this)
+		{
+			response = changesSince(clientEpoch, clientVersion);
+			if (response == null)
+			{
+				watches.add(new Watch(clientEpoch, clientVersion,
+						System.currentTimeMillis() + (long)(WATCH_TIMEOUT_SEC * 1000), callback));
+				return;
+			}
+		}
+
+		callback.requestDone(okStatus, response);
+	}
+
+	/**
+	 * Remove names still owned by an (removed) server, called with lock held.
+	 * @param entry server entry.
+	 */
+	private void removeNames(ServerEntry entry)
+	{
+		for (String name : entry.names)
+		{
+			if (names.get(name) == entry)
+			{
+				names.remove(name);
+				addChange(name, null);
+			}
+		}
+	}
+
+	/**
+	 * Remember a change, called with lock held.
+	 * @param name channel name.
+	 * @param entry new server of the channel, <code>null</code> if removed.
+	 */
+	private void addChange(String name, ServerEntry entry)
+	{
+		changes.addLast(new Change(++version, name, entry));
+		while (changes.size() > MAX_CHANGES)
+			changes.removeFirst();
+	}
+
+	/**
+	 * Get changes since given version, called with lock held.
+	 * @param clientEpoch name server instance ID known to the client.
+	 * @param clientVersion client version.
+	 * @return response, <code>null</code> if there are no changes.
+	 */
+	private PVStructure changesSince(long clientEpoch, long clientVersion)
+	{
+		// version of another name server instance (e.g. restarted), the versions are not comparable
+		if (clientEpoch != epoch)
+			return createResponse(version, true, null);
+
+		if (clientVersion == version)
+			return null;
+
+		// unknown version, or changes already forgotten
+		final long oldestVersion = changes.isEmpty() ? version + 1 : changes.peekFirst().version;
+		if (clientVersion < 0 || clientVersion > version || clientVersion + 1 < oldestVersion)
+			return createResponse(version, true, null);
+
+		List<Change> newer = new ArrayList<Change>();
+		for (Iterator<Change> iter = changes.descendingIterator(); iter.hasNext(); )
+		{
+			Change change = iter.next();
+			if (change.version <= clientVersion)
+				break;
+			newer.add(0, change);
+		}
+		return createResponse(version, false, newer);
+	}
+
+	/**
+	 * Take watches that can be responded, called with lock held.
+	 * @param expiredOnly take only expired watches.
+	 * @param now current time (in ms), used only if <code>expiredOnly</code> is set.
+	 * @return list of responses to be sent.
+	 */
+	private List<WatchResponse> takeWatches(boolean expiredOnly, long now)
+	{
+		if (watches.isEmpty())
+			return null;
+
+		List<WatchResponse> ready = null;
+		for (Iterator<Watch> iter = watches.iterator(); iter.hasNext(); )
+		{
+			Watch watch = iter.next();
+			PVStructure response = changesSince(watch.epoch, watch.version);
+			if (response == null)
+			{
+				if (!expiredOnly || watch.deadline > now)
+					continue;
+				response = createResponse(version, false, null);
+			}
+
+			iter.remove();
+			if (ready == null)
+				ready = new ArrayList<WatchResponse>();
+			ready.add(new WatchResponse(watch.callback, response));
+		}
+		return ready;
+	}
+
+	/**
+	 * Response to a watch request, sent without lock held.
+	 */
+	private static class WatchResponse {
+		final RPCResponseCallback callback;
+		final PVStructure response;
+
+		WatchResponse(RPCResponseCallback callback, PVStructure response) {
+			this.callback = callback;
+			this.response = response;
+		}
+	}
+
+	/**
+	 * Respond to the watches, called without lock held.
+	 * @param ready responses to be sent.
+	 */
+	private static void respond(List<WatchResponse> ready)
+	{
+		if (ready == null)
+			return;
+
+		for (WatchResponse watchResponse : ready)
+			watchResponse.callback.requestDone(okStatus, watchResponse.response);
+	}
+
+	private PVStructure createResponse(long version, boolean reset, List<Change> entries)
+	{
+		PVStructure response = pvDataCreate.createPVStructure(RESPONSE_STRUCTURE);
+		response.getLongField("epoch").put(epoch);
+		response.getLongField("version").put(version);
+		response.getBooleanField("reset").put(reset);
+
+		if (entries != null && !entries.isEmpty())
+		{
+			final int count = entries.size();
+			String[] names = new String[count];
+			String[] servers = new String[count];
+			String[] guids = new String[count];
+			for (int i = 0; i < count; i++)
+			{
+				Change change = entries.get(i);
+				names[i] = change.name;
+				servers[i] = change.server;
+				guids[i] = change.guid;
+			}
+			response.getSubField(PVStringArray.class, "names").put(0, count, names, 0);
+			response.getSubField(PVStringArray.class, "servers").put(0, count, servers, 0);
+			response.getSubField(PVStringArray.class, "guids").put(0, count, guids, 0);
+		}
+
+		return response;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.misc.Timer.TimerCallback#callback()
+	 */
+	@Override
+	public void callback() {
+		final long now = System.currentTimeMillis();
+		List<WatchResponse> ready;
+		synchronized (this) {
+			// servers that did not renew the registration (e.g. crashed)
+			for (Iterator<ServerEntry> iter = servers.values().iterator(); iter.hasNext(); )
+			{
+				ServerEntry entry = iter.next();
+				if (entry.expirationTime <= now)
+				{
+					iter.remove();
+					removeNames(entry);
+				}
+			}
+
+			ready = takeWatches(true, now);
+		}
+		respond(ready);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.misc.Timer.TimerCallback#timerStopped()
+	 */
+	@Override
+	public void timerStopped() {
+		// noop
+	}
+}
@@ -4,8 +4,10 @@
 package org.epics.pvaccess.server.rpc.impl;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import org.epics.pvaccess.client.Channel;
@@ -101,7 +103,11 @@ public class RPCChannelProvider implements ChannelProvider {
 
 	@Override
 	public ChannelFind channelList(ChannelListRequester channelListRequester) {
-		channelListRequester.channelListResult(okStatus, channelFind, services.keySet(), false);
+		Set<String> serviceNames;
+		synchronized (services) {
+			serviceNames = new HashSet<String>(services.keySet());
+		}
+		channelListRequester.channelListResult(okStatus, channelFind, serviceNames, false);
 		return channelFind;
 	}
 
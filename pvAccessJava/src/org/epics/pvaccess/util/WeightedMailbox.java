@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.util;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Mailbox with several lanes, served by weight.
+ * <p>
+ * Lanes with a weight of 0 are served strictly by priority (lower lane index first), before any other lane.
+ * The other lanes are served by weighted round-robin: a lane gets up to <code>weight</code>
+ * consecutive takes per round, skipping the empty lanes.
+ * <p>
+ * Any number of threads can put, only one thread can take.
+ * @param <E> element type.
+ */
+public class WeightedMailbox<E> {
+
+	private final ConcurrentLinkedQueue<E>[] queues;
+	private final int[] weights;
+	private final AtomicInteger elements = new AtomicInteger(0);
+	private final AtomicBoolean wakeup = new AtomicBoolean(false);
+
+	// round-robin state, used only by the taking thread
+	private final int[] credits;
+	private int currentLane = 0;
+
+	/**
+	 * Create a mailbox.
+	 * @param weights weights of the lanes, 0 for strict priority.
+	 */
+	@SuppressWarnings("unchecked")
+	public WeightedMailbox(int[] weights)
+	{
+		this.weights = weights.clone();
+		credits = weights.clone();
+		queues = new ConcurrentLinkedQueue[weights.length];
+		for (int i = 0; i < queues.length; i++)
+			queues[i] = new ConcurrentLinkedQueue<E>();
+	}
+
+	public void put(E msg, int lane)
+	{
+		queues[lane].add(msg);
+		if (elements.incrementAndGet() == 1)
+		{
+		    synchronized (elements)
+		    {
+		        elements.notify();
+		    }
+		}
+	}
+
+	private E poll()
+	{
+		// strict priority lanes first
+		for (int i = 0; i < queues.length; i++)
+		{
+			if (weights[i] == 0)
+			{
+				E val = queues[i].poll();
+				if (val != null)
+					return val;
+			}
+		}
+
+		// second pass after a refill of the credits
+		for (int pass = 0; pass < 2; pass++)
+		{
+			for (int n = 0; n < queues.length; n++)
+			{
+				final int lane = currentLane;
+				if (credits[lane] > 0)
+				{
+					E val = queues[lane].poll();
+					if (val != null)
+					{
+						if (--credits[lane] == 0)
+							currentLane = (lane + 1) % queues.length;
+						return val;
+					}
+				}
+				currentLane = (lane + 1) % queues.length;
+			}
+
+			// no lane with credits left has anything, start a new round
+			System.arraycopy(weights, 0, credits, 0, weights.length);
+		}
+		return null;
+	}
+
+	public E take(long timeout) throws InterruptedException
+	{
+		while (true)
+		{
+			E val = poll();
+			if (val == null)
+			{
+			    synchronized (elements)
+			    {
+			    	boolean isEmpty = isEmpty();
+			    	if (isEmpty && timeout < 0)
+			    		return null;
+
+			        while (isEmpty)
+			        {
+			        	elements.wait(timeout);
+			        	isEmpty = isEmpty();
+			        	if (isEmpty)
+			        	{
+			        		if (timeout > 0)	// TODO spurious wakeup, but not critical
+			        			return null;
+			        		else // if (timeout == 0)	cannot be negative
+			        		{
+			        			if (wakeup.getAndSet(false))
+			        				return null;
+			        		}
+			        	}
+			        }
+			    }
+			}
+			else
+			{
+				elements.decrementAndGet();
+				return val;
+			}
+		}
+	}
+
+	// NOTE: size is O(n)
+	public boolean isEmpty()
+	{
+		for (ConcurrentLinkedQueue<E> queue : queues)
+			if (!queue.isEmpty())
+				return false;
+		return true;
+	}
+
+	public void clear()
+	{
+		for (ConcurrentLinkedQueue<E> queue : queues)
+			queue.clear();
+	}
+
+	public void wakeup()
+	{
+		if (!wakeup.getAndSet(true))
+		{
+			synchronized (elements)
+			{
+				elements.notifyAll();
+			}
+		}
+	}
+}
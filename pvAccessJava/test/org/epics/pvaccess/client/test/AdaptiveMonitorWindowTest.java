@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.client.test;
+
+import junit.framework.TestCase;
+
+import org.epics.pvaccess.client.impl.remote.AdaptiveMonitorWindow;
+
+/**
+ * @version $Id$
+ */
+public class AdaptiveMonitorWindowTest extends TestCase {
+
+	private static final long MS = 1000000L;
+	
+	public AdaptiveMonitorWindowTest(String methodName) {
+		super(methodName);
+	}
+
+	public void testBounds()
+	{
+		try {
+			new AdaptiveMonitorWindow(1, 10, 0);
+			fail("minWindow < 2 accepted");
+		} catch (IllegalArgumentException iae) {
+			// OK
+		}
+		try {
+			new AdaptiveMonitorWindow(4, 3, 0);
+			fail("maxWindow < minWindow accepted");
+		} catch (IllegalArgumentException iae) {
+			// OK
+		}
+		
+		AdaptiveMonitorWindow window = new AdaptiveMonitorWindow(4, 16, 0);
+		assertEquals(4, window.getWindow());
+		assertEquals(4, window.getMinWindow());
+		assertEquals(16, window.getMaxWindow());
+		assertEquals(-1, window.getRoundTripTime());
+		assertFalse(window.resize(0));
+	}
+	
+	public void testGrowAndShrink()
+	{
+		AdaptiveMonitorWindow window = new AdaptiveMonitorWindow(4, 16, 0);
+		long now = 0;
+		
+		// the server uses up the window, the consumer keeps up
+		for (int i = 0; i < 4; i++)
+		{
+			window.eventReceived(now);
+			window.elementReleased();
+		}
+		now += 10*MS;
+		assertTrue(window.resize(now));
+		assertEquals(8, window.getWindow());
+		assertTrue(window.hasPendingCredits());
+		
+		// released elements plus the increase
+		assertEquals(4 + 4, window.credits(4, now));
+		assertFalse(window.hasPendingCredits());
+		
+		// the first update after the credits gives the round-trip time
+		now += 2*MS;
+		window.eventReceived(now);
+		assertEquals(2*MS, window.getRoundTripTime());
+
+		// overruns also grow the window, up to the maximum
+		window.overrun();
+		assertTrue(window.resize(now));
+		assertEquals(16, window.getWindow());
+		window.overrun();
+		assertFalse(window.resize(now));
+		assertEquals(8, window.credits(0, now));
+		
+		// slow consumer, no stalls: shrink once per period
+		now += AdaptiveMonitorWindow.SHRINK_PERIOD - 1;
+		assertFalse(window.resize(now));
+		now += 1;
+		assertTrue(window.resize(now));
+		assertEquals(8, window.getWindow());
+		
+		// the decrease is withheld from the next acknowledgements
+		assertEquals(0, window.credits(5, now));
+		assertEquals(2, window.credits(5, now));
+		
+		now += AdaptiveMonitorWindow.SHRINK_PERIOD;
+		assertTrue(window.resize(now));
+		assertEquals(4, window.getWindow());
+		now += AdaptiveMonitorWindow.SHRINK_PERIOD;
+		assertFalse(window.resize(now));
+		assertEquals(4, window.getWindow());
+	}
+
+	public void testRequiredWindow()
+	{
+		AdaptiveMonitorWindow window = new AdaptiveMonitorWindow(2, 64, 0);
+		long now = 0;
+		
+		// stall, then credits, then an update after 10ms
+		window.eventReceived(now);
+		window.eventReceived(now);
+		assertTrue(window.resize(now));
+		window.credits(2, now);
+		now += 10*MS;
+		window.eventReceived(now);
+		assertEquals(10*MS, window.getRoundTripTime());
+		
+		// 1000 releases per second
+		for (int i = 0; i < 1000; i++)
+			window.elementReleased();
+		now = 1000*MS;
+		window.resize(now);
+		assertEquals(1000.0, window.getDrainRate(), 1e-6);
+		
+		// 10 elements per round-trip, doubled, plus 2
+		assertEquals(22, window.getRequiredWindow());
+	}
+}
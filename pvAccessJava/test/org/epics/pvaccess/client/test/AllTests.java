@@ -30,6 +30,13 @@ public class AllTests {
         //$JUnit-BEGIN$
         suite.addTestSuite(ChannelAccessIFLocalTest.class);
         suite.addTestSuite(ChannelAccessIFRemoteTest.class);
+        suite.addTestSuite(AdaptiveMonitorWindowTest.class);
+        suite.addTestSuite(BeaconTrackerTest.class);
+        suite.addTestSuite(ChannelLocationCacheTest.class);
+        suite.addTestSuite(ChannelLocationConnectTest.class);
+        suite.addTestSuite(NameServerTest.class);
+        suite.addTestSuite(ForwardingChannelProviderTest.class);
+        suite.addTestSuite(AsyncTCPConnectorTest.class);
         //$JUnit-END$
         return suite;
     }
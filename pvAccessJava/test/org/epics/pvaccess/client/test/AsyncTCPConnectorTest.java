@@ -0,0 +1,433 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.client.test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import junit.framework.TestCase;
+
+import org.epics.pvaccess.PVAConstants;
+import org.epics.pvaccess.PVFactory;
+import org.epics.pvaccess.client.Channel;
+import org.epics.pvaccess.client.Channel.ConnectionState;
+import org.epics.pvaccess.client.ChannelProvider;
+import org.epics.pvaccess.client.ChannelRequester;
+import org.epics.pvaccess.client.impl.remote.ClientContextImpl;
+import org.epics.pvaccess.client.impl.remote.tcp.AsyncTCPConnector;
+import org.epics.pvaccess.client.impl.remote.tcp.AsyncTCPConnector.ConnectCallback;
+import org.epics.pvaccess.client.impl.remote.tcp.AsyncTCPConnector.TransportFactory;
+import org.epics.pvaccess.client.impl.remote.tcp.BlockingClientTCPTransport;
+import org.epics.pvaccess.impl.remote.ConnectionException;
+import org.epics.pvaccess.impl.remote.Context;
+import org.epics.pvaccess.impl.remote.ProtocolType;
+import org.epics.pvaccess.impl.remote.Transport;
+import org.epics.pvaccess.impl.remote.TransportClient;
+import org.epics.pvaccess.impl.remote.TransportRegistry;
+import org.epics.pvaccess.impl.remote.request.ResponseHandler;
+import org.epics.pvaccess.impl.remote.tcp.BlockingTCPTransport;
+import org.epics.pvaccess.plugins.SecurityPlugin;
+import org.epics.pvdata.misc.ThreadPriority;
+import org.epics.pvdata.misc.Timer;
+import org.epics.pvdata.misc.TimerFactory;
+import org.epics.pvdata.pv.MessageType;
+import org.epics.pvdata.pv.Status;
+
+/**
+ * Non-blocking TCP connector test.
+ * @version $Id$
+ */
+public class AsyncTCPConnectorTest extends TestCase {
+
+	private static final long TIMEOUT_MS = 5000;
+
+	private static final short PRIORITY = ChannelProvider.PRIORITY_DEFAULT;
+
+	private static final Status okStatus = PVFactory.getStatusCreate().getStatusOK();
+
+	/**
+	 * Server accepting connections, but never verifying them.
+	 */
+	private static class SilentServer implements Runnable {
+		final ServerSocket serverSocket;
+		final List<Socket> accepted = Collections.synchronizedList(new ArrayList<Socket>());
+
+		SilentServer() throws IOException {
+			serverSocket = new ServerSocket(0);
+			Thread thread = new Thread(this, "silent server");
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		InetSocketAddress getAddress() {
+			return new InetSocketAddress("127.0.0.1", serverSocket.getLocalPort());
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (true)
+					accepted.add(serverSocket.accept());
+			} catch (IOException e) {
+				// closed
+			}
+		}
+
+		void close() throws IOException {
+			serverSocket.close();
+			synchronized (accepted) {
+				for (Socket socket : accepted)
+					socket.close();
+			}
+		}
+	}
+
+	private static class TestContext implements Context {
+		final Logger logger = Logger.getLogger(AsyncTCPConnectorTest.class.getName());
+		final Timer timer = TimerFactory.create("connector test timer", ThreadPriority.lower);
+		final TransportRegistry transportRegistry = new TransportRegistry();
+
+		@Override
+		public Logger getLogger() {
+			return logger;
+		}
+
+		@Override
+		public Timer getTimer() {
+			return timer;
+		}
+
+		@Override
+		public TransportRegistry getTransportRegistry() {
+			return transportRegistry;
+		}
+
+		@Override
+		public Map<String, SecurityPlugin> getSecurityPlugins() {
+			return Collections.emptyMap();
+		}
+
+		@Override
+		public int getDebugLevel() {
+			return 0;
+		}
+	}
+
+	private static class TestTransportClient implements TransportClient {
+		@Override
+		public void transportUnresponsive() {
+			// noop
+		}
+
+		@Override
+		public void transportResponsive(Transport transport) {
+			// noop
+		}
+
+		@Override
+		public void transportChanged() {
+			// noop
+		}
+
+		@Override
+		public void transportClosed() {
+			// noop
+		}
+	}
+
+	private static class TestConnectCallback implements ConnectCallback {
+		final CountDownLatch done = new CountDownLatch(1);
+		final AtomicInteger calls = new AtomicInteger();
+		volatile Transport transport;
+		volatile ConnectionException exception;
+
+		@Override
+		public void transportConnected(Transport transport) {
+			this.transport = transport;
+			calls.incrementAndGet();
+			done.countDown();
+		}
+
+		@Override
+		public void transportConnectFailed(ConnectionException cex) {
+			this.exception = cex;
+			calls.incrementAndGet();
+			done.countDown();
+		}
+
+		void await() throws InterruptedException {
+			assertTrue(done.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+		}
+	}
+
+	private static final ResponseHandler responseHandler = new ResponseHandler() {
+		@Override
+		public void handleResponse(InetSocketAddress responseFrom, Transport transport, byte version,
+				byte command, int payloadSize, ByteBuffer payloadBuffer) {
+			// noop
+		}
+	};
+
+	private static final TransportFactory transportFactory = new TransportFactory() {
+		@Override
+		public BlockingTCPTransport create(Context context, SocketChannel channel, ResponseHandler responseHandler,
+				int receiveBufferSize, TransportClient client, short transportRevision, float heartbeatInterval,
+				short priority) {
+			try {
+				return new BlockingClientTCPTransport(context, channel, responseHandler, receiveBufferSize, client,
+						transportRevision, heartbeatInterval, priority);
+			} catch (IOException e) {
+				throw new RuntimeException("Failed to create transport.", e);
+			}
+		}
+	};
+
+	private TestContext context;
+	private AsyncTCPConnector connector;
+	private SilentServer server;
+
+	public AsyncTCPConnectorTest(String methodName) {
+		super(methodName);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		context = new TestContext();
+		connector = new AsyncTCPConnector(context, transportFactory, PVAConstants.MAX_TCP_RECV, 30.0f);
+		server = new SilentServer();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		connector.destroy();
+		server.close();
+		context.timer.stop();
+	}
+
+	private BlockingTCPTransport waitForTransport(TransportRegistry transportRegistry, InetSocketAddress address) throws InterruptedException
+	{
+		final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		while (System.currentTimeMillis() < deadline)
+		{
+			Transport transport = transportRegistry.get(ProtocolType.tcp.name(), address, PRIORITY);
+			if (transport != null)
+				return (BlockingTCPTransport)transport;
+			Thread.sleep(10);
+		}
+		return null;
+	}
+
+	private static void waitForNoTransports(TransportRegistry transportRegistry) throws InterruptedException
+	{
+		final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		while (transportRegistry.numberOfActiveTransports() > 0 && System.currentTimeMillis() < deadline)
+			Thread.sleep(10);
+		assertEquals(0, transportRegistry.numberOfActiveTransports());
+	}
+
+	public void testJoinPendingConnect() throws Exception
+	{
+		final InetSocketAddress address = server.getAddress();
+
+		TestTransportClient client1 = new TestTransportClient();
+		TestConnectCallback callback1 = new TestConnectCallback();
+		connector.connect(client1, responseHandler, address, PVAConstants.PVA_PROTOCOL_REVISION, PRIORITY, callback1);
+
+		TestTransportClient client2 = new TestTransportClient();
+		TestConnectCallback callback2 = new TestConnectCallback();
+		connector.connect(client2, responseHandler, address, PVAConstants.PVA_PROTOCOL_REVISION, PRIORITY, callback2);
+
+		// connected, but not verified yet
+		BlockingTCPTransport transport = waitForTransport(context.transportRegistry, address);
+		assertNotNull(transport);
+		assertEquals(1, callback1.done.getCount());
+		assertEquals(1, callback2.done.getCount());
+
+		transport.verified(okStatus);
+		callback1.await();
+		callback2.await();
+
+		// one connection shared by both clients
+		assertEquals(1, server.accepted.size());
+		assertSame(transport, callback1.transport);
+		assertSame(transport, callback2.transport);
+		assertEquals(1, callback1.calls.get());
+		assertEquals(1, callback2.calls.get());
+
+		// the connection is owned by the clients
+		transport.release(client1);
+		assertEquals(1, context.transportRegistry.numberOfActiveTransports());
+		transport.release(client2);
+		waitForNoTransports(context.transportRegistry);
+	}
+
+	public void testRetryAndFail() throws Exception
+	{
+		// port is reserved (bound, so it can not be reused by another socket), but nobody is listening
+		final Socket reserved = new Socket();
+		reserved.bind(new InetSocketAddress("127.0.0.1", 0));
+		final InetSocketAddress address = new InetSocketAddress("127.0.0.1", reserved.getLocalPort());
+
+		final AtomicInteger attempts = new AtomicInteger();
+		Handler handler = new Handler() {
+			@Override
+			public void publish(LogRecord record) {
+				if (record.getMessage().startsWith("Openning socket"))
+					attempts.incrementAndGet();
+			}
+
+			@Override
+			public void flush() {
+				// noop
+			}
+
+			@Override
+			public void close() {
+				// noop
+			}
+		};
+		final Level level = context.logger.getLevel();
+		context.logger.setLevel(Level.FINEST);
+		context.logger.addHandler(handler);
+		try
+		{
+			TestConnectCallback callback = new TestConnectCallback();
+			final long start = System.currentTimeMillis();
+			connector.connect(new TestTransportClient(), responseHandler, address, PVAConstants.PVA_PROTOCOL_REVISION, PRIORITY, callback);
+			callback.await();
+
+			// attempts are delayed (100ms) by the timer
+			assertTrue(System.currentTimeMillis() - start >= 150);
+			assertEquals(3, attempts.get());
+			assertNotNull(callback.exception);
+			assertNull(callback.transport);
+
+			// notified only once
+			Thread.sleep(300);
+			assertEquals(1, callback.calls.get());
+			assertEquals(3, attempts.get());
+		}
+		finally
+		{
+			context.logger.removeHandler(handler);
+			context.logger.setLevel(level);
+			reserved.close();
+		}
+	}
+
+	public void testVerificationTimeout() throws Exception
+	{
+		final InetSocketAddress address = server.getAddress();
+
+		TestConnectCallback callback = new TestConnectCallback();
+		connector.connect(new TestTransportClient(), responseHandler, address, PVAConstants.PVA_PROTOCOL_REVISION, PRIORITY, callback);
+		assertNotNull(waitForTransport(context.transportRegistry, address));
+
+		// verification timeout is 5s
+		assertFalse(callback.done.await(4000, TimeUnit.MILLISECONDS));
+		callback.await();
+		assertNotNull(callback.exception);
+		assertNotNull(callback.exception.getCause());
+		assertTrue(callback.exception.getCause().getMessage().contains("verification"));
+		assertEquals(1, callback.calls.get());
+
+		// not verified connection is closed
+		waitForNoTransports(context.transportRegistry);
+	}
+
+	public void testBlockingConnectInterrupted() throws Exception
+	{
+		final InetSocketAddress address = server.getAddress();
+
+		Thread.currentThread().interrupt();
+		try {
+			connector.connect(new TestTransportClient(), responseHandler, address, PVAConstants.PVA_PROTOCOL_REVISION, PRIORITY);
+			fail("interrupted connect should fail");
+		} catch (ConnectionException cex) {
+			// expected
+		}
+		// interrupted status is preserved (and cleared here)
+		assertTrue(Thread.interrupted());
+	}
+
+	private static class ConnectionRequester implements ChannelRequester {
+		final CountDownLatch connected = new CountDownLatch(1);
+
+		@Override
+		public void channelCreated(Status status, Channel channel) {
+			// noop
+		}
+
+		@Override
+		public void channelStateChange(Channel channel, ConnectionState connectionState) {
+			if (connectionState == ConnectionState.CONNECTED)
+				connected.countDown();
+		}
+
+		@Override
+		public String getRequesterName() {
+			return getClass().getName();
+		}
+
+		@Override
+		public void message(String message, MessageType messageType) {
+			// noop
+		}
+	}
+
+	public void testChannelDestroyedWhileConnecting() throws Exception
+	{
+		final InetSocketAddress address = server.getAddress();
+
+		ClientContextImpl clientContext = new ClientContextImpl();
+		clientContext.initialize();
+		try
+		{
+			ConnectionRequester requester = new ConnectionRequester();
+			Channel channel = clientContext.getProvider().createChannel("connectorTest", requester, PRIORITY,
+					"127.0.0.1:" + address.getPort());
+
+			BlockingTCPTransport transport = waitForTransport(clientContext.getTransportRegistry(), address);
+			assertNotNull(transport);
+
+			// destroyed before the connection is verified
+			channel.destroy();
+			transport.verified(okStatus);
+
+			// the channel releases the transport, the connection is closed
+			waitForNoTransports(clientContext.getTransportRegistry());
+			assertEquals(1, requester.connected.getCount());
+		}
+		finally
+		{
+			clientContext.dispose();
+		}
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.client.test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.epics.pvaccess.client.impl.remote.BeaconTracker;
+import org.epics.pvaccess.client.impl.remote.BeaconTracker.Anomaly;
+import org.epics.pvaccess.client.impl.remote.BeaconTracker.ServerState;
+import org.epics.pvdata.misc.ThreadPriority;
+import org.epics.pvdata.misc.Timer;
+import org.epics.pvdata.misc.TimerFactory;
+
+/**
+ * Beacon anomaly tracker test.
+ * @version $Id$
+ */
+public class BeaconTrackerTest extends TestCase {
+
+	private static final byte[] GUID1 = new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12 };
+	private static final byte[] GUID2 = new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 13 };
+
+	public BeaconTrackerTest(String methodName) {
+		super(methodName);
+	}
+
+	public void testStateTransitions()
+	{
+		// 15s beacon period, i.e. 37.5s silence
+		ServerState state = new ServerState(15.0f);
+		long now = 1000000;
+
+		assertEquals(Anomaly.NEW_SERVER, state.update(GUID1, 0, 0, now));
+		now += 15000;
+		assertEquals(Anomaly.NONE, state.update(GUID1.clone(), 1, 0, now));
+		assertEquals(1, state.getLastSequentialID());
+
+		now += 15000;
+		assertEquals(Anomaly.CHANGED, state.update(GUID1, 2, 1, now));
+		now += 15000;
+		assertEquals(Anomaly.NONE, state.update(GUID1, 3, 1, now));
+
+		now += 15000;
+		assertEquals(Anomaly.RESTARTED, state.update(GUID2, 0, 0, now));
+		now += 15000;
+		assertEquals(Anomaly.NONE, state.update(GUID2, 1, 0, now));
+
+		// network outage
+		now += 60000;
+		assertEquals(Anomaly.RECOVERED, state.update(GUID2, 5, 0, now));
+		now += 15000;
+		assertEquals(Anomaly.NONE, state.update(GUID2, 6, 0, now));
+	}
+
+	public void testBackoff()
+	{
+		ServerState state = new ServerState(15.0f);
+		long now = 1000000;
+
+		state.update(GUID1, 0, 0, now);
+		assertEquals(0, state.getAnomalyCount());
+		assertEquals(BeaconTracker.BASE_DELAY_MS, state.getBackoffWindow());
+
+		// flapping server, window doubles
+		byte[] guid = GUID1;
+		for (int i = 1; i <= BeaconTracker.MAX_BACKOFF_EXPONENT + 2; i++)
+		{
+			guid = (guid == GUID1) ? GUID2 : GUID1;
+			now += 1000;
+			assertEquals(Anomaly.RESTARTED, state.update(guid, 0, 0, now));
+			assertEquals(i, state.getAnomalyCount());
+			assertEquals(BeaconTracker.BASE_DELAY_MS << Math.min(i, BeaconTracker.MAX_BACKOFF_EXPONENT),
+					state.getBackoffWindow());
+		}
+
+		// calm period resets the back-off
+		now += BeaconTracker.BACKOFF_RESET_MS + 1;
+		assertEquals(Anomaly.RESTARTED, state.update(guid == GUID1 ? GUID2 : GUID1, 0, 0, now));
+		assertEquals(0, state.getAnomalyCount());
+		assertEquals(BeaconTracker.BASE_DELAY_MS, state.getBackoffWindow());
+	}
+
+	public void testTargetedSearch() throws InterruptedException
+	{
+		final List<InetSocketAddress> restarted = new ArrayList<InetSocketAddress>();
+		final int[] searchAll = new int[1];
+		BeaconTracker.Listener listener = new BeaconTracker.Listener() {
+
+			@Override
+			public void searchAll() {
+				synchronized (restarted) {
+					searchAll[0]++;
+					restarted.notifyAll();
+				}
+			}
+
+			@Override
+			public void searchServerChannels(InetSocketAddress serverAddress) {
+				synchronized (restarted) {
+					restarted.add(serverAddress);
+					restarted.notifyAll();
+				}
+			}
+		};
+
+		Timer timer = TimerFactory.create("beacon tracker test", ThreadPriority.lower);
+		try
+		{
+			BeaconTracker tracker = new BeaconTracker(listener, timer, 15.0f);
+			InetSocketAddress server1 = new InetSocketAddress("localhost", 5075);
+			InetSocketAddress server2 = new InetSocketAddress("localhost", 5076);
+			ServerState state1 = tracker.createServerState();
+			ServerState state2 = tracker.createServerState();
+
+			long now = System.currentTimeMillis();
+			assertEquals(Anomaly.NEW_SERVER, tracker.beaconNotify(state1, server1, GUID1, 0, 0, now));
+			assertEquals(Anomaly.NEW_SERVER, tracker.beaconNotify(state2, server2, GUID1, 0, 0, now));
+			assertEquals(Anomaly.RESTARTED, tracker.beaconNotify(state1, server1, GUID2, 0, 0, now + 1));
+			assertEquals(Anomaly.NONE, tracker.beaconNotify(state2, server2, GUID1, 1, 0, now + 1));
+
+			long timeout = System.currentTimeMillis() + 5000;
+			synchronized (restarted) {
+				while ((restarted.isEmpty() || searchAll[0] == 0) && System.currentTimeMillis() < timeout)
+					restarted.wait(100);
+			}
+			Thread.sleep(2 * BeaconTracker.BASE_DELAY_MS);
+
+			synchronized (restarted) {
+				// new servers trigger (coalesced) search of all channels
+				assertTrue(searchAll[0] >= 1 && searchAll[0] <= 2);
+				assertEquals(1, restarted.size());
+				assertEquals(server1, restarted.get(0));
+			}
+		}
+		finally
+		{
+			timer.stop();
+		}
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.client.test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+import junit.framework.TestCase;
+
+import org.epics.pvaccess.client.impl.remote.search.ChannelLocationCache;
+
+/**
+ * Channel location cache test.
+ * @version $Id$
+ */
+public class ChannelLocationCacheTest extends TestCase {
+
+	private static final byte[] GUID1 = new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, (byte)0xFF };
+	private static final byte[] GUID2 = new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 13 };
+
+	private static final Logger logger = Logger.getLogger(ChannelLocationCacheTest.class.getName());
+
+	private File file;
+
+	public ChannelLocationCacheTest(String methodName) {
+		super(methodName);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		file = File.createTempFile("pvaChannelCache", ".txt");
+		file.delete();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		file.delete();
+	}
+
+	public void testPersistence()
+	{
+		InetSocketAddress server1 = new InetSocketAddress("127.0.0.1", 5075);
+		InetSocketAddress server2 = new InetSocketAddress("127.0.0.1", 5076);
+
+		ChannelLocationCache cache = new ChannelLocationCache(file, 100, null, logger);
+		cache.load();
+		assertEquals(0, cache.size());
+
+		cache.put("channel1", server1, GUID1, (byte)1);
+		cache.put("channel2", server2, GUID2, (byte)0);
+		cache.put("channel3", server1, GUID1, (byte)1);
+		cache.remove("channel3");
+		assertEquals(2, cache.size());
+		assertFalse(file.exists());
+
+		cache.flush();
+		assertTrue(file.exists());
+
+		ChannelLocationCache loaded = new ChannelLocationCache(file, 100, null, logger);
+		loaded.load();
+		assertEquals(2, loaded.size());
+
+		ChannelLocationCache.Entry entry = loaded.get("channel1");
+		assertNotNull(entry);
+		assertEquals(server1, entry.getServerAddress());
+		assertTrue(Arrays.equals(GUID1, entry.getGUID()));
+		assertEquals(1, entry.getMinorRevision());
+
+		entry = loaded.get("channel2");
+		assertNotNull(entry);
+		assertEquals(server2, entry.getServerAddress());
+		assertTrue(Arrays.equals(GUID2, entry.getGUID()));
+		assertEquals(0, entry.getMinorRevision());
+
+		assertNull(loaded.get("channel3"));
+	}
+
+	public void testBounded()
+	{
+		InetSocketAddress server = new InetSocketAddress("127.0.0.1", 5075);
+
+		ChannelLocationCache cache = new ChannelLocationCache(file, 3, null, logger);
+		cache.put("channel1", server, GUID1, (byte)0);
+		cache.put("channel2", server, GUID1, (byte)0);
+		cache.put("channel3", server, GUID1, (byte)0);
+
+		// access makes channel1 the most recently used
+		assertNotNull(cache.get("channel1"));
+
+		cache.put("channel4", server, GUID1, (byte)0);
+		assertEquals(3, cache.size());
+		assertNotNull(cache.get("channel1"));
+		assertNull(cache.get("channel2"));
+		assertNotNull(cache.get("channel3"));
+		assertNotNull(cache.get("channel4"));
+	}
+
+	public void testMalformedEntries() throws IOException
+	{
+		FileWriter writer = new FileWriter(file);
+		try
+		{
+			writer.write("channel1\t127.0.0.1:5075\t0102030405060708090A0B0C\t0\n");
+			writer.write("garbage\n");
+			writer.write("channel2\t127.0.0.1\t0102030405060708090A0B0C\t0\n");
+			writer.write("channel3\t127.0.0.1:5075\t01020\t0\n");
+			writer.write("channel4\t127.0.0.1:port\t0102030405060708090A0B0C\t0\n");
+		}
+		finally
+		{
+			writer.close();
+		}
+
+		ChannelLocationCache cache = new ChannelLocationCache(file, 100, null, logger);
+		cache.load();
+		assertEquals(1, cache.size());
+		assertNotNull(cache.get("channel1"));
+	}
+}
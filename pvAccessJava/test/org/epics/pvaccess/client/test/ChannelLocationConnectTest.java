@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2006 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.client.test;
+
+import java.io.File;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import junit.framework.TestCase;
+
+import org.epics.pvaccess.PVAConstants;
+import org.epics.pvaccess.client.Channel;
+import org.epics.pvaccess.client.Channel.ConnectionState;
+import org.epics.pvaccess.client.ChannelProvider;
+import org.epics.pvaccess.client.ChannelRequester;
+import org.epics.pvaccess.client.impl.remote.ClientContextImpl;
+import org.epics.pvaccess.client.impl.remote.search.ChannelLocationCache;
+import org.epics.pvaccess.impl.remote.ProtocolType;
+import org.epics.pvaccess.server.impl.remote.ServerContextImpl;
+import org.epics.pvaccess.server.impl.remote.plugins.DefaultBeaconServerDataProvider;
+import org.epics.pvaccess.server.rpc.RPCRequestException;
+import org.epics.pvaccess.server.rpc.RPCService;
+import org.epics.pvaccess.server.rpc.impl.RPCChannelProvider;
+import org.epics.pvdata.pv.MessageType;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.Status;
+
+/**
+ * Connect to the cached channel location (bypassing the search) test.
+ * @version $Id$
+ */
+public class ChannelLocationConnectTest extends TestCase {
+
+	private static final long TIMEOUT_MS = 5000;
+
+	private static final String CHANNEL_NAME = "channelLocationTest:echo";
+
+	private static final byte[] WRONG_GUID = new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12 };
+
+	private static final Logger logger = Logger.getLogger(ChannelLocationConnectTest.class.getName());
+
+	private static class EchoService implements RPCService {
+		@Override
+		public PVStructure request(PVStructure args) throws RPCRequestException {
+			return args;
+		}
+	}
+
+	private static class ConnectionRequester implements ChannelRequester {
+		final CountDownLatch connected = new CountDownLatch(1);
+
+		@Override
+		public void channelCreated(Status status, Channel channel) {
+			// noop
+		}
+
+		@Override
+		public void channelStateChange(Channel channel, ConnectionState connectionState) {
+			if (connectionState == ConnectionState.CONNECTED)
+				connected.countDown();
+		}
+
+		@Override
+		public String getRequesterName() {
+			return getClass().getName();
+		}
+
+		@Override
+		public void message(String message, MessageType messageType) {
+			System.err.println("[" + messageType + "] " + message);
+		}
+	}
+
+	private File file;
+	private ServerContextImpl serverContext;
+	private InetSocketAddress serverAddress;
+	private ClientContextImpl clientContext;
+
+	public ChannelLocationConnectTest(String methodName) {
+		super(methodName);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		file = File.createTempFile("pvaChannelCache", ".txt");
+		file.delete();
+
+		RPCChannelProvider channelProvider = new RPCChannelProvider(null);
+		channelProvider.registerService(CHANNEL_NAME, new EchoService());
+
+		serverContext = new ServerContextImpl();
+		serverContext.setBeaconServerStatusProvider(new DefaultBeaconServerDataProvider(serverContext));
+		serverContext.initialize(channelProvider);
+		new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					serverContext.run(0);
+				} catch (Throwable th) {
+					th.printStackTrace();
+				}
+			}
+		}, "pvAccess server").start();
+
+		serverAddress = new InetSocketAddress("127.0.0.1", serverContext.getServerPort());
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (clientContext != null)
+			clientContext.dispose();
+		serverContext.dispose();
+		file.delete();
+	}
+
+	/**
+	 * Store a location in the cache file.
+	 * @param serverAddress server address.
+	 * @param guid server GUID.
+	 */
+	private void cacheLocation(InetSocketAddress serverAddress, byte[] guid)
+	{
+		ChannelLocationCache cache = new ChannelLocationCache(file, 100, null, logger);
+		cache.put(CHANNEL_NAME, serverAddress, guid, PVAConstants.PVA_PROTOCOL_REVISION);
+		cache.flush();
+	}
+
+	/**
+	 * Create and initialize a client using the cache file.
+	 * @param searchAddressList search address list.
+	 */
+	private void createClient(final String searchAddressList) throws Exception
+	{
+		clientContext = new ClientContextImpl() {
+			@Override
+			protected void loadConfiguration() {
+				super.loadConfiguration();
+				channelCacheFile = file.getPath();
+				addressList = searchAddressList;
+				autoAddressList = false;
+			}
+		};
+		clientContext.initialize();
+	}
+
+	/**
+	 * Search address list reaching the test server.
+	 */
+	private String serverSearchAddressList()
+	{
+		return "127.0.0.1:" + serverContext.getBroadcastPort();
+	}
+
+	/**
+	 * Search address list nobody listens on, i.e. search always fails.
+	 */
+	private static String deadSearchAddressList() throws Exception
+	{
+		DatagramSocket socket = new DatagramSocket(0);
+		final int deadPort = socket.getLocalPort();
+		socket.close();
+		return "127.0.0.1:" + deadPort;
+	}
+
+	private boolean connect() throws InterruptedException
+	{
+		ConnectionRequester requester = new ConnectionRequester();
+		clientContext.getProvider().createChannel(CHANNEL_NAME, requester, ChannelProvider.PRIORITY_DEFAULT);
+		return requester.connected.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+	}
+
+	public void testValidLocation() throws Exception
+	{
+		cacheLocation(serverAddress, serverContext.getGUID());
+
+		// the search can not find the channel, only the cached location can
+		createClient(deadSearchAddressList());
+		assertTrue(connect());
+
+		ChannelLocationCache.Entry entry = clientContext.getChannelLocationCache().get(CHANNEL_NAME);
+		assertNotNull(entry);
+		assertEquals(serverAddress, entry.getServerAddress());
+	}
+
+	public void testLocationUpdated() throws Exception
+	{
+		createClient(serverSearchAddressList());
+		assertNull(clientContext.getChannelLocationCache().get(CHANNEL_NAME));
+		assertTrue(connect());
+
+		ChannelLocationCache.Entry entry = clientContext.getChannelLocationCache().get(CHANNEL_NAME);
+		assertNotNull(entry);
+		assertEquals(serverContext.getServerPort(), entry.getServerAddress().getPort());
+		assertTrue(Arrays.equals(serverContext.getGUID(), entry.getGUID()));
+	}
+
+	public void testStaleLocation() throws Exception
+	{
+		// cached server is not running anymore (port kept bound, so that it is not reused)
+		Socket reserved = new Socket();
+		reserved.bind(new InetSocketAddress("127.0.0.1", 0));
+		try
+		{
+			cacheLocation(new InetSocketAddress("127.0.0.1", reserved.getLocalPort()), serverContext.getGUID());
+
+			// a penalized search would not be issued within the timeout
+			createClient(serverSearchAddressList());
+			assertTrue(connect());
+		}
+		finally
+		{
+			reserved.close();
+		}
+
+		// stale location replaced by the one found by search
+		ChannelLocationCache.Entry entry = clientContext.getChannelLocationCache().get(CHANNEL_NAME);
+		assertNotNull(entry);
+		assertEquals(serverContext.getServerPort(), entry.getServerAddress().getPort());
+	}
+
+	public void testGUIDMismatch() throws Exception
+	{
+		// cached location of a server that was restarted since
+		cacheLocation(serverAddress, WRONG_GUID);
+
+		createClient(serverSearchAddressList());
+		clientContext.getBeaconHandler(ProtocolType.tcp.name(), serverAddress).beaconNotify(
+				serverAddress, PVAConstants.PVA_PROTOCOL_REVISION, System.currentTimeMillis(),
+				serverContext.getGUID(), 0, 0, null);
+		assertTrue(connect());
+
+		// connected via search, i.e. location updated with the GUID of the running server
+		ChannelLocationCache.Entry entry = clientContext.getChannelLocationCache().get(CHANNEL_NAME);
+		assertNotNull(entry);
+		assertTrue(Arrays.equals(serverContext.getGUID(), entry.getGUID()));
+	}
+}
@@ -0,0 +1,405 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.client.test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.epics.pvaccess.PVFactory;
+import org.epics.pvaccess.client.Channel;
+import org.epics.pvaccess.client.Channel.ConnectionState;
+import org.epics.pvaccess.client.ChannelProcess;
+import org.epics.pvaccess.client.ChannelProcessRequester;
+import org.epics.pvaccess.client.ChannelProvider;
+import org.epics.pvaccess.client.ChannelRequester;
+import org.epics.pvaccess.client.impl.remote.ClientContextImpl;
+import org.epics.pvaccess.server.gateway.EncodedMonitorUpdates;
+import org.epics.pvaccess.server.gateway.ForwardingChannelProvider;
+import org.epics.pvaccess.server.impl.remote.ServerContextImpl;
+import org.epics.pvaccess.server.impl.remote.plugins.DefaultBeaconServerDataProvider;
+import org.epics.pvaccess.server.test.TestChannelProviderImpl;
+import org.epics.pvdata.copy.CreateRequest;
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.monitor.Monitor;
+import org.epics.pvdata.monitor.MonitorElement;
+import org.epics.pvdata.monitor.MonitorRequester;
+import org.epics.pvdata.pv.Field;
+import org.epics.pvdata.pv.FieldCreate;
+import org.epics.pvdata.pv.MessageType;
+import org.epics.pvdata.pv.PVDoubleArray;
+import org.epics.pvdata.pv.PVField;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.Status;
+import org.epics.pvdata.pv.Structure;
+
+/**
+ * Forwarding (gateway) channel provider test.
+ * @version $Id$
+ */
+public class ForwardingChannelProviderTest extends TestCase {
+
+	private static final long TIMEOUT_MS = 5000;
+
+	private static final PVStructure pvRequest = CreateRequest.create().createRequest("field()");
+
+	private static class ConnectionRequester implements ChannelRequester {
+		final CountDownLatch connected = new CountDownLatch(1);
+
+		@Override
+		public void channelCreated(Status status, Channel channel) {
+			// noop
+		}
+
+		@Override
+		public void channelStateChange(Channel channel, ConnectionState connectionState) {
+			if (connectionState == ConnectionState.CONNECTED)
+				connected.countDown();
+		}
+
+		@Override
+		public String getRequesterName() {
+			return getClass().getName();
+		}
+
+		@Override
+		public void message(String message, MessageType messageType) {
+			System.err.println("[" + messageType + "] " + message);
+		}
+	}
+
+	private static class ProcessRequester implements ChannelProcessRequester {
+		final CountDownLatch connected = new CountDownLatch(1);
+		volatile CountDownLatch done;
+		volatile ChannelProcess channelProcess;
+
+		@Override
+		public void channelProcessConnect(Status status, ChannelProcess channelProcess) {
+			this.channelProcess = channelProcess;
+			connected.countDown();
+		}
+
+		@Override
+		public void processDone(Status status, ChannelProcess channelProcess) {
+			done.countDown();
+		}
+
+		@Override
+		public String getRequesterName() {
+			return getClass().getName();
+		}
+
+		@Override
+		public void message(String message, MessageType messageType) {
+			System.err.println("[" + messageType + "] " + message);
+		}
+	}
+
+	private static class MonitorCollector implements MonitorRequester {
+		final CountDownLatch connected = new CountDownLatch(1);
+		final List<PVStructure> values = new ArrayList<PVStructure>();
+		final boolean copy;
+		volatile Monitor monitor;
+
+		MonitorCollector(boolean copy) {
+			this.copy = copy;
+		}
+
+		@Override
+		public void monitorConnect(Status status, Monitor monitor, Structure structure) {
+			if (status.isSuccess())
+			{
+				this.monitor = monitor;
+				connected.countDown();
+			}
+		}
+
+		@Override
+		public void monitorEvent(Monitor monitor) {
+			MonitorElement element;
+			while ((element = monitor.poll()) != null)
+			{
+				// NOTE: structures with unions cannot be copied
+				PVStructure value = copy ?
+						PVFactory.getPVDataCreate().createPVStructure(element.getPVStructure()) :
+						element.getPVStructure();
+				synchronized (values) {
+					values.add(value);
+					values.notifyAll();
+				}
+				monitor.release(element);
+			}
+		}
+
+		@Override
+		public void unlisten(Monitor monitor) {
+			// noop
+		}
+
+		@Override
+		public String getRequesterName() {
+			return getClass().getName();
+		}
+
+		@Override
+		public void message(String message, MessageType messageType) {
+			System.err.println("[" + messageType + "] " + message);
+		}
+
+		PVStructure waitForValue(int count) throws InterruptedException
+		{
+			final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+			synchronized (values) {
+				while (values.size() < count)
+				{
+					final long timeout = deadline - System.currentTimeMillis();
+					if (timeout <= 0)
+						return null;
+					values.wait(timeout);
+				}
+				return values.get(count - 1);
+			}
+		}
+	}
+
+	private ServerContextImpl upstreamServerContext;
+	private ClientContextImpl gatewayClientContext;
+	private ForwardingChannelProvider forwardingProvider;
+	private ServerContextImpl gatewayServerContext;
+	private ClientContextImpl clientContext;
+
+	public ForwardingChannelProviderTest(String methodName) {
+		super(methodName);
+	}
+
+	private static ServerContextImpl startServer(ChannelProvider channelProvider) throws Exception
+	{
+		final ServerContextImpl serverContext = new ServerContextImpl();
+		serverContext.setBeaconServerStatusProvider(new DefaultBeaconServerDataProvider(serverContext));
+		serverContext.initialize(channelProvider);
+		new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					serverContext.run(0);
+				} catch (Throwable th) {
+					th.printStackTrace();
+				}
+			}
+		}, "pvAccess server").start();
+		return serverContext;
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		upstreamServerContext = startServer(new TestChannelProviderImpl());
+
+		gatewayClientContext = new ClientContextImpl();
+		gatewayClientContext.initialize();
+		forwardingProvider = new ForwardingChannelProvider(gatewayClientContext.getProvider(),
+				"127.0.0.1:" + upstreamServerContext.getServerPort());
+		gatewayServerContext = startServer(forwardingProvider);
+
+		clientContext = new ClientContextImpl();
+		clientContext.initialize();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		clientContext.dispose();
+		gatewayServerContext.dispose();
+		forwardingProvider.destroy();
+		gatewayClientContext.dispose();
+		upstreamServerContext.dispose();
+	}
+
+	private Channel connect(String channelName) throws InterruptedException
+	{
+		ConnectionRequester requester = new ConnectionRequester();
+		Channel channel = clientContext.getProvider().createChannel(channelName, requester, ChannelProvider.PRIORITY_DEFAULT,
+				"127.0.0.1:" + gatewayServerContext.getServerPort());
+		assertTrue(requester.connected.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+		return channel;
+	}
+
+	private MonitorCollector monitor(Channel channel) throws InterruptedException
+	{
+		return monitor(channel, true);
+	}
+
+	private MonitorCollector monitor(Channel channel, boolean copy) throws InterruptedException
+	{
+		MonitorCollector collector = new MonitorCollector(copy);
+		channel.createMonitor(collector, pvRequest);
+		assertTrue(collector.connected.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+		assertTrue(collector.monitor.start().isSuccess());
+		return collector;
+	}
+
+	private void process(ProcessRequester requester) throws InterruptedException
+	{
+		requester.done = new CountDownLatch(1);
+		requester.channelProcess.process();
+		assertTrue(requester.done.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+	}
+
+	private ProcessRequester createProcess(Channel channel) throws InterruptedException
+	{
+		ProcessRequester requester = new ProcessRequester();
+		channel.createChannelProcess(requester, CreateRequest.create().createRequest(""));
+		assertTrue(requester.connected.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+		return requester;
+	}
+
+	public void testSharedMonitor() throws InterruptedException
+	{
+		Channel channel = connect("simpleCounter");
+		MonitorCollector collector1 = monitor(channel);
+		MonitorCollector collector2 = monitor(channel);
+		assertEquals(1, forwardingProvider.getSharedMonitorCount("simpleCounter"));
+
+		// initial (complete) value
+		PVStructure value1 = collector1.waitForValue(1);
+		PVStructure value2 = collector2.waitForValue(1);
+		assertNotNull(value1);
+		assertNotNull(value2);
+		assertEquals(value1, value2);
+
+		// update (only changed fields) forwarded to both
+		ProcessRequester processRequester = createProcess(channel);
+		process(processRequester);
+		value1 = collector1.waitForValue(2);
+		value2 = collector2.waitForValue(2);
+		assertNotNull(value1);
+		assertNotNull(value2);
+		assertEquals(1, value1.getIntField("value").get());
+		assertEquals(value1, value2);
+
+		channel.destroy();
+	}
+
+	public void testLateSubscriber() throws InterruptedException
+	{
+		Channel channel = connect("simpleCounter");
+		MonitorCollector collector1 = monitor(channel);
+		assertNotNull(collector1.waitForValue(1));
+
+		ProcessRequester processRequester = createProcess(channel);
+		process(processRequester);
+		process(processRequester);
+		PVStructure value1 = collector1.waitForValue(3);
+		assertNotNull(value1);
+		assertEquals(2, value1.getIntField("value").get());
+
+		// late subscriber gets the current value, the upstream monitor is not restarted
+		MonitorCollector collector2 = monitor(channel);
+		PVStructure value2 = collector2.waitForValue(1);
+		assertNotNull(value2);
+		assertEquals(value1, value2);
+		assertEquals(1, forwardingProvider.getSharedMonitorCount("simpleCounter"));
+
+		process(processRequester);
+		value1 = collector1.waitForValue(4);
+		value2 = collector2.waitForValue(2);
+		assertNotNull(value1);
+		assertNotNull(value2);
+		assertEquals(3, value2.getIntField("value").get());
+		assertEquals(value1, value2);
+
+		channel.destroy();
+	}
+
+	public void testResubscribe() throws InterruptedException
+	{
+		Channel channel = connect("simpleCounter");
+		for (int i = 0; i < 20; i++)
+		{
+			// the last downstream monitor goes away while a new one subscribes
+			final MonitorCollector collector1 = new MonitorCollector(true);
+			channel.createMonitor(collector1, pvRequest);
+			assertTrue(collector1.connected.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+			Thread destroyThread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					collector1.monitor.destroy();
+				}
+			});
+			destroyThread.start();
+			MonitorCollector collector2 = monitor(channel);
+			assertNotNull(collector2.waitForValue(1));
+			destroyThread.join();
+			collector2.monitor.destroy();
+		}
+
+		channel.destroy();
+	}
+
+	public void testUnion() throws InterruptedException
+	{
+		// union data cannot be passed through, own upstream monitor is used
+		Channel channel = connect("testAny");
+		MonitorCollector collector = monitor(channel, false);
+		assertNotNull(collector.waitForValue(1));
+
+		channel.destroy();
+	}
+
+	public void testEncodedUpdates()
+	{
+		FieldCreate fieldCreate = PVFactory.getFieldCreate();
+		Structure structure = fieldCreate.createStructure(
+				new String[] { "value", "array", "name" },
+				new Field[] {
+						fieldCreate.createScalar(ScalarType.pvDouble),
+						fieldCreate.createScalarArray(ScalarType.pvDouble),
+						fieldCreate.createScalar(ScalarType.pvString) });
+		PVStructure pvStructure = PVFactory.getPVDataCreate().createPVStructure(structure);
+		pvStructure.getDoubleField("value").put(12.3);
+		pvStructure.getSubField(PVDoubleArray.class, "array").put(0, 3, new double[] { 1.1, 2.2, 3.3 }, 0);
+		pvStructure.getStringField("name").put("gateway");
+
+		BitSet changedBitSet = new BitSet(pvStructure.getNumberFields());
+		BitSet overrunBitSet = new BitSet(pvStructure.getNumberFields());
+		changedBitSet.set(0);
+		ByteBuffer complete = EncodedMonitorUpdates.encode(pvStructure, changedBitSet, overrunBitSet, ByteOrder.BIG_ENDIAN);
+		assertTrue(EncodedMonitorUpdates.isComplete(complete));
+
+		PVField pvValue = pvStructure.getSubField("value");
+		pvStructure.getDoubleField("value").put(45.6);
+		changedBitSet.clear();
+		changedBitSet.set(pvValue.getFieldOffset());
+		ByteBuffer update = EncodedMonitorUpdates.encode(pvStructure, changedBitSet, overrunBitSet, ByteOrder.BIG_ENDIAN);
+		assertFalse(EncodedMonitorUpdates.isComplete(update));
+
+		// byte order conversion, applied to an empty structure
+		PVStructure converter = PVFactory.getPVDataCreate().createPVStructure(structure);
+		ByteBuffer convertedComplete = EncodedMonitorUpdates.convert(complete, converter, ByteOrder.LITTLE_ENDIAN);
+		ByteBuffer convertedUpdate = EncodedMonitorUpdates.convert(update, converter, ByteOrder.LITTLE_ENDIAN);
+		assertEquals(ByteOrder.LITTLE_ENDIAN, convertedUpdate.order());
+		assertSame(update, EncodedMonitorUpdates.convert(update, converter, ByteOrder.BIG_ENDIAN));
+		assertEquals(0, update.position());
+
+		PVStructure decoded = PVFactory.getPVDataCreate().createPVStructure(structure);
+		EncodedMonitorUpdates.decode(convertedComplete, decoded, changedBitSet, overrunBitSet);
+		EncodedMonitorUpdates.decode(convertedUpdate, decoded, changedBitSet, overrunBitSet);
+		assertEquals(pvStructure, decoded);
+	}
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2006 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.client.test;
+
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.epics.pvaccess.client.Channel;
+import org.epics.pvaccess.client.Channel.ConnectionState;
+import org.epics.pvaccess.client.ChannelProvider;
+import org.epics.pvaccess.client.ChannelRequester;
+import org.epics.pvaccess.client.impl.remote.ChannelImpl;
+import org.epics.pvaccess.client.impl.remote.ClientContextImpl;
+import org.epics.pvaccess.client.impl.remote.search.NameServerChannelSearchManager;
+import org.epics.pvaccess.server.impl.remote.NameServerRegistrar;
+import org.epics.pvaccess.server.impl.remote.ServerContextImpl;
+import org.epics.pvaccess.server.impl.remote.plugins.DefaultBeaconServerDataProvider;
+import org.epics.pvaccess.server.impl.remote.rpc.NameServerService;
+import org.epics.pvaccess.server.rpc.RPCRequestException;
+import org.epics.pvaccess.server.rpc.RPCResponseCallback;
+import org.epics.pvaccess.server.rpc.RPCService;
+import org.epics.pvaccess.server.rpc.impl.RPCChannelProvider;
+import org.epics.pvdata.pv.MessageType;
+import org.epics.pvdata.pv.PVStringArray;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.Status;
+
+/**
+ * Name server (channel resolution without UDP search) test.
+ * @version $Id$
+ */
+public class NameServerTest extends TestCase {
+
+	private static final long TIMEOUT_MS = 5000;
+
+	private static class EchoService implements RPCService {
+		@Override
+		public PVStructure request(PVStructure args) throws RPCRequestException {
+			return args;
+		}
+	}
+
+	private static class ConnectionRequester implements ChannelRequester {
+		final CountDownLatch connected = new CountDownLatch(1);
+
+		@Override
+		public void channelCreated(Status status, Channel channel) {
+			// noop
+		}
+
+		@Override
+		public void channelStateChange(Channel channel, ConnectionState connectionState) {
+			if (connectionState == ConnectionState.CONNECTED)
+				connected.countDown();
+		}
+
+		@Override
+		public String getRequesterName() {
+			return getClass().getName();
+		}
+
+		@Override
+		public void message(String message, MessageType messageType) {
+			System.err.println("[" + messageType + "] " + message);
+		}
+	}
+
+	private ServerContextImpl serverContext;
+	private RPCChannelProvider channelProvider;
+	private NameServerService nameServerService;
+	private NameServerRegistrar registrar;
+	private ClientContextImpl clientContext;
+
+	public NameServerTest(String methodName) {
+		super(methodName);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		// one server hosting both, the name server and the services
+		channelProvider = new RPCChannelProvider(null);
+		nameServerService = new NameServerService();
+		channelProvider.registerService(NameServerService.SERVICE_NAME, nameServerService);
+		channelProvider.registerService("nameServerTest:echo", new EchoService());
+
+		serverContext = new ServerContextImpl();
+		serverContext.setBeaconServerStatusProvider(new DefaultBeaconServerDataProvider(serverContext));
+		serverContext.initialize(channelProvider);
+		new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					serverContext.run(0);
+				} catch (Throwable th) {
+					th.printStackTrace();
+				}
+			}
+		}, "pvAccess server").start();
+
+		final String nameServerAddress = "127.0.0.1:" + serverContext.getServerPort();
+
+		registrar = new NameServerRegistrar(serverContext, nameServerAddress,
+				new InetSocketAddress("127.0.0.1", serverContext.getServerPort()), 1.0);
+		registrar.start();
+
+		clientContext = new ClientContextImpl() {
+			@Override
+			protected void loadConfiguration() {
+				super.loadConfiguration();
+				nameServers = nameServerAddress;
+			}
+		};
+		clientContext.initialize();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		clientContext.dispose();
+		registrar.destroy();
+		serverContext.dispose();
+		nameServerService.destroy();
+	}
+
+	private boolean connect(String channelName) throws InterruptedException
+	{
+		ConnectionRequester requester = new ConnectionRequester();
+		clientContext.getProvider().createChannel(channelName, requester, ChannelProvider.PRIORITY_DEFAULT);
+		return requester.connected.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+	}
+
+	public void testLookup() throws InterruptedException
+	{
+		assertTrue(connect("nameServerTest:echo"));
+	}
+
+	public void testRegisteredLater() throws InterruptedException
+	{
+		ConnectionRequester requester = new ConnectionRequester();
+		clientContext.getProvider().createChannel("nameServerTest:later", requester, ChannelProvider.PRIORITY_DEFAULT);
+		assertFalse(requester.connected.await(500, TimeUnit.MILLISECONDS));
+
+		// registrar picks up the new name, name server pushes it to the client
+		channelProvider.registerService("nameServerTest:later", new EchoService());
+		assertTrue(requester.connected.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+	}
+
+	public void testPenalizedLookup() throws Exception
+	{
+		// name registered by a server that is not running, e.g. crashed (port kept bound, so that it is not reused)
+		Socket reserved = new Socket();
+		reserved.bind(new InetSocketAddress("127.0.0.1", 0));
+
+		PVStructure args = NameServerService.createRequest(NameServerService.OP_REGISTER);
+		args.getStringField("server").put("127.0.0.1:" + reserved.getLocalPort());
+		args.getSubField(PVStringArray.class, "names").put(0, 1, new String[] { "nameServerTest:dead" }, 0);
+		nameServerService.request(args, new RPCResponseCallback() {
+			@Override
+			public void requestDone(Status status, PVStructure result) {
+				assertTrue(status.isSuccess());
+			}
+		});
+
+		ConnectionRequester requester = new ConnectionRequester();
+		Channel channel = clientContext.getProvider().createChannel("nameServerTest:dead", requester, ChannelProvider.PRIORITY_DEFAULT);
+		assertFalse(requester.connected.await(3000, TimeUnit.MILLISECONDS));
+
+		// failed connects are retried with back-off (1s, 2s, ...), not in a tight loop
+		NameServerChannelSearchManager searchManager = (NameServerChannelSearchManager)clientContext.getChannelSearchManager();
+		final int penalties = searchManager.getPenaltyCount(((ChannelImpl)channel).getChannelID());
+		assertTrue("penalties: " + penalties, penalties >= 1 && penalties <= 3);
+
+		channel.destroy();
+		assertEquals(0, searchManager.getPenaltyCount(((ChannelImpl)channel).getChannelID()));
+		reserved.close();
+	}
+
+	public void testUnregisterPendingLookup() throws Exception
+	{
+		// name server not reachable (port kept bound, but not listening), lookups stay pending
+		final Socket reserved = new Socket();
+		reserved.bind(new InetSocketAddress("127.0.0.1", 0));
+		ClientContextImpl unconnectedContext = new ClientContextImpl() {
+			@Override
+			protected void loadConfiguration() {
+				super.loadConfiguration();
+				nameServers = "127.0.0.1:" + reserved.getLocalPort();
+			}
+		};
+		unconnectedContext.initialize();
+		try {
+			NameServerChannelSearchManager searchManager = (NameServerChannelSearchManager)unconnectedContext.getChannelSearchManager();
+			Channel channel = unconnectedContext.getProvider().createChannel("nameServerTest:pending", new ConnectionRequester(), ChannelProvider.PRIORITY_DEFAULT);
+			assertEquals(1, searchManager.getPendingLookupCount());
+
+			channel.destroy();
+			assertEquals(0, searchManager.getPendingLookupCount());
+		} finally {
+			unconnectedContext.dispose();
+			reserved.close();
+		}
+	}
+}
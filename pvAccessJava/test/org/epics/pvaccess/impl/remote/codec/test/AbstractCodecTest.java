@@ -1631,6 +1631,245 @@ public class AbstractCodecTest extends TestCase {
 
 	}	
 
+	private static ByteBuffer createPayload(int size)
+	{
+		ByteBuffer payload = ByteBuffer.allocate(size);
+		for (int i = 0; i < size; i++)
+			payload.put((byte)i);
+		payload.flip();
+		return payload;
+	}
+
+	private static void assertPayload(PVAMessage message, int size)
+	{
+		assertEquals(size, message.payloadSize);
+		assertNotNull(message.payload);
+		message.payload.flip();
+		assertEquals(size, message.payload.limit());
+		for (int i = 0; i < size; i++)
+			assertEquals((byte)i, message.payload.get());
+	}
+
+	public void testSendPayload() throws Throwable
+	{
+		final int largeSize = AbstractCodec.MAX_COPY_PRESERIALIZED_SIZE*5 + 1;
+		final ByteBuffer smallPayload = createPayload(5);
+		final ByteBuffer largePayload = createPayload(largeSize);
+		final TestCodec codec = new TestCodec(DEFAULT_BUFFER_SIZE);
+		codec.readPayload = true;
+
+		TransportSender sender = new TransportSender() {
+			
+			@Override
+			public void unlock() {
+			}
+			
+			@Override
+			public void lock() {
+			}
+			
+			@Override
+			public void send(ByteBuffer buffer, TransportSendControl control) {
+				// not ended message
+				control.startMessage((byte)0x11, 3);
+				buffer.put((byte)0);
+				buffer.put((byte)1);
+				buffer.put((byte)2);
+
+				control.sendPayload((byte)0x12, smallPayload);
+				control.sendPayload((byte)0x13, largePayload);
+
+				control.startMessage((byte)0x14, 0);
+				control.endMessage();
+			}
+		};
+
+		// process
+		codec.enqueueSendRequest(sender);
+		codec.processSendQueue();
+		
+		codec.transferToReadBuffer();
+		
+		codec.processRead();
+		
+		assertEquals(0, codec.invalidDataStreamCount);
+		assertEquals(0, codec.closedCount);
+		assertEquals(0, codec.receivedControlMessages.size());
+		assertEquals(4, codec.receivedAppMessages.size());
+
+		byte command = 0x11;
+		for (PVAMessage header : codec.receivedAppMessages)
+		{
+			assertEquals(header.version, PVAConstants.PVA_VERSION);
+			assertEquals(header.flags, (byte)0x80);
+			assertEquals(header.command, command++);
+		}
+		assertPayload(codec.receivedAppMessages.get(0), 3);
+		assertPayload(codec.receivedAppMessages.get(1), 5);
+		assertPayload(codec.receivedAppMessages.get(2), largeSize);
+		assertEquals(0, codec.receivedAppMessages.get(3).payloadSize);
+
+		// payloads are not modified
+		assertEquals(0, smallPayload.position());
+		assertEquals(0, largePayload.position());
+		assertEquals(largeSize, largePayload.limit());
+	}	
+
+	public void testSendEncoded() throws Throwable
+	{
+		final int largeSize = AbstractCodec.MAX_COPY_PRESERIALIZED_SIZE*3 + 1;
+
+		// record a stream
+		final TestCodec recorder = new TestCodec(DEFAULT_BUFFER_SIZE);
+		recorder.enqueueSendRequest(new TransportSender() {
+			
+			@Override
+			public void unlock() {
+			}
+			
+			@Override
+			public void lock() {
+			}
+			
+			@Override
+			public void send(ByteBuffer buffer, TransportSendControl control) {
+				control.startMessage((byte)0x21, 3);
+				buffer.put((byte)0);
+				buffer.put((byte)1);
+				buffer.put((byte)2);
+				control.endMessage();
+
+				recorder.putControlMessage((byte)0xEE, 0xDDCCBBAA);
+
+				control.startMessage((byte)0x22, largeSize);
+				for (int i = 0; i < largeSize; i++)
+					buffer.put((byte)i);
+				control.endMessage();
+			}
+		});
+		recorder.processSendQueue();
+		recorder.writeBuffer.flip();
+		final ByteBuffer recorded = recorder.writeBuffer.duplicate();
+
+		// split into buffers, no padding at the end of the last one
+		final int splitPosition = alignedValue(PVAConstants.PVA_MESSAGE_HEADER_SIZE + 3) + PVAConstants.PVA_MESSAGE_HEADER_SIZE;
+		final ByteBuffer first = recorded.duplicate();
+		first.limit(splitPosition);
+		final ByteBuffer second = recorded.duplicate();
+		second.position(splitPosition);
+		second.limit(recorded.limit() - (alignedValue(largeSize) - largeSize));
+
+		// replay small and large encoded messages
+		final TestCodec codec = new TestCodec(DEFAULT_BUFFER_SIZE);
+		codec.readPayload = true;
+		codec.enqueueSendRequest(new TransportSender() {
+			
+			@Override
+			public void unlock() {
+			}
+			
+			@Override
+			public void lock() {
+			}
+			
+			@Override
+			public void send(ByteBuffer buffer, TransportSendControl control) {
+				control.sendEncoded(new ByteBuffer[] { first });
+				control.sendEncoded(new ByteBuffer[] { second });
+			}
+		});
+		codec.processSendQueue();
+
+		// identical stream
+		codec.writeBuffer.flip();
+		assertEquals(recorded, codec.writeBuffer);
+		codec.writeBuffer.position(codec.writeBuffer.limit());
+		codec.writeBuffer.limit(codec.writeBuffer.capacity());
+		
+		codec.transferToReadBuffer();
+		
+		codec.processRead();
+		
+		assertEquals(0, codec.invalidDataStreamCount);
+		assertEquals(0, codec.closedCount);
+		assertEquals(1, codec.receivedControlMessages.size());
+		assertEquals(2, codec.receivedAppMessages.size());
+
+		PVAMessage header = codec.receivedAppMessages.get(0);
+		assertEquals(header.command, (byte)0x21);
+		assertPayload(header, 3);
+
+		header = codec.receivedAppMessages.get(1);
+		assertEquals(header.command, (byte)0x22);
+		assertPayload(header, largeSize);
+
+		header = codec.receivedControlMessages.get(0);
+		assertEquals(header.command, (byte)0xEE);
+		assertEquals(header.payloadSize, 0xDDCCBBAA);
+
+		// buffers are not modified
+		assertEquals(0, first.position());
+		assertEquals(splitPosition, second.position());
+	}
+
+	private static int alignedValue(int value)
+	{
+		return AbstractCodec.alignedValue(value, PVAConstants.PVA_ALIGNMENT);
+	}
+
+	private static ByteBuffer createEncoded(byte flags, int payloadSize, int bufferSize)
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(Math.max(bufferSize, PVAConstants.PVA_MESSAGE_HEADER_SIZE));
+		buffer.put(PVAConstants.PVA_MAGIC);
+		buffer.put(PVAConstants.PVA_VERSION);
+		buffer.put(flags);
+		buffer.put((byte)0x01);
+		buffer.putInt(payloadSize);
+		buffer.position(0);
+		buffer.limit(bufferSize);
+		return buffer;
+	}
+
+	private static void assertInvalidEncoded(TestCodec codec, ByteBuffer encoded)
+	{
+		try {
+			codec.sendEncoded(new ByteBuffer[] { encoded });
+			fail("invalid encoded messages accepted");
+		} catch (IllegalArgumentException iae) {
+			// ok
+		}
+	}
+
+	public void testSendEncodedInvalid() throws Throwable
+	{
+		final TestCodec codec = new TestCodec(DEFAULT_BUFFER_SIZE);
+
+		// valid
+		codec.sendEncoded(new ByteBuffer[] { createEncoded((byte)0x80, 8, 16) });
+
+		// invalid magic
+		ByteBuffer encoded = createEncoded((byte)0x80, 8, 16);
+		encoded.put(0, (byte)0);
+		assertInvalidEncoded(codec, encoded);
+
+		// byte order mismatch
+		assertInvalidEncoded(codec, createEncoded((byte)0x00, 0, 8));
+
+		// client/server flag mismatch
+		assertInvalidEncoded(codec, createEncoded((byte)0xC0, 0, 8));
+
+		// incomplete header and payload
+		assertInvalidEncoded(codec, createEncoded((byte)0x80, 0, 4));
+		assertInvalidEncoded(codec, createEncoded((byte)0x80, 16, 16));
+
+		// incomplete segmented message
+		assertInvalidEncoded(codec, createEncoded((byte)0x90, 0, 8));
+		assertInvalidEncoded(codec, createEncoded((byte)0xA0, 0, 8));
+
+		// only the valid message was sent
+		assertEquals(16, codec.getSendBuffer().position());
+	}
+
 	public void testSendException() throws Throwable
 	{
 		final TestCodec codec = new TestCodec(DEFAULT_BUFFER_SIZE);
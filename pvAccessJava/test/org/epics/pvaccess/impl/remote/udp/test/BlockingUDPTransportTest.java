@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.impl.remote.udp.test;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import junit.framework.TestCase;
+
+import org.epics.pvaccess.PVAConstants;
+import org.epics.pvaccess.impl.remote.Context;
+import org.epics.pvaccess.impl.remote.TransportRegistry;
+import org.epics.pvaccess.impl.remote.TransportSendControl;
+import org.epics.pvaccess.impl.remote.TransportSender;
+import org.epics.pvaccess.impl.remote.udp.BlockingUDPTransport;
+import org.epics.pvaccess.plugins.SecurityPlugin;
+import org.epics.pvdata.misc.Timer;
+
+/**
+ * Datagram transport send test.
+ * @version $Id$
+ */
+public class BlockingUDPTransportTest extends TestCase {
+
+	private static class TestContext implements Context {
+		private final Logger logger = Logger.getLogger(BlockingUDPTransportTest.class.getName());
+
+		@Override
+		public Logger getLogger() {
+			return logger;
+		}
+
+		@Override
+		public Timer getTimer() {
+			return null;
+		}
+
+		@Override
+		public TransportRegistry getTransportRegistry() {
+			return null;
+		}
+
+		@Override
+		public Map<String, SecurityPlugin> getSecurityPlugins() {
+			return null;
+		}
+
+		@Override
+		public int getDebugLevel() {
+			return 0;
+		}
+	}
+
+	private static abstract class TestSender implements TransportSender {
+		@Override
+		public void lock() {
+			// noop
+		}
+
+		@Override
+		public void unlock() {
+			// noop
+		}
+	}
+
+	private DatagramChannel sendChannel;
+	private DatagramChannel receiveChannel;
+	private BlockingUDPTransport transport;
+
+	public BlockingUDPTransportTest(String methodName) {
+		super(methodName);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		receiveChannel = DatagramChannel.open();
+		receiveChannel.bind(new InetSocketAddress("127.0.0.1", 0));
+
+		sendChannel = DatagramChannel.open();
+		sendChannel.bind(new InetSocketAddress("127.0.0.1", 0));
+
+		transport = new BlockingUDPTransport(new TestContext(), null, sendChannel,
+				(InetSocketAddress)sendChannel.getLocalAddress(),
+				new InetSocketAddress[] { (InetSocketAddress)receiveChannel.getLocalAddress() },
+				PVAConstants.PVA_PROTOCOL_REVISION);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		sendChannel.close();
+		receiveChannel.close();
+	}
+
+	private static ByteBuffer createEncoded(byte flags, byte command, int payloadSize, int bufferSize)
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(Math.max(bufferSize, PVAConstants.PVA_MESSAGE_HEADER_SIZE));
+		buffer.put(PVAConstants.PVA_MAGIC);
+		buffer.put(PVAConstants.PVA_VERSION);
+		buffer.put(flags);
+		buffer.put(command);
+		buffer.putInt(payloadSize);
+		for (int i = PVAConstants.PVA_MESSAGE_HEADER_SIZE; i < buffer.limit(); i++)
+			buffer.put((byte)i);
+		buffer.position(0);
+		buffer.limit(bufferSize);
+		return buffer;
+	}
+
+	public void testSendEncoded() throws Throwable
+	{
+		final ByteBuffer data = createEncoded((byte)0x80, (byte)0x03, 5, 13);
+		final ByteBuffer controlMessage = createEncoded((byte)0x81, (byte)0x02, 0x12345678, 8);
+
+		transport.enqueueSendRequest(new TestSender() {
+			@Override
+			public void send(ByteBuffer buffer, TransportSendControl control) {
+				// started message is ended by sendEncoded
+				control.startMessage((byte)0x07, 4);
+				buffer.putInt(42);
+				control.sendEncoded(new ByteBuffer[] { data, controlMessage });
+			}
+		});
+
+		ByteBuffer received = ByteBuffer.allocate(PVAConstants.MAX_UDP_PACKET);
+		receiveChannel.receive(received);
+		received.flip();
+
+		assertEquals(12 + 13 + 8, received.remaining());
+		assertEquals((byte)0x07, received.get(3));
+		assertEquals(4, received.getInt(4));
+		assertEquals(42, received.getInt(8));
+
+		// encoded messages are copied as-is (not aligned, payload sizes not overwritten)
+		received.position(12);
+		received.limit(12 + 13);
+		assertEquals(data, received);
+		received.position(12 + 13);
+		received.limit(12 + 13 + 8);
+		assertEquals(controlMessage, received);
+
+		// buffers are not modified
+		assertEquals(0, data.position());
+		assertEquals(0, controlMessage.position());
+	}
+
+	public void testSendEncodedInvalid() throws Throwable
+	{
+		final List<ByteBuffer> invalid = new ArrayList<ByteBuffer>();
+
+		// invalid magic
+		ByteBuffer encoded = createEncoded((byte)0x80, (byte)0x03, 0, 8);
+		encoded.put(0, (byte)0);
+		invalid.add(encoded);
+
+		// byte order mismatch
+		invalid.add(createEncoded((byte)0x00, (byte)0x03, 0, 8));
+
+		// client/server flag mismatch
+		invalid.add(createEncoded((byte)0xC0, (byte)0x03, 0, 8));
+
+		// incomplete header and payload
+		invalid.add(createEncoded((byte)0x80, (byte)0x03, 0, 4));
+		invalid.add(createEncoded((byte)0x80, (byte)0x03, 16, 16));
+
+		// segmented messages are not supported by datagrams
+		invalid.add(createEncoded((byte)0x90, (byte)0x03, 0, 8));
+		invalid.add(createEncoded((byte)0xA0, (byte)0x03, 0, 8));
+
+		// does not fit into the datagram
+		final int largeSize = PVAConstants.MAX_UDP_UNFRAGMENTED_SEND;
+		invalid.add(createEncoded((byte)0x80, (byte)0x03, largeSize - PVAConstants.PVA_MESSAGE_HEADER_SIZE, largeSize));
+
+		final List<String> accepted = new ArrayList<String>();
+		final ByteBuffer valid = createEncoded((byte)0x80, (byte)0x03, 4, 12);
+		transport.enqueueSendRequest(new TestSender() {
+			@Override
+			public void send(ByteBuffer buffer, TransportSendControl control) {
+				control.sendEncoded(new ByteBuffer[] { valid });
+				final int position = buffer.position();
+
+				for (int i = 0; i < invalid.size(); i++)
+				{
+					try {
+						control.sendEncoded(new ByteBuffer[] { invalid.get(i) });
+						accepted.add("invalid message " + i + " accepted");
+					} catch (IllegalArgumentException iae) {
+						// ok
+					}
+
+					// nothing copied
+					if (buffer.position() != position)
+						accepted.add("invalid message " + i + " copied");
+				}
+			}
+		});
+		assertTrue(accepted.toString(), accepted.isEmpty());
+
+		// only the valid message was sent
+		ByteBuffer received = ByteBuffer.allocate(PVAConstants.MAX_UDP_PACKET);
+		receiveChannel.receive(received);
+		received.flip();
+		assertEquals(valid, received);
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.impl.remote.udp.test;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import junit.framework.TestCase;
+
+import org.epics.pvaccess.impl.remote.udp.UDPReceiveDispatcher;
+
+/**
+ * @version $Id$
+ */
+public class UDPReceiveDispatcherTest extends TestCase {
+
+	public UDPReceiveDispatcherTest(String methodName) {
+		super(methodName);
+	}
+
+	public void testOrderPerSource() throws InterruptedException
+	{
+		final int SOURCES = 5;
+		final int COUNT = 1000;
+		
+		final Map<InetSocketAddress, List<Integer>> received = new HashMap<InetSocketAddress, List<Integer>>();
+		final int[] sizes = new int[1];
+		UDPReceiveDispatcher dispatcher = new UDPReceiveDispatcher("test", 3, 4,
+				new UDPReceiveDispatcher.DatagramHandler() {
+					@Override
+					public void handleDatagram(InetSocketAddress fromAddress, ByteBuffer buffer) {
+						synchronized (received) {
+							List<Integer> list = received.get(fromAddress);
+							if (list == null)
+							{
+								list = new ArrayList<Integer>();
+								received.put(fromAddress, list);
+							}
+							list.add(buffer.getInt());
+							sizes[0] += buffer.remaining() + 4;
+							received.notifyAll();
+						}
+					}
+				}, Logger.getLogger(getClass().getName()));
+		
+		InetSocketAddress[] sources = new InetSocketAddress[SOURCES];
+		for (int i = 0; i < SOURCES; i++)
+			sources[i] = new InetSocketAddress("127.0.0.1", 5000 + i);
+		
+		ByteBuffer data = ByteBuffer.allocate(70000);
+		int expectedSize = 0;
+		for (int n = 0; n < COUNT; n++)
+			for (int i = 0; i < SOURCES; i++)
+			{
+				// every 100th datagram larger than a pooled buffer
+				int size = (n % 100 == 0) ? 65000 : 4 + i;
+				data.clear();
+				data.putInt(n);
+				data.position(size);
+				data.flip();
+				assertTrue(dispatcher.dispatch(sources[i], data));
+				assertFalse(data.hasRemaining());
+				expectedSize += size;
+			}
+		
+		synchronized (received) {
+			long timeout = System.currentTimeMillis() + 10000;
+			while (sizes[0] < expectedSize && System.currentTimeMillis() < timeout)
+				received.wait(1000);
+			
+			assertEquals(expectedSize, sizes[0]);
+			for (InetSocketAddress source : sources)
+			{
+				List<Integer> list = received.get(source);
+				assertEquals(COUNT, list.size());
+				for (int n = 0; n < COUNT; n++)
+					assertEquals(n, list.get(n).intValue());
+			}
+		}
+		
+		dispatcher.shutdown();
+		data.clear();
+		assertFalse(dispatcher.dispatch(sources[0], data));
+	}
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2006 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.server.impl.remote.test;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.epics.pvaccess.server.impl.remote.rpc.NameServerService;
+import org.epics.pvaccess.server.rpc.RPCResponseCallback;
+import org.epics.pvdata.pv.PVStringArray;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.Status;
+import org.epics.pvdata.pv.StringArrayData;
+
+/**
+ * Name server service test.
+ * @version $Id$
+ */
+public class NameServerServiceTest extends TestCase {
+
+	private static final String SERVER1 = "10.0.0.1:5075";
+	private static final String SERVER2 = "10.0.0.2:5075";
+	private static final String GUID1 = "0102030405060708090A0B0C";
+	private static final String GUID2 = "0102030405060708090A0B0D";
+
+	private static class ResponseCallback implements RPCResponseCallback {
+		volatile Status status;
+		volatile PVStructure result;
+		volatile int count = 0;
+
+		@Override
+		public void requestDone(Status status, PVStructure result) {
+			this.status = status;
+			this.result = result;
+			count++;
+		}
+	}
+
+	private NameServerService service;
+
+	public NameServerServiceTest(String methodName) {
+		super(methodName);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		service = new NameServerService();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		service.destroy();
+	}
+
+	private ResponseCallback request(String op, String server, String guid, String[] names, long version)
+	{
+		PVStructure args = NameServerService.createRequest(op);
+		if (server != null)
+			args.getStringField("server").put(server);
+		if (guid != null)
+			args.getStringField("guid").put(guid);
+		if (names != null)
+			args.getSubField(PVStringArray.class, "names").put(0, names.length, names, 0);
+		args.getLongField("epoch").put(service.getEpoch());
+		args.getLongField("version").put(version);
+
+		ResponseCallback callback = new ResponseCallback();
+		service.request(args, callback);
+		return callback;
+	}
+
+	private ResponseCallback register(String server, String guid, String... names)
+	{
+		ResponseCallback callback = request(NameServerService.OP_REGISTER, server, guid, names, 0);
+		assertEquals(1, callback.count);
+		assertTrue(callback.status.isSuccess());
+		return callback;
+	}
+
+	private static String[] getArray(PVStructure result, String fieldName)
+	{
+		PVStringArray array = result.getSubField(PVStringArray.class, fieldName);
+		StringArrayData data = new StringArrayData();
+		array.get(0, array.getLength(), data);
+		return Arrays.copyOf(data.data, array.getLength());
+	}
+
+	private static String lookupServer(PVStructure result, String name)
+	{
+		String[] names = getArray(result, "names");
+		String[] servers = getArray(result, "servers");
+		for (int i = 0; i < names.length; i++)
+			if (names[i].equals(name))
+				return servers[i];
+		return null;
+	}
+
+	private PVStructure lookup(String... names)
+	{
+		ResponseCallback callback = request(NameServerService.OP_LOOKUP, null, null, names, 0);
+		assertEquals(1, callback.count);
+		assertTrue(callback.status.isSuccess());
+		return callback.result;
+	}
+
+	public void testRegisterLookup()
+	{
+		register(SERVER1, GUID1, "ch1", "ch2");
+		register(SERVER2, GUID2, "ch3");
+		assertEquals(3, service.getChannelCount());
+
+		PVStructure result = lookup("ch1", "ch3", "unknown");
+		assertEquals(2, getArray(result, "names").length);
+		assertEquals(SERVER1, lookupServer(result, "ch1"));
+		assertEquals(SERVER2, lookupServer(result, "ch3"));
+		assertNull(lookupServer(result, "unknown"));
+		assertEquals(GUID2, getArray(result, "guids")[Arrays.asList(getArray(result, "names")).indexOf("ch3")]);
+
+		// registration replaces the set of names of the server
+		register(SERVER1, GUID1, "ch2", "ch4");
+		result = lookup("ch1", "ch2", "ch4");
+		assertNull(lookupServer(result, "ch1"));
+		assertEquals(SERVER1, lookupServer(result, "ch2"));
+		assertEquals(SERVER1, lookupServer(result, "ch4"));
+
+		// last registration of a name wins
+		register(SERVER2, GUID2, "ch3", "ch4");
+		assertEquals(SERVER2, lookupServer(lookup("ch4"), "ch4"));
+
+		// unregistration removes only the names still owned by the server
+		ResponseCallback callback = request(NameServerService.OP_UNREGISTER, SERVER2, null, null, 0);
+		assertTrue(callback.status.isSuccess());
+		result = lookup("ch2", "ch3", "ch4");
+		assertEquals(SERVER1, lookupServer(result, "ch2"));
+		assertNull(lookupServer(result, "ch3"));
+		assertNull(lookupServer(result, "ch4"));
+		assertEquals(1, service.getChannelCount());
+	}
+
+	public void testWatch()
+	{
+		register(SERVER1, GUID1, "ch1");
+		final long version = service.getVersion();
+
+		// unknown version, client needs to lookup all
+		ResponseCallback callback = request(NameServerService.OP_WATCH, null, null, null, -1);
+		assertEquals(1, callback.count);
+		assertTrue(callback.result.getBooleanField("reset").get());
+		assertEquals(version, callback.result.getLongField("version").get());
+
+		// up to date, watch is pending until a change
+		callback = request(NameServerService.OP_WATCH, null, null, null, version);
+		assertEquals(0, callback.count);
+
+		register(SERVER2, GUID2, "ch2");
+		assertEquals(1, callback.count);
+		assertTrue(callback.status.isSuccess());
+		assertFalse(callback.result.getBooleanField("reset").get());
+		assertEquals(service.getVersion(), callback.result.getLongField("version").get());
+		assertEquals(SERVER2, lookupServer(callback.result, "ch2"));
+		assertNull(lookupServer(callback.result, "ch1"));
+
+		// older version gets all the changes since
+		callback = request(NameServerService.OP_WATCH, null, null, null, version - 1);
+		assertEquals(1, callback.count);
+		assertFalse(callback.result.getBooleanField("reset").get());
+		assertEquals(SERVER1, lookupServer(callback.result, "ch1"));
+		assertEquals(SERVER2, lookupServer(callback.result, "ch2"));
+
+		// removal is reported with an empty server
+		final long current = service.getVersion();
+		callback = request(NameServerService.OP_WATCH, null, null, null, current);
+		request(NameServerService.OP_UNREGISTER, SERVER2, null, null, 0);
+		assertEquals(1, callback.count);
+		assertEquals("", lookupServer(callback.result, "ch2"));
+
+		// restarted server reports all its names again
+		callback = request(NameServerService.OP_WATCH, null, null, null, service.getVersion());
+		register(SERVER1, GUID2, "ch1");
+		assertEquals(1, callback.count);
+		assertEquals(SERVER1, lookupServer(callback.result, "ch1"));
+
+		// future version
+		callback = request(NameServerService.OP_WATCH, null, null, null, service.getVersion() + 10);
+		assertEquals(1, callback.count);
+		assertTrue(callback.result.getBooleanField("reset").get());
+
+		// known version of another instance (e.g. name server restarted)
+		PVStructure args = NameServerService.createRequest(NameServerService.OP_WATCH);
+		args.getLongField("epoch").put(service.getEpoch() + 1);
+		args.getLongField("version").put(1);
+		callback = new ResponseCallback();
+		service.request(args, callback);
+		assertEquals(1, callback.count);
+		assertTrue(callback.result.getBooleanField("reset").get());
+		assertEquals(service.getEpoch(), callback.result.getLongField("epoch").get());
+		assertEquals(service.getVersion(), callback.result.getLongField("version").get());
+	}
+
+	public void testLeaseExpiry() throws InterruptedException
+	{
+		register(SERVER1, GUID1, "ch1");
+
+		PVStructure args = NameServerService.createRequest(NameServerService.OP_REGISTER);
+		args.getStringField("server").put(SERVER2);
+		args.getStringField("guid").put(GUID2);
+		args.getSubField(PVStringArray.class, "names").put(0, 1, new String[] { "ch2" }, 0);
+		args.getDoubleField("lease").put(0.5);
+		ResponseCallback callback = new ResponseCallback();
+		service.request(args, callback);
+		assertTrue(callback.status.isSuccess());
+		assertEquals(2, service.getChannelCount());
+
+		// not renewed registration expires, removal is pushed to the watchers
+		callback = request(NameServerService.OP_WATCH, null, null, null, service.getVersion());
+		final long deadline = System.currentTimeMillis() + 5000;
+		while ((service.getChannelCount() != 1 || callback.count == 0) && System.currentTimeMillis() < deadline)
+			Thread.sleep(100);
+		assertEquals(1, service.getChannelCount());
+		assertNull(lookupServer(lookup("ch2"), "ch2"));
+		assertEquals(SERVER1, lookupServer(lookup("ch1"), "ch1"));
+		assertEquals(1, callback.count);
+		assertEquals("", lookupServer(callback.result, "ch2"));
+
+		// renewal keeps the registration
+		args.getDoubleField("lease").put(1.5);
+		for (int i = 0; i < 4; i++)
+		{
+			service.request(args, new ResponseCallback());
+			Thread.sleep(500);
+		}
+		assertEquals(SERVER2, lookupServer(lookup("ch2"), "ch2"));
+	}
+
+	public void testInvalidRequests()
+	{
+		ResponseCallback callback = request("invalid", null, null, null, 0);
+		assertEquals(1, callback.count);
+		assertFalse(callback.status.isSuccess());
+
+		callback = request(NameServerService.OP_REGISTER, null, GUID1, new String[] { "ch1" }, 0);
+		assertFalse(callback.status.isSuccess());
+
+		callback = request(NameServerService.OP_UNREGISTER, null, null, null, 0);
+		assertFalse(callback.status.isSuccess());
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2006 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.server.impl.remote.test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import junit.framework.TestCase;
+
+import org.epics.pvaccess.server.impl.remote.SearchRateLimiter;
+
+/**
+ * @version $Id$
+ */
+public class SearchRateLimiterTest extends TestCase {
+
+	private static final long SECOND = 1000000000L;
+	
+	public SearchRateLimiterTest(String methodName) {
+		super(methodName);
+	}
+
+	public void testTokenBucket() throws UnknownHostException
+	{
+		InetAddress client1 = InetAddress.getByName("10.0.0.1");
+		InetAddress client2 = InetAddress.getByName("10.0.0.2");
+		
+		// 10 names per second, burst of 20
+		SearchRateLimiter limiter = new SearchRateLimiter(10, 20);
+		long now = 0;
+		
+		assertTrue(limiter.acquire(client1, 15, now));
+		assertTrue(limiter.acquire(client1, 5, now));
+		assertFalse(limiter.acquire(client1, 1, now));
+		assertEquals(1, limiter.getSuppressedSearches());
+		assertEquals(1, limiter.getSuppressedNames());
+		
+		// other sources have their own bucket, a server search costs one token 
+		assertTrue(limiter.acquire(client2, 0, now));
+		assertEquals(2, limiter.getSourceCount());
+		
+		// refill
+		now += SECOND / 2;
+		assertFalse(limiter.acquire(client1, 6, now));
+		assertTrue(limiter.acquire(client1, 5, now));
+		assertEquals(2, limiter.getSuppressedSearches());
+		assertEquals(7, limiter.getSuppressedNames());
+		
+		// a dead-PV storm: 50 names every 100ms gets through at the rate only
+		int passed = 0;
+		for (int i = 0; i < 100; i++)
+		{
+			now += SECOND / 10;
+			if (limiter.acquire(client1, 50, now))
+				passed++;
+		}
+		// 100 names per 10 seconds, i.e. 2 requests
+		assertTrue(passed <= 3);
+		
+		// a request larger than the burst goes through with a full bucket
+		now += 10 * SECOND;
+		assertTrue(limiter.acquire(client1, 1000, now));
+		assertFalse(limiter.acquire(client1, 1000, now));
+	}
+
+	public void testDisabled() throws UnknownHostException
+	{
+		SearchRateLimiter limiter = new SearchRateLimiter(0, 0);
+		InetAddress client = InetAddress.getByName("10.0.0.1");
+		for (int i = 0; i < 1000; i++)
+			assertTrue(limiter.acquire(client, 100, 0));
+		assertEquals(0, limiter.getSuppressedSearches());
+		assertEquals(0, limiter.getSourceCount());
+	}
+}
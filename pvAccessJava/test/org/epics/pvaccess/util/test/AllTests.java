@@ -33,6 +33,7 @@ public class AllTests {
         suite.addTestSuite(CircularBufferTest.class);
         suite.addTestSuite(GrowingCircularBufferTest.class);
         suite.addTestSuite(WildcardMatcherTest.class);
+        suite.addTestSuite(WeightedMailboxTest.class);
         //$JUnit-END$
         return suite;
     }
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package org.epics.pvaccess.util.test;
+
+import junit.framework.TestCase;
+
+import org.epics.pvaccess.util.WeightedMailbox;
+
+/**
+ * @version $Id$
+ */
+public class WeightedMailboxTest extends TestCase {
+
+	public WeightedMailboxTest(String methodName) {
+		super(methodName);
+	}
+
+	private static String takeAll(WeightedMailbox<String> mailbox) throws InterruptedException
+	{
+		StringBuilder sb = new StringBuilder();
+		String s;
+		while ((s = mailbox.take(-1)) != null)
+			sb.append(s);
+		return sb.toString();
+	}
+	
+	/**
+	 * Strict priority lane goes first, the others are served by weight.
+	 */
+	public void testWeights() throws InterruptedException
+	{
+		WeightedMailbox<String> mailbox = new WeightedMailbox<String>(new int[] { 0, 2, 1 });
+		assertTrue(mailbox.isEmpty());
+		assertNull(mailbox.take(-1));
+		
+		for (int i = 0; i < 4; i++)
+		{
+			mailbox.put("b", 2);
+			mailbox.put("p", 1);
+		}
+		mailbox.put("c", 0);
+		assertFalse(mailbox.isEmpty());
+		
+		assertEquals("cppbppbbb", takeAll(mailbox));
+		assertTrue(mailbox.isEmpty());
+		
+		// an empty lane does not hold up the others
+		for (int i = 0; i < 3; i++)
+			mailbox.put("b", 2);
+		assertEquals("bbb", takeAll(mailbox));
+		
+		mailbox.put("p", 1);
+		mailbox.put("c", 0);
+		mailbox.clear();
+		assertTrue(mailbox.isEmpty());
+		assertNull(mailbox.take(-1));
+	}
+
+	/**
+	 * Blocking take is woken up by put and wakeup.
+	 */
+	public void testBlockingTake() throws InterruptedException
+	{
+		final WeightedMailbox<String> mailbox = new WeightedMailbox<String>(new int[] { 0, 1 });
+		assertNull(mailbox.take(10));
+		
+		new Thread() {
+			public void run() {
+				try { Thread.sleep(50); } catch (InterruptedException e) { }
+				mailbox.put("x", 1);
+			}
+		}.start();
+		assertEquals("x", mailbox.take(0));
+
+		new Thread() {
+			public void run() {
+				try { Thread.sleep(50); } catch (InterruptedException e) { }
+				mailbox.wakeup();
+			}
+		}.start();
+		assertNull(mailbox.take(0));
+	}
+}
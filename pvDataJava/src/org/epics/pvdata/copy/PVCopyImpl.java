@@ -4,6 +4,7 @@
 package org.epics.pvdata.copy;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import org.epics.pvdata.factory.ConvertFactory;
 import org.epics.pvdata.factory.FieldFactory;
@@ -67,6 +68,17 @@ class PVCopyImpl implements PVCopy{
     private Node headNode = null;
     private PVStructure cacheInitStructure = null;
 
+    // Flat tables computed from the nodes when the PVCopy is created.
+    // The following are indexed by the field offset in the copy.
+    private PVField[] masterFields;
+    private int[] nextFieldOffsets;
+    // True for a structure of which only some subfields are copied
+    private boolean[] partialStructures;
+    private PVStructure[] nodeOptions;
+    // Indexed by the field offset in the master, relative to pvMaster;
+    // -1 for the master fields that are not copied as a whole
+    private int[] copyOffsets;
+
     private PVCopyImpl(PVStructure pvMaster) {
         this.pvMaster = pvMaster;
     }
@@ -105,88 +117,57 @@ class PVCopyImpl implements PVCopy{
      * @see org.epics.pvdata.copy.PVCopy#getCopyOffset(org.epics.pvdata.pv.PVField)
      */
     public int getCopyOffset(PVField masterPVField) {
-        if(!headNode.isStructure) {
-            Node node = headNode;
-            if(node.masterPVField.equals(masterPVField)) return headNode.structureOffset;
-            PVStructure parent = masterPVField.getParent();
-            int offsetParent = parent.getFieldOffset();
-            int off = masterPVField.getFieldOffset();
-            int offdiff = off -offsetParent;
-            if(offdiff<node.nfields) return headNode.structureOffset + offdiff;
-            return -1;
-        }
-        Node node = getCopyOffset((StructureNode)headNode,masterPVField);
-        if(node!=null) {
-            int offset = masterPVField.getFieldOffset() - node.masterPVField.getFieldOffset();
-            return node.structureOffset + offset;
-        }
-        return -1;
+        int index = masterPVField.getFieldOffset() - pvMaster.getFieldOffset();
+        if(index<0 || index>=copyOffsets.length) return -1;
+        return copyOffsets[index];
     }
     /* (non-Javadoc)
      * @see org.epics.pvdata.copy.PVCopy#getCopyOffset(org.epics.pvdata.pv.PVStructure, org.epics.pvdata.pv.PVField)
      */
     public int getCopyOffset(PVStructure masterPVStructure,PVField masterPVField) {
-        Node node = null;
-        if(!headNode.isStructure) {
-            node = headNode;
-            if(node.masterPVField!=masterPVStructure) {
-                return -1;
-            }
-        } else {
-            node = getCopyOffset((StructureNode)headNode,masterPVStructure);
-        }
-        if(node==null) return -1;
+        int offset = getCopyOffset(masterPVStructure);
+        if(offset<0) return -1;
         int diff = masterPVField.getFieldOffset() - masterPVStructure.getFieldOffset();
-        return node.structureOffset + diff;
+        return offset + diff;
     }
     /* (non-Javadoc)
      * @see org.epics.pvdata.pvCopy.PVCopy#getPVField(int)
      */
     public PVField getMasterPVField(int structureOffset)
     {
-        Node node = null;
-        if(!headNode.isStructure) {
-            node = headNode;
-        } else {
-            node = getMasterNode((StructureNode)headNode,structureOffset);
-        }
-        if(node==null) {
+        if(structureOffset<0 || structureOffset>=masterFields.length) {
             System.err.printf("PVCopy::PVField getRecordPVField(int structureOffset) illegal structureOffset %d %s%n",structureOffset,dump());
             throw new IllegalArgumentException("structureOffset not valid");
         }
-        int diff = structureOffset - node.structureOffset;
-        PVField pvMasterField = node.masterPVField;
-        if(diff==0) return pvMasterField;
-        PVStructure pvStructure = (PVStructure)pvMasterField;
-        return pvStructure.getSubField(pvMasterField.getFieldOffset() + diff);
+        return masterFields[structureOffset];
     }
     /* (non-Javadoc)
      * @see org.epics.pvdata.copy.PVCopy#initCopy(org.epics.pvdata.pv.PVStructure, org.epics.pvdata.misc.BitSet)
      */
     public void initCopy(PVStructure copyPVStructure, BitSet bitSet) {
         bitSet.set(0,copyPVStructure.getNumberFields(),true);
-        updateCopyFromBitSet(copyPVStructure,headNode,bitSet);
+        update(copyPVStructure,bitSet,true);
     }
     /* (non-Javadoc)
      * @see org.epics.pvioc.pvCopy.PVCopy#updateCopySetBitSet(org.epics.pvdata.pv.PVStructure, org.epics.pvdata.misc.BitSet)
      */
     public void updateCopySetBitSet(PVStructure copyPVStructure,BitSet bitSet)
     {
-        updateCopySetBitSet(copyPVStructure,headNode,bitSet);
+        updateFieldSetBitSet(copyPVStructure,bitSet);
     }
     /* (non-Javadoc)
      * @see org.epics.pvdata.pvCopy.PVCopy#updateCopyFromBitSet(org.epics.pvdata.pv.PVStructure, org.epics.pvdata.misc.BitSet)
      */
     public void updateCopyFromBitSet(PVStructure copyPVStructure,BitSet bitSet) {
         if(bitSet.get(0)) bitSet.set(0,copyPVStructure.getNumberFields(),true);
-        updateCopyFromBitSet(copyPVStructure,headNode,bitSet);
+        update(copyPVStructure,bitSet,true);
     }
     /* (non-Javadoc)
      * @see org.epics.pvdata.pvCopy.PVCopy#updateRecord(org.epics.pvdata.pv.PVStructure, org.epics.pvdata.misc.BitSet)
      */
     public void updateMaster(PVStructure copyPVStructure, BitSet bitSet) {
         if(bitSet.get(0)) bitSet.set(0,copyPVStructure.getNumberFields(),true);
-        updateMaster(copyPVStructure,headNode,bitSet);
+        update(copyPVStructure,bitSet,false);
     }
 
     /* (non-Javadoc)
@@ -194,29 +175,10 @@ class PVCopyImpl implements PVCopy{
      */
     public PVStructure getOptions(int fieldOffset)
     {
-        if(fieldOffset==0) return headNode.options;
-        Node node = headNode;
-        while(true) {
-            if(node.structureOffset==fieldOffset) return node.options;
-            if(!node.isStructure) return null;
-            StructureNode structNode = (StructureNode)node;
-            Node[] nodes = structNode.nodes;
-            boolean okToContinue = false;
-            for(int i=0; i< nodes.length; i++) {
-                node = nodes[i];
-                int soff = node.structureOffset;
-                if(fieldOffset>=soff && fieldOffset<soff+node.nfields) {
-                    if(fieldOffset==soff) return node.options;
-                    if(!node.isStructure) {
-                        return null;
-                    }
-                    okToContinue = true;
-                    break;
-                }
-            }
-            if(okToContinue) continue;
+        if(fieldOffset<0 || fieldOffset>=nodeOptions.length) {
             throw new IllegalArgumentException("fieldOffset not valid");
         }
+        return nodeOptions[fieldOffset];
     }
     /* (non-Javadoc)
      * @see org.epics.pvdata.copy.PVCopy#dump()
@@ -244,77 +206,93 @@ class PVCopyImpl implements PVCopy{
         }
     }
     
-    private void updateCopySetBitSet(PVField pvCopy,PVField pvMaster,BitSet bitSet) {
-        if(pvCopy.getField().getType()!=Type.structure) {
-            if(pvCopy.equals(pvMaster)) return;
-            convert.copy(pvMaster, pvCopy);
-            bitSet.set(pvCopy.getFieldOffset());
+    private void updateFieldSetBitSet(PVField pvCopy,BitSet bitSet) {
+        if(pvCopy.getField().getType()==Type.structure) {
+            PVField[] pvCopyFields = ((PVStructure)pvCopy).getPVFields();
+            for(int i=0; i<pvCopyFields.length; i++) {
+                updateFieldSetBitSet(pvCopyFields[i],bitSet);
+            }
             return;
         }
-        PVStructure pvCopyStructure = (PVStructure)pvCopy;
-        PVField[] pvCopyFields = pvCopyStructure.getPVFields();
-        int length = pvCopyFields.length;
-        for(int i=0; i<length; i++) {
-            pvMaster = getMasterPVField(pvCopyFields[i].getFieldOffset());
-            updateCopySetBitSet(pvCopyFields[i],pvMaster,bitSet);
-        }
+        int offset = pvCopy.getFieldOffset();
+        PVField pvMaster = masterFields[offset];
+        if(pvCopy.equals(pvMaster)) return;
+        convert.copy(pvMaster, pvCopy);
+        bitSet.set(offset);
     }
 
-    private void updateCopySetBitSet(PVField pvCopy,Node node,BitSet bitSet) {
-        boolean result = false;
-        if(!node.isStructure) {
-            if(result) return;
-            updateCopySetBitSet(pvCopy,node.masterPVField,bitSet);
-            return;
-        }
-        StructureNode structureNode = (StructureNode)(node);
-        PVStructure pvCopyStructure = (PVStructure)pvCopy;
-        PVField[] pvCopyFields = pvCopyStructure.getPVFields();
-        int length = pvCopyFields.length;
-        for(int i=0; i<length; i++) {
-            updateCopySetBitSet(pvCopyFields[i],structureNode.nodes[i],bitSet);
+    /*
+     * Copies only the fields whose bit is set, visiting the set bits in order.
+     * A set bit on a field copied as a whole copies the field and all its subfields;
+     * on a partial structure, all the fields copied below it.
+     */
+    private void update(PVStructure copyPVStructure,BitSet bitSet,boolean toCopy) {
+        int numberFields = masterFields.length;
+        int offset = bitSet.nextSetBit(0);
+        while(offset>=0 && offset<numberFields) {
+            int next = nextFieldOffsets[offset];
+            if(!partialStructures[offset]) {
+                updateField(copyPVStructure,offset,toCopy);
+            } else {
+                int i = offset + 1;
+                while(i<next) {
+                    if(partialStructures[i]) {
+                        i++;
+                        continue;
+                    }
+                    updateField(copyPVStructure,i,toCopy);
+                    i = nextFieldOffsets[i];
+                }
+            }
+            offset = bitSet.nextSetBit(next);
         }
     }
 
-    private void updateCopyFromBitSet(PVField pvCopy,Node node,BitSet bitSet) {
-        boolean result = false;
-        if(!node.isStructure) {
-            if(result) return;
-            PVField pvMaster = node.masterPVField;
+    private void updateField(PVStructure copyPVStructure,int offset,boolean toCopy) {
+        PVField pvCopy = (offset==0) ? copyPVStructure : copyPVStructure.getSubField(offset);
+        PVField pvMaster = masterFields[offset];
+        if(toCopy) {
             convert.copy(pvMaster, pvCopy);
-            return;
-        }
-        StructureNode structureNode = (StructureNode)(node);
-        int offset = structureNode.structureOffset;
-        int nextSet = bitSet.nextSetBit(offset);
-        if(nextSet==-1) return;
-        if(offset>=pvCopy.getNextFieldOffset()) return;
-        PVStructure pvCopyStructure = (PVStructure)pvCopy;
-        PVField[] pvCopyFields = pvCopyStructure.getPVFields();
-        int length = pvCopyFields.length;
-        for(int i=0; i<length; i++) {
-            updateCopyFromBitSet(pvCopyFields[i],structureNode.nodes[i],bitSet);
+        } else {
+            convert.copy(pvCopy, pvMaster);
         }
     }
 
-    private void updateMaster(PVField pvCopy,Node node,BitSet bitSet) {
-        boolean result = false;
+    private void createTables() {
+        int numberFields = headNode.nfields;
+        masterFields = new PVField[numberFields];
+        nextFieldOffsets = new int[numberFields];
+        partialStructures = new boolean[numberFields];
+        nodeOptions = new PVStructure[numberFields];
+        copyOffsets = new int[pvMaster.getNumberFields()];
+        Arrays.fill(copyOffsets, -1);
+        fillTables(headNode);
+    }
+
+    private void fillTables(Node node) {
+        int offset = node.structureOffset;
+        nodeOptions[offset] = node.options;
         if(!node.isStructure) {
-            if(result) return;
-            PVField pvMaster = node.masterPVField;
-            convert.copy(pvCopy, pvMaster);
+            fillTables(node.masterPVField,offset - node.masterPVField.getFieldOffset());
             return;
         }
-        StructureNode structureNode = (StructureNode)(node);
-        int offset = structureNode.structureOffset;
-        int nextSet = bitSet.nextSetBit(offset);
-        if(nextSet==-1) return;
-        if(offset>=pvCopy.getNextFieldOffset()) return;
-        PVStructure pvCopyStructure = (PVStructure)pvCopy;
-        PVField[] pvCopyFields = pvCopyStructure.getPVFields();
-        int length = pvCopyFields.length;
-        for(int i=0; i<length; i++) {
-            updateMaster(pvCopyFields[i],structureNode.nodes[i],bitSet);
+        masterFields[offset] = node.masterPVField;
+        nextFieldOffsets[offset] = offset + node.nfields;
+        partialStructures[offset] = true;
+        for(Node subNode : ((StructureNode)node).nodes) {
+            fillTables(subNode);
+        }
+    }
+
+    // Below a node that is copied as a whole, copy and master have the same layout
+    private void fillTables(PVField pvMasterField,int diff) {
+        int masterOffset = pvMasterField.getFieldOffset();
+        masterFields[masterOffset + diff] = pvMasterField;
+        nextFieldOffsets[masterOffset + diff] = pvMasterField.getNextFieldOffset() + diff;
+        copyOffsets[masterOffset - pvMaster.getFieldOffset()] = masterOffset + diff;
+        if(pvMasterField.getField().getType()!=Type.structure) return;
+        for(PVField pvField : ((PVStructure)pvMasterField).getPVFields()) {
+            fillTables(pvField,diff);
         }
     }
 
@@ -337,12 +315,14 @@ class PVCopyImpl implements PVCopy{
             node.structureOffset = 0;
             node.masterPVField = pvMasterStructure;
             node.nfields = pvMasterStructure.getNumberFields();
+            createTables();
             return true;
         }
         structure = createStructure(pvMasterStructure,pvRequest);
         if(structure==null) return false;
         cacheInitStructure = createPVStructure();
         headNode = createStructureNodes(pvMaster,pvRequest,cacheInitStructure);
+        createTables();
         return true;
     }
 
@@ -439,35 +419,6 @@ class PVCopyImpl implements PVCopy{
 
     }
 
-    private Node getCopyOffset(StructureNode structureNode,PVField masterPVField)
-    {
-        int offset = masterPVField.getFieldOffset();
-        Node[] nodes = structureNode.nodes;
-        for(int i=0; i< nodes.length; i++) {
-            Node node = nodes[i];
-            if(!node.isStructure) {
-                int off = node.masterPVField.getFieldOffset();
-                int nextOffset = node.masterPVField.getNextFieldOffset();
-                if(offset>= off && offset<nextOffset) return node;
-            } else {
-                StructureNode subNode = (StructureNode)node;
-                node = getCopyOffset(subNode,masterPVField);
-                if(node!=null) return node;
-            }
-        }
-        return null;
-    }
-
-    private Node getMasterNode(StructureNode structureNode,int structureOffset) {
-        for(Node node : structureNode.nodes) {
-            if(structureOffset>=(node.structureOffset + node.nfields)) continue;
-            if(!node.isStructure) return node; 
-            StructureNode subNode = (StructureNode)node;
-            return  getMasterNode(subNode,structureOffset);
-        }
-        return null;
-    }
-
     private void dump(StringBuilder builder,Node node,int indentLevel) {
         convert.newLine(builder, indentLevel);
         String kind;
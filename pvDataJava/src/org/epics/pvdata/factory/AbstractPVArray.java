@@ -5,6 +5,7 @@
 package org.epics.pvdata.factory;
 
 import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.epics.pvdata.pv.Array;
 import org.epics.pvdata.pv.ArrayData;
@@ -32,6 +33,12 @@ public abstract class AbstractPVArray extends AbstractPVField implements PVArray
      * For use by derived classes.
      */
     protected boolean capacityMutable = true;
+    /**
+     * The number of holders of the storage, if it is shared; null if
+     * the storage is owned by this array alone.
+     * Set under the lock of the array itself, since other arrays set it when they share the storage.
+     */
+    private volatile AtomicInteger storageReferences;
 
     /**
      * Constructor that derived classes must call.
@@ -85,6 +92,7 @@ public abstract class AbstractPVArray extends AbstractPVField implements PVArray
         
         if (length > 0)
         	System.arraycopy(oldValue, 0, getValue(), 0, length);
+        releaseStorage();
     }
     
     protected int internalGet(int offset, int len, ArrayData<?> data) {
@@ -100,22 +108,40 @@ public abstract class AbstractPVArray extends AbstractPVField implements PVArray
     	if (super.isImmutable())
         	throw new IllegalStateException("field is immutable");
  
+    	// the storage obtained through get might be shared, even if modified in place
+    	prepareWrite(true);
     	Object value = getValue();
         if (from == value)
         	return len;
         
+        value = prepareDirectWrite(offset, len);
+        System.arraycopy(from, fromOffset, value, offset, len);
+        super.postPut();
+        return len;      
+    }
+
+    /**
+     * Prepares the storage for writing <code>len</code> elements starting at
+     * <code>offset</code>, growing the array if needed, and returns it.
+     * The caller writes directly into the returned array, and then calls postPut.
+     *
+     * @param offset the first element to be written
+     * @param len the number of elements to be written
+     * @return the storage, an array of the element type
+     */
+    Object prepareDirectWrite(int offset, int len) {
+    	if (super.isImmutable())
+        	throw new IllegalStateException("field is immutable");
+
         int newLength = offset + len;
         if (newLength > length)
         {
         	checkLength(newLength);
         	setCapacity(newLength);
-        	value = getValue();
         	length = newLength;
         }
-        
-        System.arraycopy(from, fromOffset, value, offset, len);
-        super.postPut();
-        return len;      
+        prepareWrite(offset > 0 || offset + len < length);
+        return getValue();
     }
 
     public void put(int offset, ListNumber list) {
@@ -129,6 +155,7 @@ public abstract class AbstractPVArray extends AbstractPVField implements PVArray
         	setCapacity(newLength);
         	length = newLength;
         }
+        prepareWrite(true);
         
         CollectionNumbers.toList(getValue()).setAll(offset, list);
         super.postPut();
@@ -152,10 +179,88 @@ public abstract class AbstractPVArray extends AbstractPVField implements PVArray
 
     	checkLength(len);
     	
+    	releaseStorage();
     	setValue(from);
     	capacity = length = len;
     }
 
+    /**
+     * Make this array use the storage of another array, copy-on-write.
+     *
+     * @param from the array whose storage is to be shared
+     */
+    protected void internalShareData(AbstractPVArray from) {
+    	if (from == this)
+    		return;
+
+    	if (super.isImmutable())
+        	throw new IllegalStateException("field is immutable");
+
+    	checkLength(from.length);
+    	if (!capacityMutable && from.capacity != capacity)
+    		throw new IllegalStateException("not capacityMutable");
+
+    	AtomicInteger references;
+    	synchronized (from) {
+    		references = from.storageReferences;
+    		if (references == null) {
+    			references = new AtomicInteger(1);
+    			from.storageReferences = references;
+    		}
+    		references.incrementAndGet();
+    	}
+
+    	releaseStorage();
+    	setValue(from.getValue());
+    	capacity = from.capacity;
+    	length = from.length;
+    	synchronized (this) {
+    		storageReferences = references;
+    	}
+    	super.postPut();
+    }
+
+    /**
+     * Make the current storage copy-on-write, as if another holder
+     * that never releases it was sharing it.
+     */
+    protected synchronized void internalFreeze() {
+    	if (storageReferences == null)
+    		storageReferences = new AtomicInteger(1);
+    	storageReferences.incrementAndGet();
+    }
+
+    /**
+     * Must be called before writing into the storage: if the storage is shared,
+     * it is replaced by a private one with the same capacity.
+     *
+     * @param keepData whether the current elements must be copied into the
+     * private storage, or can be discarded because they are all going to be
+     * overwritten
+     */
+    protected void prepareWrite(boolean keepData) {
+    	AtomicInteger references = storageReferences;
+    	if (references == null)
+    		return;
+
+    	// The other holders are released only after they have copied,
+    	// so if we are the only one left, nobody else can read the storage
+    	if (references.get() > 1) {
+    		Object oldValue = getValue();
+    		allocate(capacity);
+    		if (keepData && length > 0)
+    			System.arraycopy(oldValue, 0, getValue(), 0, length);
+    	}
+    	releaseStorage();
+    }
+
+    private synchronized void releaseStorage() {
+    	if (storageReferences != null) {
+    		storageReferences.decrementAndGet();
+    		storageReferences = null;
+    	}
+    }
+
     /* (non-Javadoc)
      * @see org.epics.pvdata.factory.AbstractPVField#setImmutable()
      */
@@ -210,6 +315,14 @@ public abstract class AbstractPVArray extends AbstractPVField implements PVArray
     	
         if (len > capacity)
         	setCapacity(len);
+        else if (len > length)
+        {
+        	// elements left over from a previous (longer) length must not reappear
+        	prepareWrite(true);
+        	Object value = getValue();
+        	System.arraycopy(java.lang.reflect.Array.newInstance(value.getClass().getComponentType(), len - length), 0,
+        			value, length, len - length);
+        }
         
         length = len;
     }
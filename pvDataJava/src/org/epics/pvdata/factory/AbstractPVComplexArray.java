@@ -46,6 +46,12 @@ public abstract class AbstractPVComplexArray extends AbstractPVArray {
 		else if (count != getArray().getMaximumCapacity())
 			throw new IllegalStateException("fixed array cannot be partially serialized");
 		
+		if (ParallelSerialization.isParallel(getArray(), count))
+		{
+			ParallelSerialization.serialize(value, offset, count, buffer, flusher);
+			return;
+		}
+
 		for (int i = 0; i < count; i++)
 		{
 			if (buffer.remaining() < 1)
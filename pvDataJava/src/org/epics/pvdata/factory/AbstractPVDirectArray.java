@@ -0,0 +1,424 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.factory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.epics.pvdata.misc.SerializeHelper;
+import org.epics.pvdata.pv.Array;
+import org.epics.pvdata.pv.Convert;
+import org.epics.pvdata.pv.DeserializableControl;
+import org.epics.pvdata.pv.PVScalarArray;
+import org.epics.pvdata.pv.ScalarArray;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.SerializableControl;
+
+/**
+ * Abstract base class for the numeric scalar arrays whose elements are kept off the Java heap,
+ * in a direct ByteBuffer with the network byte order.
+ * <p>
+ * This is for large arrays, like images: the elements are not scanned by the garbage collector,
+ * they are serialized and deserialized with bulk copies between buffers, and
+ * {@link #getByteBuffer()} gives them to code that can send them without a copy.
+ * The get and put methods of the array interfaces copy the elements between
+ * the Java arrays and the buffer, so <code>ArrayData</code> and <code>get()</code>
+ * return copies, and <code>shareData</code> copies.
+ * Since no storage is ever shared, freeze does nothing.
+ */
+public abstract class AbstractPVDirectArray extends AbstractPVField implements PVScalarArray {
+    private static final Convert convert = ConvertFactory.getConvert();
+    /**
+     * The byte order of the storage.
+     */
+    public static final ByteOrder STORAGE_ORDER = ByteOrder.BIG_ENDIAN;
+    /**
+     * For use by derived classes.
+     */
+    protected int length = 0;
+    /**
+     * For use by derived classes.
+     */
+    protected int capacity = 0;
+    /**
+     * For use by derived classes.
+     */
+    protected boolean capacityMutable = true;
+    /**
+     * The storage, holding <code>capacity</code> elements.
+     */
+    protected ByteBuffer storage;
+
+    private final int elementSize;
+
+    /**
+     * Constructor that derived classes must call.
+     *
+     * @param array the reflection interface
+     */
+    protected AbstractPVDirectArray(ScalarArray array) {
+        super(array);
+        ScalarType elementType = array.getElementType();
+        if (!elementType.isNumeric())
+        	throw new IllegalArgumentException("element type must be numeric");
+        elementSize = AbstractPVScalarArray.getElementSize(elementType);
+
+        if (getArray().getArraySizeType() == Array.ArraySizeType.fixed)
+        {
+        	capacity = length = getArray().getMaximumCapacity();
+        	capacityMutable = false;
+        }
+        storage = allocate(capacity);
+    }
+
+    private ByteBuffer allocate(int newCapacity) {
+    	return ByteBuffer.allocateDirect(newCapacity*elementSize).order(STORAGE_ORDER);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVArray#getArray()
+     */
+    @Override
+    public Array getArray() {
+        return (Array)getField();
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVScalarArray#getScalarArray()
+     */
+    @Override
+    public ScalarArray getScalarArray() {
+        return (ScalarArray)getField();
+    }
+
+    /**
+     * Get the elements, without copying them.
+     * The buffer is read-only, has the elements from its position to its limit,
+     * and has the byte order of the storage.
+     * It stays valid until the next modification of the length or capacity of the array.
+     *
+     * @return a view of the elements
+     */
+    public ByteBuffer getByteBuffer() {
+    	return slice(0, length).asReadOnlyBuffer().order(STORAGE_ORDER);
+    }
+
+    /**
+     * Get a view of some of the elements.
+     *
+     * @param offset the first element
+     * @param count the number of elements
+     * @return the view, positioned at the first element, with the storage byte order
+     */
+    protected ByteBuffer slice(int offset, int count) {
+    	ByteBuffer view = storage.duplicate().order(STORAGE_ORDER);
+    	if (count <= 0)
+    	{
+    		// offset can be past the end
+    		view.limit(0);
+    		return view;
+    	}
+    	view.limit((offset + count)*elementSize);
+    	view.position(offset*elementSize);
+    	return view;
+    }
+
+    /**
+     * Get the number of elements that can be read.
+     *
+     * @param offset the first element
+     * @param len the number of elements requested
+     * @return the number of elements available
+     */
+    protected int getAvailable(int offset, int len) {
+    	if (offset + len > length)
+    		return Math.max(0, length - offset);
+    	return len;
+    }
+
+    /**
+     * Prepares the storage for writing elements, growing the array if needed.
+     * The caller writes the elements into the returned view and then calls postPut.
+     *
+     * @param offset the first element to be written
+     * @param len the number of elements to be written
+     * @return a view of the elements to be written
+     */
+    protected ByteBuffer prepareDirectPut(int offset, int len) {
+    	if (super.isImmutable())
+    		throw new IllegalStateException("field is immutable");
+
+    	int newLength = offset + len;
+    	if (newLength > length)
+    	{
+    		checkLength(newLength);
+    		setCapacity(newLength);
+    		length = newLength;
+    	}
+    	return slice(offset, len);
+    }
+
+    private void checkLength(int len)
+    {
+    	Array.ArraySizeType type = getArray().getArraySizeType();
+    	if (type != Array.ArraySizeType.variable)
+    	{
+    		int size = getArray().getMaximumCapacity();
+    		if (type == Array.ArraySizeType.fixed && len != size)
+    			throw new IllegalArgumentException("invalid length for a fixed size array");
+    		else if (type == Array.ArraySizeType.bounded && len > size)
+    			throw new IllegalArgumentException("new array capacity too large for a bounded size array");
+    	}
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVArray#setCapacity(int)
+     */
+    @Override
+    public void setCapacity(int newCapacity) {
+    	if (newCapacity == capacity) return;
+
+    	if (!capacityMutable)
+    		throw new IllegalStateException("not capacityMutable");
+
+    	checkLength(newCapacity);
+
+    	ByteBuffer oldStorage = storage;
+    	storage = allocate(newCapacity);
+    	if (length > newCapacity)
+    		length = newCapacity;
+    	if (length > 0)
+    	{
+    		ByteBuffer from = oldStorage.duplicate();
+    		from.limit(length*elementSize);
+    		storage.put(from);
+    		storage.clear();
+    	}
+    	capacity = newCapacity;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVArray#getCapacity()
+     */
+    @Override
+    public int getCapacity() {
+    	return capacity;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVArray#getLength()
+     */
+    @Override
+    public int getLength() {
+    	return length;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVArray#setLength(int)
+     */
+    @Override
+    public void setLength(int len) {
+    	if (len == length)
+    		return;
+
+    	if (super.isImmutable())
+    		throw new IllegalStateException("field is immutable");
+
+    	checkLength(len);
+
+    	if (len > capacity)
+    		setCapacity(len);
+
+    	length = len;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.factory.AbstractPVField#setImmutable()
+     */
+    @Override
+    public void setImmutable() {
+    	capacityMutable = false;
+    	super.setImmutable();
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVArray#isCapacityMutable()
+     */
+    @Override
+    public boolean isCapacityMutable() {
+    	return capacityMutable;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVArray#setCapacityMutable(boolean)
+     */
+    @Override
+    public void setCapacityMutable(boolean isMutable) {
+    	if (isMutable && super.isImmutable())
+    		throw new IllegalStateException("field is immutable");
+
+    	capacityMutable = isMutable;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVScalarArray#shareData(org.epics.pvdata.pv.PVScalarArray)
+     */
+    @Override
+    public void shareData(PVScalarArray from) {
+    	ScalarType elementType = getScalarArray().getElementType();
+    	if (from.getScalarArray().getElementType() != elementType)
+    		throw new IllegalArgumentException("element type must be " + elementType);
+    	if (from == this)
+    		return;
+    	int len = from.getLength();
+    	setLength(len);
+    	if (from instanceof AbstractPVDirectArray)
+    	{
+    		prepareDirectPut(0, len).put(((AbstractPVDirectArray)from).slice(0, len));
+    		super.postPut();
+    	}
+    	else
+    		convert.copyScalarArray(from, 0, this, 0, len);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVScalarArray#freeze()
+     */
+    @Override
+    public void freeze() {
+    	// get always returns a copy
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.Serializable#serialize(java.nio.ByteBuffer, org.epics.pvdata.pv.SerializableControl)
+     */
+    @Override
+    public void serialize(ByteBuffer buffer, SerializableControl flusher) {
+    	serialize(buffer, flusher, 0, -1);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.SerializableArray#serialize(java.nio.ByteBuffer, org.epics.pvdata.pv.SerializableControl, int, int)
+     */
+    @Override
+    public void serialize(ByteBuffer buffer, SerializableControl flusher, int offset, int count) {
+    	// check bounds
+    	if (offset < 0) offset = 0;
+    	else if (offset > length) offset = length;
+    	if (count < 0) count = length;
+
+    	final int maxCount = length - offset;
+    	if (count > maxCount)
+    		count = maxCount;
+
+    	// write size
+    	if (getArray().getArraySizeType() != Array.ArraySizeType.fixed)
+    		SerializeHelper.writeSize(count, buffer, flusher);
+    	else if (count != getArray().getMaximumCapacity())
+    		throw new IllegalStateException("fixed array cannot be partially serialized");
+
+    	// write elements, as many as fit in the buffer at a time
+    	final int end = offset + count;
+    	int i = offset;
+    	while (true)
+    	{
+    		final int n = Math.min(end - i, buffer.remaining()/elementSize);
+    		copy(slice(i, n), buffer);
+    		i += n;
+    		if (i < end)
+    			flusher.flushSerializeBuffer();
+    		else
+    			break;
+    	}
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.Serializable#deserialize(java.nio.ByteBuffer, org.epics.pvdata.pv.DeserializableControl)
+     */
+    @Override
+    public void deserialize(ByteBuffer buffer, DeserializableControl control) {
+    	// read size
+    	final int size = (getArray().getArraySizeType() != Array.ArraySizeType.fixed) ?
+    			SerializeHelper.readSize(buffer, control) :
+    			getArray().getMaximumCapacity();
+
+    	if (size >= 0) {
+    		// prepare array, if necessary
+    		if (size > capacity)
+    			setCapacity(size);
+    		// read the elements directly into the storage
+    		int i = 0;
+    		while (true)
+    		{
+    			final int n = Math.min(size - i, buffer.remaining()/elementSize);
+    			ByteBuffer from = buffer.duplicate().order(buffer.order());
+    			from.limit(from.position() + n*elementSize);
+    			copy(from, slice(i, n));
+    			buffer.position(from.position());
+    			i += n;
+    			if (i < size)
+    				control.ensureData(elementSize);
+    			else
+    				break;
+    		}
+    		// set new length
+    		length = size;
+    	}
+    	// TODO null arrays (size == -1) not supported
+    }
+
+    /**
+     * Copies the remaining elements of one buffer into the other,
+     * converting the byte order if the buffers have different ones.
+     * The positions of both buffers are advanced.
+     */
+    private void copy(ByteBuffer from, ByteBuffer to) {
+    	if (elementSize == 1 || from.order() == to.order())
+    	{
+    		to.put(from);
+    		return;
+    	}
+    	int bytes = from.remaining();
+    	switch (elementSize)
+    	{
+    	case 2:
+    		to.asShortBuffer().put(from.asShortBuffer());
+    		break;
+    	case 4:
+    		to.asIntBuffer().put(from.asIntBuffer());
+    		break;
+    	default:
+    		to.asLongBuffer().put(from.asLongBuffer());
+    		break;
+    	}
+    	from.position(from.position() + bytes);
+    	to.position(to.position() + bytes);
+    }
+
+    /**
+     * Compares the elements with the ones of another array, of the same type and length.
+     *
+     * @param other the other array
+     * @return true if all the elements are equal
+     */
+    protected abstract boolean valueEquals(PVScalarArray other);
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+    	if (this == obj)
+    		return true;
+
+    	if (obj instanceof PVScalarArray)
+    	{
+    		final PVScalarArray other = (PVScalarArray)obj;
+    		if (other.getField().equals(getField()))
+    			return other.getLength() == getLength() && valueEquals(other);
+    	}
+    	return false;
+    }
+}
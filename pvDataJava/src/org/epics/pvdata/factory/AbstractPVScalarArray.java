@@ -10,6 +10,7 @@ import org.epics.pvdata.misc.SerializeHelper;
 import org.epics.pvdata.pv.Array;
 import org.epics.pvdata.pv.DeserializableControl;
 import org.epics.pvdata.pv.PVScalarArray;
+import org.epics.pvdata.pv.ScalarType;
 import org.epics.pvdata.pv.ScalarArray;
 import org.epics.pvdata.pv.SerializableControl;
 
@@ -29,6 +30,27 @@ public abstract class AbstractPVScalarArray extends AbstractPVArray implements P
     public ScalarArray getScalarArray() {
         return (ScalarArray)getField();
     }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVScalarArray#shareData(org.epics.pvdata.pv.PVScalarArray)
+     */
+    @Override
+    public void shareData(PVScalarArray from) {
+    	ScalarType elementType = getScalarArray().getElementType();
+    	if (from.getScalarArray().getElementType() != elementType)
+    		throw new IllegalArgumentException("element type must be " + elementType);
+    	if (!(from instanceof AbstractPVScalarArray))
+    		throw new IllegalArgumentException("unsupported array implementation");
+    	internalShareData((AbstractPVScalarArray)from);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVScalarArray#freeze()
+     */
+    @Override
+    public void freeze() {
+    	internalFreeze();
+    }
     
     /* (non-Javadoc)
      * @see org.epics.pvdata.pv.SerializableArray#serialize(java.nio.ByteBuffer, org.epics.pvdata.pv.SerializableControl, int, int)
@@ -85,6 +107,8 @@ public abstract class AbstractPVScalarArray extends AbstractPVArray implements P
 			// prepare array, if necessary
 			if (size > capacity)
 				setCapacity(size);
+			else
+				prepareWrite(false);
 			// retrieve value from the buffer
 			final int elementSize = getElementSize();
 			if (elementSize <= 0)
@@ -126,7 +150,18 @@ public abstract class AbstractPVScalarArray extends AbstractPVArray implements P
     
     protected final int getElementSize()
     {
-    	return elementSizeLUT[getScalarArray().getElementType().ordinal()];
+    	return getElementSize(getScalarArray().getElementType());
+    }
+
+    /**
+     * Get the serialized size of an element.
+     *
+     * @param elementType the element type
+     * @return the size in bytes, or -1 if it is not fixed
+     */
+    static int getElementSize(ScalarType elementType)
+    {
+    	return elementSizeLUT[elementType.ordinal()];
     }
 
 	protected abstract int putToBuffer(ByteBuffer buffer, SerializableControl control, int offset, int length);
@@ -0,0 +1,108 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.factory;
+
+import java.nio.ByteBuffer;
+
+import org.epics.pvdata.pv.DoubleArrayData;
+import org.epics.pvdata.pv.PVDoubleArray;
+import org.epics.pvdata.pv.PVScalarArray;
+import org.epics.pvdata.pv.ScalarArray;
+import org.epics.util.array.ArrayDouble;
+import org.epics.util.array.CollectionNumbers;
+import org.epics.util.array.ListNumber;
+
+
+/**
+ * Implementation of PVDoubleArray that keeps the elements off the Java heap.
+ */
+public class BasePVDirectDoubleArray extends AbstractPVDirectArray implements PVDoubleArray
+{
+    /**
+     * Constructor.
+     * @param array The introspection interface.
+     */
+    public BasePVDirectDoubleArray(ScalarArray array)
+    {
+        super(array);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVDoubleArray#get(int, int, org.epics.pvdata.pv.DoubleArrayData)
+     */
+    @Override
+    public int get(int offset, int len, DoubleArrayData data) {
+    	int n = getAvailable(offset, len);
+    	double[] to = new double[n];
+    	slice(offset, n).asDoubleBuffer().get(to);
+    	data.set(to, 0);
+    	return n;
+    }
+
+    @Override
+    public ArrayDouble get() {
+    	double[] to = new double[length];
+    	slice(0, length).asDoubleBuffer().get(to);
+        return CollectionNumbers.unmodifiableListDouble(to);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVDoubleArray#put(int, int, double[], int)
+     */
+    @Override
+    public int put(int offset, int len, double[] from, int fromOffset) {
+    	prepareDirectPut(offset, len).asDoubleBuffer().put(from, fromOffset, len);
+    	super.postPut();
+    	return len;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVNumberArray#put(int, org.epics.util.array.ListNumber)
+     */
+    @Override
+    public void put(int offset, ListNumber list) {
+    	int len = list.size();
+    	ByteBuffer to = prepareDirectPut(offset, len);
+    	for (int i = 0; i < len; i++)
+    		to.putDouble(list.getDouble(i));
+    	super.postPut();
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVDoubleArray#shareData(double[])
+     */
+    @Override
+    public void shareData(double[] from) {
+    	setLength(from.length);
+    	put(0, from.length, from, 0);
+    }
+
+    @Override
+    protected boolean valueEquals(PVScalarArray other)
+    {
+    	DoubleArrayData arrayData = new DoubleArrayData();
+    	int n = ((PVDoubleArray)other).get(0, length, arrayData);
+    	ByteBuffer view = slice(0, length);
+    	for (int i = 0; i < n; i++)
+    		if (Double.doubleToLongBits(view.getDouble()) != Double.doubleToLongBits(arrayData.data[arrayData.offset + i]))
+    			return false;
+    	return n == length;
+    }
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		// as Arrays.hashCode of the elements
+		int result = 1;
+		ByteBuffer view = slice(0, length);
+		for (int i = 0; i < length; i++) {
+			long bits = Double.doubleToLongBits(view.getDouble());
+			result = 31 * result + (int)(bits ^ (bits >>> 32));
+		}
+		return result;
+	}
+}
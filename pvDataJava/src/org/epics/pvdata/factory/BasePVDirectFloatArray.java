@@ -0,0 +1,108 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.factory;
+
+import java.nio.ByteBuffer;
+
+import org.epics.pvdata.pv.FloatArrayData;
+import org.epics.pvdata.pv.PVFloatArray;
+import org.epics.pvdata.pv.PVScalarArray;
+import org.epics.pvdata.pv.ScalarArray;
+import org.epics.util.array.ArrayFloat;
+import org.epics.util.array.CollectionNumbers;
+import org.epics.util.array.ListNumber;
+
+
+/**
+ * Implementation of PVFloatArray that keeps the elements off the Java heap.
+ */
+public class BasePVDirectFloatArray extends AbstractPVDirectArray implements PVFloatArray
+{
+    /**
+     * Constructor.
+     * @param array The introspection interface.
+     */
+    public BasePVDirectFloatArray(ScalarArray array)
+    {
+        super(array);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVFloatArray#get(int, int, org.epics.pvdata.pv.FloatArrayData)
+     */
+    @Override
+    public int get(int offset, int len, FloatArrayData data) {
+    	int n = getAvailable(offset, len);
+    	float[] to = new float[n];
+    	slice(offset, n).asFloatBuffer().get(to);
+    	data.set(to, 0);
+    	return n;
+    }
+
+    @Override
+    public ArrayFloat get() {
+    	float[] to = new float[length];
+    	slice(0, length).asFloatBuffer().get(to);
+        return CollectionNumbers.unmodifiableListFloat(to);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVFloatArray#put(int, int, float[], int)
+     */
+    @Override
+    public int put(int offset, int len, float[] from, int fromOffset) {
+    	prepareDirectPut(offset, len).asFloatBuffer().put(from, fromOffset, len);
+    	super.postPut();
+    	return len;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVNumberArray#put(int, org.epics.util.array.ListNumber)
+     */
+    @Override
+    public void put(int offset, ListNumber list) {
+    	int len = list.size();
+    	ByteBuffer to = prepareDirectPut(offset, len);
+    	for (int i = 0; i < len; i++)
+    		to.putFloat(list.getFloat(i));
+    	super.postPut();
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVFloatArray#shareData(float[])
+     */
+    @Override
+    public void shareData(float[] from) {
+    	setLength(from.length);
+    	put(0, from.length, from, 0);
+    }
+
+    @Override
+    protected boolean valueEquals(PVScalarArray other)
+    {
+    	FloatArrayData arrayData = new FloatArrayData();
+    	int n = ((PVFloatArray)other).get(0, length, arrayData);
+    	ByteBuffer view = slice(0, length);
+    	for (int i = 0; i < n; i++)
+    		if (Float.floatToIntBits(view.getFloat()) != Float.floatToIntBits(arrayData.data[arrayData.offset + i]))
+    			return false;
+    	return n == length;
+    }
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		// as Arrays.hashCode of the elements
+		int result = 1;
+		ByteBuffer view = slice(0, length);
+		for (int i = 0; i < length; i++) {
+			float v = view.getFloat();
+			result = 31 * result + Float.floatToIntBits(v);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.factory;
+
+import java.nio.ByteBuffer;
+
+import org.epics.pvdata.pv.IntArrayData;
+import org.epics.pvdata.pv.PVIntArray;
+import org.epics.pvdata.pv.PVScalarArray;
+import org.epics.pvdata.pv.ScalarArray;
+import org.epics.util.array.ArrayInteger;
+import org.epics.util.array.CollectionNumbers;
+import org.epics.util.array.ListNumber;
+
+
+/**
+ * Implementation of PVIntArray that keeps the elements off the Java heap.
+ */
+public class BasePVDirectIntArray extends AbstractPVDirectArray implements PVIntArray
+{
+    /**
+     * Constructor.
+     * @param array The introspection interface.
+     */
+    public BasePVDirectIntArray(ScalarArray array)
+    {
+        super(array);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVIntArray#get(int, int, org.epics.pvdata.pv.IntArrayData)
+     */
+    @Override
+    public int get(int offset, int len, IntArrayData data) {
+    	int n = getAvailable(offset, len);
+    	int[] to = new int[n];
+    	slice(offset, n).asIntBuffer().get(to);
+    	data.set(to, 0);
+    	return n;
+    }
+
+    @Override
+    public ArrayInteger get() {
+    	int[] to = new int[length];
+    	slice(0, length).asIntBuffer().get(to);
+        return CollectionNumbers.unmodifiableListInt(to);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVIntArray#put(int, int, int[], int)
+     */
+    @Override
+    public int put(int offset, int len, int[] from, int fromOffset) {
+    	prepareDirectPut(offset, len).asIntBuffer().put(from, fromOffset, len);
+    	super.postPut();
+    	return len;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVNumberArray#put(int, org.epics.util.array.ListNumber)
+     */
+    @Override
+    public void put(int offset, ListNumber list) {
+    	int len = list.size();
+    	ByteBuffer to = prepareDirectPut(offset, len);
+    	for (int i = 0; i < len; i++)
+    		to.putInt(list.getInt(i));
+    	super.postPut();
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVIntArray#shareData(int[])
+     */
+    @Override
+    public void shareData(int[] from) {
+    	setLength(from.length);
+    	put(0, from.length, from, 0);
+    }
+
+    @Override
+    protected boolean valueEquals(PVScalarArray other)
+    {
+    	IntArrayData arrayData = new IntArrayData();
+    	int n = ((PVIntArray)other).get(0, length, arrayData);
+    	ByteBuffer view = slice(0, length);
+    	for (int i = 0; i < n; i++)
+    		if (view.getInt() != arrayData.data[arrayData.offset + i])
+    			return false;
+    	return n == length;
+    }
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		// as Arrays.hashCode of the elements
+		int result = 1;
+		ByteBuffer view = slice(0, length);
+		for (int i = 0; i < length; i++) {
+			int v = view.getInt();
+			result = 31 * result + v;
+		}
+		return result;
+	}
+}
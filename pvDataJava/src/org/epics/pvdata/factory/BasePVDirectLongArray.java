@@ -0,0 +1,108 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.factory;
+
+import java.nio.ByteBuffer;
+
+import org.epics.pvdata.pv.LongArrayData;
+import org.epics.pvdata.pv.PVLongArray;
+import org.epics.pvdata.pv.PVScalarArray;
+import org.epics.pvdata.pv.ScalarArray;
+import org.epics.util.array.ArrayLong;
+import org.epics.util.array.CollectionNumbers;
+import org.epics.util.array.ListNumber;
+
+
+/**
+ * Implementation of PVLongArray that keeps the elements off the Java heap.
+ */
+public class BasePVDirectLongArray extends AbstractPVDirectArray implements PVLongArray
+{
+    /**
+     * Constructor.
+     * @param array The introspection interface.
+     */
+    public BasePVDirectLongArray(ScalarArray array)
+    {
+        super(array);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVLongArray#get(int, int, org.epics.pvdata.pv.LongArrayData)
+     */
+    @Override
+    public int get(int offset, int len, LongArrayData data) {
+    	int n = getAvailable(offset, len);
+    	long[] to = new long[n];
+    	slice(offset, n).asLongBuffer().get(to);
+    	data.set(to, 0);
+    	return n;
+    }
+
+    @Override
+    public ArrayLong get() {
+    	long[] to = new long[length];
+    	slice(0, length).asLongBuffer().get(to);
+        return CollectionNumbers.unmodifiableListLong(to);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVLongArray#put(int, int, long[], int)
+     */
+    @Override
+    public int put(int offset, int len, long[] from, int fromOffset) {
+    	prepareDirectPut(offset, len).asLongBuffer().put(from, fromOffset, len);
+    	super.postPut();
+    	return len;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVNumberArray#put(int, org.epics.util.array.ListNumber)
+     */
+    @Override
+    public void put(int offset, ListNumber list) {
+    	int len = list.size();
+    	ByteBuffer to = prepareDirectPut(offset, len);
+    	for (int i = 0; i < len; i++)
+    		to.putLong(list.getLong(i));
+    	super.postPut();
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVLongArray#shareData(long[])
+     */
+    @Override
+    public void shareData(long[] from) {
+    	setLength(from.length);
+    	put(0, from.length, from, 0);
+    }
+
+    @Override
+    protected boolean valueEquals(PVScalarArray other)
+    {
+    	LongArrayData arrayData = new LongArrayData();
+    	int n = ((PVLongArray)other).get(0, length, arrayData);
+    	ByteBuffer view = slice(0, length);
+    	for (int i = 0; i < n; i++)
+    		if (view.getLong() != arrayData.data[arrayData.offset + i])
+    			return false;
+    	return n == length;
+    }
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		// as Arrays.hashCode of the elements
+		int result = 1;
+		ByteBuffer view = slice(0, length);
+		for (int i = 0; i < length; i++) {
+			long v = view.getLong();
+			result = 31 * result + (int)(v ^ (v >>> 32));
+		}
+		return result;
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.factory;
+
+import java.nio.ByteBuffer;
+
+import org.epics.pvdata.pv.ByteArrayData;
+import org.epics.pvdata.pv.PVUByteArray;
+import org.epics.pvdata.pv.PVScalarArray;
+import org.epics.pvdata.pv.ScalarArray;
+import org.epics.util.array.ArrayUByte;
+import org.epics.util.array.CollectionNumbers;
+import org.epics.util.array.ListNumber;
+
+
+/**
+ * Implementation of PVUByteArray that keeps the elements off the Java heap.
+ */
+public class BasePVDirectUByteArray extends AbstractPVDirectArray implements PVUByteArray
+{
+    /**
+     * Constructor.
+     * @param array The introspection interface.
+     */
+    public BasePVDirectUByteArray(ScalarArray array)
+    {
+        super(array);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVUByteArray#get(int, int, org.epics.pvdata.pv.ByteArrayData)
+     */
+    @Override
+    public int get(int offset, int len, ByteArrayData data) {
+    	int n = getAvailable(offset, len);
+    	byte[] to = new byte[n];
+    	slice(offset, n).get(to);
+    	data.set(to, 0);
+    	return n;
+    }
+
+    @Override
+    public ArrayUByte get() {
+    	byte[] to = new byte[length];
+    	slice(0, length).get(to);
+        return CollectionNumbers.unmodifiableListUByte(to);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVUByteArray#put(int, int, byte[], int)
+     */
+    @Override
+    public int put(int offset, int len, byte[] from, int fromOffset) {
+    	prepareDirectPut(offset, len).put(from, fromOffset, len);
+    	super.postPut();
+    	return len;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVNumberArray#put(int, org.epics.util.array.ListNumber)
+     */
+    @Override
+    public void put(int offset, ListNumber list) {
+    	int len = list.size();
+    	ByteBuffer to = prepareDirectPut(offset, len);
+    	for (int i = 0; i < len; i++)
+    		to.put(list.getByte(i));
+    	super.postPut();
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVUByteArray#shareData(byte[])
+     */
+    @Override
+    public void shareData(byte[] from) {
+    	setLength(from.length);
+    	put(0, from.length, from, 0);
+    }
+
+    @Override
+    protected boolean valueEquals(PVScalarArray other)
+    {
+    	ByteArrayData arrayData = new ByteArrayData();
+    	int n = ((PVUByteArray)other).get(0, length, arrayData);
+    	ByteBuffer view = slice(0, length);
+    	for (int i = 0; i < n; i++)
+    		if (view.get() != arrayData.data[arrayData.offset + i])
+    			return false;
+    	return n == length;
+    }
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		// as Arrays.hashCode of the elements
+		int result = 1;
+		ByteBuffer view = slice(0, length);
+		for (int i = 0; i < length; i++) {
+			byte v = view.get();
+			result = 31 * result + v;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.factory;
+
+import java.nio.ByteBuffer;
+
+import org.epics.pvdata.pv.ShortArrayData;
+import org.epics.pvdata.pv.PVUShortArray;
+import org.epics.pvdata.pv.PVScalarArray;
+import org.epics.pvdata.pv.ScalarArray;
+import org.epics.util.array.ArrayUShort;
+import org.epics.util.array.CollectionNumbers;
+import org.epics.util.array.ListNumber;
+
+
+/**
+ * Implementation of PVUShortArray that keeps the elements off the Java heap.
+ */
+public class BasePVDirectUShortArray extends AbstractPVDirectArray implements PVUShortArray
+{
+    /**
+     * Constructor.
+     * @param array The introspection interface.
+     */
+    public BasePVDirectUShortArray(ScalarArray array)
+    {
+        super(array);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVUShortArray#get(int, int, org.epics.pvdata.pv.ShortArrayData)
+     */
+    @Override
+    public int get(int offset, int len, ShortArrayData data) {
+    	int n = getAvailable(offset, len);
+    	short[] to = new short[n];
+    	slice(offset, n).asShortBuffer().get(to);
+    	data.set(to, 0);
+    	return n;
+    }
+
+    @Override
+    public ArrayUShort get() {
+    	short[] to = new short[length];
+    	slice(0, length).asShortBuffer().get(to);
+        return CollectionNumbers.unmodifiableListUShort(to);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVUShortArray#put(int, int, short[], int)
+     */
+    @Override
+    public int put(int offset, int len, short[] from, int fromOffset) {
+    	prepareDirectPut(offset, len).asShortBuffer().put(from, fromOffset, len);
+    	super.postPut();
+    	return len;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVNumberArray#put(int, org.epics.util.array.ListNumber)
+     */
+    @Override
+    public void put(int offset, ListNumber list) {
+    	int len = list.size();
+    	ByteBuffer to = prepareDirectPut(offset, len);
+    	for (int i = 0; i < len; i++)
+    		to.putShort(list.getShort(i));
+    	super.postPut();
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVUShortArray#shareData(short[])
+     */
+    @Override
+    public void shareData(short[] from) {
+    	setLength(from.length);
+    	put(0, from.length, from, 0);
+    }
+
+    @Override
+    protected boolean valueEquals(PVScalarArray other)
+    {
+    	ShortArrayData arrayData = new ShortArrayData();
+    	int n = ((PVUShortArray)other).get(0, length, arrayData);
+    	ByteBuffer view = slice(0, length);
+    	for (int i = 0; i < n; i++)
+    		if (view.getShort() != arrayData.data[arrayData.offset + i])
+    			return false;
+    	return n == length;
+    }
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		// as Arrays.hashCode of the elements
+		int result = 1;
+		ByteBuffer view = slice(0, length);
+		for (int i = 0; i < length; i++) {
+			short v = view.getShort();
+			result = 31 * result + v;
+		}
+		return result;
+	}
+}
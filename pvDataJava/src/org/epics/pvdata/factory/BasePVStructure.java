@@ -339,28 +339,20 @@ public class BasePVStructure extends AbstractPVField implements PVStructure
     
     private PVField findSubField(String fieldName,PVStructure pvStructure) {
         if(fieldName==null || fieldName.length()<1) return null;
-        int index = fieldName.indexOf('.');
-        String name = fieldName;
-        String restOfName = null;
-        if(index>0) {
-            name = fieldName.substring(0, index);
-            if(fieldName.length()>index) {
-                restOfName = fieldName.substring(index+1);
-            }
-        }
-        PVField[] pvFields = pvStructure.getPVFields();
-        String[] fieldNames = pvStructure.getStructure().getFieldNames();
-        PVField pvField = null;
-        for(int i=0; i<pvFields.length; i++) {
-            if(fieldNames[i].equals(name)) {
-                pvField = pvFields[i];
-                break;
-            }
+        int start = 0;
+        while(true) {
+            int index = fieldName.indexOf('.', start);
+            String name = (index<0)
+                    ? (start==0 ? fieldName : fieldName.substring(start))
+                    : fieldName.substring(start, index);
+            int fieldIndex = pvStructure.getStructure().getFieldIndex(name);
+            if(fieldIndex<0) return null;
+            PVField pvField = pvStructure.getPVFields()[fieldIndex];
+            if(index<0) return pvField;
+            if(pvField.getField().getType()!=Type.structure) return null;
+            pvStructure = (PVStructure)pvField;
+            start = index + 1;
         }
-        if(pvField==null) return null;
-        if(restOfName==null) return pvField;
-        if(pvField.getField().getType()!=Type.structure) return null;
-        return findSubField(restOfName,(PVStructure)pvField);
     }
     
 	/* (non-Javadoc)
@@ -6,6 +6,9 @@ package org.epics.pvdata.factory;
 
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.epics.pvdata.misc.SerializeHelper;
 import org.epics.pvdata.pv.Convert;
@@ -27,8 +30,11 @@ import org.epics.pvdata.pv.UnionArray;
 public class BaseStructure extends BaseField implements Structure {
     private static Convert convert = ConvertFactory.getConvert();
     private final String id;
-    private Field[] fields;
-    private String[] fieldNames;
+    private final Field[] fields;
+    private final String[] fieldNames;
+    // immutable, built once for the field names
+    private final Map<String,Integer> fieldIndex;
+    private int hash;
     /**
      * Constructor for a structure field.
      * @param fieldNames The field names for the subfields
@@ -60,28 +66,39 @@ public class BaseStructure extends BaseField implements Structure {
     		throw new IllegalArgumentException("fieldNames has different length than fields");
     	
     	this.id = id;
-    	this.fields = fields;
-    	this.fieldNames = fieldNames;
-    	for(int i=0; i<fields.length; i++) {
-    		String fieldName = fieldNames[i];
-    		if(fieldName==null) {
-    		    throw new IllegalArgumentException(
+    	// copied, instances are interned and must not change with the caller's arrays
+    	this.fields = fields.clone();
+    	this.fieldNames = fieldNames.clone();
+    	this.fieldIndex = createFieldIndex(this.fieldNames);
+    }
+
+    /**
+     * Validate the field names and create the map from name to index.
+     * @param fieldNames The field names.
+     * @return The unmodifiable map.
+     * @throws IllegalArgumentException if a name is null, empty or appears more than once.
+     */
+    static Map<String,Integer> createFieldIndex(String[] fieldNames) {
+        Map<String,Integer> fieldIndex = new HashMap<String,Integer>(fieldNames.length * 2);
+        for(int i=0; i<fieldNames.length; i++) {
+            String fieldName = fieldNames[i];
+            if(fieldName==null) {
+                throw new IllegalArgumentException(
                         "fieldName " + i
                         + " is null");
-    		}
-    		if(fieldName.length()<1) {
-    		    throw new IllegalArgumentException(
+            }
+            if(fieldName.length()<1) {
+                throw new IllegalArgumentException(
                         "fieldName " + i
                         + " has length 0");
-    		}
-    		for(int j=i+1; j<fields.length; j++) {
-    			if(fieldName.equals(fieldNames[j])) {
-    				throw new IllegalArgumentException(
-    						"fieldName " + fieldName
-    						+ " appears more than once");
-    			}
-    		}
-    	}
+            }
+            if(fieldIndex.put(fieldName, i)!=null) {
+                throw new IllegalArgumentException(
+                        "fieldName " + fieldName
+                        + " appears more than once");
+            }
+        }
+        return Collections.unmodifiableMap(fieldIndex);
     }
     /* (non-Javadoc)
 	 * @see org.epics.pvdata.pv.Field#getID()
@@ -91,54 +108,37 @@ public class BaseStructure extends BaseField implements Structure {
 		return id;
 	}
 	/**
-     * Called by FieldFactory
-     * @param newFields new fields
-     * @param newFieldNames new names
+     * Called by FieldFactory.
+     * Create a new instance equal to the structure, with each structure subfield
+     * also replaced by a new instance. The original is left untouched.
+     * @param structure the structure to clone
+     * @return the clone
      */
-    void clone(Field[] fields,String[] fieldNames) {
-        this.fields = fields;
-        this.fieldNames = fieldNames;
-        int n = fieldNames.length;
+    static BaseStructure clone(Structure structure) {
+        Field[] fields = structure.getFields();
+        int n = fields.length;
         for(int i=0; i<n; i++) {
             if(fields[i].getType()==Type.structure) {
-                BaseStructure sub = (BaseStructure)fields[i];
-                String[] subNames = sub.getFieldNames();
-                Field[] subFields = sub.getFields();
-                int m = subNames.length;
-                String[] newNames = new String[m];
-                Field[] newFields = new Field[m];
-                for(int j=0; j<m; j++) {
-                    newNames[j] = subNames[j];
-                    newFields[j] = subFields[j];
-                }
-                sub.clone(newFields, newNames);
+                fields[i] = clone((Structure)fields[i]);
             }
         }
-        
+        return new BaseStructure(structure.getID(),structure.getFieldNames(),fields);
     }
     /* (non-Javadoc)
      * @see org.epics.pvdata.pv.Structure#getField(java.lang.String)
      */
 	@Override
     public Field getField(String name) {
-		for(int i=0; i<fields.length; i++) {
-			if(name.equals(fieldNames[i])) {
-				return fields[i];
-			}
-		}
-        return null;
+		Integer index = fieldIndex.get(name);
+		return (index != null) ? fields[index] : null;
     }
 	/* (non-Javadoc)
      * @see org.epics.pvdata.pv.Structure#getFieldIndex(java.lang.String)
      */
 	@Override
     public int getFieldIndex(String name) {
-		for(int i=0; i<fields.length; i++) {
-			if(name.equals(fieldNames[i])) {
-				return i;
-			}
-		}
-        return -1;
+		Integer index = fieldIndex.get(name);
+		return (index != null) ? index : -1;
     }
     /* (non-Javadoc)
      * @see org.epics.pvdata.pv.Structure#getField(int)
@@ -176,7 +176,7 @@ public class BaseStructure extends BaseField implements Structure {
 	 */
 	@Override
     public String[] getFieldNames() {
-	    return fieldNames;
+	    return fieldNames.clone();
     }
 	/* (non-Javadoc)
 	 * @see org.epics.pvdata.pv.Structure#getFieldName(int)
@@ -190,7 +190,7 @@ public class BaseStructure extends BaseField implements Structure {
      */
     @Override
     public Field[] getFields() {
-        return fields;
+        return fields.clone();
     }
     /* (non-Javadoc)
      * @see org.epics.pvdata.factory.BaseField#toString(java.lang.StringBuilder, int)
@@ -239,9 +239,15 @@ public class BaseStructure extends BaseField implements Structure {
 	 */
 	@Override
 	public int hashCode() {
-		final int PRIME = 31;
-		return id.hashCode() + PRIME *
-			(PRIME * Arrays.hashCode(fieldNames) + Arrays.hashCode(fields));
+		// the content never changes, so the deep hash is computed only once
+		int h = hash;
+		if (h == 0) {
+			final int PRIME = 31;
+			h = id.hashCode() + PRIME *
+				(PRIME * Arrays.hashCode(fieldNames) + Arrays.hashCode(fields));
+			hash = h;
+		}
+		return h;
 	}
 	/* (non-Javadoc)
 	 * @see java.lang.Object#equals(java.lang.Object)
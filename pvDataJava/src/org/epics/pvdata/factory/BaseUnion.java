@@ -6,6 +6,7 @@ package org.epics.pvdata.factory;
 
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Map;
 
 import org.epics.pvdata.misc.SerializeHelper;
 import org.epics.pvdata.pv.Convert;
@@ -25,7 +26,10 @@ public class BaseUnion extends BaseField implements Union {
     private static Convert convert = ConvertFactory.getConvert();
     private final String id;
     private final Field[] fields;
-    private String[] fieldNames;
+    private final String[] fieldNames;
+    // immutable, built once for the field names
+    private final Map<String,Integer> fieldIndex;
+    private int hash;
 
     /**
 	 * Default unrestricted union (aka any type) ID.
@@ -73,28 +77,10 @@ public class BaseUnion extends BaseField implements Union {
     		throw new IllegalArgumentException("no fields but id is different than " + ANY_ID);
         
     	this.id = id;
-    	this.fields = fields;
-    	this.fieldNames = fieldNames;
-    	for(int i=0; i<fields.length; i++) {
-    		String fieldName = fieldNames[i];
-    		if(fieldName==null) {
-    		    throw new IllegalArgumentException(
-                        "fieldName " + i
-                        + " is null");
-    		}
-    		if(fieldName.length()<1) {
-    		    throw new IllegalArgumentException(
-                        "fieldName " + i
-                        + " has length 0");
-    		}
-    		for(int j=i+1; j<fields.length; j++) {
-    			if(fieldName.equals(fieldNames[j])) {
-    				throw new IllegalArgumentException(
-    						"fieldName " + fieldName
-    						+ " appears more than once");
-    			}
-    		}
-    	}
+    	// copied, instances are interned and must not change with the caller's arrays
+    	this.fields = fields.clone();
+    	this.fieldNames = fieldNames.clone();
+    	this.fieldIndex = BaseStructure.createFieldIndex(this.fieldNames);
     }
 
 	/* (non-Javadoc)
@@ -109,24 +95,16 @@ public class BaseUnion extends BaseField implements Union {
      */
 	@Override
     public Field getField(String name) {
-		for(int i=0; i<fields.length; i++) {
-			if(name.equals(fieldNames[i])) {
-				return fields[i];
-			}
-		}
-        return null;
+		Integer index = fieldIndex.get(name);
+		return (index != null) ? fields[index] : null;
     }
 	/* (non-Javadoc)
      * @see org.epics.pvdata.pv.Union#getFieldIndex(java.lang.String)
      */
 	@Override
     public int getFieldIndex(String name) {
-		for(int i=0; i<fields.length; i++) {
-			if(name.equals(fieldNames[i])) {
-				return i;
-			}
-		}
-        return -1;
+		Integer index = fieldIndex.get(name);
+		return (index != null) ? index : -1;
     }
     /* (non-Javadoc)
      * @see org.epics.pvdata.pv.Union#getField(int)
@@ -164,7 +142,7 @@ public class BaseUnion extends BaseField implements Union {
 	 */
 	@Override
     public String[] getFieldNames() {
-	    return fieldNames;
+	    return fieldNames.clone();
     }
 	/* (non-Javadoc)
 	 * @see org.epics.pvdata.pv.Union#getFieldName(int)
@@ -178,7 +156,7 @@ public class BaseUnion extends BaseField implements Union {
      */
     @Override
     public Field[] getFields() {
-        return fields;
+        return fields.clone();
     }
     
     /* (non-Javadoc)
@@ -235,9 +213,15 @@ public class BaseUnion extends BaseField implements Union {
 	 */
 	@Override
 	public int hashCode() {
-		final int PRIME = 37;
-		return id.hashCode() + PRIME *
-			(PRIME * Arrays.hashCode(fieldNames) + Arrays.hashCode(fields));
+		// the content never changes, so the deep hash is computed only once
+		int h = hash;
+		if (h == 0) {
+			final int PRIME = 37;
+			h = id.hashCode() + PRIME *
+				(PRIME * Arrays.hashCode(fieldNames) + Arrays.hashCode(fields));
+			hash = h;
+		}
+		return h;
 	}
 	/* (non-Javadoc)
 	 * @see java.lang.Object#equals(java.lang.Object)
@@ -521,12 +521,12 @@ public final class ConvertFactory {
                     if(count<=0) return 0;
                 }
             }
-            if (to.getCapacity() < count + toOffset)
-                to.setCapacity(count+toOffset);
-
             ScalarType fromElementType = from.getScalarArray().getElementType();
             ScalarType toElementType = to.getScalarArray().getElementType();
 
+            if (to.getCapacity() < count + toOffset)
+                to.setCapacity(count+toOffset);
+
             if (from.isImmutable() && (fromElementType == toElementType)) {
                 if (offset == 0 && toOffset == 0 && count == from.getLength()) {
                     return copyArrayDataReference(from, to);
@@ -2243,6 +2243,9 @@ public final class ConvertFactory {
         
         private int convertFromByteArray(PVScalarArray pv, int offset, int len,
                 byte[] from, int fromOffset) {
+            int ndirect = convertFromArray(ScalarType.pvByte, pv, offset, len, from, fromOffset);
+            if (ndirect >= 0)
+                return ndirect;
             ScalarType elemType = pv.getScalarArray().getElementType();
             int ntransfered = 0;
             switch (elemType) {
@@ -2412,6 +2415,9 @@ public final class ConvertFactory {
         
         private int convertFromUByteArray(PVScalarArray pv, int offset, int len,
                 byte[] from, int fromOffset) {
+            int ndirect = convertFromArray(ScalarType.pvUByte, pv, offset, len, from, fromOffset);
+            if (ndirect >= 0)
+                return ndirect;
             ScalarType elemType = pv.getScalarArray().getElementType();
             int ntransfered = 0;
             switch (elemType) {
@@ -2587,6 +2593,9 @@ public final class ConvertFactory {
         
         private int convertToByteArray(PVScalarArray pv, int offset, int len,
                 byte[] to, int toOffset) {
+            int ndirect = convertToArray(pv, offset, len, ScalarType.pvByte, to, toOffset);
+            if (ndirect >= 0)
+                return ndirect;
             ScalarType elemType = pv.getScalarArray().getElementType();
             int ntransfered = 0;
             switch (elemType) {
@@ -2813,6 +2822,9 @@ public final class ConvertFactory {
         
         private int convertFromShortArray(PVScalarArray pv, int offset,
                 int len, short[] from, int fromOffset) {
+            int ndirect = convertFromArray(ScalarType.pvShort, pv, offset, len, from, fromOffset);
+            if (ndirect >= 0)
+                return ndirect;
             ScalarType elemType = pv.getScalarArray().getElementType();
             int ntransfered = 0;
             switch (elemType) {
@@ -2980,6 +2992,9 @@ public final class ConvertFactory {
         
         private int convertFromUShortArray(PVScalarArray pv, int offset,
                 int len, short[] from, int fromOffset) {
+            int ndirect = convertFromArray(ScalarType.pvUShort, pv, offset, len, from, fromOffset);
+            if (ndirect >= 0)
+                return ndirect;
             ScalarType elemType = pv.getScalarArray().getElementType();
             int ntransfered = 0;
             switch (elemType) {
@@ -3151,6 +3166,9 @@ public final class ConvertFactory {
         
         private int convertToShortArray(PVScalarArray pv, int offset, int len,
                 short[] to, int toOffset) {
+            int ndirect = convertToArray(pv, offset, len, ScalarType.pvShort, to, toOffset);
+            if (ndirect >= 0)
+                return ndirect;
             ScalarType elemType = pv.getScalarArray().getElementType();
             int ntransfered = 0;
             switch (elemType) {
@@ -3381,6 +3399,9 @@ public final class ConvertFactory {
         
         private int convertFromIntArray(PVScalarArray pv, int offset, int len,
                 int[] from, int fromOffset) {
+            int ndirect = convertFromArray(ScalarType.pvInt, pv, offset, len, from, fromOffset);
+            if (ndirect >= 0)
+                return ndirect;
             ScalarType elemType = pv.getScalarArray().getElementType();
             int ntransfered = 0;
             switch (elemType) {
@@ -3553,6 +3574,9 @@ public final class ConvertFactory {
         
         private int convertFromUIntArray(PVScalarArray pv, int offset, int len,
                 int[] from, int fromOffset) {
+            int ndirect = convertFromArray(ScalarType.pvUInt, pv, offset, len, from, fromOffset);
+            if (ndirect >= 0)
+                return ndirect;
             ScalarType elemType = pv.getScalarArray().getElementType();
             int ntransfered = 0;
             switch (elemType) {
@@ -3728,6 +3752,9 @@ public final class ConvertFactory {
         
         private int convertToIntArray(PVScalarArray pv, int offset, int len,
                 int[] to, int toOffset) {
+            int ndirect = convertToArray(pv, offset, len, ScalarType.pvInt, to, toOffset);
+            if (ndirect >= 0)
+                return ndirect;
             ScalarType elemType = pv.getScalarArray().getElementType();
             int ntransfered = 0;
             switch (elemType) {
@@ -3957,6 +3984,9 @@ public final class ConvertFactory {
 
         private int convertFromLongArray(PVScalarArray pv, int offset, int len,
                 long[] from, int fromOffset) {
+            int ndirect = convertFromArray(ScalarType.pvLong, pv, offset, len, from, fromOffset);
+            if (ndirect >= 0)
+                return ndirect;
             ScalarType elemType = pv.getScalarArray().getElementType();
             int ntransfered = 0;
             switch (elemType) {
@@ -4130,6 +4160,9 @@ public final class ConvertFactory {
         
         private int convertFromULongArray(PVScalarArray pv, int offset, int len,
                 long[] from, int fromOffset) {
+            int ndirect = convertFromArray(ScalarType.pvULong, pv, offset, len, from, fromOffset);
+            if (ndirect >= 0)
+                return ndirect;
             ScalarType elemType = pv.getScalarArray().getElementType();
             int ntransfered = 0;
             switch (elemType) {
@@ -4305,6 +4338,9 @@ public final class ConvertFactory {
         
         private int convertToLongArray(PVScalarArray pv, int offset, int len,
                 long[] to, int toOffset) {
+            int ndirect = convertToArray(pv, offset, len, ScalarType.pvLong, to, toOffset);
+            if (ndirect >= 0)
+                return ndirect;
             ScalarType elemType = pv.getScalarArray().getElementType();
             int ntransfered = 0;
             switch (elemType) {
@@ -4537,6 +4573,9 @@ public final class ConvertFactory {
         
         private int convertFromFloatArray(PVScalarArray pv, int offset,
                 int len, float[] from, int fromOffset) {
+            int ndirect = convertFromArray(ScalarType.pvFloat, pv, offset, len, from, fromOffset);
+            if (ndirect >= 0)
+                return ndirect;
             ScalarType elemType = pv.getScalarArray().getElementType();
             int ntransfered = 0;
             switch (elemType) {
@@ -4707,6 +4746,9 @@ public final class ConvertFactory {
 
         private int convertToFloatArray(PVScalarArray pv, int offset, int len,
                 float[] to, int toOffset) {
+            int ndirect = convertToArray(pv, offset, len, ScalarType.pvFloat, to, toOffset);
+            if (ndirect >= 0)
+                return ndirect;
             ScalarType elemType = pv.getScalarArray().getElementType();
             int ntransfered = 0;
             switch (elemType) {
@@ -4921,6 +4963,9 @@ public final class ConvertFactory {
 
         private int convertFromDoubleArray(PVScalarArray pv, int offset,
                 int len, double[] from, int fromOffset) {
+            int ndirect = convertFromArray(ScalarType.pvDouble, pv, offset, len, from, fromOffset);
+            if (ndirect >= 0)
+                return ndirect;
             ScalarType elemType = pv.getScalarArray().getElementType();
             int ntransfered = 0;
             switch (elemType) {
@@ -5091,6 +5136,9 @@ public final class ConvertFactory {
 
         private int convertToDoubleArray(PVScalarArray pv, int offset, int len,
                 double[] to, int toOffset) {
+            int ndirect = convertToArray(pv, offset, len, ScalarType.pvDouble, to, toOffset);
+            if (ndirect >= 0)
+                return ndirect;
             ScalarType elemType = pv.getScalarArray().getElementType();
             int ntransfered = 0;
             switch (elemType) {
@@ -6380,6 +6428,13 @@ public final class ConvertFactory {
         private int copyNumericArray(PVScalarArray from, int offset,
                 PVScalarArray to, int toOffset, int len) {
             ScalarType fromElementType = from.getScalarArray().getElementType();
+            if (from instanceof AbstractPVArray) {
+                int num = Math.max(0, Math.min(len, from.getLength() - offset));
+                int n = convertFromArray(fromElementType, to, toOffset, num,
+                        ((AbstractPVArray) from).getValue(), offset);
+                if (n >= 0)
+                    return n;
+            }
             int ncopy = 0;
             switch (fromElementType) {
             case pvBoolean :
@@ -6924,6 +6979,756 @@ public final class ConvertFactory {
             }
             return (long)d;
         } 
+
+        /**
+         * A conversion from one numeric array type to another, with a loop
+         * specialised for the pair of element types.
+         * The conversions are created once, see {@link #arrayConversions}.
+         */
+        private static abstract class ArrayConversion {
+            abstract void convert(Object from, int fromOffset, Object to, int toOffset, int count);
+        }
+
+        /**
+         * The conversion between element types that have the same primitive representation.
+         */
+        private static final class ArrayCopy extends ArrayConversion {
+            void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                System.arraycopy(from, fromOffset, to, toOffset, count);
+            }
+        }
+
+        /**
+         * The conversions indexed by the ordinal of the source and destination element types.
+         * The element is null if either type is pvBoolean or pvString.
+         * The conversions give the same results as the element by element code.
+         */
+        private static final ArrayConversion[][] arrayConversions = createArrayConversions();
+
+        private static ArrayConversion[][] createArrayConversions() {
+            int n = ScalarType.values().length;
+            ArrayConversion[][] conversions = new ArrayConversion[n][n];
+            ArrayConversion copy = new ArrayCopy();
+            conversions[ScalarType.pvByte.ordinal()][ScalarType.pvByte.ordinal()] = copy;
+            conversions[ScalarType.pvByte.ordinal()][ScalarType.pvShort.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    byte[] f = (byte[]) from;
+                    short[] t = (short[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (short) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvByte.ordinal()][ScalarType.pvInt.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    byte[] f = (byte[]) from;
+                    int[] t = (int[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (int) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvByte.ordinal()][ScalarType.pvLong.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    byte[] f = (byte[]) from;
+                    long[] t = (long[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (long) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvByte.ordinal()][ScalarType.pvUByte.ordinal()] = copy;
+            conversions[ScalarType.pvByte.ordinal()][ScalarType.pvUShort.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    byte[] f = (byte[]) from;
+                    short[] t = (short[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (short) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvByte.ordinal()][ScalarType.pvUInt.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    byte[] f = (byte[]) from;
+                    int[] t = (int[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (int) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvByte.ordinal()][ScalarType.pvULong.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    byte[] f = (byte[]) from;
+                    long[] t = (long[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (long) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvByte.ordinal()][ScalarType.pvFloat.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    byte[] f = (byte[]) from;
+                    float[] t = (float[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (float) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvByte.ordinal()][ScalarType.pvDouble.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    byte[] f = (byte[]) from;
+                    double[] t = (double[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (double) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvShort.ordinal()][ScalarType.pvByte.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    short[] f = (short[]) from;
+                    byte[] t = (byte[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (byte) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvShort.ordinal()][ScalarType.pvShort.ordinal()] = copy;
+            conversions[ScalarType.pvShort.ordinal()][ScalarType.pvInt.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    short[] f = (short[]) from;
+                    int[] t = (int[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (int) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvShort.ordinal()][ScalarType.pvLong.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    short[] f = (short[]) from;
+                    long[] t = (long[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (long) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvShort.ordinal()][ScalarType.pvUByte.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    short[] f = (short[]) from;
+                    byte[] t = (byte[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (byte) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvShort.ordinal()][ScalarType.pvUShort.ordinal()] = copy;
+            conversions[ScalarType.pvShort.ordinal()][ScalarType.pvUInt.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    short[] f = (short[]) from;
+                    int[] t = (int[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (int) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvShort.ordinal()][ScalarType.pvULong.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    short[] f = (short[]) from;
+                    long[] t = (long[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (long) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvShort.ordinal()][ScalarType.pvFloat.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    short[] f = (short[]) from;
+                    float[] t = (float[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (float) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvShort.ordinal()][ScalarType.pvDouble.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    short[] f = (short[]) from;
+                    double[] t = (double[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (double) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvInt.ordinal()][ScalarType.pvByte.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    int[] f = (int[]) from;
+                    byte[] t = (byte[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (byte) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvInt.ordinal()][ScalarType.pvShort.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    int[] f = (int[]) from;
+                    short[] t = (short[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (short) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvInt.ordinal()][ScalarType.pvInt.ordinal()] = copy;
+            conversions[ScalarType.pvInt.ordinal()][ScalarType.pvLong.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    int[] f = (int[]) from;
+                    long[] t = (long[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (long) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvInt.ordinal()][ScalarType.pvUByte.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    int[] f = (int[]) from;
+                    byte[] t = (byte[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (byte) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvInt.ordinal()][ScalarType.pvUShort.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    int[] f = (int[]) from;
+                    short[] t = (short[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (short) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvInt.ordinal()][ScalarType.pvUInt.ordinal()] = copy;
+            conversions[ScalarType.pvInt.ordinal()][ScalarType.pvULong.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    int[] f = (int[]) from;
+                    long[] t = (long[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (long) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvInt.ordinal()][ScalarType.pvFloat.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    int[] f = (int[]) from;
+                    float[] t = (float[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (float) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvInt.ordinal()][ScalarType.pvDouble.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    int[] f = (int[]) from;
+                    double[] t = (double[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (double) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvLong.ordinal()][ScalarType.pvByte.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    long[] f = (long[]) from;
+                    byte[] t = (byte[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (byte) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvLong.ordinal()][ScalarType.pvShort.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    long[] f = (long[]) from;
+                    short[] t = (short[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (short) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvLong.ordinal()][ScalarType.pvInt.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    long[] f = (long[]) from;
+                    int[] t = (int[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (int) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvLong.ordinal()][ScalarType.pvLong.ordinal()] = copy;
+            conversions[ScalarType.pvLong.ordinal()][ScalarType.pvUByte.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    long[] f = (long[]) from;
+                    byte[] t = (byte[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (byte) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvLong.ordinal()][ScalarType.pvUShort.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    long[] f = (long[]) from;
+                    short[] t = (short[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (short) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvLong.ordinal()][ScalarType.pvUInt.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    long[] f = (long[]) from;
+                    int[] t = (int[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (int) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvLong.ordinal()][ScalarType.pvULong.ordinal()] = copy;
+            conversions[ScalarType.pvLong.ordinal()][ScalarType.pvFloat.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    long[] f = (long[]) from;
+                    float[] t = (float[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (float) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvLong.ordinal()][ScalarType.pvDouble.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    long[] f = (long[]) from;
+                    double[] t = (double[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (double) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvUByte.ordinal()][ScalarType.pvByte.ordinal()] = copy;
+            conversions[ScalarType.pvUByte.ordinal()][ScalarType.pvShort.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    byte[] f = (byte[]) from;
+                    short[] t = (short[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (short) widenUnsigned(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvUByte.ordinal()][ScalarType.pvInt.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    byte[] f = (byte[]) from;
+                    int[] t = (int[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (int) widenUnsigned(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvUByte.ordinal()][ScalarType.pvLong.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    byte[] f = (byte[]) from;
+                    long[] t = (long[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (long) widenUnsigned(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvUByte.ordinal()][ScalarType.pvUByte.ordinal()] = copy;
+            conversions[ScalarType.pvUByte.ordinal()][ScalarType.pvUShort.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    byte[] f = (byte[]) from;
+                    short[] t = (short[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (short) widenUnsigned(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvUByte.ordinal()][ScalarType.pvUInt.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    byte[] f = (byte[]) from;
+                    int[] t = (int[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (int) widenUnsigned(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvUByte.ordinal()][ScalarType.pvULong.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    byte[] f = (byte[]) from;
+                    long[] t = (long[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (long) widenUnsigned(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvUByte.ordinal()][ScalarType.pvFloat.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    byte[] f = (byte[]) from;
+                    float[] t = (float[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (float) widenUnsigned(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvUByte.ordinal()][ScalarType.pvDouble.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    byte[] f = (byte[]) from;
+                    double[] t = (double[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (double) widenUnsigned(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvUShort.ordinal()][ScalarType.pvByte.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    short[] f = (short[]) from;
+                    byte[] t = (byte[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (byte) widenUnsigned(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvUShort.ordinal()][ScalarType.pvShort.ordinal()] = copy;
+            conversions[ScalarType.pvUShort.ordinal()][ScalarType.pvInt.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    short[] f = (short[]) from;
+                    int[] t = (int[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (int) widenUnsigned(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvUShort.ordinal()][ScalarType.pvLong.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    short[] f = (short[]) from;
+                    long[] t = (long[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (long) widenUnsigned(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvUShort.ordinal()][ScalarType.pvUByte.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    short[] f = (short[]) from;
+                    byte[] t = (byte[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (byte) widenUnsigned(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvUShort.ordinal()][ScalarType.pvUShort.ordinal()] = copy;
+            conversions[ScalarType.pvUShort.ordinal()][ScalarType.pvUInt.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    short[] f = (short[]) from;
+                    int[] t = (int[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (int) widenUnsigned(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvUShort.ordinal()][ScalarType.pvULong.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    short[] f = (short[]) from;
+                    long[] t = (long[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (long) widenUnsigned(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvUShort.ordinal()][ScalarType.pvFloat.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    short[] f = (short[]) from;
+                    float[] t = (float[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (float) widenUnsigned(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvUShort.ordinal()][ScalarType.pvDouble.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    short[] f = (short[]) from;
+                    double[] t = (double[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (double) widenUnsigned(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvUInt.ordinal()][ScalarType.pvByte.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    int[] f = (int[]) from;
+                    byte[] t = (byte[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (byte) widenUnsigned(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvUInt.ordinal()][ScalarType.pvShort.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    int[] f = (int[]) from;
+                    short[] t = (short[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (short) widenUnsigned(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvUInt.ordinal()][ScalarType.pvInt.ordinal()] = copy;
+            conversions[ScalarType.pvUInt.ordinal()][ScalarType.pvLong.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    int[] f = (int[]) from;
+                    long[] t = (long[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (long) widenUnsigned(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvUInt.ordinal()][ScalarType.pvUByte.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    int[] f = (int[]) from;
+                    byte[] t = (byte[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (byte) widenUnsigned(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvUInt.ordinal()][ScalarType.pvUShort.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    int[] f = (int[]) from;
+                    short[] t = (short[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (short) widenUnsigned(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvUInt.ordinal()][ScalarType.pvUInt.ordinal()] = copy;
+            conversions[ScalarType.pvUInt.ordinal()][ScalarType.pvULong.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    int[] f = (int[]) from;
+                    long[] t = (long[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (long) widenUnsigned(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvUInt.ordinal()][ScalarType.pvFloat.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    int[] f = (int[]) from;
+                    float[] t = (float[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (float) widenUnsigned(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvUInt.ordinal()][ScalarType.pvDouble.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    int[] f = (int[]) from;
+                    double[] t = (double[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (double) widenUnsigned(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvULong.ordinal()][ScalarType.pvByte.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    long[] f = (long[]) from;
+                    byte[] t = (byte[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (byte) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvULong.ordinal()][ScalarType.pvShort.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    long[] f = (long[]) from;
+                    short[] t = (short[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (short) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvULong.ordinal()][ScalarType.pvInt.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    long[] f = (long[]) from;
+                    int[] t = (int[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (int) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvULong.ordinal()][ScalarType.pvLong.ordinal()] = copy;
+            conversions[ScalarType.pvULong.ordinal()][ScalarType.pvUByte.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    long[] f = (long[]) from;
+                    byte[] t = (byte[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (byte) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvULong.ordinal()][ScalarType.pvUShort.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    long[] f = (long[]) from;
+                    short[] t = (short[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (short) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvULong.ordinal()][ScalarType.pvUInt.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    long[] f = (long[]) from;
+                    int[] t = (int[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (int) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvULong.ordinal()][ScalarType.pvULong.ordinal()] = copy;
+            conversions[ScalarType.pvULong.ordinal()][ScalarType.pvFloat.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    long[] f = (long[]) from;
+                    float[] t = (float[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = ulongToFloat(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvULong.ordinal()][ScalarType.pvDouble.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    long[] f = (long[]) from;
+                    double[] t = (double[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = ulongToDouble(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvFloat.ordinal()][ScalarType.pvByte.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    float[] f = (float[]) from;
+                    byte[] t = (byte[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (byte) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvFloat.ordinal()][ScalarType.pvShort.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    float[] f = (float[]) from;
+                    short[] t = (short[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (short) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvFloat.ordinal()][ScalarType.pvInt.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    float[] f = (float[]) from;
+                    int[] t = (int[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (int) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvFloat.ordinal()][ScalarType.pvLong.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    float[] f = (float[]) from;
+                    long[] t = (long[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (long) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvFloat.ordinal()][ScalarType.pvUByte.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    float[] f = (float[]) from;
+                    byte[] t = (byte[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = floatToUByte(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvFloat.ordinal()][ScalarType.pvUShort.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    float[] f = (float[]) from;
+                    short[] t = (short[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = floatToUShort(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvFloat.ordinal()][ScalarType.pvUInt.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    float[] f = (float[]) from;
+                    int[] t = (int[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = floatToUInt(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvFloat.ordinal()][ScalarType.pvULong.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    float[] f = (float[]) from;
+                    long[] t = (long[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = floatToULong(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvFloat.ordinal()][ScalarType.pvFloat.ordinal()] = copy;
+            conversions[ScalarType.pvFloat.ordinal()][ScalarType.pvDouble.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    float[] f = (float[]) from;
+                    double[] t = (double[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (double) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvDouble.ordinal()][ScalarType.pvByte.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    double[] f = (double[]) from;
+                    byte[] t = (byte[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (byte) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvDouble.ordinal()][ScalarType.pvShort.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    double[] f = (double[]) from;
+                    short[] t = (short[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (short) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvDouble.ordinal()][ScalarType.pvInt.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    double[] f = (double[]) from;
+                    int[] t = (int[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (int) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvDouble.ordinal()][ScalarType.pvLong.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    double[] f = (double[]) from;
+                    long[] t = (long[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (long) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvDouble.ordinal()][ScalarType.pvUByte.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    double[] f = (double[]) from;
+                    byte[] t = (byte[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = doubleToUByte(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvDouble.ordinal()][ScalarType.pvUShort.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    double[] f = (double[]) from;
+                    short[] t = (short[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = doubleToUShort(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvDouble.ordinal()][ScalarType.pvUInt.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    double[] f = (double[]) from;
+                    int[] t = (int[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = doubleToUInt(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvDouble.ordinal()][ScalarType.pvULong.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    double[] f = (double[]) from;
+                    long[] t = (long[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = doubleToULong(f[fromOffset + i]);
+                }
+            };
+            conversions[ScalarType.pvDouble.ordinal()][ScalarType.pvFloat.ordinal()] = new ArrayConversion() {
+                void convert(Object from, int fromOffset, Object to, int toOffset, int count) {
+                    double[] f = (double[]) from;
+                    float[] t = (float[]) to;
+                    for (int i = 0; i < count; i++)
+                        t[toOffset + i] = (float) f[fromOffset + i];
+                }
+            };
+            conversions[ScalarType.pvDouble.ordinal()][ScalarType.pvDouble.ordinal()] = copy;
+            return conversions;
+        }
+
+        /**
+         * Converts <code>len</code> elements of a primitive array of the given type into the array,
+         * writing directly into its storage.
+         *
+         * @return the number of elements converted, or -1 if the element by element code must be used
+         */
+        private int convertFromArray(ScalarType fromType, PVScalarArray pv, int offset, int len,
+                Object from, int fromOffset) {
+            if (!(pv instanceof AbstractPVArray))
+                return -1;
+            ArrayConversion conversion = arrayConversions[fromType.ordinal()]
+                    [pv.getScalarArray().getElementType().ordinal()];
+            if (conversion == null)
+                return -1;
+            if (len <= 0)
+                return 0;
+            AbstractPVArray array = (AbstractPVArray) pv;
+            Object to = array.prepareDirectWrite(offset, len);
+            conversion.convert(from, fromOffset, to, offset, len);
+            array.postPut();
+            return len;
+        }
+
+        /**
+         * Converts up to <code>len</code> elements of the array into a primitive array of the given type,
+         * reading directly from its storage.
+         *
+         * @return the number of elements converted, or -1 if the element by element code must be used
+         */
+        private int convertToArray(PVScalarArray pv, int offset, int len,
+                ScalarType toType, Object to, int toOffset) {
+            if (!(pv instanceof AbstractPVArray))
+                return -1;
+            ArrayConversion conversion = arrayConversions
+                    [pv.getScalarArray().getElementType().ordinal()][toType.ordinal()];
+            if (conversion == null)
+                return -1;
+            int num = Math.min(len, pv.getLength() - offset);
+            if (num <= 0)
+                return 0;
+            conversion.convert(((AbstractPVArray) pv).getValue(), offset, to, toOffset, num);
+            return num;
+        }
     
     }
 }
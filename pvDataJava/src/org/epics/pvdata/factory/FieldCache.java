@@ -0,0 +1,45 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.factory;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.epics.pvdata.pv.Field;
+
+/**
+ * Weak interning cache for introspection interfaces.
+ * Structurally equal fields are resolved to a single canonical instance,
+ * so that the same type built or deserialized many times, for example
+ * by many connections, is held only once and can be compared by identity.
+ * The canonical instance is discarded when no longer referenced.
+ */
+final class FieldCache {
+    // The value references the key weakly, so it does not prevent its collection
+    private final Map<Field, WeakReference<Field>> cache = new WeakHashMap<Field, WeakReference<Field>>();
+
+    /**
+     * Get the canonical instance for the given field.
+     * @param field The field to intern.
+     * @return The canonical instance, which is the given field if no equal field was cached.
+     */
+    <T extends Field> T intern(T field) {
+        synchronized (cache) {
+            WeakReference<Field> ref = cache.get(field);
+            if (ref != null) {
+                Field canonical = ref.get();
+                // The canonical instance is structurally equal, so also of the same class
+                if (canonical != null) {
+                    @SuppressWarnings("unchecked")
+                    T result = (T) canonical;
+                    return result;
+                }
+            }
+            cache.put(field, new WeakReference<Field>(field));
+            return field;
+        }
+    }
+}
@@ -27,6 +27,10 @@ import org.epics.pvdata.pv.UnionArray;
  * This is a complete factory for the <i>PV</i> reflection.
  * Most <i>PV</i> database implementations should find this sufficient for
  * <i>PV</i> reflection.
+ * <p>
+ * Introspection interfaces are immutable and are interned: creating or
+ * deserializing a field structurally equal to an existing one returns
+ * the existing instance.
  * @author mrk
  *
  */
@@ -37,6 +41,7 @@ public final class FieldFactory {
     private static ScalarArray[] scalarArrays = null;
     private static Union variantUnion = null;
     private static UnionArray variantUnionArray = null;
+    private static final FieldCache fieldCache = new FieldCache();
     /**
      * Get the FieldCreate interface.
      * @return The interface for creating introspection objects.
@@ -78,7 +83,7 @@ public final class FieldFactory {
          */
         @Override
 		public BoundedString createBoundedString(int maxLength) {
-			return new BaseBoundedString(maxLength);
+			return fieldCache.intern(new BaseBoundedString(maxLength));
 		}
 		/* (non-Javadoc)
          * @see org.epics.pvdata.pv.FieldCreate#createArray(java.lang.String, org.epics.pvdata.pv.ScalarType)
@@ -93,14 +98,14 @@ public final class FieldFactory {
          */
         @Override
 		public ScalarArray createFixedScalarArray(ScalarType elementType, int size) {
-        	return new BaseScalarFixedArray(elementType, size);
+        	return fieldCache.intern(new BaseScalarFixedArray(elementType, size));
 		}
 		/* (non-Javadoc)
 		 * @see org.epics.pvdata.pv.FieldCreate#createBoundedScalarArray(org.epics.pvdata.pv.ScalarType, int)
 		 */
 		@Override
 		public ScalarArray createBoundedScalarArray(ScalarType elementType, int bound) {
-        	return new BaseScalarBoundedArray(elementType, bound);
+        	return fieldCache.intern(new BaseScalarBoundedArray(elementType, bound));
 		}
 		/* (non-Javadoc)
          * @see org.epics.pvdata.pv.FieldCreate#createArray(java.lang.String, org.epics.pvdata.pv.Structure)
@@ -108,14 +113,14 @@ public final class FieldFactory {
         @Override
 		public StructureArray createStructureArray(Structure elementStructure)
         {
-			return new BaseStructureArray(elementStructure);
+			return fieldCache.intern(new BaseStructureArray(elementStructure));
 		}
 		/* (non-Javadoc)
 		 * @see org.epics.pvdata.pv.FieldCreate#createUnionArray(org.epics.pvdata.pv.Union)
 		 */
 		@Override
 		public UnionArray createUnionArray(Union elementUnion) {
-			return new BaseUnionArray(elementUnion);
+			return fieldCache.intern(new BaseUnionArray(elementUnion));
 		}
 		/* (non-Javadoc)
 		 * @see org.epics.pvdata.pv.FieldCreate#createVariantUnionArray()
@@ -130,7 +135,7 @@ public final class FieldFactory {
         public Structure createStructure(String[] fieldNames, Field[] fields)
         {
             validateFieldNames(fieldNames);
-            return new BaseStructure(fieldNames,fields);
+            return fieldCache.intern(new BaseStructure(fieldNames,fields));
         }
         
 		/* (non-Javadoc)
@@ -139,26 +144,16 @@ public final class FieldFactory {
 		@Override
 		public Structure createStructure(String id, String[] fieldNames, Field[] fields) {
             validateFieldNames(fieldNames);
-            return new BaseStructure(id,fieldNames,fields);
+            return fieldCache.intern(new BaseStructure(id,fieldNames,fields));
 		}
 		/* (non-Javadoc)
 		 * @see org.epics.pvdata.pv.FieldCreate#createStructure(org.epics.pvdata.pv.Structure)
 		 */
 		@Override
         public Structure createStructure(Structure structToClone) {
-		    String[] oldFieldNames = structToClone.getFieldNames();
-		    Field[] oldFields = structToClone.getFields();
-		    int n = oldFieldNames.length;
-		    String[] fieldNames = new String[n];
-		    Field[] fields = new Field[n];
-		    for(int i=0; i<n; i++) {
-		        fieldNames[i] = oldFieldNames[i];
-		        fields[i] = oldFields[i];
-		    }
-		    String id = structToClone.getID();
-		    BaseStructure structure = (BaseStructure)createStructure(id,fieldNames,fields);
-		    structure.clone(fields, fieldNames);
-		    return structure;
+		    // a clone is a new instance, so it is not interned
+		    validateFieldNames(structToClone.getFieldNames());
+		    return BaseStructure.clone(structToClone);
         }
         /* (non-Javadoc)
          * @see org.epics.pvdata.pv.FieldCreate#appendField(org.epics.pvdata.pv.Structure, java.lang.String, org.epics.pvdata.pv.Field)
@@ -219,7 +214,7 @@ public final class FieldFactory {
 		@Override
 		public Union createUnion(String[] fieldNames, Field[] fields) {
 			validateFieldNames(fieldNames);
-			return new BaseUnion(fieldNames, fields);
+			return fieldCache.intern(new BaseUnion(fieldNames, fields));
 		}
 		/* (non-Javadoc)
 		 * @see org.epics.pvdata.pv.FieldCreate#createUnion(java.lang.String, java.lang.String[], org.epics.pvdata.pv.Field[])
@@ -227,7 +222,7 @@ public final class FieldFactory {
 		@Override
 		public Union createUnion(String id, String[] fieldNames, Field[] fields) {
 			validateFieldNames(fieldNames);
-			return new BaseUnion(id, fieldNames, fields);
+			return fieldCache.intern(new BaseUnion(id, fieldNames, fields));
 		}
 
 
@@ -296,12 +291,12 @@ public final class FieldFactory {
     			else if (typeCode == 0x80)
     			{
     				// Type type = Type.structure;
-    				return BaseStructure.deserializeStructureField(buffer, control);
+    				return fieldCache.intern(BaseStructure.deserializeStructureField(buffer, control));
     			}
     			else if (typeCode == 0x81)
     			{
     				// Type type = union;
-    				return BaseUnion.deserializeUnionField(buffer, control);
+    				return fieldCache.intern(BaseUnion.deserializeUnionField(buffer, control));
     			}
     			else if (typeCode == 0x82)
     			{
@@ -313,7 +308,7 @@ public final class FieldFactory {
     				// TODO cache some sizes?
     				// bounded string
     				int maxLength = SerializeHelper.readSize(buffer, control);
-    				return new BaseBoundedString(maxLength);
+    				return fieldCache.intern(new BaseBoundedString(maxLength));
     			}
     			else
     				throw new IllegalArgumentException("invalid type encoding");
@@ -335,9 +330,9 @@ public final class FieldFactory {
     				if (isVariable)
     					return scalarArrays[scalarType.ordinal()];
     				else if (isFixed)
-						return new BaseScalarFixedArray(scalarType, size);
+						return fieldCache.intern(new BaseScalarFixedArray(scalarType, size));
 					else
-						return new BaseScalarBoundedArray(scalarType, size);
+						return fieldCache.intern(new BaseScalarBoundedArray(scalarType, size));
     			}
     			else if (typeCode == 0x80)
     			{
@@ -347,7 +342,7 @@ public final class FieldFactory {
     				    				
     				// Type type = Type.structureArray;
     				final Structure elementStructure = (Structure)control.cachedDeserialize(buffer);
-    				return new BaseStructureArray(elementStructure);
+    				return fieldCache.intern(new BaseStructureArray(elementStructure));
     			}
     			else if (typeCode == 0x81)
     			{
@@ -357,7 +352,7 @@ public final class FieldFactory {
     				
     				// Type type = unionArray;
     				final Union elementUnion = (Union)control.cachedDeserialize(buffer);
-    				return new BaseUnionArray(elementUnion);
+    				return fieldCache.intern(new BaseUnionArray(elementUnion));
     			}
     			else if (typeCode == 0x82)
     			{
@@ -180,6 +180,27 @@ public class PVDataFactory {
             convert.copyScalarArray(arrayToClone,0, pvArray,0,arrayToClone.getLength());
             return pvArray;
         }
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.pv.PVDataCreate#createDirectPVScalarArray(org.epics.pvdata.pv.ScalarArray)
+         */
+        @Override
+        public PVScalarArray createDirectPVScalarArray(ScalarArray array)
+        {
+        	switch(array.getElementType()) {
+            case pvByte:    return new BasePVDirectByteArray(array);
+            case pvShort:   return new BasePVDirectShortArray(array);
+            case pvInt:     return new BasePVDirectIntArray(array);
+            case pvLong:    return new BasePVDirectLongArray(array);
+            case pvUByte:    return new BasePVDirectUByteArray(array);
+            case pvUShort:   return new BasePVDirectUShortArray(array);
+            case pvUInt:     return new BasePVDirectUIntArray(array);
+            case pvULong:    return new BasePVDirectULongArray(array);
+            case pvFloat:   return new BasePVDirectFloatArray(array);
+            case pvDouble:  return new BasePVDirectDoubleArray(array);
+            default:
+            	throw new IllegalArgumentException("element type must be numeric");
+            }
+        }
         /* (non-Javadoc)
          * @see org.epics.pvdata.pv.PVDataCreate#createPVStructureArray(org.epics.pvdata.pv.PVStructure, org.epics.pvdata.pv.StructureArray)
          */
@@ -0,0 +1,200 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.factory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import org.epics.pvdata.pv.Field;
+import org.epics.pvdata.pv.Serializable;
+import org.epics.pvdata.pv.SerializableControl;
+import org.epics.pvdata.pv.Structure;
+import org.epics.pvdata.pv.StructureArray;
+import org.epics.pvdata.pv.Union;
+import org.epics.pvdata.pv.UnionArray;
+
+/**
+ * Serialization of the elements of large structure and union arrays on a fork-join pool.
+ * <p>
+ * The elements are split in ranges, each range is encoded into its own buffers
+ * in parallel, and then the buffers are copied in order into the destination buffer.
+ * The bytes are the same as with the sequential encoding. Arrays containing variant
+ * unions are always encoded sequentially, since the introspection cache of the
+ * destination can not be shared between threads and the full introspection interfaces
+ * would inflate the message.
+ * <p>
+ * It is disabled by default, arrays with at least
+ * <code>org.epics.pvdata.parallelSerializationThreshold</code> elements use it if set.
+ */
+final class ParallelSerialization {
+    /**
+     * The minimum number of elements to use parallel serialization, 0 if disabled.
+     */
+    static final int threshold = Integer.getInteger("org.epics.pvdata.parallelSerializationThreshold", 0);
+
+    private static final int chunkSize = 64*1024;
+
+    private ParallelSerialization() {}
+
+    private static class PoolHolder {
+        // the threads are daemons
+        static final ForkJoinPool pool = new ForkJoinPool();
+    }
+
+    /**
+     * Whether parallel serialization is to be used for a number of elements.
+     *
+     * @param array the introspection interface of the array
+     * @param count the number of elements
+     * @return true if parallel serialization is to be used
+     */
+    static boolean isParallel(Field array, int count) {
+        return threshold > 0 && count >= threshold && !containsVariantUnion(array);
+    }
+
+    private static boolean containsVariantUnion(Field field) {
+        switch (field.getType()) {
+        case union:
+            if (((Union)field).isVariant())
+                return true;
+            for (Field member : ((Union)field).getFields())
+                if (containsVariantUnion(member))
+                    return true;
+            return false;
+        case structure:
+            for (Field member : ((Structure)field).getFields())
+                if (containsVariantUnion(member))
+                    return true;
+            return false;
+        case structureArray:
+            return containsVariantUnion(((StructureArray)field).getStructure());
+        case unionArray:
+            return containsVariantUnion(((UnionArray)field).getUnion());
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Serializes the elements with null indicators, as done sequentially by AbstractPVComplexArray.
+     *
+     * @param value the elements
+     * @param offset the first element
+     * @param count the number of elements
+     * @param buffer the destination buffer
+     * @param flusher the destination control
+     */
+    static void serialize(final Serializable[] value, int offset, int count,
+            ByteBuffer buffer, SerializableControl flusher) {
+        int ranges = PoolHolder.pool.getParallelism()*4;
+        int rangeSize = (count + ranges - 1)/ranges;
+        final List<RangeEncoder> encoders = new ArrayList<RangeEncoder>();
+        for (int i = offset; i < offset + count; i += rangeSize)
+            encoders.add(new RangeEncoder(value, i, Math.min(i + rangeSize, offset + count), buffer.order()));
+
+        PoolHolder.pool.invoke(new RecursiveAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute() {
+                ForkJoinTask.invokeAll(encoders);
+            }
+        });
+
+        for (RangeEncoder encoder : encoders)
+            encoder.copyTo(buffer, flusher);
+    }
+
+    /**
+     * Encodes a range of elements into a list of chunks.
+     */
+    private static class RangeEncoder extends RecursiveAction implements SerializableControl {
+        private static final long serialVersionUID = 1L;
+
+        private final Serializable[] value;
+        private final int start;
+        private final int end;
+        private final ByteBuffer buffer;
+        private final List<byte[]> chunks = new ArrayList<byte[]>();
+
+        RangeEncoder(Serializable[] value, int start, int end, ByteOrder order) {
+            this.value = value;
+            this.start = start;
+            this.end = end;
+            buffer = ByteBuffer.allocate(chunkSize).order(order);
+        }
+
+        @Override
+        protected void compute() {
+            for (int i = start; i < end; i++)
+            {
+                if (buffer.remaining() < 1)
+                    flushSerializeBuffer();
+
+                Serializable pvComplex = value[i];
+                if (pvComplex==null)
+                {
+                    buffer.put((byte)0);
+                }
+                else
+                {
+                    buffer.put((byte)1);
+                    pvComplex.serialize(buffer, this);
+                }
+            }
+            flushSerializeBuffer();
+        }
+
+        @Override
+        public void flushSerializeBuffer() {
+            if (buffer.position() == 0)
+                return;
+            byte[] chunk = new byte[buffer.position()];
+            buffer.flip();
+            buffer.get(chunk);
+            buffer.clear();
+            chunks.add(chunk);
+        }
+
+        @Override
+        public void ensureBuffer(int size) {
+            if (buffer.remaining() < size)
+                flushSerializeBuffer();
+        }
+
+        @Override
+        public void alignBuffer(int alignment) {
+            // not used by pvData serialization
+        }
+
+        @Override
+        public void cachedSerialize(Field field, ByteBuffer buffer) {
+            // the full description is always valid
+            field.serialize(buffer, this);
+        }
+
+        void copyTo(ByteBuffer to, SerializableControl flusher) {
+            for (byte[] chunk : chunks)
+            {
+                int i = 0;
+                while (true)
+                {
+                    int n = Math.min(chunk.length - i, to.remaining());
+                    to.put(chunk, i, n);
+                    i += n;
+                    if (i < chunk.length)
+                        flusher.flushSerializeBuffer();
+                    else
+                        break;
+                }
+            }
+        }
+    }
+}
@@ -954,6 +954,91 @@ public final class BitSet implements Cloneable, java.io.Serializable, org.epics.
         for (int i = 0; i < inUse; i++)
             words[i] |= (set1.words[i] & set2.words[i]);
     }
+
+    /**
+     * Merges a newer change set into this one, recording the overrun,
+     * as done when coalescing two monitor updates.
+     * In a single pass, and without allocating unless <code>overrunSet</code>
+     * needs to grow, this performs
+     * <code>overrunSet |= this &amp; newSet</code> and then <code>this |= newSet</code>.
+     * @param newSet the newer changes
+     * @param overrunSet the overrun bits, updated with the bits changed in both
+     */
+    public void orAndInto(BitSet newSet, BitSet overrunSet) {
+        if (overrunSet == this || overrunSet == newSet)
+            throw new IllegalArgumentException("overrunSet must be a distinct instance");
+
+        // overrun bits: only the words in common can have bits set in both
+        final int wordsInCommon = Math.min(wordsInUse, newSet.wordsInUse);
+        if (overrunSet.wordsInUse < wordsInCommon) {
+            overrunSet.ensureCapacity(wordsInCommon);
+            overrunSet.wordsInUse = wordsInCommon;
+        }
+
+        if (wordsInUse < newSet.wordsInUse) {
+            ensureCapacity(newSet.wordsInUse);
+            wordsInUse = newSet.wordsInUse;
+        }
+
+        for (int i = 0; i < wordsInCommon; i++) {
+            final long newWord = newSet.words[i];
+            overrunSet.words[i] |= words[i] & newWord;
+            words[i] |= newWord;
+        }
+
+        // Copy any remaining words
+        if (wordsInCommon < newSet.wordsInUse)
+            System.arraycopy(newSet.words, wordsInCommon,
+                             words, wordsInCommon,
+                             newSet.wordsInUse - wordsInCommon);
+
+        overrunSet.recalculateWordsInUse();
+    }
+
+    /**
+     * Performs a logical <b>OR</b> of this bit set with the bit set
+     * argument shifted by the given number of bits, that is, bit
+     * {@code i} of the argument is ORed into bit {@code i + shift}.
+     * Bits that would move below index 0 are dropped.
+     * This is typically used to merge the changes of a sub-structure
+     * into the bit set of an enclosing structure, whose field offsets
+     * differ by a constant. The operation works on whole words.
+     * @param set a bit set
+     * @param shift the number of bits to shift by; may be negative
+     */
+    public void orShifted(BitSet set, int shift) {
+        if (set == this)
+            throw new IllegalArgumentException("set must be a distinct instance");
+        if (set.wordsInUse == 0)
+            return;
+
+        // floor division, so that 0 <= bitShift < BITS_PER_WORD also for negative shifts
+        final int wordShift = shift >> ADDRESS_BITS_PER_WORD;
+        final int bitShift = shift & BIT_INDEX_MASK;
+        final int last = set.wordsInUse - 1 + wordShift + (bitShift != 0 ? 1 : 0);
+        if (last < 0)
+            return;
+        if (last > wordIndex(Integer.MAX_VALUE))
+            throw new IndexOutOfBoundsException("shifted bits exceed the maximum index");
+
+        if (wordsInUse <= last) {
+            ensureCapacity(last + 1);
+            wordsInUse = last + 1;
+        }
+
+        for (int j = Math.max(0, wordShift); j <= last; j++) {
+            final int i = j - wordShift;
+            long word = 0;
+            if (i < set.wordsInUse)
+                word = set.words[i] << bitShift;
+            if (bitShift != 0 && i > 0 && i <= set.wordsInUse)
+                word |= set.words[i - 1] >>> (BITS_PER_WORD - bitShift);
+            words[j] |= word;
+        }
+
+        // the highest word may have received no bits
+        recalculateWordsInUse();
+    }
     
     /**
      * Performs a logical <b>OR</b> of this bit set with the bit set
@@ -1258,16 +1343,27 @@ public final class BitSet implements Cloneable, java.io.Serializable, org.epics.
         for (long x = words[n - 1]; x != 0; x >>>= 8)
             len++;
         
-         SerializeHelper.writeSize(len, buffer, flusher);
-        flusher.ensureBuffer(len);
+        SerializeHelper.writeSize(len, buffer, flusher);
 
-        n = len / 8;
-        for (int i = 0; i < n; i++)
-            buffer.putLong(words[i]);
+        // whole words, flushing only when the buffer is full
+        final int longs = len / 8;
+        int i = 0;
+        while (i < longs)
+        {
+            final int maxIndex = Math.min(longs, i + buffer.remaining() / 8);
+            for (; i < maxIndex; i++)
+                buffer.putLong(words[i]);
+            if (i < longs)
+                flusher.flushSerializeBuffer();
+        }
         
-        if (n < wordsInUse)
-            for (long x = words[wordsInUse - 1]; x != 0; x >>>= 8)
+        // the bytes of the last, partial, word
+        if (longs < wordsInUse)
+        {
+            flusher.ensureBuffer(len - longs * 8);
+            for (long x = words[longs]; x != 0; x >>>= 8)
                 buffer.put((byte) (x & 0xff));
+        }
     }
 
     /* (non-Javadoc)
@@ -1278,25 +1374,39 @@ public final class BitSet implements Cloneable, java.io.Serializable, org.epics.
 
         final int bytes = SerializeHelper.readSize(buffer, control);    // in bytes
         
+        final int oldWordsInUse = wordsInUse;
         wordsInUse = (bytes + 7) / 8;
         if (wordsInUse > words.length)
             words = new long[wordsInUse];
+        // words past wordsInUse must be zero
+        else if (wordsInUse < oldWordsInUse)
+            Arrays.fill(words, wordsInUse, oldWordsInUse, 0);
 
         if (wordsInUse == 0)
             return;
         
-        control.ensureData(bytes);
-        
+        // whole words, waiting for data only when the buffer is empty
         int i = 0;
         final int longs = bytes / 8;
         while (i < longs)
-            words[i++] = buffer.getLong();
-        
-        for (int j = i; j < wordsInUse; j++)
-            words[j] = 0;
+        {
+            final int maxIndex = Math.min(longs, i + buffer.remaining() / 8);
+            for (; i < maxIndex; i++)
+                words[i] = buffer.getLong();
+            if (i < longs)
+                control.ensureData(8);
+        }
         
-        for (int remaining = (bytes - longs * 8), j = 0; j < remaining; j++)
-            words[i] |= (buffer.get() & 0xffL) << (8 * j);
+        // the bytes of the last, partial, word
+        final int remaining = bytes - longs * 8;
+        if (remaining > 0)
+        {
+            control.ensureData(remaining);
+            long word = 0;
+            for (int j = 0; j < remaining; j++)
+                word |= (buffer.get() & 0xffL) << (8 * j);
+            words[i] = word;
+        }
         
         /*
         
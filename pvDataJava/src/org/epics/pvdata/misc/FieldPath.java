@@ -0,0 +1,124 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.misc;
+
+import org.epics.pvdata.pv.Field;
+import org.epics.pvdata.pv.PVField;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.Structure;
+import org.epics.pvdata.pv.Type;
+
+/**
+ * A dotted field name, for example <i>alarm.severity</i>, compiled
+ * for a given structure.
+ * <p>
+ * The path is resolved once into the index of the subfield at each level,
+ * so that finding the subfield in any PVStructure of the same type
+ * takes no string comparison.
+ * Code that accesses the same subfields on each update should compile
+ * the paths once and use them instead of <i>PVStructure.getSubField(String)</i>.
+ * </p>
+ */
+public final class FieldPath {
+    private final Structure structure;
+    private final String path;
+    private final int[] indexes;
+
+    private FieldPath(Structure structure, String path, int[] indexes) {
+        this.structure = structure;
+        this.path = path;
+        this.indexes = indexes;
+    }
+
+    /**
+     * Compile the path for the given structure.
+     * @param structure The introspection interface for the top level structure.
+     * @param path The dotted name of the subfield.
+     * @return The compiled path.
+     * @throws IllegalArgumentException if the path does not name a subfield of the structure.
+     */
+    public static FieldPath compile(Structure structure, String path) {
+        if(path==null || path.length()<1) {
+            throw new IllegalArgumentException("path is empty");
+        }
+        String[] names = path.split("\\.", -1);
+        int[] indexes = new int[names.length];
+        Field field = structure;
+        for(int i=0; i<names.length; i++) {
+            if(field.getType()!=Type.structure) {
+                throw new IllegalArgumentException("path " + path + " is not valid for " + structure.getID()
+                        + ": " + names[i-1] + " is not a structure");
+            }
+            int index = ((Structure)field).getFieldIndex(names[i]);
+            if(index<0) {
+                throw new IllegalArgumentException("path " + path + " is not valid for " + structure.getID()
+                        + ": " + names[i] + " not found");
+            }
+            indexes[i] = index;
+            field = ((Structure)field).getField(index);
+        }
+        return new FieldPath(structure, path, indexes);
+    }
+
+    /**
+     * Get the structure the path was compiled for.
+     * @return The introspection interface.
+     */
+    public Structure getStructure() {
+        return structure;
+    }
+
+    /**
+     * Get the dotted name of the subfield.
+     * @return The path.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Get the subfield of the given structure.
+     * If the structure is not of the type the path was compiled for,
+     * the subfield is looked up by name.
+     * Introspection interfaces are interned, so the type is compared by identity;
+     * a structure of a cloned type is also looked up by name.
+     * @param pvStructure The top level structure.
+     * @return The subfield or null if not found.
+     */
+    public PVField get(PVStructure pvStructure) {
+        Structure other = pvStructure.getStructure();
+        if(other!=structure) {
+            return pvStructure.getSubField(path);
+        }
+        PVField pvField = pvStructure;
+        for(int i=0; i<indexes.length; i++) {
+            pvField = ((PVStructure)pvField).getPVFields()[indexes[i]];
+        }
+        return pvField;
+    }
+
+    /**
+     * Get the subfield of the given structure, if it is of the given class.
+     * @param <T> The expected interface.
+     * @param c The expected class.
+     * @param pvStructure The top level structure.
+     * @return The subfield or null if not found or of a different class.
+     */
+    public <T extends PVField> T get(Class<T> c, PVStructure pvStructure) {
+        PVField pvField = get(pvStructure);
+        if(c.isInstance(pvField)) {
+            return c.cast(pvField);
+        }
+        return null;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return path;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.monitor;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.pv.PVDataCreate;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.Structure;
+
+/**
+ * A pool of MonitorElements, kept per Structure.
+ * <p>
+ * Creating the PVStructure of a MonitorElement is the expensive part of
+ * creating a monitor queue. A client that destroys and creates many monitors
+ * of the same types, for example when it reconnects to many channels, can
+ * give the elements of a queue back to the pool and take them for the next
+ * queue of the same Structure instead of creating new ones.
+ * <p>
+ * An element given to the pool must no longer be used by anyone.
+ * The data of a taken element is whatever its last user left in it:
+ * only its bitSets are cleared.
+ * <p>
+ * The pool holds at most <code>maxElementsPerStructure</code> elements
+ * for each of the <code>maxStructures</code> most recently used Structures.
+ */
+public class MonitorElementPool {
+    private static final PVDataCreate pvDataCreate = PVDataFactory.getPVDataCreate();
+    private static final MonitorElementPool defaultPool = new MonitorElementPool(
+            Integer.getInteger("org.epics.pvdata.monitor.poolElementsPerStructure", 1024),
+            Integer.getInteger("org.epics.pvdata.monitor.poolStructures", 64));
+
+    /**
+     * Get the pool shared by all the users in this JVM.
+     * Its limits are set by the system properties
+     * <code>org.epics.pvdata.monitor.poolElementsPerStructure</code> (default 1024) and
+     * <code>org.epics.pvdata.monitor.poolStructures</code> (default 64).
+     *
+     * @return the shared pool
+     */
+    public static MonitorElementPool getDefault() {
+        return defaultPool;
+    }
+
+    private final int maxElementsPerStructure;
+    private final Map<Structure, ArrayDeque<MonitorElement>> pools;
+
+    /**
+     * Create a pool.
+     *
+     * @param maxElementsPerStructure the maximum number of elements kept for each Structure
+     * @param maxStructures the maximum number of Structures for which elements are kept
+     */
+    public MonitorElementPool(int maxElementsPerStructure, final int maxStructures) {
+        this.maxElementsPerStructure = maxElementsPerStructure;
+        pools = new LinkedHashMap<Structure, ArrayDeque<MonitorElement>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Structure, ArrayDeque<MonitorElement>> eldest) {
+                return size() > maxStructures;
+            }
+        };
+    }
+
+    /**
+     * Take elements for a new monitor queue.
+     * Elements are created for the ones the pool does not have.
+     *
+     * @param structure the introspection interface of the elements
+     * @param count the number of elements
+     * @return the elements, ready to be passed to MonitorQueueFactory.create
+     */
+    public MonitorElement[] take(Structure structure, int count) {
+        MonitorElement[] monitorElements = new MonitorElement[count];
+        int n = 0;
+        synchronized (pools) {
+            ArrayDeque<MonitorElement> pool = pools.get(structure);
+            if (pool != null) {
+                while (n < count && !pool.isEmpty())
+                    monitorElements[n++] = pool.pollLast();
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            monitorElements[i].getChangedBitSet().clear();
+            monitorElements[i].getOverrunBitSet().clear();
+        }
+        for (; n < count; n++) {
+            PVStructure pvStructure = pvDataCreate.createPVStructure(structure);
+            monitorElements[n] = MonitorQueueFactory.createMonitorElement(pvStructure);
+        }
+        return monitorElements;
+    }
+
+    /**
+     * Give elements back to the pool.
+     * The elements need not have the same Structure.
+     * Elements above the limits of the pool are dropped.
+     *
+     * @param monitorElements the elements, no longer used by anyone
+     */
+    public void give(MonitorElement[] monitorElements) {
+        synchronized (pools) {
+            for (MonitorElement monitorElement : monitorElements) {
+                if (monitorElement == null || monitorElement.getPVStructure() == null)
+                    continue;
+                Structure structure = monitorElement.getPVStructure().getStructure();
+                ArrayDeque<MonitorElement> pool = pools.get(structure);
+                if (pool == null) {
+                    pool = new ArrayDeque<MonitorElement>();
+                    pools.put(structure, pool);
+                }
+                if (pool.size() < maxElementsPerStructure)
+                    pool.addLast(monitorElement);
+            }
+        }
+    }
+
+    /**
+     * Get the number of elements kept for a Structure.
+     *
+     * @param structure the introspection interface
+     * @return the number of pooled elements
+     */
+    public int getNumberPooled(Structure structure) {
+        synchronized (pools) {
+            ArrayDeque<MonitorElement> pool = pools.get(structure);
+            return pool == null ? 0 : pool.size();
+        }
+    }
+
+    /**
+     * Drop all the pooled elements.
+     */
+    public void clear() {
+        synchronized (pools) {
+            pools.clear();
+        }
+    }
+}
@@ -61,6 +61,7 @@ public class MultiChoiceFactory {
     private static class MultiChoiceImpl implements MultiChoice {
     	private final ByteArrayData byteArrayData = new ByteArrayData();
     	private final StringArrayData stringArrayData = new StringArrayData();
+    	private final byte[] bitMaskWord = new byte[1];
     	private final PVByteArray pvBitMask;
     	private final PVStringArray pvChoices;
     	private ChoicesImpl choices = new ChoicesImpl();
@@ -140,9 +141,9 @@ public class MultiChoiceFactory {
 		@Override
 		public void clear() {
 			ensureLength();
-			pvBitMask.get(0, pvBitMask.getLength(), byteArrayData);
-			byte[] data = byteArrayData.data;
-			for(int i=0; i< data.length; i++) data[i] = 0;
+			// written through put, the storage obtained through get might be shared
+			int length = pvBitMask.getLength();
+			pvBitMask.put(0, length, new byte[length], 0);
 
 		}
 		/* (non-Javadoc)
@@ -155,7 +156,9 @@ public class MultiChoiceFactory {
 			byte[] data = byteArrayData.data;
 			byte offset = (byte)(index %nBitsPerByte);
 			byte mask = (byte)(1 << offset);
-			data[index/nBitsPerByte] |= mask;
+			int word = index/nBitsPerByte;
+			bitMaskWord[0] = (byte)(data[word] | mask);
+			pvBitMask.put(word, 1, bitMaskWord, 0);
 		}
 		
 		private void ensureLength() {
@@ -166,6 +169,7 @@ public class MultiChoiceFactory {
 			choiceValues = theChoices;
 			int nwords = length/nBitsPerByte + 1;
 			if(pvBitMask.getCapacity()<nwords) pvBitMask.setCapacity(nwords);
+			if(pvBitMask.getLength()<nwords) pvBitMask.setLength(nwords);
 			choices.setChoices(theChoices);
 		}
 		private boolean isSet(byte[]data, int index) {
@@ -77,6 +77,17 @@ public interface PVDataCreate {
      */
     PVScalarArray createPVScalarArray(PVScalarArray arrayToClone);
 
+    /**
+     * Create an implementation of a numeric array field that keeps its elements
+     * off the Java heap, in a direct ByteBuffer.
+     * This is meant for large arrays, like images.
+     *
+     * @param array the introspection interface
+     * @return the PVScalarArray implementation
+     * @throws IllegalArgumentException if the element type is not numeric
+     */
+    PVScalarArray createDirectPVScalarArray(ScalarArray array);
+
     /**
      * Create an implementation of an array with structure elements.
      *
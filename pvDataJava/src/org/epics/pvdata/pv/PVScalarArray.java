@@ -17,4 +17,30 @@ public interface PVScalarArray extends PVArray {
      * @return the introspection interface
      */
     ScalarArray getScalarArray();
+
+    /**
+     * Make this array use the same storage as another array of the same element type,
+     * without copying the data.
+     * The storage is copy-on-write: it is shared until either array is modified
+     * through put, setCapacity, setLength or deserialize, at which point the modified array
+     * takes a private copy. The other array is never affected.
+     * Note that data obtained through get with an ArrayData object may be shared,
+     * and must therefore never be modified directly.
+     *
+     * @param from the array whose data is shared
+     * @throws IllegalArgumentException if the element types differ
+     * @throws IllegalStateException if this field is immutable, or the capacity
+     * is not mutable and differs from the capacity of from
+     */
+    void shareData(PVScalarArray from);
+
+    /**
+     * Freeze the current data of this array.
+     * The data obtained through get before or after this call, until the next
+     * modification, will never change: the next modification of this array
+     * writes to a private copy of the data.
+     * This allows to hand the data to other code, for example another thread,
+     * without copying it.
+     */
+    void freeze();
 }
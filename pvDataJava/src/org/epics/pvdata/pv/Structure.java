@@ -35,7 +35,7 @@ public interface Structure extends Field{
      * Get all the subfields of the structure.
      * 
      * @return an array of Field that describes
-     * each of the subfields in the structure
+     * each of the subfields in the structure, a copy the caller may modify
      */
     Field[] getFields();
 
@@ -68,7 +68,7 @@ public interface Structure extends Field{
     <T extends Field> T getField(Class<T> c, int fieldIndex);
     /**
      * Get the array of the subfield names.
-     * @return the array
+     * @return a copy of the array
      */
     String[] getFieldNames();
     /**
@@ -39,7 +39,7 @@ public interface Union extends Field{
     /**
      * Get a list of union fields (members).
      * 
-     * @return an array of fields (can be empty), non-<code>null</code>
+     * @return a copy of the array of fields (can be empty), non-<code>null</code>
      */
     Field[] getFields();
 
@@ -73,7 +73,7 @@ public interface Union extends Field{
     /**
      * Get the array of the subfield names
      *
-     * @return the array of the subfield names
+     * @return a copy of the array of the subfield names
      */
     String[] getFieldNames();
 
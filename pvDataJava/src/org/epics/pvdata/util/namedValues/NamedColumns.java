@@ -0,0 +1,305 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.util.namedValues;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.epics.pvdata.pv.PVBooleanArray;
+import org.epics.pvdata.pv.PVField;
+import org.epics.pvdata.pv.PVNumberArray;
+import org.epics.pvdata.pv.PVScalarArray;
+import org.epics.pvdata.pv.PVStringArray;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.util.pvDataHelper.GetHelper;
+import org.epics.util.array.ListBoolean;
+import org.epics.util.array.ListDouble;
+import org.epics.util.array.ListFloat;
+import org.epics.util.array.ListNumber;
+import org.epics.util.array.ListULong;
+import org.epics.util.number.UnsignedConversions;
+
+/**
+ * NamedColumns is a columnar named value system, in which the value in each
+ * name/value pair is a column of data kept in its primitive form.
+ *
+ * <p>It plays the same role as {@link NamedValues}, but a column is not copied
+ * into a Vector or a String array: numeric columns are held as
+ * <code>ListNumber</code>, boolean columns as <code>ListBoolean</code> and
+ * string columns as <code>List&lt;String&gt;</code>. When the columns are
+ * taken from PVScalarArrays they are read-only views of the arrays,
+ * so a table of any number of rows costs a few objects per column. The
+ * values are converted to text only while they are formatted, see
+ * {@link NamedColumnsFormatter}.</p>
+ *
+ * <p>As the columns are views, the arrays they come from must not be modified
+ * while the NamedColumns is in use.</p>
+ *
+ * @see NamedColumnsFormatter
+ * @see GetHelper
+ */
+public class NamedColumns
+{
+    private final List<String> labels = new ArrayList<String>();
+    private final List<Column> columns = new ArrayList<Column>();
+
+    /**
+     * Add a named numeric column.
+     *
+     * @param name the name of the column
+     * @param value the values of the column
+     */
+    public void add (String name, ListNumber value)
+    {
+        if (value instanceof ListDouble)
+            addColumn (name, new DoubleColumn (value));
+        else if (value instanceof ListFloat)
+            addColumn (name, new FloatColumn (value));
+        else if (value instanceof ListULong)
+            addColumn (name, new ULongColumn (value));
+        else
+            addColumn (name, new LongColumn (value));
+    }
+
+    /**
+     * Add a named boolean column.
+     *
+     * @param name the name of the column
+     * @param value the values of the column
+     */
+    public void add (String name, ListBoolean value)
+    {
+        addColumn (name, new BooleanColumn (value));
+    }
+
+    /**
+     * Add a named string column. A null element is formatted as an empty string.
+     *
+     * @param name the name of the column
+     * @param value the values of the column
+     */
+    public void add (String name, List<String> value)
+    {
+        addColumn (name, new StringColumn (value));
+    }
+
+    /**
+     * Add a named column that views the given array.
+     *
+     * @param name the name of the column
+     * @param array a numeric, boolean or string array
+     * @throws IllegalArgumentException if the array is of none of those types
+     */
+    public void add (String name, PVScalarArray array)
+    {
+        if (array instanceof PVNumberArray)
+            add (name, GetHelper.getNumberList ((PVNumberArray) array));
+        else if (array instanceof PVBooleanArray)
+            add (name, GetHelper.getBooleanList ((PVBooleanArray) array));
+        else if (array instanceof PVStringArray)
+            add (name, GetHelper.getStringList ((PVStringArray) array));
+        else
+            throw new IllegalArgumentException ("Unsupported array " + array.getScalarArray().getID());
+    }
+
+    /**
+     * Add a column for each scalar array field of the given structure, in
+     * field order, named as the field. Other fields are ignored. For an
+     * NTTable, this is to be called with its value field.
+     *
+     * @param structure the structure holding the columns
+     */
+    public void add (PVStructure structure)
+    {
+        for (PVField field : structure.getPVFields())
+            if (field instanceof PVScalarArray)
+                add (field.getFieldName(), (PVScalarArray) field);
+    }
+
+    private void addColumn (String name, Column column)
+    {
+        labels.add (name);
+        columns.add (column);
+    }
+
+    /**
+     * Gets all the names in the named/values system at once, as an array of Strings.
+     *
+     * @return all names in the NamedColumns object, ie the column headings in the table analogy
+     */
+    public String[] getLabels ()
+    {
+        return labels.toArray (new String[labels.size()]);
+    }
+
+    /**
+     * The number of columns.
+     *
+     * @return the number of name/value pairs added so far
+     */
+    public int getColumnCount ()
+    {
+        return columns.size();
+    }
+
+    /**
+     * The name of the given column.
+     *
+     * @param col the index of the column
+     * @return the name of the column
+     */
+    public String getLabel (int col)
+    {
+        return labels.get (col);
+    }
+
+    /**
+     * The number of values in the given column.
+     *
+     * @param col the index of the column
+     * @return the length of the column
+     */
+    public int getColumnLength (int col)
+    {
+        return columns.get (col).size();
+    }
+
+    /**
+     * Appends the text of a single value to the given buffer.
+     *
+     * @param col the index of the column
+     * @param row the index of the value in the column
+     * @param buffer where to append the text
+     */
+    public void appendValue (int col, int row, StringBuilder buffer)
+    {
+        columns.get (col).append (row, buffer);
+    }
+
+    /**
+     * A column of values that can be formatted without creating
+     * an object for each value.
+     */
+    private static abstract class Column
+    {
+        abstract int size ();
+
+        abstract void append (int row, StringBuilder buffer);
+    }
+
+    private static abstract class NumberColumn extends Column
+    {
+        final ListNumber values;
+
+        NumberColumn (ListNumber values)
+        {
+            this.values = values;
+        }
+
+        int size ()
+        {
+            return values.size();
+        }
+    }
+
+    private static class DoubleColumn extends NumberColumn
+    {
+        DoubleColumn (ListNumber values)
+        {
+            super (values);
+        }
+
+        void append (int row, StringBuilder buffer)
+        {
+            buffer.append (values.getDouble (row));
+        }
+    }
+
+    private static class FloatColumn extends NumberColumn
+    {
+        FloatColumn (ListNumber values)
+        {
+            super (values);
+        }
+
+        void append (int row, StringBuilder buffer)
+        {
+            buffer.append (values.getFloat (row));
+        }
+    }
+
+    // Also used for the smaller unsigned types, whose getLong is unsigned
+    private static class LongColumn extends NumberColumn
+    {
+        LongColumn (ListNumber values)
+        {
+            super (values);
+        }
+
+        void append (int row, StringBuilder buffer)
+        {
+            buffer.append (values.getLong (row));
+        }
+    }
+
+    private static class ULongColumn extends NumberColumn
+    {
+        ULongColumn (ListNumber values)
+        {
+            super (values);
+        }
+
+        void append (int row, StringBuilder buffer)
+        {
+            long value = values.getLong (row);
+            if (value >= 0)
+                buffer.append (value);
+            else
+                buffer.append (UnsignedConversions.toBigInteger (value));
+        }
+    }
+
+    private static class BooleanColumn extends Column
+    {
+        private final ListBoolean values;
+
+        BooleanColumn (ListBoolean values)
+        {
+            this.values = values;
+        }
+
+        int size ()
+        {
+            return values.size();
+        }
+
+        void append (int row, StringBuilder buffer)
+        {
+            buffer.append (values.getBoolean (row));
+        }
+    }
+
+    private static class StringColumn extends Column
+    {
+        private final List<String> values;
+
+        StringColumn (List<String> values)
+        {
+            this.values = values;
+        }
+
+        int size ()
+        {
+            return values.size();
+        }
+
+        void append (int row, StringBuilder buffer)
+        {
+            String value = values.get (row);
+            if (value != null)
+                buffer.append (value);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.util.namedValues;
+
+/**
+ * NamedColumnsColumnFormatter is utility class
+ * for printing the values in a NamedColumns instance as a table.
+ * <p>
+ * For more details see NamedColumnsFormatter.
+ * </p>
+ * @see NamedColumnsFormatter
+ * @see NamedColumnsRowFormatter
+ */
+public class NamedColumnsColumnFormatter extends NamedColumnsFormatter
+{
+    public void appendCell (int row, int col, StringBuilder buffer)
+    {
+        if (getWhetherDisplayLabels())
+            if (row == 0)
+            {
+                buffer.append (namedColumns.getLabel (col));
+                return;
+            }
+            else --row;
+
+        if (row < namedColumns.getColumnLength (col))
+            namedColumns.appendValue (col, row, buffer);
+    }
+
+
+    protected int labelPaddingAfter (int padding)
+    {
+        // Centered
+        return padding / 2;
+    }
+
+
+    public boolean isLabelCell (int row, int col)
+    {
+        return ((row == 0) && getWhetherDisplayLabels());
+    }
+
+
+    public void updateDimensions ()
+    {
+        numCols = namedColumns.getColumnCount();
+
+        numRows = 0;
+        for (int i = 0; i < numCols; ++i)
+            if (namedColumns.getColumnLength (i) > numRows)
+                numRows = namedColumns.getColumnLength (i);
+
+        if (getWhetherDisplayLabels())
+            ++numRows;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.util.namedValues;
+
+import java.io.IOException;
+
+/**
+ * NamedColumnsFormatter is a base class for the classes which print the
+ * values in a NamedColumns instance.
+ * <p>
+ * It produces the same layout as {@link NamedValuesFormatter}, but it streams
+ * the text to an Appendable directly from the columns: no String is kept
+ * for the cells, so the memory used does not depend on the size of the table.
+ * The columns are traversed twice, once to compute the width of each output
+ * column and once to print.
+ * </p>
+ * For example, to print a table:
+ * <pre>
+ *          NamedColumnsFormatter formatter =
+ *              NamedColumnsFormatter.create( NamedValuesFormatter.STYLE_COLUMNS );
+ *          formatter.assignNamedColumns( namedColumns );  // Created elsewhere
+ *          formatter.display( System.out );
+ * </pre>
+ * @see NamedColumnsColumnFormatter
+ * @see NamedColumnsRowFormatter
+ */
+public abstract class NamedColumnsFormatter
+{
+    boolean shouldDisplayLabels_ = true;
+    protected NamedColumns namedColumns = new NamedColumns();
+    protected int numRows = 0;
+    protected int numCols = 0;
+
+    /**
+     * Creates an NamedColumnsFormatter that will print a NamedColumns
+     * object in either columns or rows orientation, depending on the argument.
+     *
+     * @param style If style is NamedValuesFormatter.STYLE_ROWS then
+     * a row formatter is created, otherwise a column formatter is created.
+     * @see NamedValuesFormatter#STYLE_ROWS
+     * @see NamedValuesFormatter#STYLE_COLUMNS
+     * @return An instance of a NamedColumnsFormatter of the given style.
+     */
+    public static NamedColumnsFormatter create( int style )
+    {
+        if (style == NamedValuesFormatter.STYLE_ROWS)
+            return new NamedColumnsRowFormatter();
+        else
+            return new NamedColumnsColumnFormatter();
+    }
+
+    /**
+     * Tells the NamedColumnsFormatter which NamedColumns system it should format.
+     *
+     * @param namedColumns The system of named columns that should be formatted.
+     */
+    public void assignNamedColumns( NamedColumns namedColumns )
+    {
+        this.namedColumns = namedColumns;
+        updateDimensions();
+    }
+
+    /**
+     * Returns whether the printed output will include the names as headings.
+     *
+     * @return true if the formatter will print the labels, and false otherwise.
+     */
+    public boolean getWhetherDisplayLabels()
+    {
+        return shouldDisplayLabels_;
+    }
+
+    /**
+     * Sets whether or not headings will be printed with the data.
+     *
+     * @param yesno If false the formatter will not print the labels. If true, or
+     * this method is not used, the headings will be printed.
+     */
+    public void setWhetherDisplayLabels( boolean yesno )
+    {
+        shouldDisplayLabels_ = yesno;
+        updateDimensions();
+    }
+
+    /**
+     * Prints the formatted NamedColumns as a table or list of rows, according to the style
+     * used to create the formatter. Each line is terminated by the line separator.
+     *
+     * @param out Where to print the output.
+     * @throws IOException if out fails
+     */
+    public void display( Appendable out ) throws IOException
+    {
+        StringBuilder cell = new StringBuilder();
+        int[] widths = new int[numCols];
+        for (int m = 0; m < numRows; ++m)
+        {
+            for (int n = 0; n < numCols; ++n)
+            {
+                cell.setLength (0);
+                appendCell (m, n, cell);
+                if (cell.length() > widths[n])
+                    widths[n] = cell.length();
+            }
+        }
+
+        String lineSeparator = System.getProperty ("line.separator");
+        for (int m = 0; m < numRows; ++m)
+        {
+            for (int n = 0; n < numCols; ++n)
+            {
+                cell.setLength (0);
+                appendCell (m, n, cell);
+                int rem = widths[n] + 2 - cell.length();
+                int after = isLabelCell (m, n) ? labelPaddingAfter (rem) : 0;
+                appendSpaces (out, rem - after);
+                out.append (cell);
+                appendSpaces (out, after);
+            }
+            out.append (lineSeparator);
+        }
+    }
+
+    private static void appendSpaces( Appendable out, int count ) throws IOException
+    {
+        for (int i = 0; i < count; ++i)
+            out.append (' ');
+    }
+
+    /**
+     * Of the spaces that pad a label cell, returns how many go after the label.
+     * Value cells are always right justified.
+     *
+     * @param padding the total padding of the cell
+     * @return the padding after the label
+     */
+    protected abstract int labelPaddingAfter (int padding);
+
+    /**
+     * Thinking of the system as a matrix of strings, return whether
+     * the given cell is a label cell or not.
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return true if the cell value should be treated as a label.
+     */
+    abstract public boolean isLabelCell (int row, int col);
+
+    /**
+     * Thinking of the system as a matrix of strings, append the text of the
+     * given cell. Nothing is appended for a cell past the end of a column.
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @param buffer where to append the text
+     */
+    abstract public void appendCell (int row, int col, StringBuilder buffer);
+
+    /**
+     * Thinking of the system as a matrix of strings, reset the internal row and column
+     * count based on things like whether labels would be printed.
+     */
+    abstract protected void updateDimensions ();
+}
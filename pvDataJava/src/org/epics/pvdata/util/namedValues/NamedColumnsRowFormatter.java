@@ -0,0 +1,59 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.util.namedValues;
+
+/**
+ * NamedColumnsRowFormatter is utility class
+ * for printing the values in a NamedColumns instance as a list of rows,
+ * each name followed by all its values.
+ * <p>
+ * For more details see NamedColumnsFormatter.
+ * </p>
+ * @see NamedColumnsFormatter
+ * @see NamedColumnsColumnFormatter
+ */
+public class NamedColumnsRowFormatter extends NamedColumnsFormatter
+{
+    public void appendCell (int row, int col, StringBuilder buffer)
+    {
+        if (getWhetherDisplayLabels())
+            if (col == 0)
+            {
+                buffer.append (namedColumns.getLabel (row));
+                return;
+            }
+            else --col;
+
+        if (col < namedColumns.getColumnLength (row))
+            namedColumns.appendValue (row, col, buffer);
+    }
+
+
+    protected int labelPaddingAfter (int padding)
+    {
+        // Left justified
+        return padding;
+    }
+
+
+    public boolean isLabelCell (int row, int col)
+    {
+        return ((col == 0) && getWhetherDisplayLabels());
+    }
+
+
+    public void updateDimensions ()
+    {
+        numRows = namedColumns.getColumnCount();
+
+        numCols = 0;
+        for (int i = 0; i < numRows; ++i)
+            if (namedColumns.getColumnLength (i) > numCols)
+                numCols = namedColumns.getColumnLength (i);
+
+        if (getWhetherDisplayLabels())
+            ++numCols;
+    }
+}
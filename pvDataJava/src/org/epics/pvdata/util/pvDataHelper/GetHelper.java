@@ -4,6 +4,9 @@
  */
 package org.epics.pvdata.util.pvDataHelper;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Vector;
 
 import org.epics.pvdata.pv.BooleanArrayData;
@@ -14,8 +17,11 @@ import org.epics.pvdata.pv.PVBooleanArray;
 import org.epics.pvdata.pv.PVByteArray;
 import org.epics.pvdata.pv.PVDoubleArray;
 import org.epics.pvdata.pv.PVLongArray;
+import org.epics.pvdata.pv.PVNumberArray;
 import org.epics.pvdata.pv.PVStringArray;
 import org.epics.pvdata.pv.StringArrayData;
+import org.epics.util.array.ListBoolean;
+import org.epics.util.array.ListNumber;
 
 /**
  * GetHelper is a utility class with methods to help application level code 
@@ -34,6 +40,13 @@ import org.epics.pvdata.pv.StringArrayData;
  * see also the utilities in {@link org.epics.pvdata.pv.Convert
  * Convert}.  
  * </p>
+ * <p>The Vector methods box every element, which for large arrays
+ * allocates one object per element. The <code>get...List</code>
+ * methods instead return read-only views over the data of the array,
+ * without copying or boxing anything. A view reflects the array at the
+ * time it is taken: it must not be used after the array has been
+ * modified.
+ * </p>
  * 
  * @see <a
  * href="http://epics-pvdata.sourceforge.net/docbuild/pvDataJava/tip/documentation/pvDataJava.html#pvfield_">
@@ -155,4 +168,62 @@ public class GetHelper
         }
         return ret;
     }
+
+    /**
+     * Returns a read-only view of the whole numeric array, without copying.
+     *
+     * @param pv the PVNumberArray to view
+     * @return a ListNumber of the same length and element type as the array
+     */
+    public static ListNumber getNumberList( PVNumberArray pv )
+    {
+        return pv.get().subList(0, pv.getLength());
+    }
+
+    /**
+     * Returns a read-only view of the whole array of strings, without copying.
+     * Unlike {@link #getStringVector getStringVector}, null elements are
+     * returned as they are.
+     *
+     * @param pv the PVStringArray to view
+     * @return a List of the same length as the array
+     */
+    public static List<String> getStringList( PVStringArray pv )
+    {
+        StringArrayData data = new StringArrayData();
+        int num = pv.get(0, pv.getLength(), data);
+        return Collections.unmodifiableList(Arrays.asList(data.data).subList(data.offset, data.offset+num));
+    }
+
+    /**
+     * Returns a read-only view of the whole array of booleans, without copying.
+     *
+     * @param pv the PVBooleanArray to view
+     * @return a ListBoolean of the same length as the array
+     */
+    public static ListBoolean getBooleanList( PVBooleanArray pv )
+    {
+        BooleanArrayData data = new BooleanArrayData();
+        final int num = pv.get(0, pv.getLength(), data);
+        final boolean[] array = data.data;
+        final int offset = data.offset;
+        return new ListBoolean() {
+            @Override
+            public boolean getBoolean(int index) {
+                if (index < 0 || index >= num)
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + num);
+                return array[offset+index];
+            }
+
+            @Override
+            public void setBoolean(int index, boolean value) {
+                throw new UnsupportedOperationException("Read only list.");
+            }
+
+            @Override
+            public int size() {
+                return num;
+            }
+        };
+    }
 }
@@ -126,4 +126,86 @@ public class BitSetTest extends TestCase {
 			assertEquals(s1, s2);
 		}		
 	}
+
+	public void testOrAndInto() {
+		BitSet changed = new BitSet();
+		changed.set(1);
+		changed.set(70);
+		BitSet newChanges = new BitSet();
+		newChanges.set(70);
+		newChanges.set(200);
+		BitSet overrun = new BitSet();
+		overrun.set(3);
+
+		changed.orAndInto(newChanges, overrun);
+
+		BitSet expectedChanged = new BitSet();
+		expectedChanged.set(1);
+		expectedChanged.set(70);
+		expectedChanged.set(200);
+		assertEquals(expectedChanged, changed);
+		BitSet expectedOverrun = new BitSet();
+		expectedOverrun.set(3);
+		expectedOverrun.set(70);
+		assertEquals(expectedOverrun, overrun);
+		assertEquals(2, overrun.cardinality());
+	}
+
+	public void testOrShifted() {
+		for (int shift = -130; shift <= 130; shift++) {
+			BitSet src = new BitSet();
+			src.set(0);
+			src.set(63);
+			src.set(64);
+			src.set(127);
+			src.set(150);
+
+			BitSet dest = new BitSet();
+			dest.set(5);
+			dest.orShifted(src, shift);
+
+			BitSet expected = new BitSet();
+			expected.set(5);
+			for (int i = src.nextSetBit(0); i >= 0; i = src.nextSetBit(i+1))
+				if (i + shift >= 0)
+					expected.set(i + shift);
+			assertEquals("shift " + shift, expected, dest);
+			assertEquals("shift " + shift, expected.length(), dest.length());
+		}
+	}
+
+	public void testChunkedSerialization()
+	{
+		// the bit set is larger than the buffer
+		final ByteBuffer b = ByteBuffer.allocate(1 << 10);
+		final ByteBuffer sent = ByteBuffer.allocate(1 << 12);
+		SerializableControl flusher = new SerControl() {
+			@Override
+			public void flushSerializeBuffer() {
+				b.flip();
+				sent.put(b);
+				b.clear();
+			}
+			@Override
+			public void ensureBuffer(int size) {
+				if (b.remaining() < size)
+					flushSerializeBuffer();
+			}
+		};
+
+		BitSet s1 = new BitSet();
+		for (int i = 0; i < 20000; i += 7)
+			s1.set(i);
+		s1.set(20005);
+		s1.serialize(b, flusher);
+		flusher.flushSerializeBuffer();
+		sent.flip();
+
+		BitSet s2 = new BitSet();
+		s2.set(30000);
+		s2.deserialize(sent, new SerControl());
+		assertEquals(s1, s2);
+		assertEquals(s1.length(), s2.length());
+		assertEquals(-1, s2.nextSetBit(20006));
+	}
 }
@@ -21,6 +21,8 @@ import org.epics.pvdata.pv.PVInt;
 import org.epics.pvdata.pv.PVIntArray;
 import org.epics.pvdata.pv.PVLong;
 import org.epics.pvdata.pv.PVLongArray;
+import org.epics.pvdata.pv.PVScalar;
+import org.epics.pvdata.pv.PVScalarArray;
 import org.epics.pvdata.pv.PVShort;
 import org.epics.pvdata.pv.PVShortArray;
 import org.epics.pvdata.pv.PVUByte;
@@ -499,4 +501,56 @@ public class ConvertTest extends TestCase {
         convert.copyScalarArray(pvULong,0, pvDouble,0,length);
         print("double from unsigned " +pvDouble.toString());
 	}
+
+	public void testConvertArrayPlans() {
+	    double[] values = {0.0, 1.0, -1.0, 127.75, 128.0, 255.0, 65535.0, -32769.0,
+	            4.0e9, -3.0e10, 1.0e19, Double.NaN};
+	    String[] fromStrings = new String[values.length];
+	    String[] toStrings = new String[values.length];
+	    double[] doubles = new double[values.length];
+	    ScalarType[] types = ScalarType.values();
+	    for (ScalarType fromType : types) {
+	        if (!fromType.isNumeric()) continue;
+	        PVScalarArray from = pvDataCreate.createPVScalarArray(fromType);
+	        assertEquals(values.length, convert.fromDoubleArray(from, 0, values.length, values, 0));
+	        convert.toStringArray(from, 0, values.length, fromStrings, 0);
+	        assertEquals(values.length, convert.toDoubleArray(from, 0, values.length, doubles, 0));
+	        for (ScalarType toType : types) {
+	            if (!toType.isNumeric()) continue;
+	            PVScalarArray to = pvDataCreate.createPVScalarArray(toType);
+	            convert.copyScalarArray(from, 0, to, 0, values.length);
+	            assertEquals(values.length, to.getLength());
+	            convert.toStringArray(to, 0, values.length, toStrings, 0);
+	            // the element by element conversion of scalars gives the same values
+	            PVScalar fromScalar = pvDataCreate.createPVScalar(fromType);
+	            PVScalar toScalar = pvDataCreate.createPVScalar(toType);
+	            for (int i = 0; i < values.length; i++) {
+	                convert.fromString(fromScalar, fromStrings[i]);
+	                assertEquals(convert.toDouble(fromScalar), doubles[i]);
+	                convert.copyScalar(fromScalar, toScalar);
+	                assertEquals(fromType + " to " + toType + " [" + i + "]",
+	                        convert.toString(toScalar), toStrings[i]);
+	            }
+	        }
+	    }
+	}
+
+	public void testConvertArrayOffsets() {
+	    PVIntArray pvInt = (PVIntArray)pvDataCreate.createPVScalarArray(ScalarType.pvInt);
+	    short[] sarray = {1, 2, 3, 4};
+	    assertEquals(2, convert.fromShortArray(pvInt, 3, 2, sarray, 1));
+	    assertEquals(5, pvInt.getLength());
+	    double[] darray = new double[6];
+	    assertEquals(3, convert.toDoubleArray(pvInt, 2, 10, darray, 1));
+	    assertEquals(0.0, darray[1]);
+	    assertEquals(2.0, darray[2]);
+	    assertEquals(3.0, darray[3]);
+	    assertEquals(0, convert.toDoubleArray(pvInt, 7, 2, darray, 0));
+	    pvInt.setImmutable();
+	    try {
+	        convert.fromShortArray(pvInt, 0, 1, sarray, 0);
+	        fail("immutable array was changed");
+	    } catch (IllegalStateException e) {
+	    }
+	}
 }
@@ -0,0 +1,152 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata;
+
+import junit.framework.TestCase;
+
+import org.epics.pvdata.factory.ConvertFactory;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.pv.Convert;
+import org.epics.pvdata.pv.DoubleArrayData;
+import org.epics.pvdata.pv.PVDataCreate;
+import org.epics.pvdata.pv.PVDoubleArray;
+import org.epics.pvdata.pv.PVIntArray;
+import org.epics.pvdata.pv.PVStringArray;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.StringArrayData;
+
+/**
+ * JUnit test for the copy-on-write storage of scalar arrays.
+ */
+public class CopyOnWriteArrayTest extends TestCase {
+    private static final PVDataCreate pvDataCreate = PVDataFactory.getPVDataCreate();
+    private static final Convert convert = ConvertFactory.getConvert();
+
+    private static PVDoubleArray createArray(double... values) {
+        PVDoubleArray pvArray = (PVDoubleArray) pvDataCreate.createPVScalarArray(ScalarType.pvDouble);
+        pvArray.put(0, values.length, values, 0);
+        return pvArray;
+    }
+
+    private static double[] storage(PVDoubleArray pvArray) {
+        DoubleArrayData data = new DoubleArrayData();
+        pvArray.get(0, pvArray.getLength(), data);
+        return data.data;
+    }
+
+    public void testShareData() {
+        PVDoubleArray master = createArray(1, 2, 3);
+        PVDoubleArray copy = (PVDoubleArray) pvDataCreate.createPVScalarArray(ScalarType.pvDouble);
+        copy.shareData(master);
+        assertSame(storage(master), storage(copy));
+        assertEquals(master, copy);
+
+        // writing to the master leaves the copy alone
+        double[] shared = storage(master);
+        master.put(1, 1, new double[] {20}, 0);
+        assertNotSame(shared, storage(master));
+        assertSame(shared, storage(copy));
+        assertEquals(20.0, master.get().getDouble(1));
+        assertEquals(2.0, copy.get().getDouble(1));
+        assertEquals(3.0, master.get().getDouble(2));
+
+        // the copy is now the only holder, and writes in place
+        copy.put(0, 1, new double[] {10}, 0);
+        assertSame(shared, storage(copy));
+        assertEquals(10.0, copy.get().getDouble(0));
+        assertEquals(1.0, master.get().getDouble(0));
+    }
+
+    public void testShareDataResize() {
+        PVDoubleArray master = createArray(1, 2, 3);
+        PVDoubleArray copy = (PVDoubleArray) pvDataCreate.createPVScalarArray(ScalarType.pvDouble);
+        copy.shareData(master);
+        copy.setLength(2);
+        assertEquals(3, master.getLength());
+        copy.put(2, 2, new double[] {30, 40}, 0);
+        assertEquals(4, copy.getLength());
+        assertEquals(30.0, copy.get().getDouble(2));
+        assertEquals(3.0, master.get().getDouble(2));
+        assertEquals(3, master.getLength());
+    }
+
+    public void testSetLengthShared() {
+        PVDoubleArray master = createArray(1, 2, 3);
+        PVDoubleArray copy = (PVDoubleArray) pvDataCreate.createPVScalarArray(ScalarType.pvDouble);
+        copy.shareData(master);
+
+        // growing within the capacity does not bring back the old elements
+        copy.setLength(1);
+        copy.setLength(3);
+        assertEquals(1.0, copy.get().getDouble(0));
+        assertEquals(0.0, copy.get().getDouble(1));
+        assertEquals(0.0, copy.get().getDouble(2));
+        assertEquals(2.0, master.get().getDouble(1));
+        assertEquals(3.0, master.get().getDouble(2));
+    }
+
+    public void testShareDataTypeMismatch() {
+        PVIntArray pvIntArray = (PVIntArray) pvDataCreate.createPVScalarArray(ScalarType.pvInt);
+        try {
+            pvIntArray.shareData(createArray(1, 2));
+            fail("Element types differ");
+        } catch (IllegalArgumentException ex) {
+            // Expected
+        }
+    }
+
+    public void testConvertCopyDoesNotShare() {
+        PVDoubleArray master = createArray(1, 2, 3);
+        PVDoubleArray copy = (PVDoubleArray) pvDataCreate.createPVScalarArray(ScalarType.pvDouble);
+        convert.copy(master, copy);
+        assertNotSame(storage(master), storage(copy));
+        assertEquals(master, copy);
+
+        // the copy can be modified through the storage obtained by get
+        storage(copy)[0] = 10;
+        assertEquals(1.0, master.get().getDouble(0));
+
+        PVStringArray strings = (PVStringArray) pvDataCreate.createPVScalarArray(ScalarType.pvString);
+        strings.put(0, 2, new String[] {"a", "b"}, 0);
+        PVStringArray stringsCopy = (PVStringArray) pvDataCreate.createPVScalarArray(ScalarType.pvString);
+        convert.copy(strings, stringsCopy);
+        strings.put(0, 1, new String[] {"c"}, 0);
+        StringArrayData data = new StringArrayData();
+        stringsCopy.get(0, 2, data);
+        assertEquals("a", data.data[0]);
+    }
+
+    public void testPutOwnStorage() {
+        PVDoubleArray master = createArray(1, 2, 3);
+        PVDoubleArray copy = (PVDoubleArray) pvDataCreate.createPVScalarArray(ScalarType.pvDouble);
+        copy.shareData(master);
+
+        // put of the storage obtained by get takes a private copy
+        double[] shared = storage(copy);
+        copy.put(0, shared.length, shared, 0);
+        assertNotSame(shared, storage(copy));
+        assertSame(shared, storage(master));
+
+        copy.put(0, 1, new double[] {10}, 0);
+        assertEquals(10.0, copy.get().getDouble(0));
+        assertEquals(1.0, master.get().getDouble(0));
+    }
+
+    public void testFreeze() {
+        PVDoubleArray pvArray = createArray(1, 2, 3);
+        double[] frozen = storage(pvArray);
+        pvArray.freeze();
+        pvArray.put(0, 1, new double[] {10}, 0);
+        assertNotSame(frozen, storage(pvArray));
+        assertEquals(1.0, frozen[0]);
+        assertEquals(10.0, pvArray.get().getDouble(0));
+        assertEquals(2.0, pvArray.get().getDouble(1));
+
+        // after the copy, writes are in place again
+        double[] current = storage(pvArray);
+        pvArray.put(1, 1, new double[] {20}, 0);
+        assertSame(current, storage(pvArray));
+    }
+}
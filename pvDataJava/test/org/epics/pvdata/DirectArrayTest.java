@@ -0,0 +1,211 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import junit.framework.TestCase;
+
+import org.epics.pvdata.factory.AbstractPVDirectArray;
+import org.epics.pvdata.factory.ConvertFactory;
+import org.epics.pvdata.factory.FieldFactory;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.pv.Convert;
+import org.epics.pvdata.pv.DeserializableControl;
+import org.epics.pvdata.pv.DoubleArrayData;
+import org.epics.pvdata.pv.Field;
+import org.epics.pvdata.pv.FieldCreate;
+import org.epics.pvdata.pv.PVDataCreate;
+import org.epics.pvdata.pv.PVDoubleArray;
+import org.epics.pvdata.pv.PVScalarArray;
+import org.epics.pvdata.pv.PVShortArray;
+import org.epics.pvdata.pv.PVUByteArray;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.SerializableControl;
+
+/**
+ * JUnit test for the arrays that keep their elements off the Java heap.
+ */
+public class DirectArrayTest extends TestCase {
+    private static final PVDataCreate pvDataCreate = PVDataFactory.getPVDataCreate();
+    private static final FieldCreate fieldCreate = FieldFactory.getFieldCreate();
+    private static final Convert convert = ConvertFactory.getConvert();
+
+    private static PVScalarArray createDirect(ScalarType elementType) {
+        return pvDataCreate.createDirectPVScalarArray(fieldCreate.createScalarArray(elementType));
+    }
+
+    /**
+     * Serializes through a small buffer, flushed into a stream.
+     */
+    private static class ChunkedSerializer implements SerializableControl {
+        final ByteBuffer buffer;
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        ChunkedSerializer(int size, ByteOrder order) {
+            buffer = ByteBuffer.allocate(size).order(order);
+        }
+
+        @Override
+        public void flushSerializeBuffer() {
+            out.write(buffer.array(), 0, buffer.position());
+            buffer.clear();
+        }
+
+        @Override
+        public void ensureBuffer(int size) {
+            if (buffer.remaining() < size)
+                flushSerializeBuffer();
+        }
+
+        @Override
+        public void alignBuffer(int alignment) {
+        }
+
+        @Override
+        public void cachedSerialize(Field field, ByteBuffer buffer) {
+            field.serialize(buffer, this);
+        }
+
+        byte[] toByteArray() {
+            flushSerializeBuffer();
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Deserializes from a stream, through a small buffer.
+     */
+    private static class ChunkedDeserializer implements DeserializableControl {
+        final ByteBuffer buffer;
+        final byte[] data;
+        int next = 0;
+
+        ChunkedDeserializer(byte[] data, int size, ByteOrder order) {
+            this.data = data;
+            buffer = ByteBuffer.allocate(size).order(order);
+            buffer.limit(0);
+            ensureData(size);
+        }
+
+        @Override
+        public void ensureData(int size) {
+            buffer.compact();
+            int n = Math.min(buffer.remaining(), data.length - next);
+            buffer.put(data, next, n);
+            next += n;
+            buffer.flip();
+        }
+
+        @Override
+        public void alignData(int alignment) {
+        }
+
+        @Override
+        public Field cachedDeserialize(ByteBuffer buffer) {
+            return fieldCreate.deserialize(buffer, this);
+        }
+    }
+
+    public void testPutGet() {
+        PVDoubleArray pvArray = (PVDoubleArray) createDirect(ScalarType.pvDouble);
+        assertTrue(pvArray instanceof AbstractPVDirectArray);
+        assertEquals(2, pvArray.put(0, 2, new double[] { 1.5, 2.5 }, 0));
+        assertEquals(3, pvArray.put(4, 3, new double[] { 0, 7, 8, 9 }, 1));
+        assertEquals(7, pvArray.getLength());
+
+        DoubleArrayData data = new DoubleArrayData();
+        assertEquals(3, pvArray.get(4, 10, data));
+        assertEquals(7.0, data.data[data.offset]);
+        assertEquals(9.0, data.data[data.offset + 2]);
+        assertEquals(0, pvArray.get(8, 1, data));
+
+        assertEquals(2.5, pvArray.get().getDouble(1));
+        assertEquals(0.0, pvArray.get().getDouble(2));
+
+        ByteBuffer view = ((AbstractPVDirectArray) pvArray).getByteBuffer();
+        assertEquals(7 * 8, view.remaining());
+        assertEquals(1.5, view.getDouble(0));
+        assertTrue(view.isReadOnly());
+
+        pvArray.shareData(new double[] { 3 });
+        assertEquals(1, pvArray.getLength());
+        assertEquals(3.0, pvArray.get().getDouble(0));
+
+        pvArray.setImmutable();
+        try {
+            pvArray.put(0, 1, new double[] { 1 }, 0);
+            fail("immutable array was changed");
+        } catch (IllegalStateException e) {
+        }
+    }
+
+    public void testEqualsAndConvert() {
+        PVShortArray heap = (PVShortArray) pvDataCreate.createPVScalarArray(ScalarType.pvShort);
+        heap.put(0, 3, new short[] { 1, -2, 3 }, 0);
+        PVScalarArray direct = createDirect(ScalarType.pvShort);
+        direct.shareData(heap);
+        assertEquals(direct, heap);
+        assertEquals(heap, direct);
+        assertEquals(heap.hashCode(), direct.hashCode());
+
+        // conversions read and write through the array interfaces
+        PVScalarArray doubles = createDirect(ScalarType.pvDouble);
+        convert.copyScalarArray(direct, 0, doubles, 0, 3);
+        double[] values = new double[3];
+        convert.toDoubleArray(doubles, 0, 3, values, 0);
+        assertEquals(-2.0, values[1]);
+        assertEquals(heap.toString(), direct.toString());
+
+        PVScalarArray copy = createDirect(ScalarType.pvShort);
+        copy.shareData(direct);
+        assertEquals(direct, copy);
+
+        try {
+            createDirect(ScalarType.pvString);
+            fail("string arrays can not be direct");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testSerialization() {
+        PVUByteArray ubytes = (PVUByteArray) createDirect(ScalarType.pvUByte);
+        byte[] image = new byte[1000];
+        for (int i = 0; i < image.length; i++)
+            image[i] = (byte) i;
+        ubytes.put(0, image.length, image, 0);
+        checkSerialization(ubytes, ScalarType.pvUByte);
+
+        PVDoubleArray doubles = (PVDoubleArray) createDirect(ScalarType.pvDouble);
+        double[] values = new double[333];
+        for (int i = 0; i < values.length; i++)
+            values[i] = i * 1.25 - 100;
+        doubles.put(0, values.length, values, 0);
+        checkSerialization(doubles, ScalarType.pvDouble);
+    }
+
+    private void checkSerialization(PVScalarArray pvArray, ScalarType elementType) {
+        for (ByteOrder order : new ByteOrder[] { ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN }) {
+            ChunkedSerializer serializer = new ChunkedSerializer(100, order);
+            pvArray.serialize(serializer.buffer, serializer);
+            byte[] bytes = serializer.toByteArray();
+
+            // same bytes as a heap array
+            PVScalarArray heap = pvDataCreate.createPVScalarArray(elementType);
+            convert.copyScalarArray(pvArray, 0, heap, 0, pvArray.getLength());
+            ChunkedSerializer heapSerializer = new ChunkedSerializer(100, order);
+            heap.serialize(heapSerializer.buffer, heapSerializer);
+            assertTrue(java.util.Arrays.equals(heapSerializer.toByteArray(), bytes));
+
+            PVScalarArray direct = createDirect(elementType);
+            ChunkedDeserializer deserializer = new ChunkedDeserializer(bytes, 64, order);
+            direct.deserialize(deserializer.buffer, deserializer);
+            assertEquals(pvArray, direct);
+            assertFalse(deserializer.buffer.hasRemaining());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata;
+
+import junit.framework.TestCase;
+
+import org.epics.pvdata.factory.FieldFactory;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.factory.StandardFieldFactory;
+import org.epics.pvdata.misc.FieldPath;
+import org.epics.pvdata.pv.Field;
+import org.epics.pvdata.pv.FieldCreate;
+import org.epics.pvdata.pv.PVDataCreate;
+import org.epics.pvdata.pv.PVInt;
+import org.epics.pvdata.pv.PVLong;
+import org.epics.pvdata.pv.PVString;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.StandardField;
+import org.epics.pvdata.pv.Structure;
+
+/**
+ * JUnit test for FieldPath and the field name lookup.
+ */
+public class FieldPathTest extends TestCase {
+    private static final FieldCreate fieldCreate = FieldFactory.getFieldCreate();
+    private static final PVDataCreate pvDataCreate = PVDataFactory.getPVDataCreate();
+    private static final StandardField standardField = StandardFieldFactory.getStandardField();
+
+    public void testFieldIndex() {
+        Structure structure = standardField.scalar(ScalarType.pvDouble, "alarm,timeStamp,display");
+        String[] fieldNames = structure.getFieldNames();
+        for(int i=0; i<fieldNames.length; i++) {
+            assertEquals(i, structure.getFieldIndex(fieldNames[i]));
+            assertSame(structure.getField(i), structure.getField(fieldNames[i]));
+        }
+        assertEquals(-1, structure.getFieldIndex("notAField"));
+        assertNull(structure.getField("notAField"));
+        try {
+            fieldCreate.createStructure(new String[] {"a", "b", "a"},
+                new Field[] {fieldCreate.createScalar(ScalarType.pvInt), fieldCreate.createScalar(ScalarType.pvInt), fieldCreate.createScalar(ScalarType.pvInt)});
+            fail("duplicate field name accepted");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("fieldName a appears more than once", ex.getMessage());
+        }
+    }
+
+    public void testGetSubField() {
+        PVStructure pvStructure = pvDataCreate.createPVStructure(standardField.scalar(ScalarType.pvDouble, "alarm,timeStamp"));
+        assertSame(pvStructure.getPVFields()[1], pvStructure.getSubField("alarm"));
+        assertNotNull(pvStructure.getLongField("timeStamp.secondsPastEpoch"));
+        assertNull(pvStructure.getSubField("alarm.notAField"));
+        assertNull(pvStructure.getSubField("value.severity"));
+        assertNull(pvStructure.getSubField("alarm."));
+        assertNull(pvStructure.getSubField(".alarm"));
+        assertNull(pvStructure.getSubField(""));
+    }
+
+    public void testFieldPath() {
+        Structure structure = standardField.scalar(ScalarType.pvDouble, "alarm,timeStamp");
+        FieldPath severity = FieldPath.compile(structure, "alarm.severity");
+        FieldPath seconds = FieldPath.compile(structure, "timeStamp.secondsPastEpoch");
+        assertEquals("alarm.severity", severity.getPath());
+        assertSame(structure, severity.getStructure());
+
+        // the same path works on any structure of the type
+        for(int i=0; i<3; i++) {
+            PVStructure pvStructure = pvDataCreate.createPVStructure(structure);
+            pvStructure.getIntField("alarm.severity").put(i);
+            assertSame(pvStructure.getSubField("alarm.severity"), severity.get(pvStructure));
+            assertEquals(i, severity.get(PVInt.class, pvStructure).get());
+            assertSame(pvStructure.getSubField("timeStamp.secondsPastEpoch"), seconds.get(PVLong.class, pvStructure));
+            assertNull(seconds.get(PVString.class, pvStructure));
+        }
+
+        // a different type falls back to lookup by name
+        PVStructure other = pvDataCreate.createPVStructure(standardField.scalar(ScalarType.pvInt, "timeStamp,alarm"));
+        assertSame(other.getSubField("alarm.severity"), severity.get(other));
+        PVStructure noAlarm = pvDataCreate.createPVStructure(standardField.scalar(ScalarType.pvInt, "timeStamp"));
+        assertNull(severity.get(noAlarm));
+    }
+
+    public void testInvalidFieldPath() {
+        Structure structure = standardField.scalar(ScalarType.pvDouble, "alarm");
+        String[] invalid = {"", "notAField", "alarm.notAField", "value.severity", "alarm.", ".alarm"};
+        for(String path : invalid) {
+            try {
+                FieldPath.compile(structure, path);
+                fail("path " + path + " accepted");
+            } catch (IllegalArgumentException ex) {
+                // expected
+            }
+        }
+    }
+}
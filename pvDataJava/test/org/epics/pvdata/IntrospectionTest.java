@@ -145,4 +145,70 @@ public class IntrospectionTest extends TestCase {
         assertEquals(16, boundedString.getMaximumLength());
 		System.out.println(boundedString);
 	}
+
+	public void testInterning() {
+		String[] fieldNames = {"value", "alarm"};
+		Field[] fields = {
+			fieldCreate.createScalar(ScalarType.pvDouble),
+			fieldCreate.createStructure("alarm_t", new String[] {"severity", "message"},
+				new Field[] {fieldCreate.createScalar(ScalarType.pvInt), fieldCreate.createScalar(ScalarType.pvString)})
+		};
+		Structure structure = fieldCreate.createStructure("epics:nt/NTScalar:1.0", fieldNames, fields);
+		Structure sameStructure = fieldCreate.createStructure("epics:nt/NTScalar:1.0", fieldNames.clone(), fields.clone());
+		assertSame(structure, sameStructure);
+		assertNotSame(structure, fieldCreate.createStructure("epics:nt/NTScalar:1.1", fieldNames, fields));
+		
+		// built incrementally
+		Structure partial = fieldCreate.createStructure("epics:nt/NTScalar:1.0", new String[] {"value"}, new Field[] {fields[0]});
+		assertSame(structure, fieldCreate.appendField(partial, "alarm", fields[1]));
+		
+		// a clone is a new instance
+		Structure clone = fieldCreate.createStructure(structure);
+		assertEquals(structure, clone);
+		assertNotSame(structure, clone);
+		
+		assertSame(fieldCreate.createStructureArray(structure), fieldCreate.createStructureArray(sameStructure));
+		Union union = fieldCreate.createUnion(fieldNames, fields);
+		assertSame(union, fieldCreate.createUnion(fieldNames, fields));
+		assertSame(fieldCreate.createUnionArray(union), fieldCreate.createUnionArray(union));
+		assertSame(fieldCreate.createBoundedString(16), fieldCreate.createBoundedString(16));
+		assertSame(fieldCreate.createFixedScalarArray(ScalarType.pvInt, 4), fieldCreate.createFixedScalarArray(ScalarType.pvInt, 4));
+		assertNotSame(fieldCreate.createBoundedScalarArray(ScalarType.pvInt, 4), fieldCreate.createFixedScalarArray(ScalarType.pvInt, 4));
+	}
+
+	public void testInternedImmutable() {
+		String[] fieldNames = {"value", "alarm"};
+		Field[] fields = {
+			fieldCreate.createScalar(ScalarType.pvDouble),
+			fieldCreate.createStructure("alarm_t", new String[] {"severity"},
+				new Field[] {fieldCreate.createScalar(ScalarType.pvInt)})
+		};
+		Structure structure = fieldCreate.createStructure("immutable_t", fieldNames, fields);
+		int hash = structure.hashCode();
+		
+		// neither the arrays passed in nor the ones returned are the structure's own
+		fieldNames[0] = "changed";
+		fields[0] = fieldCreate.createScalar(ScalarType.pvString);
+		structure.getFieldNames()[1] = "changed";
+		structure.getFields()[1] = fieldCreate.createScalar(ScalarType.pvString);
+		assertEquals("value", structure.getFieldName(0));
+		assertEquals(ScalarType.pvDouble, ((Scalar)structure.getField("value")).getScalarType());
+		assertEquals("alarm", structure.getFieldName(1));
+		assertEquals(Type.structure, structure.getField(1).getType());
+		assertEquals(hash, structure.hashCode());
+		
+		Union union = fieldCreate.createUnion(new String[] {"a"}, new Field[] {fieldCreate.createScalar(ScalarType.pvInt)});
+		union.getFieldNames()[0] = "changed";
+		union.getFields()[0] = null;
+		assertEquals(0, union.getFieldIndex("a"));
+		assertNotNull(union.getField(0));
+		
+		// cloning leaves the interned structure and its substructures alone
+		Structure alarm = structure.getField(Structure.class, "alarm");
+		Structure clone = fieldCreate.createStructure(structure);
+		assertEquals(structure, clone);
+		assertNotSame(alarm, clone.getField("alarm"));
+		assertSame(alarm, structure.getField("alarm"));
+		assertEquals(hash, structure.hashCode());
+	}
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata;
+
+import junit.framework.TestCase;
+
+import org.epics.pvdata.factory.StandardFieldFactory;
+import org.epics.pvdata.monitor.MonitorElement;
+import org.epics.pvdata.monitor.MonitorElementPool;
+import org.epics.pvdata.monitor.MonitorQueue;
+import org.epics.pvdata.monitor.MonitorQueueFactory;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.StandardField;
+import org.epics.pvdata.pv.Structure;
+
+/**
+ * JUnit test for MonitorElementPool.
+ */
+public class MonitorElementPoolTest extends TestCase {
+    private static final StandardField standardField = StandardFieldFactory.getStandardField();
+
+    public void testTakeGive() {
+        MonitorElementPool pool = new MonitorElementPool(4, 2);
+        Structure structure = standardField.scalar(ScalarType.pvDouble, "alarm,timeStamp");
+        MonitorElement[] elements = pool.take(structure, 3);
+        assertEquals(3, elements.length);
+        for (MonitorElement element : elements)
+            assertSame(structure, element.getPVStructure().getStructure());
+        assertEquals(0, pool.getNumberPooled(structure));
+
+        elements[0].getChangedBitSet().set(0);
+        pool.give(elements);
+        assertEquals(3, pool.getNumberPooled(structure));
+
+        // an equal Structure gets the pooled elements, with cleared bitSets
+        Structure other = standardField.scalar(ScalarType.pvDouble, "alarm,timeStamp");
+        MonitorElement[] again = pool.take(other, 5);
+        assertEquals(0, pool.getNumberPooled(structure));
+        int reused = 0;
+        for (MonitorElement element : again) {
+            assertTrue(element.getChangedBitSet().isEmpty());
+            for (MonitorElement old : elements)
+                if (element == old) reused++;
+        }
+        assertEquals(3, reused);
+
+        // the elements can be used for a queue
+        MonitorQueue queue = MonitorQueueFactory.create(again);
+        assertEquals(5, queue.capacity());
+    }
+
+    public void testLimits() {
+        MonitorElementPool pool = new MonitorElementPool(2, 2);
+        Structure doubleStructure = standardField.scalar(ScalarType.pvDouble, "alarm");
+        Structure intStructure = standardField.scalar(ScalarType.pvInt, "alarm");
+        Structure stringStructure = standardField.scalar(ScalarType.pvString, "alarm");
+
+        pool.give(pool.take(doubleStructure, 3));
+        assertEquals(2, pool.getNumberPooled(doubleStructure));
+
+        pool.give(pool.take(intStructure, 2));
+        pool.give(pool.take(stringStructure, 2));
+        // least recently used Structure is dropped
+        assertEquals(0, pool.getNumberPooled(doubleStructure));
+        assertEquals(2, pool.getNumberPooled(intStructure));
+        assertEquals(2, pool.getNumberPooled(stringStructure));
+
+        pool.clear();
+        assertEquals(0, pool.getNumberPooled(intStructure));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import junit.framework.TestCase;
+
+import org.epics.pvdata.factory.FieldFactory;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.pv.FieldCreate;
+import org.epics.pvdata.pv.PVBooleanArray;
+import org.epics.pvdata.pv.PVDataCreate;
+import org.epics.pvdata.pv.PVDoubleArray;
+import org.epics.pvdata.pv.PVLongArray;
+import org.epics.pvdata.pv.PVStringArray;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.PVULongArray;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.util.namedValues.NamedColumns;
+import org.epics.pvdata.util.namedValues.NamedColumnsFormatter;
+import org.epics.pvdata.util.namedValues.NamedValues;
+import org.epics.pvdata.util.namedValues.NamedValuesFormatter;
+import org.epics.pvdata.util.pvDataHelper.GetHelper;
+import org.epics.util.array.ListNumber;
+
+/**
+ * JUnit test for the columnar views of GetHelper and for NamedColumns.
+ *
+ */
+public class NamedColumnsTest extends TestCase {
+    private static final FieldCreate fieldCreate = FieldFactory.getFieldCreate();
+    private static final PVDataCreate pvDataCreate = PVDataFactory.getPVDataCreate();
+
+    private static PVStructure createTable() {
+        PVStructure pvStructure = pvDataCreate.createPVStructure(
+                fieldCreate.createFieldBuilder().
+                    addArray("name", ScalarType.pvString).
+                    addArray("value", ScalarType.pvDouble).
+                    addArray("count", ScalarType.pvLong).
+                    addArray("enabled", ScalarType.pvBoolean).
+                    add("description", ScalarType.pvString).
+                    createStructure());
+        pvStructure.getSubField(PVStringArray.class, "name").put(0, 3, new String[] {"first", null, "third"}, 0);
+        pvStructure.getSubField(PVDoubleArray.class, "value").put(0, 3, new double[] {1.5, -20.25, 3e10}, 0);
+        pvStructure.getSubField(PVLongArray.class, "count").put(0, 2, new long[] {7, 123456}, 0);
+        pvStructure.getSubField(PVBooleanArray.class, "enabled").put(0, 3, new boolean[] {true, false, true}, 0);
+        return pvStructure;
+    }
+
+    public void testViews() {
+        PVStructure pvStructure = createTable();
+        PVDoubleArray pvValue = pvStructure.getSubField(PVDoubleArray.class, "value");
+        // The backing array is larger than the data
+        pvValue.setCapacity(10);
+        ListNumber values = GetHelper.getNumberList(pvValue);
+        assertEquals(3, values.size());
+        assertEquals(-20.25, values.getDouble(1));
+        try {
+            values.setDouble(0, 1.0);
+            fail("View must be read only");
+        } catch (UnsupportedOperationException ex) {
+            // Expected
+        }
+        assertEquals(3, GetHelper.getStringList(pvStructure.getSubField(PVStringArray.class, "name")).size());
+        assertNull(GetHelper.getStringList(pvStructure.getSubField(PVStringArray.class, "name")).get(1));
+        assertFalse(GetHelper.getBooleanList(pvStructure.getSubField(PVBooleanArray.class, "enabled")).getBoolean(1));
+    }
+
+    public void testSameOutputAsNamedValues() throws Exception {
+        PVStructure pvStructure = createTable();
+        NamedColumns namedColumns = new NamedColumns();
+        namedColumns.add(pvStructure);
+        assertEquals(4, namedColumns.getColumnCount());
+
+        NamedValues namedValues = new NamedValues();
+        namedValues.add("name", GetHelper.getStringVector(pvStructure.getSubField(PVStringArray.class, "name")));
+        namedValues.add("value", GetHelper.getDoubleVector(pvStructure.getSubField(PVDoubleArray.class, "value")));
+        namedValues.add("count", GetHelper.getLongVector(pvStructure.getSubField(PVLongArray.class, "count")));
+        namedValues.add("enabled", GetHelper.getBooleanVector(pvStructure.getSubField(PVBooleanArray.class, "enabled")));
+
+        for (int style : new int[] {NamedValuesFormatter.STYLE_COLUMNS, NamedValuesFormatter.STYLE_ROWS}) {
+            for (boolean labels : new boolean[] {true, false}) {
+                NamedValuesFormatter oldFormatter = NamedValuesFormatter.create(style);
+                oldFormatter.setWhetherDisplayLabels(labels);
+                oldFormatter.assignNamedValues(namedValues);
+                ByteArrayOutputStream expected = new ByteArrayOutputStream();
+                PrintStream printStream = new PrintStream(expected);
+                oldFormatter.display(printStream);
+                printStream.flush();
+
+                NamedColumnsFormatter formatter = NamedColumnsFormatter.create(style);
+                formatter.setWhetherDisplayLabels(labels);
+                formatter.assignNamedColumns(namedColumns);
+                StringBuilder actual = new StringBuilder();
+                formatter.display(actual);
+                assertEquals(expected.toString(), actual.toString());
+            }
+        }
+    }
+
+    public void testUnsigned() throws Exception {
+        PVULongArray pvArray = (PVULongArray) pvDataCreate.createPVScalarArray(ScalarType.pvULong);
+        pvArray.put(0, 2, new long[] {1, -1}, 0);
+        NamedColumns namedColumns = new NamedColumns();
+        namedColumns.add("value", pvArray);
+        StringBuilder buffer = new StringBuilder();
+        namedColumns.appendValue(0, 1, buffer);
+        assertEquals("18446744073709551615", buffer.toString());
+    }
+}
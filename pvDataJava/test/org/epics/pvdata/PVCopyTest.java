@@ -0,0 +1,155 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata;
+
+import junit.framework.TestCase;
+
+import org.epics.pvdata.copy.CreateRequest;
+import org.epics.pvdata.copy.PVCopy;
+import org.epics.pvdata.copy.PVCopyFactory;
+import org.epics.pvdata.factory.StandardPVFieldFactory;
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.pv.PVDouble;
+import org.epics.pvdata.pv.PVField;
+import org.epics.pvdata.pv.PVInt;
+import org.epics.pvdata.pv.PVLong;
+import org.epics.pvdata.pv.PVString;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.StandardPVField;
+
+/**
+ * JUnit test for PVCopy.
+ */
+public class PVCopyTest extends TestCase {
+    private static final StandardPVField standardPVField = StandardPVFieldFactory.getStandardPVField();
+    private static final CreateRequest createRequest = CreateRequest.create();
+
+    private static PVStructure createMaster() {
+        return standardPVField.scalar(ScalarType.pvDouble, "alarm,timeStamp,display");
+    }
+
+    private static PVCopy createCopy(PVStructure pvMaster, String request) {
+        PVStructure pvRequest = createRequest.createRequest(request);
+        assertNotNull(createRequest.getMessage(), pvRequest);
+        PVCopy pvCopy = PVCopyFactory.create(pvMaster, pvRequest, "");
+        assertNotNull(pvCopy);
+        return pvCopy;
+    }
+
+    public void testOffsets() {
+        PVStructure pvMaster = createMaster();
+        PVCopy pvCopy = createCopy(pvMaster, "field(value,alarm.severity,timeStamp)");
+        PVStructure pvCopyStructure = pvCopy.createPVStructure();
+        assertEquals("[value, alarm, timeStamp]",
+                java.util.Arrays.toString(pvCopyStructure.getStructure().getFieldNames()));
+
+        // every field of the copy maps to the master field with the same name
+        assertSame(pvMaster, pvCopy.getMasterPVField(0));
+        for (int offset = 1; offset < pvCopyStructure.getNumberFields(); offset++) {
+            PVField pvCopyField = pvCopyStructure.getSubField(offset);
+            assertEquals(pvCopyField.getFullName(), pvCopy.getMasterPVField(offset).getFullName());
+        }
+
+        PVField masterValue = pvMaster.getSubField("value");
+        assertEquals(pvCopyStructure.getSubField("value").getFieldOffset(), pvCopy.getCopyOffset(masterValue));
+        PVField masterSeconds = pvMaster.getSubField("timeStamp.secondsPastEpoch");
+        assertEquals(pvCopyStructure.getSubField("timeStamp.secondsPastEpoch").getFieldOffset(),
+                pvCopy.getCopyOffset(masterSeconds));
+        PVStructure masterTimeStamp = pvMaster.getStructureField("timeStamp");
+        assertEquals(pvCopyStructure.getSubField("timeStamp.secondsPastEpoch").getFieldOffset(),
+                pvCopy.getCopyOffset(masterTimeStamp, masterSeconds));
+        assertEquals(pvCopyStructure.getSubField("alarm.severity").getFieldOffset(),
+                pvCopy.getCopyOffset(pvMaster.getSubField("alarm.severity")));
+        assertEquals(-1, pvCopy.getCopyOffset(pvMaster.getSubField("alarm.message")));
+        assertEquals(-1, pvCopy.getCopyOffset(pvMaster.getSubField("display")));
+
+        try {
+            pvCopy.getMasterPVField(pvCopyStructure.getNumberFields());
+            fail("Offset is past the end of the copy");
+        } catch (IllegalArgumentException ex) {
+            // Expected
+        }
+    }
+
+    public void testUpdateCopyFromBitSet() {
+        PVStructure pvMaster = createMaster();
+        PVCopy pvCopy = createCopy(pvMaster, "field(value,alarm.severity,timeStamp)");
+        PVStructure pvCopyStructure = pvCopy.createPVStructure();
+        BitSet bitSet = new BitSet(pvCopyStructure.getNumberFields());
+        pvMaster.getSubField(PVDouble.class, "value").put(1.5);
+        pvCopy.initCopy(pvCopyStructure, bitSet);
+        assertEquals(1.5, pvCopyStructure.getSubField(PVDouble.class, "value").get());
+
+        // only the fields with the bit set are copied
+        pvMaster.getSubField(PVDouble.class, "value").put(2.5);
+        pvMaster.getSubField(PVLong.class, "timeStamp.secondsPastEpoch").put(100);
+        pvMaster.getSubField(PVInt.class, "alarm.severity").put(2);
+        bitSet.clear();
+        bitSet.set(pvCopyStructure.getSubField("timeStamp").getFieldOffset());
+        bitSet.set(pvCopyStructure.getSubField("alarm").getFieldOffset());
+        pvCopy.updateCopyFromBitSet(pvCopyStructure, bitSet);
+        assertEquals(1.5, pvCopyStructure.getSubField(PVDouble.class, "value").get());
+        assertEquals(100, pvCopyStructure.getSubField(PVLong.class, "timeStamp.secondsPastEpoch").get());
+        assertEquals(2, pvCopyStructure.getSubField(PVInt.class, "alarm.severity").get());
+
+        bitSet.clear();
+        bitSet.set(0);
+        pvCopy.updateCopyFromBitSet(pvCopyStructure, bitSet);
+        assertEquals(2.5, pvCopyStructure.getSubField(PVDouble.class, "value").get());
+    }
+
+    public void testUpdateCopySetBitSet() {
+        PVStructure pvMaster = createMaster();
+        PVCopy pvCopy = createCopy(pvMaster, "field(value,alarm.severity,timeStamp)");
+        PVStructure pvCopyStructure = pvCopy.createPVStructure();
+        BitSet bitSet = new BitSet(pvCopyStructure.getNumberFields());
+        pvCopy.initCopy(pvCopyStructure, bitSet);
+
+        pvMaster.getSubField(PVLong.class, "timeStamp.secondsPastEpoch").put(100);
+        pvMaster.getSubField(PVString.class, "alarm.message").put("not copied");
+        bitSet.clear();
+        pvCopy.updateCopySetBitSet(pvCopyStructure, bitSet);
+        assertEquals(1, bitSet.cardinality());
+        assertTrue(bitSet.get(pvCopyStructure.getSubField("timeStamp.secondsPastEpoch").getFieldOffset()));
+        assertEquals(100, pvCopyStructure.getSubField(PVLong.class, "timeStamp.secondsPastEpoch").get());
+    }
+
+    public void testUpdateMaster() {
+        PVStructure pvMaster = createMaster();
+        PVCopy pvCopy = createCopy(pvMaster, "field(value,alarm.severity,timeStamp)");
+        PVStructure pvCopyStructure = pvCopy.createPVStructure();
+        BitSet bitSet = new BitSet(pvCopyStructure.getNumberFields());
+        pvCopy.initCopy(pvCopyStructure, bitSet);
+
+        pvCopyStructure.getSubField(PVDouble.class, "value").put(3.5);
+        pvCopyStructure.getSubField(PVInt.class, "alarm.severity").put(1);
+        bitSet.clear();
+        bitSet.set(pvCopyStructure.getSubField("value").getFieldOffset());
+        pvCopy.updateMaster(pvCopyStructure, bitSet);
+        assertEquals(3.5, pvMaster.getSubField(PVDouble.class, "value").get());
+        assertEquals(0, pvMaster.getSubField(PVInt.class, "alarm.severity").get());
+    }
+
+    public void testEntireMaster() {
+        PVStructure pvMaster = createMaster();
+        PVCopy pvCopy = createCopy(pvMaster, "");
+        PVStructure pvCopyStructure = pvCopy.createPVStructure();
+        assertEquals(pvMaster.getNumberFields(), pvCopyStructure.getNumberFields());
+        PVField masterLimit = pvMaster.getSubField("display.limitLow");
+        assertEquals(masterLimit.getFieldOffset(), pvCopy.getCopyOffset(masterLimit));
+        assertSame(masterLimit, pvCopy.getMasterPVField(masterLimit.getFieldOffset()));
+
+        BitSet bitSet = new BitSet(pvCopyStructure.getNumberFields());
+        pvCopy.initCopy(pvCopyStructure, bitSet);
+        pvMaster.getSubField(PVDouble.class, "value").put(4.5);
+        pvMaster.getSubField(PVDouble.class, "display.limitLow").put(-1);
+        bitSet.clear();
+        bitSet.set(pvCopyStructure.getSubField("display").getFieldOffset());
+        pvCopy.updateCopyFromBitSet(pvCopyStructure, bitSet);
+        assertEquals(-1.0, pvCopyStructure.getSubField(PVDouble.class, "display.limitLow").get());
+        assertEquals(0.0, pvCopyStructure.getSubField(PVDouble.class, "value").get());
+    }
+}
@@ -4,12 +4,14 @@
  */
 package org.epics.pvdata;
 
+import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
 
 import junit.framework.TestCase;
 
 import org.epics.pvdata.factory.FieldFactory;
 import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.misc.SerializeHelper;
 import org.epics.pvdata.factory.StandardFieldFactory;
 import org.epics.pvdata.pv.DeserializableControl;
 import org.epics.pvdata.pv.Field;
@@ -585,6 +587,90 @@ public class SerializationTest extends TestCase {
 		serializationTest(pvStructureArray.getStructureArray());
 	}
 
+	public void testLargeStructureArray()
+	{
+        FieldCreate fieldCreate = FieldFactory.getFieldCreate();
+        PVDataCreate pvDataCreate = PVDataFactory.getPVDataCreate();
+        StructureArray sarray = fieldCreate.createStructureArray(StandardFieldFactory.getStandardField().timeStamp());
+        PVStructureArray pvStructureArray = (PVStructureArray)pvDataCreate.createPVField(sarray);
+        final int count = 20000;	// above the parallel serialization threshold the tests are run with
+        pvStructureArray.setLength(count);
+        StructureArrayData sad = new StructureArrayData();
+        pvStructureArray.get(0, count, sad);
+        for (int i = 0; i < count; i++)
+        {
+        	if (i % 1000 == 7)
+        		continue;	// leave some null
+        	PVStructure pvStructure = pvDataCreate.createPVStructure(sarray.getStructure());
+        	pvStructure.getLongField("secondsPastEpoch").put(123L*i);
+        	pvStructure.getIntField("nanoseconds").put(456*i);
+        	sad.data[i] = pvStructure;
+        }
+
+        // flushed through a buffer that is smaller than the whole array
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ByteBuffer buffer = ByteBuffer.allocate(1000);
+        SerializableControl streamFlusher = new SerializableFlushImpl() {
+        	@Override
+        	public void flushSerializeBuffer() {
+        		out.write(buffer.array(), 0, buffer.position());
+        		buffer.clear();
+        	}
+
+        	@Override
+        	public void ensureBuffer(int size) {
+        		if (buffer.remaining() < size)
+        			flushSerializeBuffer();
+        	}
+        };
+        pvStructureArray.serialize(buffer, streamFlusher);
+        streamFlusher.flushSerializeBuffer();
+
+        // same bytes as the sequential encoding
+        ByteBuffer expected = ByteBuffer.allocate(1 << 20);
+        SerializeHelper.writeSize(count, expected, flusher);
+        for (int i = 0; i < count; i++)
+        {
+        	if (sad.data[i] == null)
+        		expected.put((byte)0);
+        	else
+        	{
+        		expected.put((byte)1);
+        		sad.data[i].serialize(expected, flusher);
+        	}
+        }
+        byte[] bytes = out.toByteArray();
+        assertEquals(expected.position(), bytes.length);
+        for (int i = 0; i < bytes.length; i++)
+        	assertEquals(expected.get(i), bytes[i]);
+
+        PVStructureArray deserialized = (PVStructureArray)pvDataCreate.createPVField(sarray);
+        deserialized.deserialize(ByteBuffer.wrap(bytes), control);
+        assertEquals(pvStructureArray, deserialized);
+	}
+
+	public void testLargeVariantUnionArray()
+	{
+        PVDataCreate pvDataCreate = PVDataFactory.getPVDataCreate();
+        PVUnionArray variantArray = pvDataCreate.createPVVariantUnionArray();
+        final int count = 10000;
+        variantArray.setLength(count);
+        UnionArrayData uad = new UnionArrayData();
+        variantArray.get(0, count, uad);
+        for (int i = 0; i < count; i++)
+        {
+        	PVUnion union = pvDataCreate.createPVVariantUnion();
+        	if (i % 2 == 0)
+        	{
+        		PVInt intValue = (PVInt)pvDataCreate.createPVScalar(ScalarType.pvInt);
+        		intValue.put(i);
+        		union.set(intValue);
+        	}
+        	uad.data[i] = union;
+        }
+        serializationTest(variantArray);
+	}
+
 	public void testVariantUnion()
 	{
         PVDataCreate pvDataCreate = PVDataFactory.getPVDataCreate();   
@@ -808,6 +894,23 @@ public class SerializationTest extends TestCase {
         serializationTest(pvUnionArray);
 	}
 
+	public void testIntrospectionInterning()
+	{
+		FieldCreate fieldCreate = FieldFactory.getFieldCreate();
+		Structure structure = StandardFieldFactory.getStandardField().scalar(ScalarType.pvDouble, "alarm,timeStamp,display");
+		
+		ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+		structure.serialize(buffer, flusher);
+		fieldCreate.createStructureArray(structure).serialize(buffer, flusher);
+		buffer.flip();
+		
+		// deserialized types resolve to the same instance
+		assertSame(structure, FieldFactory.getFieldCreate().deserialize(buffer, control));
+		StructureArray structureArray = (StructureArray) FieldFactory.getFieldCreate().deserialize(buffer, control);
+		assertSame(structure, structureArray.getStructure());
+		assertSame(fieldCreate.createStructureArray(structure), structureArray);
+	}
+
 	private void serializationTest(Field field)
 	{
 		// serialize
@@ -825,4 +928,25 @@ public class SerializationTest extends TestCase {
 		assertEquals("deserialization did not read entire serialization buffer", buffer.limit(), buffer.position());
 	}
 	
+
+	public void testCopyOnWriteDeserialize()
+	{
+		PVDoubleArray master = (PVDoubleArray)PVDataFactory.getPVDataCreate().createPVScalarArray(ScalarType.pvDouble);
+		master.put(0, 3, new double[] { 1, 2, 3 }, 0);
+		PVDoubleArray copy = (PVDoubleArray)PVDataFactory.getPVDataCreate().createPVScalarArray(ScalarType.pvDouble);
+		copy.shareData(master);
+
+		PVDoubleArray other = (PVDoubleArray)PVDataFactory.getPVDataCreate().createPVScalarArray(ScalarType.pvDouble);
+		other.put(0, 2, new double[] { 7, 8 }, 0);
+		ByteBuffer buffer = ByteBuffer.allocate(1 << 8);
+		other.serialize(buffer, flusher);
+		buffer.flip();
+
+		// deserializing into a shared array leaves the other holder alone
+		master.deserialize(buffer, control);
+		assertEquals(2, master.getLength());
+		assertEquals(7.0, master.get().getDouble(0));
+		assertEquals(3, copy.getLength());
+		assertEquals(1.0, copy.get().getDouble(0));
+	}
 }